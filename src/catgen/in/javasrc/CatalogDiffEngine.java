@@ -1034,6 +1034,9 @@ public class CatalogDiffEngine {
 
         if (suspect instanceof Constraint && field.equals("index"))
             return null;
+        if (isPlannerStatisticsField(suspect, field)) {
+            return null;
+        }
         if (suspect instanceof Table) {
             if (field.equals("signature") ||
                 field.equals("tuplelimit") || field.equals("tableType"))
@@ -1320,7 +1323,8 @@ public class CatalogDiffEngine {
             processModifyResponses(errorMessage, responseList);
         }
 
-        if (! m_requiresCatalogDiffCmdsApplyToEE && checkCatalogDiffShouldApplyToEE(newType)) {
+        if (! m_requiresCatalogDiffCmdsApplyToEE && checkCatalogDiffShouldApplyToEE(newType) &&
+                ! isPlannerStatisticsField(newType, field)) {
             m_requiresCatalogDiffCmdsApplyToEE = true;
         }
 
@@ -1339,6 +1343,21 @@ public class CatalogDiffEngine {
         cgrp.processChange(newType, prevType, field);
     }
 
+    /**
+     * @return true if the field holds statistics collected by @AnalyzeTable, which
+     * only the planner uses, so they can change at any time without involving the EE.
+     */
+    protected static boolean isPlannerStatisticsField(final CatalogType suspect, final String field)
+    {
+        if (suspect instanceof Table) {
+            return field.equals("estimatedtuplecount");
+        }
+        if (suspect instanceof Column) {
+            return field.equals("distinctcount") || field.equals("histogram");
+        }
+        return false;
+    }
+
     /**
      * Our EE has a list of Catalog items that are in use, but Java catalog contains much more.
      * Some of the catalog diff commands will only be useful to Java. So this function will
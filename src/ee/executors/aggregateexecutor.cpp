@@ -899,7 +899,7 @@ void AggregateSerialExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     // Use the first input tuple to "prime" the system.
     if (m_noInputRows) {
         // ENG-1565: for this special case, can have only one input row, apply the predicate here
-        if (m_prePredicate == NULL || m_prePredicate->eval(&nextTuple, NULL).isTrue()) {
+        if (m_prePredicate == NULL || m_prePredicate->evalPredicate(&nextTuple, NULL)) {
             initGroupByKeyTuple(nextTuple);
 
             // Start the aggregation calculation.
@@ -52,6 +52,7 @@
 #include "executors/aggregateexecutor.h"
 #include "executors/deleteexecutor.h"
 #include "executors/migrateexecutor.h"
+#include "executors/hashjoinexecutor.h"
 #include "executors/indexscanexecutor.h"
 #include "executors/indexcountexecutor.h"
 #include "executors/tablecountexecutor.h"
@@ -109,6 +110,8 @@ AbstractExecutor* getNewExecutor(
          return new NestLoopExecutor(engine, abstract_node);
       case PLAN_NODE_TYPE_NESTLOOPINDEX:
          return new NestLoopIndexExecutor(engine, abstract_node);
+      case PLAN_NODE_TYPE_HASHJOIN:
+         return new HashJoinExecutor(engine, abstract_node);
       case PLAN_NODE_TYPE_ORDERBY:
          if (isLargeQuery) {
             return new LargeOrderByExecutor(engine, abstract_node);
@@ -98,7 +98,7 @@ struct CountingPostfilter {
 
 inline
 bool CountingPostfilter::eval(const TableTuple* outer_tuple, const TableTuple* inner_tuple) {
-    if (m_postPredicate == NULL || m_postPredicate->eval(outer_tuple, inner_tuple).isTrue()) {
+    if (m_postPredicate == NULL || m_postPredicate->evalPredicate(outer_tuple, inner_tuple)) {
         // Check if we have to skip this tuple because of offset
         if (m_tuple_skipped < m_offset) {
             m_tuple_skipped++;
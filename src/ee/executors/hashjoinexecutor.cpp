@@ -0,0 +1,453 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "hashjoinexecutor.h"
+
+#include "common/LargeTempTableBlockCache.h"
+#include "common/TupleSchema.h"
+#include "common/executorcontext.hpp"
+#include "execution/ExecutorVector.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "executors/aggregateexecutor.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+#include "storage/LargeTempTable.h"
+#include "storage/TempTableLimits.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+
+#include <algorithm>
+#include <memory>
+
+using namespace std;
+using namespace voltdb;
+
+typedef std::shared_ptr<LargeTempTable> PartitionPtr;
+
+// Partitions are reference counted like other tables; the last reference
+// destroys the table and releases its blocks.
+static PartitionPtr makePartition(const char* name, const Table* templateTable) {
+    LargeTempTable* table = TableFactory::buildCopiedLargeTempTable(name, templateTable);
+    table->incrementRefcount();
+    return PartitionPtr(table, [](LargeTempTable* t) { t->decrementRefcount(); });
+}
+
+// Upper bound on the number of partitions of each input when the build side
+// does not fit in memory.  The inputs are partitioned one after the other, and
+// every partition of the input being written keeps its current block pinned
+// until that input is finished.  So the count is further capped by the number
+// of blocks the large temp table block cache can pin, see p_execute().
+const static size_t MAX_PARTITION_COUNT = 64;
+
+// Largest size in bytes of a VARCHAR or VARBINARY value
+const static int32_t MAX_KEY_COLUMN_BYTES = 1048576;
+
+HashJoinExecutor::~HashJoinExecutor() {
+    // Hash table entries reference key tuples in the pool, so release them first.
+    m_hashTable.clear();
+    TupleSchema::freeTupleSchema(m_keySchema);
+}
+
+static int32_t keyColumnBytes(const AbstractExpression* expr) {
+    if (expr->getInBytes() || expr->getValueType() != VALUE_TYPE_VARCHAR) {
+        return expr->getValueSize();
+    }
+    return expr->getValueSize() * MAX_BYTES_PER_UTF8_CHARACTER;
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              const ExecutorVector& executorVector)
+{
+    VOLT_TRACE("init HashJoin Executor");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, executorVector)) {
+        return false;
+    }
+    assert(m_joinType == JOIN_TYPE_INNER || m_joinType == JOIN_TYPE_LEFT);
+
+    // NULL tuples for left joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    m_limits = executorVector.limits();
+    m_outerHashExpressions = &node->getOuterHashExpressions();
+    m_innerHashExpressions = &node->getInnerHashExpressions();
+    assert(m_outerHashExpressions->size() == m_innerHashExpressions->size());
+
+    // Outer and inner keys are compared in a common key tuple, so each key column
+    // must be wide enough for the wider of the two expressions it holds.
+    std::vector<ValueType> keyColumnTypes;
+    std::vector<int32_t> keyColumnSizes;
+    std::vector<bool> keyColumnAllowNull;
+    std::vector<bool> keyColumnInBytes;
+    for (int ii = 0; ii < m_innerHashExpressions->size(); ii++) {
+        const AbstractExpression* outerExpr = (*m_outerHashExpressions)[ii];
+        const AbstractExpression* innerExpr = (*m_innerHashExpressions)[ii];
+        assert(outerExpr->getValueType() == innerExpr->getValueType());
+        keyColumnTypes.push_back(innerExpr->getValueType());
+        keyColumnAllowNull.push_back(true);
+        if ( ! outerExpr->getInBytes() && ! innerExpr->getInBytes()) {
+            keyColumnSizes.push_back(std::max(outerExpr->getValueSize(), innerExpr->getValueSize()));
+            keyColumnInBytes.push_back(false);
+        }
+        else {
+            keyColumnSizes.push_back(std::min(MAX_KEY_COLUMN_BYTES,
+                                              std::max(keyColumnBytes(outerExpr), keyColumnBytes(innerExpr))));
+            keyColumnInBytes.push_back(true);
+        }
+    }
+    m_keySchema = TupleSchema::createTupleSchema(keyColumnTypes,
+                                                 keyColumnSizes,
+                                                 keyColumnAllowNull,
+                                                 keyColumnInBytes);
+    return true;
+}
+
+int64_t HashJoinExecutor::bytesPerEntry() const {
+    // The key tuple plus the map node: the entry itself, a next pointer and a bucket pointer
+    return m_keySchema->tupleLength() + TUPLE_HEADER_SIZE +
+            sizeof(HashJoinMapType::value_type) + 2 * sizeof(void*);
+}
+
+void HashJoinExecutor::clearHashTable() {
+    m_hashTable.clear();
+    if (m_limits != NULL && m_allocated > 0) {
+        m_limits->reduceAllocated(static_cast<int>(m_allocated));
+    }
+    m_allocated = 0;
+    m_memoryPool.purge();
+    m_nextKeyStorage.init(m_keySchema, &m_memoryPool);
+    TableTuple& nextKeyTuple = m_nextKeyStorage;
+    nextKeyTuple.move(NULL);
+}
+
+bool HashJoinExecutor::evalKey(const std::vector<AbstractExpression*>& keyExprs,
+                               const TableTuple* outerTuple,
+                               const TableTuple* innerTuple,
+                               Pool* objectPool) {
+    TableTuple& nextKeyTuple = m_nextKeyStorage;
+    if (nextKeyTuple.isNullTuple()) {
+        m_nextKeyStorage.allocateActiveTuple();
+    }
+    for (int ii = 0; ii < keyExprs.size(); ii++) {
+        NValue value = keyExprs[ii]->eval(outerTuple, innerTuple);
+        if (value.isNull()) {
+            return false;
+        }
+        if (objectPool != NULL) {
+            nextKeyTuple.setNValueAllocateForObjectCopies(ii, value, objectPool);
+        }
+        else {
+            nextKeyTuple.setNValue(ii, value);
+        }
+    }
+    return true;
+}
+
+void HashJoinExecutor::insertBuildTuple(const TableTuple& innerTuple, bool copy) {
+    int64_t bytes = bytesPerEntry();
+    TableTuple buildTuple = innerTuple;
+    if (copy) {
+        int tupleLength = innerTuple.getSchema()->tupleLength() + TUPLE_HEADER_SIZE;
+        char* storage = reinterpret_cast<char*>(m_memoryPool.allocate(tupleLength));
+        buildTuple = TableTuple(storage, innerTuple.getSchema());
+        buildTuple.copyForPersistentInsert(innerTuple, &m_memoryPool);
+        bytes += tupleLength;
+    }
+    TableTuple& nextKeyTuple = m_nextKeyStorage;
+    // Non-inlined key values were copied into the pool by evalKey
+    bytes += nextKeyTuple.getNonInlinedMemorySizeForTempTable();
+    if (m_limits != NULL) {
+        m_limits->increaseAllocated(static_cast<int>(bytes));
+    }
+    m_allocated += bytes;
+
+    m_hashTable.insert(HashJoinMapType::value_type(nextKeyTuple, buildTuple));
+    // The map is referencing the current key tuple,
+    // so force a new tuple allocation to hold the next key.
+    nextKeyTuple.move(NULL);
+}
+
+void HashJoinExecutor::outputUnmatched(TableTuple& outerTuple,
+                                       TableTuple& joinTuple,
+                                       CountingPostfilter& postfilter,
+                                       ProgressMonitorProxy& pmp) {
+    if (m_joinType == JOIN_TYPE_INNER || ! postfilter.isUnderLimit()) {
+        return;
+    }
+    const TableTuple& nullInnerTuple = m_null_inner_tuple.tuple();
+    // Still needs to pass the filter
+    if (postfilter.eval(&outerTuple, &nullInnerTuple)) {
+        joinTuple.setNValues(0, outerTuple, 0, m_outerColumnCount);
+        joinTuple.setNValues(m_outerColumnCount, nullInnerTuple, 0, m_innerColumnCount);
+        outputTuple(postfilter, joinTuple, pmp);
+    }
+}
+
+void HashJoinExecutor::probe(TableTuple& outerTuple,
+                             TableTuple& innerTuple,
+                             TableTuple& joinTuple,
+                             CountingPostfilter& postfilter,
+                             ProgressMonitorProxy& pmp) {
+    bool outerMatch = false;
+    if (evalKey(*m_outerHashExpressions, &outerTuple, NULL, NULL)) {
+        TableTuple& probeKeyTuple = m_nextKeyStorage;
+        std::pair<HashJoinMapType::const_iterator, HashJoinMapType::const_iterator> matches =
+                m_hashTable.equal_range(probeKeyTuple);
+        if (matches.first != matches.second) {
+            // populate output table's temp tuple with outer table's values once per outer tuple
+            joinTuple.setNValues(0, outerTuple, 0, m_outerColumnCount);
+        }
+        for (HashJoinMapType::const_iterator iter = matches.first;
+                iter != matches.second && postfilter.isUnderLimit(); ++iter) {
+            pmp.countdownProgress();
+            innerTuple = iter->second;
+            // Hash keys matched; the join predicate still decides the match
+            if (m_joinPredicate == NULL || m_joinPredicate->eval(&outerTuple, &innerTuple).isTrue()) {
+                outerMatch = true;
+                // Filter the joined tuple
+                if (postfilter.eval(&outerTuple, &innerTuple)) {
+                    // Matched! Complete the joined tuple with the inner column values.
+                    joinTuple.setNValues(m_outerColumnCount, innerTuple, 0, m_innerColumnCount);
+                    outputTuple(postfilter, joinTuple, pmp);
+                }
+            }
+        }
+    }
+
+    //
+    // Left Outer Join
+    //
+    if ( ! outerMatch) {
+        outputUnmatched(outerTuple, joinTuple, postfilter, pmp);
+    }
+}
+
+void HashJoinExecutor::executeInMemory(Table* outerTable,
+                                       Table* innerTable,
+                                       TableTuple& joinTuple,
+                                       CountingPostfilter& postfilter,
+                                       ProgressMonitorProxy& pmp) {
+    // Blocks of a large temp table may be evicted once scanned,
+    // so its tuples can not be referenced in place.
+    bool copyBuildTuples = dynamic_cast<LargeTempTable*>(innerTable) != NULL;
+
+    //
+    // Build
+    //
+    TableTuple innerTuple(innerTable->schema());
+    TableIterator iterator1 = innerTable->iterator();
+    while (iterator1.next(innerTuple)) {
+        pmp.countdownProgress();
+        if (evalKey(*m_innerHashExpressions, NULL, &innerTuple, &m_memoryPool)) {
+            insertBuildTuple(innerTuple, copyBuildTuples);
+        }
+    }
+
+    if (m_hashTable.empty() && m_joinType == JOIN_TYPE_INNER) {
+        return;
+    }
+
+    //
+    // Probe
+    //
+    TableTuple outerTuple(outerTable->schema());
+    TableIterator iterator0 = outerTable->iteratorDeletingAsWeGo();
+    while (postfilter.isUnderLimit() && iterator0.next(outerTuple)) {
+        pmp.countdownProgress();
+        // For outer joins if outer tuple fails pre-join predicate
+        // (join expression based on the outer table only)
+        // it can't match any of inner tuples
+        if (m_preJoinPredicate == NULL || m_preJoinPredicate->eval(&outerTuple, NULL).isTrue()) {
+            probe(outerTuple, innerTuple, joinTuple, postfilter, pmp);
+        }
+        else {
+            outputUnmatched(outerTuple, joinTuple, postfilter, pmp);
+        }
+    }
+}
+
+void HashJoinExecutor::executePartitioned(Table* outerTable,
+                                          Table* innerTable,
+                                          size_t partitionCount,
+                                          TableTuple& joinTuple,
+                                          CountingPostfilter& postfilter,
+                                          ProgressMonitorProxy& pmp) {
+    VOLT_DEBUG("hash join build side exceeds memory budget, using %d partitions", (int)partitionCount);
+
+    TableTuple& keyTuple = m_nextKeyStorage;
+
+    //
+    // Partition the inner table.  Tuples with a NULL key can never match.
+    // Its partitions are finished, which unpins their blocks, before the
+    // outer table is partitioned.
+    //
+    std::vector<PartitionPtr> innerPartitions;
+    for (size_t ii = 0; ii < partitionCount; ii++) {
+        innerPartitions.push_back(makePartition("hashjoin_inner", innerTable));
+    }
+    TableTuple innerTuple(innerTable->schema());
+    {
+        TableIterator iterator1 = innerTable->iterator();
+        while (iterator1.next(innerTuple)) {
+            pmp.countdownProgress();
+            if (evalKey(*m_innerHashExpressions, NULL, &innerTuple, NULL)) {
+                innerPartitions[keyTuple.hashCode() % partitionCount]->insertTempTuple(innerTuple);
+            }
+        }
+    }
+    for (size_t ii = 0; ii < partitionCount; ii++) {
+        innerPartitions[ii]->finishInserts();
+    }
+
+    //
+    // Partition the outer table, emitting the tuples that can not match anything right away.
+    //
+    std::vector<PartitionPtr> outerPartitions;
+    for (size_t ii = 0; ii < partitionCount; ii++) {
+        outerPartitions.push_back(makePartition("hashjoin_outer", outerTable));
+    }
+    TableTuple outerTuple(outerTable->schema());
+    {
+        TableIterator iterator0 = outerTable->iteratorDeletingAsWeGo();
+        while (postfilter.isUnderLimit() && iterator0.next(outerTuple)) {
+            pmp.countdownProgress();
+            if ((m_preJoinPredicate == NULL || m_preJoinPredicate->eval(&outerTuple, NULL).isTrue()) &&
+                    evalKey(*m_outerHashExpressions, &outerTuple, NULL, NULL)) {
+                outerPartitions[keyTuple.hashCode() % partitionCount]->insertTempTuple(outerTuple);
+            }
+            else {
+                outputUnmatched(outerTuple, joinTuple, postfilter, pmp);
+            }
+        }
+    }
+
+    for (size_t ii = 0; ii < partitionCount; ii++) {
+        outerPartitions[ii]->finishInserts();
+    }
+
+    //
+    // Join each pair of partitions in memory
+    //
+    // Iterators are scoped so they unpin their current block before their table goes away.
+    for (size_t ii = 0; ii < partitionCount && postfilter.isUnderLimit(); ii++) {
+        {
+            TableIterator buildIterator = innerPartitions[ii]->iteratorDeletingAsWeGo();
+            while (buildIterator.next(innerTuple)) {
+                pmp.countdownProgress();
+                evalKey(*m_innerHashExpressions, NULL, &innerTuple, &m_memoryPool);
+                insertBuildTuple(innerTuple, true);
+            }
+        }
+        innerPartitions[ii].reset();
+
+        {
+            TableIterator probeIterator = outerPartitions[ii]->iteratorDeletingAsWeGo();
+            while (postfilter.isUnderLimit() && probeIterator.next(outerTuple)) {
+                pmp.countdownProgress();
+                probe(outerTuple, innerTuple, joinTuple, postfilter, pmp);
+            }
+        }
+        outerPartitions[ii].reset();
+
+        clearHashTable();
+    }
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outerTable = node->getInputTable();
+    assert(outerTable);
+
+    Table* innerTable = node->getInputTable(1);
+    assert(innerTable);
+
+    VOLT_TRACE ("input table left:\n %s", outerTable->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", innerTable->debug().c_str());
+
+    m_preJoinPredicate = node->getPreJoinPredicate();
+    m_joinPredicate = node->getJoinPredicate();
+    AbstractExpression* wherePredicate = node->getWherePredicate();
+    m_outerColumnCount = outerTable->columnCount();
+    m_innerColumnCount = innerTable->columnCount();
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
+    // Init the postfilter
+    CountingPostfilter postfilter(m_tmpOutputTable, wherePredicate, limit, offset);
+
+    TableTuple joinTuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        joinTuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        joinTuple = m_tmpOutputTable->tempTuple();
+    }
+
+    // Release anything left behind by an earlier execution that threw
+    clearHashTable();
+
+    // Keep the hash table within half of the memory available to temp tables,
+    // leaving the rest for the join's output and the rest of the fragment.
+    int64_t budget = (m_limits == NULL) ? -1 : m_limits->getMemoryLimit() / 2;
+    int64_t buildBytes = innerTable->activeTupleCount() * bytesPerEntry();
+    // Each partition of the input being written pins a block, besides the blocks
+    // pinned already and the one an input that is itself a large temp table
+    // pins while it is scanned.
+    LargeTempTableBlockCache* lttBlockCache = ExecutorContext::getExecutorContext()->lttBlockCache();
+    int64_t pinnableBlocks = lttBlockCache->maxCacheSizeInBlocks() -
+            static_cast<int64_t>(lttBlockCache->numPinnedEntries()) - 1;
+    if (budget <= 0 || buildBytes <= budget || pinnableBlocks < 2) {
+        // Without enough blocks to partition, the hash table is still bound by
+        // the temp table limit, exceeding it fails the fragment as it would for
+        // any other executor.
+        executeInMemory(outerTable, innerTable, joinTuple, postfilter, pmp);
+    }
+    else {
+        // Aim for partitions of half the budget, to leave headroom for skew.  With
+        // fewer blocks than that takes, partitions may still run into the limit.
+        size_t partitionCount = std::min(MAX_PARTITION_COUNT, static_cast<size_t>(2 * (buildBytes / budget + 1)));
+        partitionCount = std::min(partitionCount, static_cast<size_t>(pinnableBlocks));
+        executePartitioned(outerTable, innerTable, partitionCount, joinTuple, postfilter, pmp);
+    }
+
+    clearHashTable();
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    return true;
+}
@@ -0,0 +1,139 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/tabletuple.h"
+#include "executors/abstractjoinexecutor.h"
+
+#include "boost/unordered_map.hpp"
+
+namespace voltdb {
+
+class HashJoinPlanNode;
+class LargeTempTable;
+
+typedef boost::unordered_multimap<TableTuple,
+                                  TableTuple,
+                                  TableTupleHasher,
+                                  TableTupleEqualityChecker> HashJoinMapType;
+
+/**
+ * Executor for PLAN_NODE_TYPE_HASHJOIN (INNER and LEFT joins only).
+ *
+ * When the estimated size of the hash table over the inner input fits within
+ * half of the fragment's temp table memory limit, it is built in one pass over
+ * the inner table and probed in one pass over the outer table.  Otherwise the
+ * inner and then the outer input are partitioned on the hash of their keys into
+ * large temp tables, which may be written to disk, and each pair of partitions
+ * is joined in memory in turn.  The number of partitions is limited by the
+ * blocks the large temp table block cache can pin at once.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+public:
+    HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
+        : AbstractJoinExecutor(engine, abstract_node)
+        , m_keySchema(NULL)
+        , m_limits(NULL)
+        , m_preJoinPredicate(NULL)
+        , m_joinPredicate(NULL)
+        , m_outerHashExpressions(NULL)
+        , m_innerHashExpressions(NULL)
+        , m_outerColumnCount(0)
+        , m_innerColumnCount(0)
+        , m_allocated(0)
+    { }
+
+    ~HashJoinExecutor();
+
+private:
+    bool p_init(AbstractPlanNode*, const ExecutorVector& executorVector);
+    bool p_execute(const NValueArray &params);
+
+    /** Evaluate the key expressions into the next key tuple.
+        Return false if any key is NULL, since NULL never equals anything.
+        Keys that go into the hash table must not reference the input tuples,
+        whose storage may be released while the table is still probed, so for
+        those non-inlined values are copied into objectPool. Keys that are only
+        used right away can pass NULL to reference the values in place. */
+    bool evalKey(const std::vector<AbstractExpression*>& keyExprs,
+                 const TableTuple* outerTuple,
+                 const TableTuple* innerTuple,
+                 Pool* objectPool);
+
+    /** Add an inner tuple to the hash table, keyed on the next key tuple.
+        If copy is true the tuple is first copied into the memory pool,
+        for inputs whose storage may move once it is scanned. */
+    void insertBuildTuple(const TableTuple& innerTuple, bool copy);
+
+    /** Probe the hash table with one outer tuple that already passed the pre-join
+        predicate, outputting its matches or null-padding it for a LEFT join. */
+    void probe(TableTuple& outerTuple,
+               TableTuple& innerTuple,
+               TableTuple& joinTuple,
+               CountingPostfilter& postfilter,
+               ProgressMonitorProxy& pmp);
+
+    /** Output a null-padded outer tuple for a LEFT join, if it passes the postfilter */
+    void outputUnmatched(TableTuple& outerTuple,
+                         TableTuple& joinTuple,
+                         CountingPostfilter& postfilter,
+                         ProgressMonitorProxy& pmp);
+
+    void executeInMemory(Table* outerTable,
+                         Table* innerTable,
+                         TableTuple& joinTuple,
+                         CountingPostfilter& postfilter,
+                         ProgressMonitorProxy& pmp);
+
+    void executePartitioned(Table* outerTable,
+                            Table* innerTable,
+                            size_t partitionCount,
+                            TableTuple& joinTuple,
+                            CountingPostfilter& postfilter,
+                            ProgressMonitorProxy& pmp);
+
+    /** Bytes held by the hash table per build tuple, excluding any copy of the tuple itself */
+    int64_t bytesPerEntry() const;
+
+    /** Release the hash table and account for its memory. */
+    void clearHashTable();
+
+    TupleSchema* m_keySchema;
+    TempTableLimits* m_limits;
+
+    AbstractExpression* m_preJoinPredicate;
+    AbstractExpression* m_joinPredicate;
+    const std::vector<AbstractExpression*>* m_outerHashExpressions;
+    const std::vector<AbstractExpression*>* m_innerHashExpressions;
+    int m_outerColumnCount;
+    int m_innerColumnCount;
+
+    // Key tuples, and partitioned build tuples, live here
+    Pool m_memoryPool;
+    PoolBackedTupleStorage m_nextKeyStorage;
+    HashJoinMapType m_hashTable;
+    // Bytes currently charged to the temp table limits on behalf of the hash table
+    int64_t m_allocated;
+};
+
+}
+
+#endif
@@ -477,7 +477,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
             else {
                 while (!(tuple = tableIndex->nextValue(indexCursor)).isNullTuple()) {
                     pmp.countdownProgress();
-                    if (initial_expression != NULL && !initial_expression->eval(&tuple, NULL).isTrue()) {
+                    if (initial_expression != NULL && !initial_expression->evalPredicate(&tuple, NULL)) {
                         // just passed the first failed entry, so move 2 backward
                         tableIndex->moveToBeforePriorEntry(indexCursor);
                         break;
@@ -530,7 +530,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         // First check to eliminate the null index rows for UNDERFLOW case only
         //
         if (skipNullExpr != NULL) {
-            if (skipNullExpr->eval(&tuple, NULL).isTrue()) {
+            if (skipNullExpr->evalPredicate(&tuple, NULL)) {
                 VOLT_DEBUG("Index scan: find out null rows or columns.");
                 continue;
             } else {
@@ -540,7 +540,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         //
         // First check whether the end_expression is now false
         //
-        if (end_expression != NULL && !end_expression->eval(&tuple, NULL).isTrue()) {
+        if (end_expression != NULL && !end_expression->evalPredicate(&tuple, NULL)) {
             VOLT_TRACE("End Expression evaluated to false, stopping scan");
             break;
         }
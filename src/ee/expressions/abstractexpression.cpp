@@ -86,6 +86,10 @@ bool AbstractExpression::hasParameter() const {
    return (m_left && m_left->hasParameter()) || (m_right && m_right->hasParameter());
 }
 
+bool AbstractExpression::evalPredicate(const TableTuple *tuple1, const TableTuple *tuple2) const {
+    return eval(tuple1, tuple2).isTrue();
+}
+
 bool AbstractExpression::initParamShortCircuits() {
     return m_hasParameter = hasParameter();
 }
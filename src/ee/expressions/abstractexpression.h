@@ -73,6 +73,11 @@ class AbstractExpression {
 
     virtual NValue eval(const TableTuple *tuple1 = NULL, const TableTuple *tuple2 = NULL) const = 0;
 
+    /** evaluate as a filter: true if eval() would return TRUE, false
+        for FALSE and NULL. Predicates may override it to skip building
+        the boolean NValue. */
+    virtual bool evalPredicate(const TableTuple *tuple1 = NULL, const TableTuple *tuple2 = NULL) const;
+
     /** return true if self or descendent should be substitute()'d */
     virtual bool hasParameter() const;
 
@@ -49,6 +49,7 @@
 #include "common/common.h"
 #include "common/serializeio.h"
 #include "common/valuevector.h"
+#include "common/ValuePeeker.hpp"
 
 #include "expressions/abstractexpression.h"
 #include "expressions/parametervalueexpression.h"
@@ -72,6 +73,8 @@ namespace voltdb {
 // applied to a row's prefix column implies a false result for the row comparison.
 // This may require a recheck for strict inequality.
 // "includes_equality" returns true if the comparison is true for (rows of) equal values.
+// "compareInteger", where defined, is the same comparison on two integer or two timestamp
+// values, see IntegerComparisonExpression.
 // isNullRejecting() returns true if the comparison does not consider NULL values as valid ones
 // during comparison. All comparison except "is distinct from" are null rejecting, therefore
 // returning true.
@@ -79,6 +82,7 @@ namespace voltdb {
 class CmpEq {
 public:
     inline static const char* op_name() { return "CmpEq"; }
+    inline static bool compareInteger(int64_t l, int64_t r) { return l == r; }
     inline static NValue compare(const NValue& l, const NValue& r)
     {
         assert(!l.isNull());
@@ -103,6 +107,7 @@ public:
 class CmpNe {
 public:
     inline static const char* op_name() { return "CmpNe"; }
+    inline static bool compareInteger(int64_t l, int64_t r) { return l != r; }
     inline static NValue compare(const NValue& l, const NValue& r)
     {
         assert(!l.isNull());
@@ -119,6 +124,7 @@ public:
 class CmpLt {
 public:
     inline static const char* op_name() { return "CmpLt"; }
+    inline static bool compareInteger(int64_t l, int64_t r) { return l < r; }
     inline static NValue compare(const NValue& l, const NValue& r)
     {
         assert(!l.isNull());
@@ -136,6 +142,7 @@ public:
 class CmpGt {
 public:
     inline static const char* op_name() { return "CmpGt"; }
+    inline static bool compareInteger(int64_t l, int64_t r) { return l > r; }
     inline static NValue compare(const NValue& l, const NValue& r)
     {
         assert(!l.isNull());
@@ -153,6 +160,7 @@ public:
 class CmpLte {
 public:
     inline static const char* op_name() { return "CmpLte"; }
+    inline static bool compareInteger(int64_t l, int64_t r) { return l <= r; }
     inline static NValue compare(const NValue& l, const NValue& r)
     {
         assert(!l.isNull());
@@ -170,6 +178,7 @@ public:
 class CmpGte {
 public:
     inline static const char* op_name() { return "CmpGte"; }
+    inline static bool compareInteger(int64_t l, int64_t r) { return l >= r; }
     inline static NValue compare(const NValue& l, const NValue& r)
     {
         assert(!l.isNull());
@@ -270,6 +279,24 @@ public:
         return OP::compare(lnv, rnv);
     }
 
+    bool evalPredicate(const TableTuple *tuple1, const TableTuple *tuple2) const
+    {
+        assert(m_left != NULL);
+        assert(m_right != NULL);
+
+        NValue lnv = m_left->eval(tuple1, tuple2);
+        if (lnv.isNull() && OP::isNullRejecting()) {
+            return false;
+        }
+
+        NValue rnv = m_right->eval(tuple1, tuple2);
+        if (rnv.isNull() && OP::isNullRejecting()) {
+            return false;
+        }
+
+        return OP::compare(lnv, rnv).isTrue();
+    }
+
     inline const char* traceEval(const TableTuple *tuple1, const TableTuple *tuple2) const
     {
         NValue lnv;
@@ -301,5 +328,97 @@ public:
     {}
 };
 
+/*
+ * True if two non-null values can be compared as int64_t, giving the same
+ * result as the NValue comparison: integers of any width against each other,
+ * or timestamps against timestamps.
+ */
+inline bool isIntegerComparable(ValueType left, ValueType right)
+{
+    switch (left) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+        switch (right) {
+        case VALUE_TYPE_TINYINT:
+        case VALUE_TYPE_SMALLINT:
+        case VALUE_TYPE_INTEGER:
+        case VALUE_TYPE_BIGINT:
+            return true;
+        default:
+            return false;
+        }
+    case VALUE_TYPE_TIMESTAMP:
+        return right == VALUE_TYPE_TIMESTAMP;
+    default:
+        return false;
+    }
+}
+
+/*
+ * Comparison of a column with a constant, a parameter or another column when
+ * the planner typed both sides as integers or timestamps, the common case of
+ * scan, index scan and aggregate predicates. It is chosen by
+ * ExpressionUtil::comparisonFactory when the plan fragment is deserialized,
+ * so it is cached with the executors of the fragment.
+ *
+ * The operands are evaluated through their concrete classes, which the
+ * compiler inlines, and compared as int64_t instead of through the type
+ * dispatch of NValue::compare. A parameter may still be bound to a value of
+ * another type, so the operand types are checked for every row and any
+ * other combination falls back to the NValue comparison.
+ */
+template <typename C, typename L, typename R>
+class IntegerComparisonExpression : public ComparisonExpression<C> {
+public:
+    IntegerComparisonExpression(ExpressionType type, L *left, R *right)
+        : ComparisonExpression<C>(type, left, right),
+          m_typedLeft(left), m_typedRight(right)
+    {}
+
+    NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const
+    {
+        NValue lnv = m_typedLeft->L::eval(tuple1, tuple2);
+        if (lnv.isNull()) {
+            return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
+        }
+        NValue rnv = m_typedRight->R::eval(tuple1, tuple2);
+        if (rnv.isNull()) {
+            return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
+        }
+        if (isIntegerComparable(ValuePeeker::peekValueType(lnv), ValuePeeker::peekValueType(rnv))) {
+            return C::compareInteger(ValuePeeker::peekAsRawInt64(lnv),
+                                     ValuePeeker::peekAsRawInt64(rnv)) ?
+                   NValue::getTrue() : NValue::getFalse();
+        }
+        return C::compare(lnv, rnv);
+    }
+
+    bool evalPredicate(const TableTuple *tuple1, const TableTuple *tuple2) const
+    {
+        NValue lnv = m_typedLeft->L::eval(tuple1, tuple2);
+        if (lnv.isNull()) {
+            return false;
+        }
+        NValue rnv = m_typedRight->R::eval(tuple1, tuple2);
+        if (rnv.isNull()) {
+            return false;
+        }
+        if (isIntegerComparable(ValuePeeker::peekValueType(lnv), ValuePeeker::peekValueType(rnv))) {
+            return C::compareInteger(ValuePeeker::peekAsRawInt64(lnv), ValuePeeker::peekAsRawInt64(rnv));
+        }
+        return C::compare(lnv, rnv).isTrue();
+    }
+
+    std::string debugInfo(const std::string &spacer) const {
+        return (spacer + "IntegerComparisonExpression\n");
+    }
+
+private:
+    L *m_typedLeft;
+    R *m_typedRight;
+};
+
 }
 #endif
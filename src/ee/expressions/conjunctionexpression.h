@@ -74,6 +74,8 @@ class ConjunctionExpression : public AbstractExpression
 
     NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const;
 
+    bool evalPredicate(const TableTuple *tuple1, const TableTuple *tuple2) const;
+
     std::string debugInfo(const std::string &spacer) const {
         return (spacer + "ConjunctionExpression\n");
     }
@@ -130,5 +132,21 @@ ConjunctionExpression<ConjunctionOr>::eval(const TableTuple *tuple1,
     return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
 }
 
+// A conjunction is TRUE only when both (AND) or either (OR) of its operands
+// are TRUE, so the FALSE and NULL cases need not be told apart when filtering.
+template<> inline bool
+ConjunctionExpression<ConjunctionAnd>::evalPredicate(const TableTuple *tuple1,
+                                                     const TableTuple *tuple2) const
+{
+    return m_left->evalPredicate(tuple1, tuple2) && m_right->evalPredicate(tuple1, tuple2);
+}
+
+template<> inline bool
+ConjunctionExpression<ConjunctionOr>::evalPredicate(const TableTuple *tuple1,
+                                                    const TableTuple *tuple2) const
+{
+    return m_left->evalPredicate(tuple1, tuple2) || m_right->evalPredicate(tuple1, tuple2);
+}
+
 }
 #endif
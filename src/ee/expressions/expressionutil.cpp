@@ -243,12 +243,78 @@ static AbstractExpression* getMoreSpecialized(ExpressionType c, L* l, R* r)
     }
 }
 
+template <typename L, typename R>
+static AbstractExpression* getIntegerSpecialized(ExpressionType c, L* l, R* r)
+{
+    assert (l);
+    assert (r);
+    switch (c) {
+    case (EXPRESSION_TYPE_COMPARE_EQUAL):
+        return new IntegerComparisonExpression<CmpEq, L, R>(c, l, r);
+    case (EXPRESSION_TYPE_COMPARE_NOTEQUAL):
+        return new IntegerComparisonExpression<CmpNe, L, R>(c, l, r);
+    case (EXPRESSION_TYPE_COMPARE_LESSTHAN):
+        return new IntegerComparisonExpression<CmpLt, L, R>(c, l, r);
+    case (EXPRESSION_TYPE_COMPARE_GREATERTHAN):
+        return new IntegerComparisonExpression<CmpGt, L, R>(c, l, r);
+    case (EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO):
+        return new IntegerComparisonExpression<CmpLte, L, R>(c, l, r);
+    case (EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO):
+        return new IntegerComparisonExpression<CmpGte, L, R>(c, l, r);
+    default:
+        return NULL;
+    }
+}
+
+/** Integer and timestamp comparisons of a column with a constant, a
+ * parameter or another column, or NULL if the operands don't qualify. */
+static AbstractExpression* integerComparisonFactory(
+      ExpressionType et, AbstractExpression *lc, AbstractExpression *rc) {
+    if ( ! isIntegerComparable(lc->getValueType(), rc->getValueType())) {
+        return NULL;
+    }
+    TupleValueExpression *l_tuple = dynamic_cast<TupleValueExpression*>(lc);
+    TupleValueExpression *r_tuple = dynamic_cast<TupleValueExpression*>(rc);
+    if (l_tuple != NULL) {
+        if (r_tuple != NULL) {
+            return getIntegerSpecialized<TupleValueExpression, TupleValueExpression>(et, l_tuple, r_tuple);
+        }
+        ConstantValueExpression *r_const = dynamic_cast<ConstantValueExpression*>(rc);
+        if (r_const != NULL) {
+            return getIntegerSpecialized<TupleValueExpression, ConstantValueExpression>(et, l_tuple, r_const);
+        }
+        ParameterValueExpression *r_param = dynamic_cast<ParameterValueExpression*>(rc);
+        if (r_param != NULL) {
+            return getIntegerSpecialized<TupleValueExpression, ParameterValueExpression>(et, l_tuple, r_param);
+        }
+    }
+    else if (r_tuple != NULL) {
+        ConstantValueExpression *l_const = dynamic_cast<ConstantValueExpression*>(lc);
+        if (l_const != NULL) {
+            return getIntegerSpecialized<ConstantValueExpression, TupleValueExpression>(et, l_const, r_tuple);
+        }
+        ParameterValueExpression *l_param = dynamic_cast<ParameterValueExpression*>(lc);
+        if (l_param != NULL) {
+            return getIntegerSpecialized<ParameterValueExpression, TupleValueExpression>(et, l_param, r_tuple);
+        }
+    }
+    return NULL;
+}
+
 /** convert the enumerated value type into a concrete c type for the
  * comparison helper templates. */
 AbstractExpression* ExpressionUtil::comparisonFactory(
       PlannerDomValue obj, ExpressionType et, AbstractExpression *lc, AbstractExpression *rc) {
     assert(lc);
 
+    // integer or timestamp column comparison?
+    if (rc != NULL) {
+        AbstractExpression *integerComparison = integerComparisonFactory(et, lc, rc);
+        if (integerComparison != NULL) {
+            return integerComparison;
+        }
+    }
+
     // more specialization available?
     ConstantValueExpression *l_const = dynamic_cast<ConstantValueExpression*>(lc);
     ConstantValueExpression *r_const = dynamic_cast<ConstantValueExpression*>(rc);
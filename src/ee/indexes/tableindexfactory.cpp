@@ -62,7 +62,7 @@ class TableIndexPicker
     TableIndex *getInstanceForKeyType() const
     {
         if (m_scheme.unique) {
-            if (m_type != BALANCED_TREE_INDEX) {
+            if (m_type == HASH_TABLE_INDEX) {
                 return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
             } else if (m_scheme.countable) {
                 return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
@@ -70,7 +70,7 @@ class TableIndexPicker
                 return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
             }
         } else {
-            if (m_type != BALANCED_TREE_INDEX) {
+            if (m_type == HASH_TABLE_INDEX) {
                 return new CompactingHashMultiMapIndex<TKeyType >(m_keySchema, m_scheme);
             } else if (m_scheme.countable) {
                 return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
@@ -80,6 +80,26 @@ class TableIndexPicker
         }
     }
 
+    // Only instantiated for the key types that own all of their data,
+    // see CompactingBTree.
+    template <class TKeyType>
+    TableIndex *getBTreeInstanceForKeyType() const
+    {
+        if (m_scheme.unique) {
+            if (m_scheme.countable) {
+                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true, CompactingBTree>(m_keySchema, m_scheme);
+            } else {
+                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false, CompactingBTree>(m_keySchema, m_scheme);
+            }
+        } else {
+            if (m_scheme.countable) {
+                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true, CompactingBTree>(m_keySchema, m_scheme);
+            } else {
+                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, false, CompactingBTree>(m_keySchema, m_scheme);
+            }
+        }
+    }
+
     template <std::size_t KeySize>
     TableIndex *getInstanceIfKeyFits()
     {
@@ -89,6 +109,9 @@ class TableIndexPicker
         if (m_intsOnly) {
             // The IntsKey size parameter ((KeySize-1)/8 + 1) is calculated to be
             // the number of 8-byte uint64's required to store KeySize packed bytes.
+            if (m_type == BTREE_INDEX) {
+                return getBTreeInstanceForKeyType<IntsKey<(KeySize-1)/8 + 1> >();
+            }
             return getInstanceForKeyType<IntsKey<(KeySize-1)/8 + 1> >();
         }
         // Generic Key
@@ -103,6 +126,17 @@ class TableIndexPicker
         // then the GenericKey will have to reference and maintain its own persistent non-inline storage.
         // That's exactly what the GenericPersistentKey subtype of GenericKey does. This incurs extra overhead
         // for object copying and freeing, so is only enabled as needed.
+        if (m_type == BTREE_INDEX) {
+            // B+tree separator keys outlive the entries they were copied from,
+            // so they cannot point at the non-inlined values of a tuple.
+            if (m_inlinesOrColumnsOnly && m_keySchema->getUninlinedObjectColumnCount() == 0) {
+                return getBTreeInstanceForKeyType<GenericKey<KeySize> >();
+            }
+            VOLT_INFO("Producing a tree index for %s: "
+                      "B+tree index not currently supported for this index key.\n",
+                      m_scheme.name.c_str());
+            m_type = BALANCED_TREE_INDEX;
+        }
         if (m_inlinesOrColumnsOnly) {
             return getInstanceForKeyType<GenericKey<KeySize> >();
         }
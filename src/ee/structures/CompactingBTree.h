@@ -0,0 +1,970 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPACTINGBTREE_H_
+#define COMPACTINGBTREE_H_
+
+#include "ContiguousAllocator.h"
+#include "CompactingMap.h"
+
+#include <cstdlib>
+#include <stdint.h>
+#include <utility>
+#include <cassert>
+
+namespace voltdb {
+
+/**
+ * B+tree with the interface of CompactingMap, for indexes where the pointer
+ * chasing of the red-black tree (one cache miss per level) dominates lookups
+ * and range scans.
+ *
+ * Entries are kept sorted in leaves of about a kilobyte, chained in both
+ * directions for scans. Inner nodes hold a separator key and a child pointer
+ * per child and, for ranked maps, the number of entries under each child.
+ * Every node except the root is kept at least a quarter full by
+ * redistributing with or merging into a sibling.
+ *
+ * Like CompactingMap, leaves and inner nodes are tightly packed into two
+ * ContiguousAllocators: when a node is freed, the last node of its allocator
+ * is moved into the hole, so memory shrinks with the number of entries.
+ *
+ * Separator keys are copies of keys that may since have been deleted, so
+ * keys must not reference memory owned by a map entry or a tuple
+ * (GenericPersistentKey, TupleKey, GenericKey with non-inlined columns).
+ * TableIndexFactory falls back to CompactingMap for those.
+ *
+ * The same caveats as CompactingMap apply: nodes move in memory, keys and
+ * values are moved by assignment, and iterators are invalidated by any
+ * mutation of the map.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank=false>
+class CompactingBTree {
+    typedef typename KeyValuePair::first_type Key;
+    typedef typename KeyValuePair::second_type Data;
+
+    // Target size of the entry and key arrays of a node
+    static const int NODE_BYTES = 1024;
+    static const int MIN_CAPACITY = 8;
+    static const int BLOCK_BYTES = 512 * 1024;
+
+    static const int LEAF_CAPACITY =
+        NODE_BYTES / sizeof(KeyValuePair) > MIN_CAPACITY ? NODE_BYTES / sizeof(KeyValuePair) : MIN_CAPACITY;
+    static const int INNER_ENTRY_BYTES = sizeof(Key) + sizeof(void*) + (hasRank ? sizeof(int64_t) : 0);
+    static const int INNER_CAPACITY =
+        NODE_BYTES / INNER_ENTRY_BYTES > MIN_CAPACITY ? NODE_BYTES / INNER_ENTRY_BYTES : MIN_CAPACITY;
+    static const int LEAF_MIN = LEAF_CAPACITY / 4;
+    static const int INNER_MIN = INNER_CAPACITY / 4;
+
+    struct InnerNode;
+
+    struct LeafNode {
+        InnerNode *parent;
+        LeafNode *prev;
+        LeafNode *next;
+        int32_t count;
+        KeyValuePair entries[LEAF_CAPACITY];
+
+        LeafNode() : parent(NULL), prev(NULL), next(NULL), count(0) {}
+
+        void* operator new(std::size_t unused_sz, ContiguousAllocator& ca)
+        {
+            void *memory = ca.alloc();
+            assert(memory);
+            return memory;
+        }
+        // Deallocation is left to the allocator, see CompactingMap::TreeNode
+        void operator delete(void* unused) { }
+    };
+
+    // keys[i] for i > 0 is not greater than the entries under children[i]
+    // and not less than the entries under children[0 .. i-1].
+    struct InnerNode {
+        InnerNode *parent;
+        int32_t count;
+        bool leafChildren;
+        Key keys[INNER_CAPACITY];
+        void *children[INNER_CAPACITY];
+        int64_t counts[hasRank ? INNER_CAPACITY : 1];
+
+        InnerNode(bool hasLeafChildren) : parent(NULL), count(0), leafChildren(hasLeafChildren) {}
+
+        void* operator new(std::size_t unused_sz, ContiguousAllocator& ca)
+        {
+            void *memory = ca.alloc();
+            assert(memory);
+            return memory;
+        }
+        void operator delete(void* unused) { }
+    };
+
+    int64_t m_count;
+    void *m_root;
+    // number of inner node levels, 0 when the root is a leaf
+    int m_height;
+    LeafNode *m_first;
+    LeafNode *m_last;
+    ContiguousAllocator m_leafAllocator;
+    ContiguousAllocator m_innerAllocator;
+    bool m_unique;
+    Compare m_comper;
+
+public:
+    /**
+     * A leaf and a slot in it. Fits in the iterator storage of IndexCursor.
+     */
+    class iterator {
+        friend class CompactingBTree<KeyValuePair, Compare, hasRank>;
+    protected:
+        LeafNode *m_leaf;
+        int32_t m_slot;
+        iterator(LeafNode *leaf, int32_t slot) : m_leaf(leaf), m_slot(slot) {}
+    public:
+        iterator() : m_leaf(NULL), m_slot(0) {}
+        const Key &key() const { return m_leaf->entries[m_slot].getKey(); }
+        const Data &value() const { return m_leaf->entries[m_slot].getValue(); }
+        void setValue(const Data &value) { m_leaf->entries[m_slot].setValue(value); }
+        void moveNext()
+        {
+            if (m_leaf != NULL && ++m_slot >= m_leaf->count) {
+                m_leaf = m_leaf->next;
+                m_slot = 0;
+            }
+        }
+        void movePrev()
+        {
+            if (m_leaf == NULL) {
+                return;
+            }
+            if (m_slot > 0) {
+                --m_slot;
+                return;
+            }
+            m_leaf = m_leaf->prev;
+            m_slot = (m_leaf == NULL) ? 0 : m_leaf->count - 1;
+        }
+        bool isEnd() const { return m_leaf == NULL; }
+        bool equals(const iterator &iter) const {
+            if (isEnd()) {
+                return iter.isEnd();
+            }
+            return m_leaf == iter.m_leaf && m_slot == iter.m_slot;
+        }
+    };
+
+    CompactingBTree(bool unique, Compare comper);
+    ~CompactingBTree();
+
+    const Data *insert(const Key &key, const Data &data);
+    bool erase(const Key &key);
+    bool erase(iterator &iter);
+
+    iterator find(const Key &key) const;
+    iterator findRank(int64_t ith) const;
+    int64_t size() const { return m_count; }
+    iterator begin() const { return iterator(m_first, 0); }
+    iterator rbegin() const { return iterator(m_last, (m_last == NULL) ? 0 : m_last->count - 1); }
+
+    iterator lowerBound(const Key &key) const;
+    iterator upperBound(const Key &key) const;
+
+    std::pair<iterator, iterator> equalRange(const Key &key) const
+    {
+        return std::pair<iterator, iterator>(lowerBound(key), upperBound(key));
+    }
+
+    size_t bytesAllocated() const
+    {
+        return m_leafAllocator.bytesAllocated() + m_innerAllocator.bytesAllocated();
+    }
+
+    // Must pass a key that already in map, or else return -1
+    int64_t rankLower(const Key& key) const;
+    int64_t rankUpper(const Key& key) const;
+
+    /**
+     * For debugging: verify the ordering, links, fill and counts. SLOW.
+     */
+    bool verify() const;
+
+private:
+    LeafNode *findLeaf(const Key &key, bool strict) const;
+    int childIndex(const InnerNode *node, const Key &key, bool strict) const;
+    int leafIndex(const LeafNode *leaf, const Key &key, bool strict) const;
+    iterator normalize(LeafNode *leaf, int slot) const;
+
+    static int indexOfChild(const InnerNode *node, const void *child);
+    static void setParent(void *child, bool leaf, InnerNode *parent);
+    int64_t totalOf(const void *node, bool leaf) const;
+    void adjustCounts(void *node, int64_t delta);
+
+    void splitLeaf(LeafNode *leaf);
+    void insertChild(InnerNode *parent, void *left, void *right, const Key &separator, bool leaf);
+    void removeChild(InnerNode *node, int idx);
+    void rebalanceLeaf(LeafNode *leaf);
+    void rebalanceInner(InnerNode *node);
+
+    void freeLeaf(LeafNode *leaf);
+    InnerNode *freeInner(InnerNode *node, InnerNode *track);
+    void destroy(void *node, bool leaf);
+
+    int64_t verify(const void *node, bool leaf, const InnerNode *parent,
+                   const Key *lower, const Key *upper, int depth) const;
+};
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+CompactingBTree<KeyValuePair, Compare, hasRank>::CompactingBTree(bool unique, Compare comper)
+    : m_count(0),
+      m_root(NULL),
+      m_height(0),
+      m_first(NULL),
+      m_last(NULL),
+      m_leafAllocator(static_cast<int>(sizeof(LeafNode)),
+                      static_cast<int>(BLOCK_BYTES / sizeof(LeafNode) > 0 ? BLOCK_BYTES / sizeof(LeafNode) : 1)),
+      m_innerAllocator(static_cast<int>(sizeof(InnerNode)),
+                       static_cast<int>(BLOCK_BYTES / sizeof(InnerNode) > 0 ? BLOCK_BYTES / sizeof(InnerNode) : 1)),
+      m_unique(unique),
+      m_comper(comper)
+{ }
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+CompactingBTree<KeyValuePair, Compare, hasRank>::~CompactingBTree()
+{
+    if (m_root != NULL) {
+        destroy(m_root, m_height == 0);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::destroy(void *node, bool leaf)
+{
+    if (leaf) {
+        delete static_cast<LeafNode*>(node);
+        return;
+    }
+    InnerNode *inner = static_cast<InnerNode*>(node);
+    for (int ii = 0; ii < inner->count; ++ii) {
+        destroy(inner->children[ii], inner->leafChildren);
+    }
+    delete inner;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::childIndex(const InnerNode *node,
+                                                                const Key &key, bool strict) const
+{
+    // The child is the last one whose separator sorts before the key, or
+    // not after it unless strict. keys[0] is not a separator.
+    int lo = 1;
+    int hi = node->count;
+    while (lo < hi) {
+        int mid = (lo + hi) / 2;
+        int cmp = m_comper(node->keys[mid], key);
+        if (cmp < 0 || (cmp == 0 && ! strict)) {
+            lo = mid + 1;
+        }
+        else {
+            hi = mid;
+        }
+    }
+    return lo - 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::leafIndex(const LeafNode *leaf,
+                                                               const Key &key, bool strict) const
+{
+    // The first entry not before the key (strict), or after it
+    int lo = 0;
+    int hi = leaf->count;
+    while (lo < hi) {
+        int mid = (lo + hi) / 2;
+        int cmp = m_comper(leaf->entries[mid].getKey(), key);
+        if (cmp < 0 || (cmp == 0 && ! strict)) {
+            lo = mid + 1;
+        }
+        else {
+            hi = mid;
+        }
+    }
+    return lo;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::LeafNode *
+CompactingBTree<KeyValuePair, Compare, hasRank>::findLeaf(const Key &key, bool strict) const
+{
+    void *node = m_root;
+    for (int level = m_height; level > 0; --level) {
+        const InnerNode *inner = static_cast<const InnerNode*>(node);
+        node = inner->children[childIndex(inner, key, strict)];
+    }
+    return static_cast<LeafNode*>(node);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::normalize(LeafNode *leaf, int slot) const
+{
+    // Entries after the last one of a leaf start the next leaf
+    if (slot >= leaf->count) {
+        return iterator(leaf->next, 0);
+    }
+    return iterator(leaf, slot);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::lowerBound(const Key &key) const
+{
+    if (m_root == NULL) {
+        return iterator();
+    }
+    LeafNode *leaf = findLeaf(key, true);
+    return normalize(leaf, leafIndex(leaf, key, true));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::upperBound(const Key &key) const
+{
+    if (m_root == NULL) {
+        return iterator();
+    }
+    Key tmpKey(key);
+    setPointerValue(tmpKey, MAXPOINTER);
+    LeafNode *leaf = findLeaf(tmpKey, false);
+    return normalize(leaf, leafIndex(leaf, tmpKey, false));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::find(const Key &key) const
+{
+    iterator iter = lowerBound(key);
+    if (iter.isEnd() || m_comper(iter.key(), key) != 0) {
+        return iterator();
+    }
+    return iter;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::indexOfChild(const InnerNode *node, const void *child)
+{
+    for (int ii = 0; ii < node->count; ++ii) {
+        if (node->children[ii] == child) {
+            return ii;
+        }
+    }
+    assert(false);
+    return -1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::setParent(void *child, bool leaf, InnerNode *parent)
+{
+    if (leaf) {
+        static_cast<LeafNode*>(child)->parent = parent;
+    }
+    else {
+        static_cast<InnerNode*>(child)->parent = parent;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::totalOf(const void *node, bool leaf) const
+{
+    if (leaf) {
+        return static_cast<const LeafNode*>(node)->count;
+    }
+    const InnerNode *inner = static_cast<const InnerNode*>(node);
+    int64_t total = 0;
+    for (int ii = 0; ii < inner->count; ++ii) {
+        total += inner->counts[ii];
+    }
+    return total;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::adjustCounts(void *node, int64_t delta)
+{
+    if ( ! hasRank) {
+        return;
+    }
+    InnerNode *parent = static_cast<LeafNode*>(node)->parent;
+    while (parent != NULL) {
+        parent->counts[indexOfChild(parent, node)] += delta;
+        node = parent;
+        parent = parent->parent;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+const typename CompactingBTree<KeyValuePair, Compare, hasRank>::Data *
+CompactingBTree<KeyValuePair, Compare, hasRank>::insert(const Key &key, const Data &value)
+{
+    if (m_root == NULL) {
+        LeafNode *leaf = new (m_leafAllocator) LeafNode();
+        m_root = m_first = m_last = leaf;
+        m_height = 0;
+    }
+
+    LeafNode *leaf = findLeaf(key, false);
+    int slot = leafIndex(leaf, key, false);
+    // Separators of a unique map are greater than the entries to their
+    // left, so an equal entry can only be just before the slot.
+    if (m_unique && slot > 0 && m_comper(leaf->entries[slot - 1].getKey(), key) == 0) {
+        return &leaf->entries[slot - 1].getValue();
+    }
+
+    if (leaf->count == LEAF_CAPACITY) {
+        splitLeaf(leaf);
+        if (slot > leaf->count) {
+            slot -= leaf->count;
+            leaf = leaf->next;
+        }
+    }
+
+    for (int ii = leaf->count; ii > slot; --ii) {
+        leaf->entries[ii] = leaf->entries[ii - 1];
+    }
+    leaf->entries[slot].setKeyValuePair(key, value);
+    leaf->count++;
+    m_count++;
+    adjustCounts(leaf, 1);
+    return NULL;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::splitLeaf(LeafNode *leaf)
+{
+    LeafNode *right = new (m_leafAllocator) LeafNode();
+    const int half = leaf->count / 2;
+    for (int ii = half; ii < leaf->count; ++ii) {
+        right->entries[ii - half] = leaf->entries[ii];
+    }
+    right->count = leaf->count - half;
+    leaf->count = half;
+
+    right->next = leaf->next;
+    if (leaf->next != NULL) {
+        leaf->next->prev = right;
+    }
+    else {
+        m_last = right;
+    }
+    leaf->next = right;
+    right->prev = leaf;
+
+    insertChild(leaf->parent, leaf, right, right->entries[0].getKey(), true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::insertChild(InnerNode *parent, void *left, void *right,
+                                                                  const Key &separator, bool leaf)
+{
+    if (parent == NULL) {
+        // left was the root
+        InnerNode *root = new (m_innerAllocator) InnerNode(leaf);
+        root->children[0] = left;
+        root->children[1] = right;
+        root->keys[1] = separator;
+        root->count = 2;
+        if (hasRank) {
+            root->counts[0] = totalOf(left, leaf);
+            root->counts[1] = totalOf(right, leaf);
+        }
+        setParent(left, leaf, root);
+        setParent(right, leaf, root);
+        m_root = root;
+        m_height++;
+        return;
+    }
+
+    int idx = indexOfChild(parent, left);
+    if (parent->count == INNER_CAPACITY) {
+        InnerNode *sibling = new (m_innerAllocator) InnerNode(leaf);
+        const int half = parent->count / 2;
+        const Key upKey = parent->keys[half];
+        for (int ii = half; ii < parent->count; ++ii) {
+            sibling->children[ii - half] = parent->children[ii];
+            if (ii > half) {
+                sibling->keys[ii - half] = parent->keys[ii];
+            }
+            if (hasRank) {
+                sibling->counts[ii - half] = parent->counts[ii];
+            }
+            setParent(parent->children[ii], leaf, sibling);
+        }
+        sibling->count = parent->count - half;
+        parent->count = half;
+        insertChild(parent->parent, parent, sibling, upKey, false);
+        if (idx >= half) {
+            parent = sibling;
+            idx -= half;
+        }
+    }
+
+    for (int ii = parent->count; ii > idx + 1; --ii) {
+        parent->children[ii] = parent->children[ii - 1];
+        parent->keys[ii] = parent->keys[ii - 1];
+        if (hasRank) {
+            parent->counts[ii] = parent->counts[ii - 1];
+        }
+    }
+    parent->children[idx + 1] = right;
+    parent->keys[idx + 1] = separator;
+    parent->count++;
+    setParent(right, leaf, parent);
+    if (hasRank) {
+        parent->counts[idx] = totalOf(left, leaf);
+        parent->counts[idx + 1] = totalOf(right, leaf);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::erase(const Key &key)
+{
+    iterator iter = find(key);
+    if (iter.isEnd()) {
+        return false;
+    }
+    return erase(iter);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::erase(iterator &iter)
+{
+    assert( ! iter.isEnd());
+    LeafNode *leaf = iter.m_leaf;
+    for (int ii = iter.m_slot; ii < leaf->count - 1; ++ii) {
+        leaf->entries[ii] = leaf->entries[ii + 1];
+    }
+    leaf->count--;
+    leaf->entries[leaf->count] = KeyValuePair();
+    m_count--;
+    adjustCounts(leaf, -1);
+    rebalanceLeaf(leaf);
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::removeChild(InnerNode *node, int idx)
+{
+    for (int ii = idx; ii < node->count - 1; ++ii) {
+        node->children[ii] = node->children[ii + 1];
+        node->keys[ii] = node->keys[ii + 1];
+        if (hasRank) {
+            node->counts[ii] = node->counts[ii + 1];
+        }
+    }
+    node->count--;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::rebalanceLeaf(LeafNode *leaf)
+{
+    InnerNode *parent = leaf->parent;
+    if (parent == NULL) {
+        if (leaf->count == 0) {
+            freeLeaf(leaf);
+            m_root = m_first = m_last = NULL;
+        }
+        return;
+    }
+    if (leaf->count >= LEAF_MIN) {
+        return;
+    }
+
+    const int idx = indexOfChild(parent, leaf);
+    const int leftIdx = (idx > 0) ? idx - 1 : idx;
+    LeafNode *left = static_cast<LeafNode*>(parent->children[leftIdx]);
+    LeafNode *right = static_cast<LeafNode*>(parent->children[leftIdx + 1]);
+
+    if (left->count + right->count <= LEAF_CAPACITY) {
+        // merge right into left
+        for (int ii = 0; ii < right->count; ++ii) {
+            left->entries[left->count + ii] = right->entries[ii];
+            right->entries[ii] = KeyValuePair();
+        }
+        left->count += right->count;
+        right->count = 0;
+        left->next = right->next;
+        if (right->next != NULL) {
+            right->next->prev = left;
+        }
+        else {
+            m_last = left;
+        }
+        if (hasRank) {
+            parent->counts[leftIdx] += parent->counts[leftIdx + 1];
+        }
+        removeChild(parent, leftIdx + 1);
+        freeLeaf(right);
+        rebalanceInner(parent);
+        return;
+    }
+
+    // even out the two leaves
+    const int total = left->count + right->count;
+    const int leftTarget = total / 2;
+    if (left->count < leftTarget) {
+        const int moved = leftTarget - left->count;
+        for (int ii = 0; ii < moved; ++ii) {
+            left->entries[left->count + ii] = right->entries[ii];
+        }
+        for (int ii = moved; ii < right->count; ++ii) {
+            right->entries[ii - moved] = right->entries[ii];
+        }
+        for (int ii = right->count - moved; ii < right->count; ++ii) {
+            right->entries[ii] = KeyValuePair();
+        }
+    }
+    else {
+        const int moved = left->count - leftTarget;
+        for (int ii = right->count - 1; ii >= 0; --ii) {
+            right->entries[ii + moved] = right->entries[ii];
+        }
+        for (int ii = 0; ii < moved; ++ii) {
+            right->entries[ii] = left->entries[leftTarget + ii];
+            left->entries[leftTarget + ii] = KeyValuePair();
+        }
+    }
+    left->count = leftTarget;
+    right->count = total - leftTarget;
+    parent->keys[leftIdx + 1] = right->entries[0].getKey();
+    if (hasRank) {
+        parent->counts[leftIdx] = left->count;
+        parent->counts[leftIdx + 1] = right->count;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::rebalanceInner(InnerNode *node)
+{
+    InnerNode *parent = node->parent;
+    if (parent == NULL) {
+        if (node->count == 1) {
+            // the root has a single child, which becomes the root
+            m_root = node->children[0];
+            setParent(m_root, node->leafChildren, NULL);
+            m_height--;
+            freeInner(node, NULL);
+        }
+        return;
+    }
+    if (node->count >= INNER_MIN) {
+        return;
+    }
+
+    const int idx = indexOfChild(parent, node);
+    const int leftIdx = (idx > 0) ? idx - 1 : idx;
+    InnerNode *left = static_cast<InnerNode*>(parent->children[leftIdx]);
+    InnerNode *right = static_cast<InnerNode*>(parent->children[leftIdx + 1]);
+    const bool leaf = node->leafChildren;
+
+    if (left->count + right->count <= INNER_CAPACITY) {
+        // merge right into left, the separator comes down from the parent
+        left->keys[left->count] = parent->keys[leftIdx + 1];
+        for (int ii = 0; ii < right->count; ++ii) {
+            left->children[left->count + ii] = right->children[ii];
+            if (ii > 0) {
+                left->keys[left->count + ii] = right->keys[ii];
+            }
+            if (hasRank) {
+                left->counts[left->count + ii] = right->counts[ii];
+            }
+            setParent(right->children[ii], leaf, left);
+        }
+        left->count += right->count;
+        right->count = 0;
+        if (hasRank) {
+            parent->counts[leftIdx] += parent->counts[leftIdx + 1];
+        }
+        removeChild(parent, leftIdx + 1);
+        parent = freeInner(right, parent);
+        rebalanceInner(parent);
+        return;
+    }
+
+    // even out the two nodes, rotating children through the parent separator
+    const int leftTarget = (left->count + right->count) / 2;
+    while (left->count < leftTarget) {
+        left->children[left->count] = right->children[0];
+        left->keys[left->count] = parent->keys[leftIdx + 1];
+        if (hasRank) {
+            left->counts[left->count] = right->counts[0];
+        }
+        setParent(right->children[0], leaf, left);
+        left->count++;
+        parent->keys[leftIdx + 1] = right->keys[1];
+        removeChild(right, 0);
+    }
+    while (left->count > leftTarget) {
+        for (int ii = right->count; ii > 0; --ii) {
+            right->children[ii] = right->children[ii - 1];
+            right->keys[ii] = right->keys[ii - 1];
+            if (hasRank) {
+                right->counts[ii] = right->counts[ii - 1];
+            }
+        }
+        left->count--;
+        right->children[0] = left->children[left->count];
+        right->keys[1] = parent->keys[leftIdx + 1];
+        if (hasRank) {
+            right->counts[0] = left->counts[left->count];
+        }
+        setParent(right->children[0], leaf, right);
+        right->count++;
+        parent->keys[leftIdx + 1] = left->keys[left->count];
+    }
+    if (hasRank) {
+        parent->counts[leftIdx] = totalOf(left, false);
+        parent->counts[leftIdx + 1] = totalOf(right, false);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::freeLeaf(LeafNode *leaf)
+{
+    // Move the last leaf of the allocator into the hole
+    LeafNode *last = static_cast<LeafNode*>(m_leafAllocator.last());
+    if (last != leaf) {
+        leaf->parent = last->parent;
+        leaf->prev = last->prev;
+        leaf->next = last->next;
+        leaf->count = last->count;
+        for (int ii = 0; ii < last->count; ++ii) {
+            leaf->entries[ii] = last->entries[ii];
+        }
+        if (leaf->prev != NULL) {
+            leaf->prev->next = leaf;
+        }
+        else {
+            m_first = leaf;
+        }
+        if (leaf->next != NULL) {
+            leaf->next->prev = leaf;
+        }
+        else {
+            m_last = leaf;
+        }
+        if (leaf->parent != NULL) {
+            leaf->parent->children[indexOfChild(leaf->parent, last)] = leaf;
+        }
+        else {
+            m_root = leaf;
+        }
+    }
+    delete last;
+    m_leafAllocator.trim();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::InnerNode *
+CompactingBTree<KeyValuePair, Compare, hasRank>::freeInner(InnerNode *node, InnerNode *track)
+{
+    // Move the last inner node of the allocator into the hole,
+    // return where the tracked node is now
+    InnerNode *last = static_cast<InnerNode*>(m_innerAllocator.last());
+    if (last != node) {
+        node->parent = last->parent;
+        node->count = last->count;
+        node->leafChildren = last->leafChildren;
+        for (int ii = 0; ii < last->count; ++ii) {
+            node->children[ii] = last->children[ii];
+            node->keys[ii] = last->keys[ii];
+            if (hasRank) {
+                node->counts[ii] = last->counts[ii];
+            }
+            setParent(node->children[ii], node->leafChildren, node);
+        }
+        if (node->parent != NULL) {
+            node->parent->children[indexOfChild(node->parent, last)] = node;
+        }
+        else {
+            m_root = node;
+        }
+        if (track == last) {
+            track = node;
+        }
+    }
+    delete last;
+    m_innerAllocator.trim();
+    return track;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::rankLower(const Key& key) const
+{
+    if ( ! hasRank) {
+        return -1;
+    }
+    if (find(key).isEnd()) {
+        return -1;
+    }
+    // Count the entries before the first one with the same key,
+    // regardless of the tuple pointer of multimap keys
+    int64_t rank = 1;
+    void *node = m_root;
+    for (int level = m_height; level > 0; --level) {
+        const InnerNode *inner = static_cast<const InnerNode*>(node);
+        int child = 0;
+        while (child + 1 < inner->count && m_comper.compareWithoutPointer(key, inner->keys[child + 1]) > 0) {
+            rank += inner->counts[child];
+            child++;
+        }
+        node = inner->children[child];
+    }
+    const LeafNode *leaf = static_cast<const LeafNode*>(node);
+    for (int ii = 0; ii < leaf->count && m_comper.compareWithoutPointer(key, leaf->entries[ii].getKey()) > 0; ++ii) {
+        rank++;
+    }
+    return rank;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::rankUpper(const Key& key) const
+{
+    if ( ! hasRank) {
+        return -1;
+    }
+    if (m_unique) {
+        return rankLower(key);
+    }
+    if (find(key).isEnd()) {
+        return -1;
+    }
+    iterator it = upperBound(key);
+    if (it.isEnd()) {
+        return m_count;
+    }
+    return rankLower(it.key()) - 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::findRank(int64_t ith) const
+{
+    if (( ! hasRank) || m_root == NULL || ith < 1 || ith > m_count) {
+        return iterator();
+    }
+    void *node = m_root;
+    for (int level = m_height; level > 0; --level) {
+        const InnerNode *inner = static_cast<const InnerNode*>(node);
+        int child = 0;
+        while (ith > inner->counts[child]) {
+            ith -= inner->counts[child];
+            child++;
+        }
+        node = inner->children[child];
+    }
+    return iterator(static_cast<LeafNode*>(node), static_cast<int32_t>(ith - 1));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::verify() const
+{
+    if (m_root == NULL) {
+        return m_count == 0 && m_first == NULL && m_last == NULL &&
+               m_leafAllocator.count() == 0 && m_innerAllocator.count() == 0;
+    }
+    if (verify(m_root, m_height == 0, NULL, NULL, NULL, m_height) != m_count) {
+        return false;
+    }
+    // the leaf chain visits every entry in order
+    int64_t entries = 0;
+    int64_t leaves = 0;
+    const LeafNode *prev = NULL;
+    for (const LeafNode *leaf = m_first; leaf != NULL; leaf = leaf->next) {
+        if (leaf->prev != prev) {
+            return false;
+        }
+        for (int ii = 0; ii < leaf->count; ++ii) {
+            const Key &current = leaf->entries[ii].getKey();
+            const Key *previous = (ii > 0) ? &leaf->entries[ii - 1].getKey() :
+                                  (prev != NULL) ? &prev->entries[prev->count - 1].getKey() : NULL;
+            if (previous != NULL) {
+                int cmp = m_comper(*previous, current);
+                if (cmp > 0 || (cmp == 0 && m_unique)) {
+                    return false;
+                }
+            }
+        }
+        entries += leaf->count;
+        leaves++;
+        prev = leaf;
+    }
+    return prev == m_last && entries == m_count && leaves == m_leafAllocator.count();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::verify(const void *node, bool leaf,
+                                                                const InnerNode *parent,
+                                                                const Key *lower, const Key *upper,
+                                                                int depth) const
+{
+    // returns the number of entries under the node, or -1
+    if (leaf) {
+        const LeafNode *leafNode = static_cast<const LeafNode*>(node);
+        if (depth != 0 || leafNode->parent != parent ||
+            (parent != NULL && leafNode->count < LEAF_MIN)) {
+            return -1;
+        }
+        for (int ii = 0; ii < leafNode->count; ++ii) {
+            const Key &key = leafNode->entries[ii].getKey();
+            if ((lower != NULL && m_comper(*lower, key) > 0) || (upper != NULL && m_comper(key, *upper) > 0)) {
+                return -1;
+            }
+        }
+        return leafNode->count;
+    }
+    const InnerNode *inner = static_cast<const InnerNode*>(node);
+    if (inner->parent != parent || inner->count < 2 ||
+        (parent != NULL && inner->count < INNER_MIN)) {
+        return -1;
+    }
+    int64_t total = 0;
+    for (int ii = 0; ii < inner->count; ++ii) {
+        const Key *childLower = (ii > 0) ? &inner->keys[ii] : lower;
+        const Key *childUpper = (ii + 1 < inner->count) ? &inner->keys[ii + 1] : upper;
+        int64_t childTotal = verify(inner->children[ii], inner->leafChildren, inner,
+                                    childLower, childUpper, depth - 1);
+        if (childTotal < 0 || (hasRank && inner->counts[ii] != childTotal)) {
+            return -1;
+        }
+        total += childTotal;
+    }
+    return total;
+}
+
+/**
+ * Tells the tree indexes which of the two maps they are built on.
+ */
+template<typename Map>
+struct IsBTree {
+    static const bool value = false;
+};
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+struct IsBTree<CompactingBTree<KeyValuePair, Compare, hasRank> > {
+    static const bool value = true;
+};
+
+} // namespace voltdb
+
+#endif // COMPACTINGBTREE_H_
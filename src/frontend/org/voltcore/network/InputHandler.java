@@ -73,6 +73,16 @@ public interface InputHandler
      */
     void handleMessage(ByteBuffer message, Connection c) throws IOException;
 
+    /**
+     * Notify the input handler that every complete message from the most
+     * recent read has been passed to handleMessage. Handlers that defer work
+     * across the messages of a read can complete it here.
+     *
+     * @param c
+     *            connection
+     */
+    void handleMessagesDone(Connection c);
+
     /**
      * Notify the input handler that the Connection will start receiving work
      * soon (Channel is registering with Selector)
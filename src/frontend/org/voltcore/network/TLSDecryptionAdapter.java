@@ -133,9 +133,15 @@ public class TLSDecryptionAdapter {
 
         int numMessages = 0;
         ByteBuffer message = null;
-        while ((message = pollDecryptedQueue()) != null) {
-            ++numMessages;
-            m_inputHandler.handleMessage(message, m_connection);
+        try {
+            while ((message = pollDecryptedQueue()) != null) {
+                ++numMessages;
+                m_inputHandler.handleMessage(message, m_connection);
+            }
+        } finally {
+            if (numMessages > 0) {
+                m_inputHandler.handleMessagesDone(m_connection);
+            }
         }
 
         return new Pair<Integer, Integer>(readBytes, numMessages);
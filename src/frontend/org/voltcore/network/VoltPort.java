@@ -170,6 +170,7 @@ public class VoltPort implements Connection
                 if (maxRead > 0) {
                     int read = fillReadStream(maxRead);
                     if (read > 0) {
+                        final long messagesRead = m_messagesRead;
                         try {
                             ByteBuffer message;
                             while ((message = m_handler.retrieveNextMessage(readStream())) != null) {
@@ -179,6 +180,10 @@ public class VoltPort implements Connection
                         } catch (VoltProtocolHandler.BadMessageLength e) {
                             networkLog.error("Bad message length exception", e);
                             throw e;
+                        } finally {
+                            if (m_messagesRead != messagesRead) {
+                                m_handler.handleMessagesDone(this);
+                            }
                         }
                     }
                 }
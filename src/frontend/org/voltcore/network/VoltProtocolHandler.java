@@ -102,6 +102,10 @@ public abstract class VoltProtocolHandler implements InputHandler {
         assert m_nextLength > 0;
     }
 
+    @Override
+    public void handleMessagesDone(Connection c) {
+    }
+
     @Override
     public void started(Connection c) {
     }
@@ -89,6 +89,8 @@ import org.voltdb.client.ProcedureCallback;
 import org.voltdb.client.TLSHandshaker;
 import org.voltdb.common.Constants;
 import org.voltdb.dtxn.InitiatorStats.InvocationInfo;
+import org.voltdb.dtxn.StageLatencyStats;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MigratePartitionLeaderInfo;
@@ -128,6 +130,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
     static long TOPOLOGY_CHANGE_CHECK_MS = Long.getLong("TOPOLOGY_CHANGE_CHECK_MS", 5000);
     static long AUTH_TIMEOUT_MS = Long.getLong("AUTH_TIMEOUT_MS", 30000);
+    // A chunk of a streamed result ends at the fetch size or at about this many bytes
+    static int RESULT_CHUNK_MAX_BYTES = Integer.getInteger("RESULT_CHUNK_MAX_BYTES", 4 * 1024 * 1024);
 
     //Same as in Distributer.java
     public static final long ASYNC_TOPO_HANDLE = Long.MAX_VALUE - 1;
@@ -250,6 +254,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     };
 
+    // Source of @Statistics STAGELATENCY, fed by the responses of the transactions initiated here
+    private final StageLatencyStats m_stageLatencyStats = new StageLatencyStats();
+
     final long m_siteId;
     final Mailbox m_mailbox;
 
@@ -817,6 +824,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void handleMessage(ByteBuffer message, Connection c) {
             try {
+                // single partition initiations are held until handleMessagesDone
+                m_dispatcher.openInitiationBatch();
                 final ClientResponseImpl error = handleRead(message, this, c);
                 if (error != null) {
                     ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
@@ -829,6 +838,11 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             }
         }
 
+        @Override
+        public void handleMessagesDone(Connection c) {
+            m_dispatcher.flushInitiationBatch();
+        }
+
         @Override
         public void started(final Connection c) {
             m_connection = c;
@@ -875,6 +889,11 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     if (!m_acg.get().hasBackPressure()) {
                         m_connection.enableReadSelection();
                     }
+                    // continue any streamed results held back by the backpressure
+                    ClientInterfaceHandleManager cihm = m_cihm.get(m_connection.connectionId());
+                    if (cihm != null) {
+                        cihm.resumeResultStreams();
+                    }
                 }
             };
         }
@@ -928,6 +947,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         private final Procedure catProc;
         private ClientResponseImpl clientResponse;
         private boolean restartMispartitionedTxn;
+        // set when the result is sent in chunks, of which this work sends the first
+        private ResultStreamWork resultStream;
 
         private ClientResponseWork(InitiateResponseMessage response,
                                    ClientInterfaceHandleManager cihm,
@@ -943,6 +964,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void serialize(ByteBuffer buf) throws IOException
         {
+            if (resultStream != null) {
+                resultStream.serialize(buf);
+                return;
+            }
             buf.putInt(buf.capacity() - 4);
             clientResponse.flattenToBuffer(buf);
         }
@@ -1003,10 +1028,19 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                                                       "statusString", clientResponse.getStatusString()));
             }
 
+            if (clientData.m_stageTimes != null) {
+                clientData.m_stageTimes.mark(StageTimes.Stage.RESPOND);
+                m_stageLatencyStats.record(clientData.m_stageTimes);
+            }
+
             clientResponse.setClientHandle(clientData.m_clientHandle);
             clientResponse.setClusterRoundtrip((int)TimeUnit.NANOSECONDS.toMillis(delta));
             clientResponse.setHashes(null); // not part of wire protocol
 
+            if (ResultStreamWork.shouldStream(clientResponse, clientData.m_fetchSize)) {
+                resultStream = new ResultStreamWork(cihm, clientResponse, clientData.m_fetchSize);
+                return resultStream.getSerializedSize();
+            }
             return clientResponse.getSerializedSize() + 4;
         }
 
@@ -1073,6 +1107,97 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     }
 
+    /**
+     * Sends a successful result with a single table in chunks of at most
+     * fetch size rows, for a client that asked for a fetch size. Each chunk is
+     * a complete response with the client's handle, all but the last flagged
+     * with more results. Only one chunk of a result is queued at a time, and
+     * while the connection has write backpressure the next chunk is held in
+     * the ClientInterfaceHandleManager, so a slow client does not make the
+     * whole result pile up in serialized form. The result table itself stays
+     * in memory until the last chunk is sent. Only this transfer is chunked:
+     * the site, or the MPI, has already built the whole result.
+     */
+    static class ResultStreamWork implements DeferredSerialization {
+        private final ClientInterfaceHandleManager m_cihm;
+        private final ClientResponseImpl m_response;
+        private final VoltTable m_table;
+        private final int m_fetchSize;
+        private int m_nextRow = 0;
+        private ClientResponseImpl m_chunk;
+
+        ResultStreamWork(ClientInterfaceHandleManager cihm, ClientResponseImpl response, int fetchSize) {
+            m_cihm = cihm;
+            m_response = response;
+            m_table = response.getResults()[0];
+            m_fetchSize = fetchSize;
+        }
+
+        static boolean shouldStream(ClientResponseImpl response, int fetchSize) {
+            return fetchSize > 0 &&
+                   response.getStatus() == ClientResponse.SUCCESS &&
+                   response.getResults().length == 1 &&
+                   response.getResults()[0].getRowCount() > fetchSize;
+        }
+
+        /**
+         * Copy the next rows of the result into a response of their own.
+         * A chunk holds at least one row, then stops at the fetch size or
+         * once it reaches maxBytes.
+         */
+        static ClientResponseImpl nextChunk(ClientResponseImpl response, VoltTable table,
+                int firstRow, int fetchSize, int maxBytes) {
+            final int rowCount = Math.min(table.getRowCount() - firstRow, fetchSize);
+            final long averageRowBytes = table.getSerializedSize() / table.getRowCount();
+            final VoltTable chunk = table.clone((int) Math.min(maxBytes, averageRowBytes * rowCount));
+            for (int row = firstRow; row < firstRow + rowCount; row++) {
+                if (row > firstRow && chunk.getSerializedSize() >= maxBytes) {
+                    break;
+                }
+                table.advanceToRow(row);
+                chunk.add(table);
+            }
+            ClientResponseImpl chunkResponse = new ClientResponseImpl(response.getStatus(), response.getAppStatus(),
+                    response.getAppStatusString(), new VoltTable[] { chunk }, response.getStatusString(),
+                    response.getClientHandle());
+            chunkResponse.setClusterRoundtrip(response.getClusterRoundtrip());
+            chunkResponse.setMoreResults(firstRow + chunk.getRowCount() < table.getRowCount());
+            return chunkResponse;
+        }
+
+        @Override
+        public int getSerializedSize() {
+            m_chunk = nextChunk(m_response, m_table, m_nextRow, m_fetchSize, RESULT_CHUNK_MAX_BYTES);
+            m_nextRow += m_chunk.getResults()[0].getRowCount();
+            return m_chunk.getSerializedSize() + 4;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            buf.putInt(buf.capacity() - 4);
+            m_chunk.flattenToBuffer(buf);
+            final boolean more = m_chunk.hasMoreResults();
+            m_chunk = null;
+            if (more) {
+                if (m_cihm.connection.writeStream().hadBackPressure()) {
+                    m_cihm.pauseResultStream(this);
+                }
+                else {
+                    m_cihm.connection.writeStream().fastEnqueue(this);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getName();
+        }
+    }
+
     CatalogContext getCatalogContext() {
         return m_catalogContext.get();
     }
@@ -2032,6 +2157,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         return statsIterators;
     }
 
+    public StageLatencyStats getStageLatencyStats() {
+        return m_stageLatencyStats;
+    }
+
     public List<AbstractHistogram> getLatencyStats() {
         List<AbstractHistogram> latencyStats = new ArrayList<AbstractHistogram>();
         for (AdmissionControlGroup acg : m_allACGs) {
@@ -17,6 +17,7 @@
 
 package org.voltdb;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -26,6 +27,8 @@ import java.util.Map.Entry;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltdb.dtxn.StageTimes;
 
 import com.google_voltpatches.common.collect.ImmutableMap;
 import com.google_voltpatches.common.collect.ImmutableMap.Builder;
@@ -64,6 +67,9 @@ public class ClientInterfaceHandleManager
 
     private volatile boolean m_wantsTopologyUpdates = false;
 
+    // Streamed results held back while the connection's write stream has backpressure
+    private final ArrayDeque<DeferredSerialization> m_pausedResultStreams = new ArrayDeque<>();
+
     private ImmutableMap<Integer, PartitionInFlightTracker> m_trackerMap
         = new Builder<Integer, PartitionInFlightTracker>().build();
 
@@ -94,8 +100,13 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        // rows per response chunk requested by the client, 0 for a single response
+        final int m_fetchSize;
+        // null unless stage latencies are collected
+        final StageTimes m_stageTimes;
         Iv2InFlight(long ciHandle, long clientHandle,
-                int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
+                int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
+                int fetchSize, StageTimes stageTimes)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
@@ -103,6 +114,8 @@ public class ClientInterfaceHandleManager
             m_creationTimeNanos = creationTimeNanos;
             m_procName = procName;
             m_initiatorHSId = initiatorHSId;
+            m_fetchSize = fetchSize;
+            m_stageTimes = stageTimes;
         }
     }
 
@@ -135,9 +148,10 @@ public class ClientInterfaceHandleManager
             @Override
             synchronized long getHandle(boolean isSinglePartition, int partitionId,
                     long clientHandle, int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
-                    boolean isShortCircuitRead) {
+                    boolean isShortCircuitRead, int fetchSize, StageTimes stageTimes) {
                 return super.getHandle(isSinglePartition, partitionId,
-                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead);
+                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead,
+                        fetchSize, stageTimes);
             }
             @Override
             synchronized Iv2InFlight findHandle(long ciHandle) {
@@ -162,6 +176,16 @@ public class ClientInterfaceHandleManager
                 return super.removeHandlesForPartitionAndInitiator(partitionId, initiatorHSId);
             }
 
+            @Override
+            synchronized void pauseResultStream(DeferredSerialization nextChunk) {
+                super.pauseResultStream(nextChunk);
+            }
+
+            @Override
+            synchronized void resumeResultStreams() {
+                super.resumeResultStreams();
+            }
+
             @Override
             synchronized boolean shouldCheckThreadIdAssertion()
             {
@@ -186,6 +210,22 @@ public class ClientInterfaceHandleManager
             String procName,
             long initiatorHSId,
             boolean isShortCircuitRead)
+    {
+        return getHandle(isSinglePartition, partitionId, clientHandle, messageSize, creationTimeNanos,
+                procName, initiatorHSId, isShortCircuitRead, 0, null);
+    }
+
+    long getHandle(
+            boolean isSinglePartition,
+            int partitionId,
+            long clientHandle,
+            int messageSize,
+            long creationTimeNanos,
+            String procName,
+            long initiatorHSId,
+            boolean isShortCircuitRead,
+            int fetchSize,
+            StageTimes stageTimes)
     {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         if (isShortCircuitRead) {
@@ -207,7 +247,7 @@ public class ClientInterfaceHandleManager
 
         long ciHandle = tracker.m_generator.getNextHandle();
         Iv2InFlight inFlight = new Iv2InFlight(ciHandle, clientHandle, messageSize,
-                                               creationTimeNanos, procName, initiatorHSId);
+                                               creationTimeNanos, procName, initiatorHSId, fetchSize, stageTimes);
 
         tracker.m_inFlights.put(ciHandle, inFlight);
 
@@ -331,6 +371,24 @@ public class ClientInterfaceHandleManager
         return retval;
     }
 
+    /**
+     * Hold the next chunk of a streamed result until the write stream of the
+     * connection drains, instead of serializing more of the result into it.
+     */
+    void pauseResultStream(DeferredSerialization nextChunk) {
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
+        m_pausedResultStreams.offer(nextChunk);
+    }
+
+    /** Queue the held chunks again, once backpressure on the connection ends */
+    void resumeResultStreams() {
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
+        DeferredSerialization nextChunk;
+        while ((nextChunk = m_pausedResultStreams.poll()) != null) {
+            connection.writeStream().enqueue(nextChunk);
+        }
+    }
+
     // Coward's way out...the thread-safe override of this class will return false for this,
     // which will enable us to keep the thread ID assertions in all of the method calls and
     // not bomb when using the thread-safe version.
@@ -45,6 +45,8 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     private byte encodedAppStatusString[];
     private VoltTable[] results = new VoltTable[0];
     private int[] m_hashes = null;
+    // A chunk of a streamed result, which further responses with the same handle continue
+    private boolean m_moreResults = false;
 
     private int clusterRoundTripTime = 0;
     private int clientRoundTripTime = 0;
@@ -172,11 +174,24 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         return m_hashes;
     }
 
+    /**
+     * @return true if this response carries one chunk of a result that was
+     * requested with a fetch size, and more chunks follow with the same handle.
+     */
+    public boolean hasMoreResults() {
+        return m_moreResults;
+    }
+
+    public void setMoreResults(boolean moreResults) {
+        m_moreResults = moreResults;
+    }
+
     public void initFromBuffer(ByteBuffer buf) throws IOException {
         buf.get();//Skip version byte
         clientHandle = buf.getLong();
         byte presentFields = buf.get();
         status = buf.get();
+        m_moreResults = (presentFields & (1 << 3)) != 0;
         if ((presentFields & (1 << 5)) != 0) {
             statusString = SerializationHelper.getString(buf);
         } else {
@@ -263,6 +278,9 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         if (m_hashes != null) {
             presentFields |= 1 << 4;
         }
+        if (m_moreResults) {
+            presentFields |= 1 << 3;
+        }
         buf.put(presentFields);
         buf.put(status);
         if (statusString != null) {
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.SystemStatsCollector;
 
 public class CpuStats extends StatsSource {
 
@@ -69,7 +70,10 @@ public class CpuStats extends StatsSource {
 
     @Override
     protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
-        rowValues[columnNameToIndex.get("PERCENT_USED")] = Math.round(m_osBean.getProcessCpuLoad() * 100);
+        // Prefer the CPU used between the last two system samples, read from procfs
+        SystemStatsCollector.Datum d = SystemStatsCollector.getRecentSample();
+        double cpuLoad = (d != null && d.cpuLoad >= 0) ? d.cpuLoad : m_osBean.getProcessCpuLoad();
+        rowValues[columnNameToIndex.get("PERCENT_USED")] = Math.round(cpuLoad * 100);
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -26,6 +26,8 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -48,6 +50,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.ForeignHost;
 import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.Mailbox;
+import org.voltcore.messaging.VoltMessage;
 import org.voltcore.network.Connection;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.EstTime;
@@ -62,6 +65,7 @@ import org.voltdb.catalog.Table;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.common.Permission;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MpInitiator;
@@ -69,6 +73,7 @@ import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.MigratePartitionLeaderMessage;
 import org.voltdb.messaging.MultiPartitionParticipantMessage;
+import org.voltdb.messaging.ReplicationBatchMessage;
 import org.voltdb.settings.NodeSettings;
 import org.voltdb.sysprocs.saverestore.SnapshotPathType;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
@@ -122,6 +127,9 @@ public final class InvocationDispatcher {
 
     private final NTProcedureService m_NTProcedureService;
 
+    // Coalesce single partition initiations from one network read per partition leader
+    static final boolean BATCH_INITIATIONS = Boolean.valueOf(System.getProperty("BATCH_INITIATIONS", "true"));
+
     // Next partition to service adhoc replicated table reads
     private static int m_nextPartition = -1;
     // Number of partitions, will NOT change when new node joins cluster
@@ -586,7 +594,8 @@ public final class InvocationDispatcher {
         // If we got here, instance is paused and handler is not admin.
         final String procName = task.getProcName();
         if (procedure.getSystemproc() &&
-                ("@AdHoc".equals(procName) || "@AdHocSpForTest".equals(procName))) {
+                ("@AdHoc".equals(procName) || "@AdHocSpForTest".equals(procName) ||
+                 "@AdHocPrepared".equals(procName))) {
             // AdHoc is handled after it is planned and we figure out if it is read-only or not.
             return null;
         } else if (!procedure.getReadonly()) {
@@ -844,7 +853,9 @@ public final class InvocationDispatcher {
                                      nowNanos,
                                      task.getProcName(),
                                      ClientInterface.NTPROC_JUNK_ID,
-                                     false);
+                                     false,
+                                     task.getFetchSize(),
+                                     null);
 
         // note, once we get the handle above, any response to the client MUST be done
         // by sending an InitiateResponseMessage to the CI mailbox. Writing bytes to the wire, like we
@@ -900,6 +911,8 @@ public final class InvocationDispatcher {
                         connectionId,
                         false,  // isReadOnly
                         forReplay);  // isForReplay
+        // keep the sentinel behind any initiations this thread is holding for the same leader
+        sendPendingInitiations();
         m_mailbox.send(initiatorHSId, mppm);
     }
 
@@ -1333,8 +1346,11 @@ public final class InvocationDispatcher {
             }
         }
 
+        final StageTimes stageTimes = StageTimes.create(isSinglePartition ? partitions[0] : MpInitiator.MP_INIT_PID,
+                invocation.getProcName(), nowNanos);
         long handle = cihm.getHandle(isSinglePartition, isSinglePartition ? partitions[0] : -1, invocation.getClientHandle(),
-                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead);
+                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead,
+                invocation.getFetchSize(), stageTimes);
 
         Iv2InitiateTaskMessage workRequest =
             new Iv2InitiateTaskMessage(m_siteId,
@@ -1362,10 +1378,117 @@ public final class InvocationDispatcher {
         }
 
         Iv2Trace.logCreateTransaction(workRequest);
-        m_mailbox.send(initiatorHSId, workRequest);
+        if (stageTimes != null) {
+            workRequest.setStageTimes(stageTimes);
+            stageTimes.mark(StageTimes.Stage.INITIATE);
+        }
+        if (isSinglePartition && !isEveryPartition) {
+            sendInitiation(initiatorHSId, workRequest);
+        }
+        else {
+            // keep multi partition initiations behind the single partition ones before them
+            sendPendingInitiations();
+            m_mailbox.send(initiatorHSId, workRequest);
+        }
         return true;
     }
 
+    /**
+     * Single partition initiations created while a client connection's network
+     * read is being handled, grouped by partition leader. They are handed over
+     * when the read is done so that each local leader sequences its share as
+     * one batch instead of taking its lock once per invocation.
+     */
+    private static final class InitiationBatch {
+        boolean m_open = false;
+        final Map<Long, List<VoltMessage>> m_pending = new LinkedHashMap<>();
+    }
+
+    private final ThreadLocal<InitiationBatch> m_initiationBatch = new ThreadLocal<InitiationBatch>() {
+        @Override
+        protected InitiationBatch initialValue() {
+            return new InitiationBatch();
+        }
+    };
+
+    /**
+     * Start collecting single partition initiations created by this thread
+     * until {@link #flushInitiationBatch()} is called.
+     */
+    void openInitiationBatch() {
+        if (BATCH_INITIATIONS) {
+            m_initiationBatch.get().m_open = true;
+        }
+    }
+
+    private void sendInitiation(long initiatorHSId, Iv2InitiateTaskMessage workRequest) {
+        if (BATCH_INITIATIONS) {
+            final InitiationBatch batch = m_initiationBatch.get();
+            if (batch.m_open) {
+                List<VoltMessage> pending = batch.m_pending.get(initiatorHSId);
+                if (pending == null) {
+                    pending = new ArrayList<>();
+                    batch.m_pending.put(initiatorHSId, pending);
+                }
+                pending.add(workRequest);
+                return;
+            }
+        }
+        m_mailbox.send(initiatorHSId, workRequest);
+    }
+
+    /**
+     * Deliver the initiations collected by this thread since the batch was opened
+     * and close the batch.
+     */
+    void flushInitiationBatch() {
+        if (!BATCH_INITIATIONS) {
+            return;
+        }
+        final InitiationBatch batch = m_initiationBatch.get();
+        batch.m_open = false;
+        sendPendingInitiations(batch);
+    }
+
+    /**
+     * Send the initiations held by this thread without closing its batch, so that
+     * a message which doesn't go through the batch can't overtake them.
+     */
+    private void sendPendingInitiations() {
+        if (BATCH_INITIATIONS) {
+            sendPendingInitiations(m_initiationBatch.get());
+        }
+    }
+
+    /**
+     * Leaders on this host get their share as one message, which they sequence
+     * under a single acquisition of their lock. The rest are sent one at a time
+     * in the order they were created. Either way the messages go through the
+     * mailbox, so they are stamped with this site as their source.
+     */
+    private void sendPendingInitiations(InitiationBatch batch) {
+        if (batch.m_pending.isEmpty()) {
+            return;
+        }
+        final int localHostId = CoreUtils.getHostIdFromHSId(m_mailbox.getHSId());
+        for (Map.Entry<Long, List<VoltMessage>> e : batch.m_pending.entrySet()) {
+            final long initiatorHSId = e.getKey();
+            final List<VoltMessage> messages = e.getValue();
+            if (messages.size() > 1 && CoreUtils.getHostIdFromHSId(initiatorHSId) == localHostId) {
+                for (VoltMessage message : messages) {
+                    message.m_sourceHSId = m_mailbox.getHSId();
+                }
+                m_mailbox.send(initiatorHSId, new ReplicationBatchMessage(messages));
+            }
+            else {
+                for (VoltMessage message : messages) {
+                    m_mailbox.send(initiatorHSId, message);
+                }
+            }
+        }
+        batch.m_pending.clear();
+    }
+
     final static int[] getPartitionsForProcedure(Procedure procedure, StoredProcedureInvocation task) {
         final CatalogContext.ProcedurePartitionInfo ppi =
                 (CatalogContext.ProcedurePartitionInfo) procedure.getAttachment();
@@ -56,6 +56,7 @@ import org.voltdb.exceptions.MispartitionedException;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.exceptions.SpecifiedException;
 import org.voltdb.iv2.DeterminismHash;
+import org.voltdb.iv2.MpDependencyMerger;
 import org.voltdb.iv2.MpInitiator;
 import org.voltdb.iv2.MpTransactionState;
 import org.voltdb.iv2.Site;
@@ -1417,6 +1418,9 @@ public class ProcedureRunner {
         // these dependencies need to be received before the local stuff can run
         final int[] m_depsForLocalTask;
 
+        // drop the received dependencies the local fragments don't need as they arrive, if not null
+        final MpDependencyMerger[] m_mergersForLocalTask;
+
         // check if all local fragment work is non-transactional
         boolean m_localFragsAreNonTransactional = false;
 
@@ -1436,6 +1440,7 @@ public class ProcedureRunner {
 
             m_depsToResume = new int[batchSize];
             m_depsForLocalTask = new int[batchSize];
+            m_mergersForLocalTask = new MpDependencyMerger[batchSize];
             m_results = new VoltTable[batchSize];
 
             // the data and message for locally processed fragments
@@ -1458,7 +1463,7 @@ public class ProcedureRunner {
         /*
          * Replicated fragment.
          */
-        void addStatement(int index, SQLStmt stmt, ByteBuffer params, SiteProcedureConnection site) {
+        void addStatement(int index, SQLStmt stmt, ParameterSet paramSet, ByteBuffer params, SiteProcedureConnection site) {
             assert (index >= 0);
             assert (index < m_batchSize);
             assert (stmt != null);
@@ -1485,6 +1490,8 @@ public class ProcedureRunner {
             else {
                 int outputDepId = m_txnState.getNextDependencyId();
                 m_depsForLocalTask[index] = outputDepId;
+                m_mergersForLocalTask[index] = MpDependencyMerger.forCoordinatorFragment(
+                        stmt.aggregator.planHash, stmt.aggregator.id, paramSet);
                 // Add local and distributed fragments.
                 if (stmt.inCatalog) {
                     m_localTask.addFragment(stmt.aggregator.planHash, stmt.getStmtName(), m_depsToResume[index],
@@ -1545,7 +1552,7 @@ public class ProcedureRunner {
              * statements. We do end up doing the replicated read locally but we
              * break up the batches in the face of mixed reads and writes
              */
-            state.addStatement(i, queuedSQL.stmt, paramBuf, m_site);
+            state.addStatement(i, queuedSQL.stmt, queuedSQL.params, paramBuf, m_site);
         }
 
         // instruct the dtxn what's needed to resume the proc
@@ -1557,6 +1564,9 @@ public class ProcedureRunner {
                 continue;
             }
             state.m_localTask.setInputDepId(i, state.m_depsForLocalTask[i]);
+            if (state.m_mergersForLocalTask[i] != null) {
+                txnState.setRemoteDependencyMerger(state.m_depsForLocalTask[i], state.m_mergersForLocalTask[i]);
+            }
         }
 
         // note: non-transactional work only helps us if it's final work
@@ -19,27 +19,29 @@ package org.voltdb;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.iv2.SiteTasker;
+import org.voltdb.iv2.SiteTaskerQueue;
 
 /**
  * A class to track and generate statistics regarding queue depth.
  * Generate information on instantaneous queue depth and number of tasks
  * pulled from queue, average wait time and max wait time (in microseconds)
- * within a 5-second window
+ * within a 5-second window.
+ *
+ * The queue reports polls in samples rather than one at a time: each update
+ * carries the wait time of one task and the number of tasks polled since the
+ * previous update, and the wait time is attributed to all of them.
  */
 public class QueueDepthTracker extends SiteStatsSource {
 
     private static final VoltLogger s_logger = new VoltLogger("HOST");
 
-    private final AtomicInteger m_depth;
     private long m_lastWaitTime;
     private final ArrayBlockingQueue<QueueStatus> m_historicalData;
-    private LinkedTransferQueue<SiteTasker> m_tasks;
+    private final SiteTaskerQueue m_tasks;
     private long m_maxWaitTimeWindowSize = 5_000_000_000L; // window size set to 5 seconds
     private long m_maxWaitLastLogTime;
     private volatile long m_recentMaxWaitTime;
@@ -61,10 +63,9 @@ public class QueueDepthTracker extends SiteStatsSource {
         }
     }
 
-    public QueueDepthTracker(long siteId, LinkedTransferQueue<SiteTasker> tasks) {
+    public QueueDepthTracker(long siteId, SiteTaskerQueue tasks) {
         super(siteId, false);
         m_historicalData = new ArrayBlockingQueue<>(10);
-        m_depth = new AtomicInteger(tasks.size());
         m_lastWaitTime = 0;
         m_maxWaitLastLogTime = System.nanoTime();
         m_recentMaxWaitTime = 0;
@@ -73,12 +74,12 @@ public class QueueDepthTracker extends SiteStatsSource {
         m_tasks = tasks;
     }
 
-    public void offerUpdate() {
-        m_depth.incrementAndGet();
-    }
-
-    public void pollUpdate(long offerTime) {
-        m_depth.decrementAndGet();
+    /**
+     * Record that count tasks were polled from the queue.
+     * @param offerTime offer time of the sampled task, one of those polled
+     * @param count number of tasks polled since the last update
+     */
+    public void pollUpdate(long offerTime, int count) {
         long currentTime = System.nanoTime();
         m_lastWaitTime = currentTime - offerTime;
         // if max wait time was last logged less than m_recentWindowSize ago
@@ -86,8 +87,8 @@ public class QueueDepthTracker extends SiteStatsSource {
         // or log and reset the recentMaxWaitTime, update last log time
         if (currentTime - m_maxWaitLastLogTime < m_recentWindowSize) {
             if (m_recentMaxWaitTime < m_lastWaitTime) m_recentMaxWaitTime = m_lastWaitTime;
-            m_recentTotalWaitTime += m_lastWaitTime;
-            m_recentPollCount++;
+            m_recentTotalWaitTime += m_lastWaitTime * count;
+            m_recentPollCount += count;
         } else {
             // remove out of date historical data
             while (!m_historicalData.isEmpty() &&
@@ -103,8 +104,8 @@ public class QueueDepthTracker extends SiteStatsSource {
                 s_logger.warn("Could not insert queue stats data. Current data size: " + m_historicalData.size());
             }
             m_recentMaxWaitTime = m_lastWaitTime;
-            m_recentTotalWaitTime = m_lastWaitTime;
-            m_recentPollCount = 1;
+            m_recentTotalWaitTime = m_lastWaitTime * count;
+            m_recentPollCount = count;
             m_maxWaitLastLogTime = currentTime;
         }
     }
@@ -144,7 +145,7 @@ public class QueueDepthTracker extends SiteStatsSource {
                 }
             }
         }
-        rowValues[columnNameToIndex.get("CURRENT_DEPTH")] = m_depth;
+        rowValues[columnNameToIndex.get("CURRENT_DEPTH")] = m_tasks.size();
         rowValues[columnNameToIndex.get("POLL_COUNT")] = totalPollCountInWindow;
         // wait times are in microseconds
         rowValues[columnNameToIndex.get("AVG_WAIT")] = (totalWaitTimeInWindow / Math.max(1, totalPollCountInWindow)) / 1000;
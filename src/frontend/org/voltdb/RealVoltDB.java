@@ -176,6 +176,7 @@ import org.voltdb.probe.MeshProber;
 import org.voltdb.processtools.ShellTools;
 import org.voltdb.rejoin.Iv2RejoinCoordinator;
 import org.voltdb.rejoin.JoinCoordinator;
+import org.voltdb.rejoin.StreamSnapshotStats;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.ClusterSettingsRef;
 import org.voltdb.settings.DbSettings;
@@ -1385,9 +1386,12 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
 
             KSafetyStats kSafetyStats = new KSafetyStats();
             getStatsAgent().registerStatsSource(StatsSelector.KSAFETY, 0, kSafetyStats);
+            getStatsAgent().registerStatsSource(StatsSelector.REJOIN, 0, new StreamSnapshotStats());
             m_cpuStats = new CpuStats();
             getStatsAgent().registerStatsSource(StatsSelector.CPU,
                     0, m_cpuStats);
+            getStatsAgent().registerStatsSource(StatsSelector.THREADCPU,
+                    0, new ThreadCpuStats());
             m_gcStats = new GcStats();
             getStatsAgent().registerStatsSource(StatsSelector.GC,
                     0, m_gcStats);
@@ -1452,6 +1456,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                         adminIntf,
                         config.m_adminPort,
                         m_config.m_sslExternal ? m_config.m_sslServerContext : null);
+                getStatsAgent().registerStatsSource(StatsSelector.STAGELATENCY,
+                        0, m_clientInterface.getStageLatencyStats());
             } catch (Exception e) {
                 VoltDB.crashLocalVoltDB(e.getMessage(), true, e);
             }
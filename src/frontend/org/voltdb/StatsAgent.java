@@ -499,6 +499,9 @@ public class StatsAgent extends OpsAgent
         case CPU:
             stats = collectStats(StatsSelector.CPU, interval);
             break;
+        case THREADCPU:
+            stats = collectStats(StatsSelector.THREADCPU, interval);
+            break;
         case IOSTATS:
             stats = collectStats(StatsSelector.IOSTATS, interval);
             break;
@@ -540,6 +543,9 @@ public class StatsAgent extends OpsAgent
         case LATENCY_HISTOGRAM:
             stats = collectStats(StatsSelector.LATENCY_HISTOGRAM, interval);
             break;
+        case STAGELATENCY:
+            stats = collectStats(StatsSelector.STAGELATENCY, interval);
+            break;
         case MANAGEMENT:
             stats = collectManagementStats(interval);
             break;
@@ -574,6 +580,12 @@ public class StatsAgent extends OpsAgent
         case TTL:
             stats = collectStats(StatsSelector.TTL, interval);
             break;
+        case MPREADPOOL:
+            stats = collectStats(StatsSelector.MPREADPOOL, interval);
+            break;
+        case REJOIN:
+            stats = collectStats(StatsSelector.REJOIN, interval);
+            break;
         case EXPORT:
             stats = collectStats(StatsSelector.EXPORT, interval);
             break;
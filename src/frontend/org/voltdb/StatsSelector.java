@@ -27,6 +27,7 @@ public enum StatsSelector {
     LATENCY,          // invoked as @stat latency
     LATENCY_COMPRESSED,  // before V7.3 this was @Statistics LATENCY
     LATENCY_HISTOGRAM,
+    STAGELATENCY,     // latency of each stage of the transactions by partition and procedure
     PARTITIONCOUNT,
     IOSTATS,
     MEMORY,           // info about node's memory usage
@@ -59,7 +60,10 @@ public enum StatsSelector {
     REBALANCE,      // return elastic rebalance progress
     KSAFETY,        // return ksafety coverage information
     CPU,            // return CPU Stats
+    THREADCPU,      // return CPU Stats of the site, network and export threads
     GC,             // return GC Stats
+    MPREADPOOL,     // return MPI read-only site pool stats
+    REJOIN,         // return progress of outgoing rejoin/join snapshot streams
 
     COMMANDLOG,     // return number of outstanding bytes and txns on this node
     IMPORTER,       // synonym as IMPORT for backward compatibility
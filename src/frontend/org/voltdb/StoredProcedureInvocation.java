@@ -72,6 +72,9 @@ public class StoredProcedureInvocation implements JSONString {
 
     private int m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
     private boolean m_allPartition = false;
+    // Rows per response chunk requested by the client. Only the receiving
+    // ClientInterface acts on it, so it is not serialized again.
+    private int m_fetchSize = 0;
 
     public StoredProcedureInvocation getShallowCopy()
     {
@@ -92,6 +95,7 @@ public class StoredProcedureInvocation implements JSONString {
 
         copy.m_batchTimeout = m_batchTimeout;
         copy.m_allPartition = m_allPartition;
+        copy.m_fetchSize = m_fetchSize;
 
         return copy;
     }
@@ -185,6 +189,10 @@ public class StoredProcedureInvocation implements JSONString {
         return m_allPartition;
     }
 
+    public int getFetchSize() {
+        return m_fetchSize;
+    }
+
     /** Read into an serialized parameter buffer to extract a single parameter */
     Object getParameterAtIndex(int partitionIndex) {
         try {
@@ -408,6 +416,7 @@ public class StoredProcedureInvocation implements JSONString {
         // set these to defaults so old versions don't worry about them
         m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
         m_allPartition = false;
+        m_fetchSize = 0;
 
         switch (type) {
             case ORIGINAL:
@@ -490,6 +499,9 @@ public class StoredProcedureInvocation implements JSONString {
                 // note this always returns true as it's just a flag
                 m_allPartition = ProcedureInvocationExtensions.readAllPartition(buf);
                 break;
+            case ProcedureInvocationExtensions.FETCH_SIZE:
+                m_fetchSize = ProcedureInvocationExtensions.readFetchSize(buf);
+                break;
             default:
                 ProcedureInvocationExtensions.skipUnknownExtension(buf);
                 break;
@@ -172,6 +172,7 @@ public class SystemProcedureCatalog {
         builder.put("@VerifyCatalogAndWriteJar",new Config("org.voltdb.sysprocs.VerifyCatalogAndWriteJar", false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
         builder.put("@UpdateApplicationCatalog",new Config("org.voltdb.sysprocs.UpdateApplicationCatalog", false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
         builder.put("@UpdateClasses",           new Config("org.voltdb.sysprocs.UpdateClasses",            false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
+        builder.put("@AnalyzeTable",            new Config("org.voltdb.sysprocs.AnalyzeTable",             false, false, false, 0,    VoltType.INVALID,   false, false, true,      true,   false,            false,        false ));
         builder.put("@LoadMultipartitionTable", new Config("org.voltdb.sysprocs.LoadMultipartitionTable",  false, false, false, 0,    VoltType.INVALID,   false, false, false,     true,   false,            true,         true  ));
         builder.put("@LoadSinglepartitionTable",new Config("org.voltdb.sysprocs.LoadSinglepartitionTable", true,  false, false, 0,    VoltType.VARBINARY, false, false, false,     true,   false,            true,         false ));
         builder.put("@Promote",                 new Config("org.voltdb.sysprocs.Promote",                  false, false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        false ));
@@ -195,6 +196,8 @@ public class SystemProcedureCatalog {
         builder.put("@AdHoc",                   new Config("org.voltdb.sysprocs.AdHoc",                    false, false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        true  ));
         builder.put("@AdHocSpForTest",          new Config("org.voltdb.sysprocs.AdHocSpForTest",           false, false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        true  ));
         builder.put("@AdHocLarge",              new Config("org.voltdb.sysprocs.AdHocLarge",               false, false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        true  ));
+        builder.put("@AdHocPrepare",            new Config("org.voltdb.sysprocs.AdHocPrepare",             false, true,  false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        false ));
+        builder.put("@AdHocPrepared",           new Config("org.voltdb.sysprocs.AdHocPrepared",            false, false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        true  ));
         builder.put("@StopNode",                new Config(null,                                           true,  false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            true,         false ));
         builder.put("@PrepareStopNode",         new Config(null,                                           true,  false, false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            true,         false ));
         builder.put("@Explain",                 new Config("org.voltdb.sysprocs.Explain",                  false, true,  false, 0,    VoltType.INVALID,   false, false, true,      false,  false,            false,        false ));
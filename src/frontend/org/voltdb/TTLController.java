@@ -0,0 +1,183 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+/**
+ * Feedback controller which sizes the nibble deletes of a TTL table.
+ *
+ * After every round of @LowImpactDeleteNT it looks at the expired rows left
+ * behind, the slowest nibble delete of the round and the depth of the site
+ * task queues. While the slowest delete stays within the latency budget and
+ * the sites keep up, a backlog of expired rows is worked off with more and
+ * larger deletes, up to the MAX_FREQUENCY of the table and a bounded multiple
+ * of its BATCH_SIZE. When the budget is exceeded both are cut back by half.
+ * Once there is nothing left to delete, rounds are skipped, more of them the
+ * longer the table stays idle.
+ */
+public class TTLController {
+
+    // Largest delete in rows, as a multiple of the BATCH_SIZE of the table
+    static final int MAX_BATCH_GROWTH = Integer.getInteger("TIME_TO_LIVE_MAX_BATCH_GROWTH", 4);
+    // Latency budget of one nibble delete in milliseconds
+    static final int LATENCY_BUDGET = Integer.getInteger("TIME_TO_LIVE_LATENCY_BUDGET", 100);
+    // Site queue depth above which deletes are cut back
+    static final int QUEUE_DEPTH_LIMIT = Integer.getInteger("TIME_TO_LIVE_QUEUE_DEPTH_LIMIT", 100);
+    // Most rounds skipped in a row while idle
+    static final int MAX_IDLE_SKIP = Integer.getInteger("TIME_TO_LIVE_MAX_IDLE_SKIP", 8);
+
+    public enum State {
+        // No rounds run yet
+        STARTING,
+        // Expired rows left over, deletes growing
+        BACKLOG,
+        // All expired rows deleted, rounds being skipped
+        IDLE,
+        // Over the latency budget or the sites falling behind, deletes shrinking
+        OVERLOADED
+    }
+
+    private final int m_latencyBudget;
+    private final int m_queueDepthLimit;
+    private int m_configuredBatchSize;
+    private int m_configuredFrequency;
+    private int m_maxBatchSize;
+
+    private int m_batchSize;
+    private int m_frequency;
+    private State m_state = State.STARTING;
+    private long m_lastLatency = 0;
+    private int m_lastQueueDepth = 0;
+    // Rounds to skip before the next one, and how many to skip after the next idle round
+    private int m_roundsToSkip = 0;
+    private int m_idleSkip = 0;
+
+    public TTLController(int batchSize, int maxFrequency) {
+        this(batchSize, maxFrequency, LATENCY_BUDGET, QUEUE_DEPTH_LIMIT);
+    }
+
+    TTLController(int batchSize, int maxFrequency, int latencyBudget, int queueDepthLimit) {
+        m_latencyBudget = latencyBudget;
+        m_queueDepthLimit = queueDepthLimit;
+        configure(batchSize, maxFrequency);
+        m_batchSize = m_configuredBatchSize;
+        m_frequency = m_configuredFrequency;
+    }
+
+    /**
+     * Apply the BATCH_SIZE and MAX_FREQUENCY of the table, after a catalog update.
+     */
+    public synchronized void configure(int batchSize, int maxFrequency) {
+        m_configuredBatchSize = Math.max(1, batchSize);
+        m_configuredFrequency = Math.max(1, maxFrequency);
+        m_maxBatchSize = (int) Math.min(Integer.MAX_VALUE, (long) m_configuredBatchSize * Math.max(1, MAX_BATCH_GROWTH));
+        m_batchSize = Math.min(m_batchSize, m_maxBatchSize);
+        m_frequency = Math.min(m_frequency, m_configuredFrequency);
+    }
+
+    /**
+     * @return true if the next round should run, false if it is skipped while the table is idle
+     */
+    public synchronized boolean startRound() {
+        if (m_roundsToSkip > 0) {
+            m_roundsToSkip--;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adjust the deletes to the outcome of a round.
+     * @param rowsLeft expired rows left after the round
+     * @param maxLatency latency of the slowest nibble delete of the round in milliseconds
+     * @param queueDepth deepest site task queue
+     */
+    public synchronized void update(long rowsLeft, long maxLatency, int queueDepth) {
+        m_lastLatency = maxLatency;
+        m_lastQueueDepth = queueDepth;
+        if (maxLatency > m_latencyBudget || queueDepth > m_queueDepthLimit) {
+            m_state = State.OVERLOADED;
+            m_batchSize = Math.max(1, m_batchSize / 2);
+            m_frequency = Math.max(1, m_frequency / 2);
+            m_idleSkip = 0;
+        }
+        else if (rowsLeft > 0) {
+            m_state = State.BACKLOG;
+            m_idleSkip = 0;
+            // Grow faster while well within the budget
+            int step = Math.max(1, m_configuredBatchSize / (maxLatency * 2 < m_latencyBudget ? 2 : 8));
+            m_batchSize = (int) Math.min(m_maxBatchSize, (long) m_batchSize + step);
+            long deletesNeeded = (rowsLeft + m_batchSize - 1) / m_batchSize;
+            m_frequency = (int) Math.min(m_configuredFrequency, Math.max(m_frequency + 1, deletesNeeded));
+        }
+        else {
+            m_state = State.IDLE;
+            // Fall back to the configured size for the next burst
+            m_batchSize = Math.min(m_batchSize, m_configuredBatchSize);
+            m_frequency = 1;
+            m_roundsToSkip = m_idleSkip;
+            m_idleSkip = Math.min(Math.max(1, m_idleSkip * 2), MAX_IDLE_SKIP);
+        }
+    }
+
+    /**
+     * A round failed, most likely by timing out. Cut the deletes back.
+     */
+    public synchronized void failed() {
+        m_state = State.OVERLOADED;
+        m_batchSize = Math.max(1, m_batchSize / 2);
+        m_frequency = Math.max(1, m_frequency / 2);
+        m_idleSkip = 0;
+    }
+
+    /**
+     * The DR buffer of a delete overflowed. Go back to the configured BATCH_SIZE,
+     * and no further, if the batches had grown beyond it.
+     * @return true if the deletes were smaller, so that the table can't be purged
+     */
+    public synchronized boolean exceededBufferLimit() {
+        if (m_batchSize > m_configuredBatchSize) {
+            m_maxBatchSize = m_configuredBatchSize;
+            m_batchSize = m_configuredBatchSize;
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized int getBatchSize() {
+        return m_batchSize;
+    }
+
+    public synchronized int getFrequency() {
+        return m_frequency;
+    }
+
+    public synchronized State getState() {
+        return m_state;
+    }
+
+    public synchronized long getLastLatency() {
+        return m_lastLatency;
+    }
+
+    public synchronized int getLastQueueDepth() {
+        return m_lastQueueDepth;
+    }
+
+    public int getLatencyBudget() {
+        return m_latencyBudget;
+    }
+}
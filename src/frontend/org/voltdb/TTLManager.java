@@ -60,6 +60,8 @@ public class TTLManager extends StatsSource{
     static final int LOG_SUPPRESSION_INTERVAL_SECONDS = 60;
     public static class TTLStats {
         final String tableName;
+        //the controller of the TTL task on this host, if any
+        volatile TTLController controller;
         long rowsLeft = 0L;
 
         //Total rows deleted on this TTL control. The total count
@@ -87,12 +89,15 @@ public class TTLManager extends StatsSource{
 
         final String tableName;
         final TTLStats stats;
+        //sizes the nibble deletes
+        final TTLController controller;
         AtomicReference<TimeToLive> ttlRef;
         AtomicBoolean canceled = new AtomicBoolean(false);
         public TTLTask(String table, TimeToLive timeToLive, TTLStats ttlStats) {
             tableName = table;
             ttlRef = new AtomicReference<>(timeToLive);
             stats = ttlStats;
+            controller = new TTLController(timeToLive.getBatchsize(), timeToLive.getMaxfrequency());
         }
 
         @Override
@@ -108,7 +113,7 @@ public class TTLManager extends StatsSource{
                 String stream = ttlRef.get().getMigrationtarget();
                 if (!StringUtil.isEmpty(stream)) {
                     migrate(cl, this);
-                } else {
+                } else if (controller.startRound()) {
                     delete(cl, this);
                 }
             }
@@ -125,6 +130,7 @@ public class TTLManager extends StatsSource{
 
         public void updateTask(TimeToLive updatedTTL) {
             ttlRef.compareAndSet(ttlRef.get(), updatedTTL);
+            controller.configure(updatedTTL.getBatchsize(), updatedTTL.getMaxfrequency());
         }
 
         long getValue() {
@@ -264,6 +270,9 @@ public class TTLManager extends StatsSource{
                     m_stats.put(t.getTypeName(), stats);
                 }
                 task = new TTLTask(t.getTypeName(), ttl, stats);
+                if (stats != null) {
+                    stats.controller = task.controller;
+                }
                 m_tasks.put(t.getTypeName(), task);
                 m_futures.put(t.getTypeName(),
                               m_timeToLiveExecutor.scheduleAtFixedRate(task,
@@ -302,6 +311,12 @@ public class TTLManager extends StatsSource{
         columns.add(new ColumnInfo("ROWS_DELETED_LAST_ROUND", VoltType.BIGINT));
         columns.add(new ColumnInfo("ROWS_REMAINING", VoltType.BIGINT));
         columns.add(new ColumnInfo("LAST_DELETE_TIMESTAMP", VoltType.TIMESTAMP));
+        columns.add(new ColumnInfo("CONTROLLER_STATE", VoltType.STRING));
+        columns.add(new ColumnInfo("BATCH_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("FREQUENCY", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_LATENCY", VoltType.BIGINT));
+        columns.add(new ColumnInfo("LATENCY_BUDGET", VoltType.BIGINT));
+        columns.add(new ColumnInfo("QUEUE_DEPTH", VoltType.INTEGER));
     }
 
     @Override
@@ -321,6 +336,22 @@ public class TTLManager extends StatsSource{
             rowValues[columnNameToIndex.get("ROWS_DELETED_LAST_ROUND")] = stats.rowsLastDeleted;
             rowValues[columnNameToIndex.get("ROWS_REMAINING")] = stats.rowsLeft;
             rowValues[columnNameToIndex.get("LAST_DELETE_TIMESTAMP")] = stats.ts;
+            TTLController controller = stats.controller;
+            if (controller != null) {
+                rowValues[columnNameToIndex.get("CONTROLLER_STATE")] = controller.getState().name();
+                rowValues[columnNameToIndex.get("BATCH_SIZE")] = controller.getBatchSize();
+                rowValues[columnNameToIndex.get("FREQUENCY")] = controller.getFrequency();
+                rowValues[columnNameToIndex.get("MAX_LATENCY")] = controller.getLastLatency();
+                rowValues[columnNameToIndex.get("LATENCY_BUDGET")] = controller.getLatencyBudget();
+                rowValues[columnNameToIndex.get("QUEUE_DEPTH")] = controller.getLastQueueDepth();
+            } else {
+                rowValues[columnNameToIndex.get("CONTROLLER_STATE")] = "";
+                rowValues[columnNameToIndex.get("BATCH_SIZE")] = 0;
+                rowValues[columnNameToIndex.get("FREQUENCY")] = 0;
+                rowValues[columnNameToIndex.get("MAX_LATENCY")] = 0L;
+                rowValues[columnNameToIndex.get("LATENCY_BUDGET")] = 0L;
+                rowValues[columnNameToIndex.get("QUEUE_DEPTH")] = 0;
+            }
         }
     }
 
@@ -364,33 +395,57 @@ public class TTLManager extends StatsSource{
                         if (error.indexOf(TTLManager.DR_LIMIT_MSG) > -1) {
                             // The buffer limit for a DR transaction is 50M. If over the limit,
                             // the transaction will be aborted. The same is true for nibble delete transaction.
-                            // If hit this error, no more data can be deleted in this TTL table.
-                            drLimitError = "The transaction exceeds DR Buffer Limit of "
-                                    + MpTransactionState.DR_MAX_AGGREGATE_BUFFERSIZE
-                                    + " TTL is disabled for the table. Please change BATCH_SIZE to a smaller value.";
-                            task.cancel();
-                            ScheduledFuture<?> fut = m_futures.get(task.tableName);
-                            if (fut != null) {
-                                fut.cancel(false);
-                                m_futures.remove(task.tableName);
+                            // If hit this error with the configured batch size, no more data can be deleted
+                            // in this TTL table. Larger batches picked by the controller are just cut back.
+                            if (task.controller.exceededBufferLimit()) {
+                                drLimitError = "The transaction exceeds DR Buffer Limit of "
+                                        + MpTransactionState.DR_MAX_AGGREGATE_BUFFERSIZE
+                                        + " TTL is disabled for the table. Please change BATCH_SIZE to a smaller value.";
+                                task.cancel();
+                                ScheduledFuture<?> fut = m_futures.get(task.tableName);
+                                if (fut != null) {
+                                    fut.cancel(false);
+                                    m_futures.remove(task.tableName);
+                                }
+                            } else {
+                                drLimitError = "The batch size is limited to BATCH_SIZE.";
                             }
+                        } else {
+                            task.controller.failed();
                         }
                         hostLog.rateLimitedLog(LOG_SUPPRESSION_INTERVAL_SECONDS, Level.WARN, null,
                                 "Errors occured on TTL table %s: %s %s", task.tableName, error, drLimitError);
                     } else {
                         task.stats.update(t.getLong("ROWS_DELETED"), t.getLong("ROWS_LEFT"), t.getLong("LAST_DELETE_TIMESTAMP"));
+                        task.controller.update(t.getLong("ROWS_LEFT"), t.getLong("MAX_LATENCY"), getMaxSiteQueueDepth());
                     }
                 }
                 latch.countDown();
             }
         };
         cl.getDispatcher().getInternelAdapterNT().callProcedure(cl.getInternalUser(), true, NT_PROC_TIMEOUT, cb,
-                "@LowImpactDeleteNT", new Object[] {task.tableName, task.getColumnName(), task.getValue(), "<=", task.getBatchSize(),
-                        TIMEOUT, task.getMaxFrequency(), INTERVAL});
+                "@LowImpactDeleteNT", new Object[] {task.tableName, task.getColumnName(), task.getValue(), "<=",
+                        task.controller.getBatchSize(), TIMEOUT, task.controller.getFrequency(), INTERVAL});
         try {
             latch.await(NT_PROC_TIMEOUT, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             hostLog.warn("TTL waiting interrupted" + e.getMessage());
         }
     }
+
+    /**
+     * @return the depth of the deepest site task queue on this host, standing in
+     * for the load on the sites which run the nibble deletes
+     */
+    private static int getMaxSiteQueueDepth() {
+        VoltTable queues = VoltDB.instance().getStatsAgent().getStatsAggregate(StatsSelector.QUEUE, false,
+                System.currentTimeMillis());
+        int depth = 0;
+        if (queues != null) {
+            while (queues.advanceRow()) {
+                depth = Math.max(depth, (int) queues.getLong("CURRENT_DEPTH"));
+            }
+        }
+        return depth;
+    }
 }
@@ -0,0 +1,68 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.SystemStatsCollector;
+import org.voltdb.utils.SystemStatsCollector.ThreadType;
+import org.voltdb.utils.SystemStatsCollector.ThreadTypeSample;
+
+/**
+ * Source of @Statistics THREADCPU, the CPU used by the site, network, export
+ * and other threads of this host at the most recent system sample.
+ */
+public class ThreadCpuStats extends StatsSource {
+
+    public ThreadCpuStats() {
+        super(false);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Iterator<Object> it = (Iterator) SystemStatsCollector.getRecentThreadSamples().keySet().iterator();
+        return it;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("THREAD_TYPE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("THREADS", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("CPU_TIME", VoltType.BIGINT));
+        // Of one core, so that a busy site thread shows as 100
+        columns.add(new VoltTable.ColumnInfo("PERCENT_USED", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        ThreadType type = (ThreadType) rowKey;
+        Map<ThreadType, ThreadTypeSample> samples = SystemStatsCollector.getRecentThreadSamples();
+        ThreadTypeSample sample = samples.get(type);
+        rowValues[columnNameToIndex.get("THREAD_TYPE")] = type.name();
+        rowValues[columnNameToIndex.get("THREADS")] = sample == null ? 0 : sample.threads;
+        rowValues[columnNameToIndex.get("CPU_TIME")] = sample == null ? 0 : sample.cpuTime;
+        rowValues[columnNameToIndex.get("PERCENT_USED")] = sample == null ? 0 : Math.round(sample.cpuLoad * 100);
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -20,6 +20,7 @@ package org.voltdb;
 import org.json_voltpatches.JSONObject;
 import org.voltcore.network.Connection;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.utils.SampledTrace;
 import org.voltdb.utils.VoltTrace;
 
 import java.io.File;
@@ -78,13 +79,28 @@ public class TraceAgent extends OpsAgent {
             if (!(subselector.equalsIgnoreCase("enable") ||
                   subselector.equalsIgnoreCase("disable") ||
                   subselector.equalsIgnoreCase("status") ||
+                  subselector.equalsIgnoreCase("sample") ||
                   subselector.equalsIgnoreCase("dump"))) {
                 return "Invalid @Trace selector " + subselector;
             }
         }
         // Would be nice to have subselector validation here, maybe.  Maybe later.
         obj.put("subselector", subselector);
-        if (params.toArray().length >= 2) {
+        if (subselector.equalsIgnoreCase("sample")) {
+            // The fraction of the transactions to trace, 0 to stop sampling
+            if (params.toArray().length < 2) {
+                return "@Trace sample expects a sample rate between 0 and 1";
+            }
+            try {
+                final double rate = Double.parseDouble(params.toArray()[1].toString());
+                if (!(rate >= 0 && rate <= 1)) {
+                    return "@Trace sample rate must be between 0 and 1, instead was " + rate;
+                }
+                obj.put("rate", rate);
+            } catch (NumberFormatException e) {
+                return "@Trace sample rate must be a number, instead was " + params.toArray()[1];
+            }
+        } else if (params.toArray().length >= 2) {
             obj.put("categories", params.toArray()[1]);
         }
         obj.put("interval", false);
@@ -114,6 +130,8 @@ public class TraceAgent extends OpsAgent {
             VoltTrace.enableCategories(VoltTrace.Category.valueOf(obj.getString("categories").toUpperCase()));
         } else if (subselector.equalsIgnoreCase("disable")) {
             VoltTrace.disableCategories(VoltTrace.Category.valueOf(obj.getString("categories").toUpperCase()));
+        } else if (subselector.equalsIgnoreCase("sample")) {
+            SampledTrace.setSampleRate(obj.getDouble("rate"));
         } else if (subselector.equalsIgnoreCase("status")) {
             final Collection<VoltTrace.Category> enabledCategories = VoltTrace.enabledCategories();
             if (enabledCategories.isEmpty()) {
@@ -121,6 +139,9 @@ public class TraceAgent extends OpsAgent {
             } else {
                 results[0].addRow(enabledCategories.toString());
             }
+            if (SampledTrace.isEnabled()) {
+                results[0].addRow("sampling " + SampledTrace.getSampleRate() + " of transactions");
+            }
         }
 
         sendOpsResponse(results, obj);
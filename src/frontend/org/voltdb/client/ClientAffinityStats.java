@@ -24,6 +24,8 @@ package org.voltdb.client;
  * the the client believes it found a replica for.  Round-robin stats reflect
  * the client's lack of information when client affinity is on and indicate
  * transactions that were routed using the default round-robin algorithm.
+ * With hedged reads, hedgedReads tracks reads that were sent again to a second
+ * replica and hedgeWins the ones the second replica answered first.
  */
 public class ClientAffinityStats {
 
@@ -32,15 +34,25 @@ public class ClientAffinityStats {
     private long m_rrWrites;
     private long m_affinityReads;
     private long m_rrReads;
+    private long m_hedgedReads;
+    private long m_hedgeWins;
 
     ClientAffinityStats(int partitionId, long affinityWrites, long rrWrites,
             long affinityReads, long rrReads)
+    {
+        this(partitionId, affinityWrites, rrWrites, affinityReads, rrReads, 0, 0);
+    }
+
+    ClientAffinityStats(int partitionId, long affinityWrites, long rrWrites,
+            long affinityReads, long rrReads, long hedgedReads, long hedgeWins)
     {
         m_partitionId = partitionId;
         m_affinityWrites = affinityWrites;
         m_rrWrites = rrWrites;
         m_affinityReads = affinityReads;
         m_rrReads = rrReads;
+        m_hedgedReads = hedgedReads;
+        m_hedgeWins = hedgeWins;
     }
 
     /**
@@ -59,7 +71,9 @@ public class ClientAffinityStats {
                 newer.m_affinityWrites - older.m_affinityWrites,
                 newer.m_rrWrites - older.m_rrWrites,
                 newer.m_affinityReads - older.m_affinityReads,
-                newer.m_rrReads - older.m_rrReads);
+                newer.m_rrReads - older.m_rrReads,
+                newer.m_hedgedReads - older.m_hedgedReads,
+                newer.m_hedgeWins - older.m_hedgeWins);
         return retval;
     }
 
@@ -69,7 +83,7 @@ public class ClientAffinityStats {
     @Override
     protected Object clone() {
         return new ClientAffinityStats(m_partitionId, m_affinityWrites, m_rrWrites, m_affinityReads,
-               m_rrReads);
+               m_rrReads, m_hedgedReads, m_hedgeWins);
     }
 
     void addAffinityWrite()
@@ -134,12 +148,48 @@ public class ClientAffinityStats {
         return m_rrReads;
     }
 
+    void addHedgedRead()
+    {
+        m_hedgedReads++;
+    }
+
+    /**
+     * Get the number of affinity reads that were sent again to another
+     * replica because the first one was slow to answer, for this time period.
+     *
+     * @return The count as a long.
+     */
+    public long getHedgedReads()
+    {
+        return m_hedgedReads;
+    }
+
+    void addHedgeWin()
+    {
+        m_hedgeWins++;
+    }
+
+    /**
+     * Get the number of hedged reads that were answered first by the
+     * replica they were sent to again, for this time period.
+     *
+     * @return The count as a long.
+     */
+    public long getHedgeWins()
+    {
+        return m_hedgeWins;
+    }
+
     @Override
     public String toString()
     {
         String afdisplay = "Partition ID %d:  %d affinity writes, %d affinity reads, " +
             "%d round-robin writes, %d round-robin reads";
-        return String.format(afdisplay, m_partitionId, m_affinityWrites, m_affinityReads,
+        String display = String.format(afdisplay, m_partitionId, m_affinityWrites, m_affinityReads,
                 m_rrWrites, m_rrReads);
+        if (m_hedgedReads > 0) {
+            display += String.format(", %d hedged reads, %d hedge wins", m_hedgedReads, m_hedgeWins);
+        }
+        return display;
     }
 }
@@ -58,6 +58,10 @@ public class ClientConfig {
     int m_maxTransactionsPerSecond = Integer.MAX_VALUE;
     boolean m_autoTune = false;
     int m_autoTuneTargetInternalLatency = 5;
+    boolean m_congestionControl = false;
+    int m_congestionTargetLatency = 0;
+    double m_congestionPercentile = 99.0;
+    boolean m_congestionPerPartition = false;
     long m_procedureCallTimeoutNanos = DEFAULT_PROCEDURE_TIMOUT_NANOS;
     long m_connectionResponseTimeoutMS = DEFAULT_CONNECTION_TIMOUT_MS;
     boolean m_useClientAffinity = true;
@@ -66,6 +70,7 @@ public class ClientConfig {
     long m_initialConnectionRetryIntervalMS = DEFAULT_INITIAL_CONNECTION_RETRY_INTERVAL_MS;
     long m_maxConnectionRetryIntervalMS = DEFAULT_MAX_CONNECTION_RETRY_INTERVAL_MS;
     boolean m_sendReadsToReplicasBytDefaultIfCAEnabled = false;
+    double m_hedgedReadPercentile = 0;
     SslConfig m_sslConfig;
     boolean m_topologyChangeAware = false;
     boolean m_enableSSL = false;
@@ -341,6 +346,49 @@ public class ClientConfig {
         m_autoTune = true;
     }
 
+    /**
+     * <p>Enable congestion control, which caps the transactions outstanding on each
+     * connection with a window of its own. Every 100ms the window of a connection
+     * shrinks if the given percentile of the round trip latencies measured by the
+     * client on that connection is above the target, or if the server could not keep
+     * up with the requests sent over it, and grows while it holds requests back and
+     * the target is met. A slow node therefore only throttles the requests sent to it.</p>
+     *
+     * <p>The maximum outstanding transactions still caps the client as a whole, and
+     * the Auto Tuning feature is not used with congestion control. The size of the
+     * windows and the number of requests they held back are reported by
+     * {@link ClientStats#getCongestionWindow()} and {@link ClientStats#getCongestionThrottles()}.</p>
+     *
+     * @param targetLatency Target round trip latency in milliseconds.
+     * @param percentile The latency percentile kept under the target, between 0 and 100.
+     */
+    public void enableCongestionControl(int targetLatency, double percentile) {
+        if (targetLatency < 1) {
+            throw new IllegalArgumentException(
+                    "Congestion control target latency must be greater than 0, " + targetLatency + " was specified");
+        }
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException(
+                    "Congestion control percentile must be between 0 and 100, " + percentile + " was specified");
+        }
+        m_congestionControl = true;
+        m_congestionTargetLatency = targetLatency;
+        m_congestionPercentile = percentile;
+    }
+
+    /**
+     * <p>With congestion control and client affinity, keep a congestion window per
+     * partition leader instead of per connection, so that a slow partition does not
+     * throttle the other partitions led by the same node.</p>
+     *
+     * <p>Defaults to FALSE. Has no effect unless congestion control is enabled.</p>
+     *
+     * @param on Enable or disable windows per partition.
+     */
+    public void setCongestionControlPerPartition(boolean on) {
+        m_congestionPerPartition = on;
+    }
+
     /**
      * <p>Attempts to route transactions to the correct master partition improving latency
      * and throughput</p>
@@ -381,6 +429,31 @@ public class ClientConfig {
         m_sendReadsToReplicasBytDefaultIfCAEnabled = on;
     }
 
+    /**
+     * <p>Enable hedged reads. A read-only single partition transaction sent to a
+     * replica, see {@link #setSendReadsToReplicasByDefault(boolean)}, is sent again
+     * to another replica of the partition if it has not been answered after the
+     * given percentile of the recent replica read latencies. The first response is
+     * passed to the callback and the other one is dropped, so a replica slowed down
+     * by a snapshot or a rejoin adds less to the latency tail, at the cost of
+     * running about (100 - percentile)% of the reads twice.</p>
+     *
+     * <p>Reads are not hedged until the first second of latencies has been
+     * recorded. The number of hedged reads, and of the ones the second replica
+     * answered first, are reported by {@link ClientAffinityStats}.</p>
+     *
+     * <p>Has no effect unless reads are sent to replicas.</p>
+     *
+     * @param percentile The percentile of the replica read latencies after which a read is hedged, between 0 and 100.
+     */
+    public void enableHedgedReads(double percentile) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException(
+                    "Hedged read percentile must be between 0 and 100, " + percentile + " was specified");
+        }
+        m_hedgedReadPercentile = percentile;
+    }
+
     /**
      * <p>Attempts to reconnect to a node with retry after connection loss. See the {@link ReconnectStatusListener}.</p>
      *
@@ -22,6 +22,9 @@ class ClientIOStats {
     long m_connectionId;
     long m_bytesSent;
     long m_bytesReceived;
+    // congestion control state of the connection, the window is a current value, not a count
+    int m_congestionWindow;
+    long m_congestionThrottles;
 
     ClientIOStats(long connectionId, long bytesSent, long bytesReceived) {
         m_connectionId = connectionId;
@@ -37,6 +40,8 @@ class ClientIOStats {
         ClientIOStats retval = new ClientIOStats(older.m_connectionId,
                                                  newer.m_bytesSent - older.m_bytesSent,
                                                  newer.m_bytesReceived - older.m_bytesReceived);
+        retval.m_congestionWindow = newer.m_congestionWindow;
+        retval.m_congestionThrottles = newer.m_congestionThrottles - older.m_congestionThrottles;
         return retval;
     }
 
@@ -45,6 +50,9 @@ class ClientIOStats {
      */
     @Override
     protected Object clone() {
-        return new ClientIOStats(m_connectionId, m_bytesSent, m_bytesReceived);
+        ClientIOStats retval = new ClientIOStats(m_connectionId, m_bytesSent, m_bytesReceived);
+        retval.m_congestionWindow = m_congestionWindow;
+        retval.m_congestionThrottles = m_congestionThrottles;
+        return retval;
     }
 }
@@ -24,6 +24,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -139,6 +140,9 @@ public final class ClientImpl implements Client {
                 config.m_subject,
                 m_sslContext);
         m_distributer.addClientStatusListener(m_listener);
+        if (config.m_hedgedReadPercentile > 0) {
+            m_distributer.enableHedgedReads(config.m_hedgedReadPercentile);
+        }
         String username = config.m_username;
         if (config.m_subject != null) {
             username = ClientConfig.getUserNameFromSubject(config.m_subject);
@@ -170,7 +174,12 @@ public final class ClientImpl implements Client {
 
         assert(config.m_maxOutstandingTxns > 0);
         m_blessedThreadIds.addAll(m_distributer.getThreadIds());
-        if (config.m_autoTune) {
+        if (config.m_congestionControl) {
+            m_distributer.enableCongestionControl(
+                    TimeUnit.MILLISECONDS.toNanos(config.m_congestionTargetLatency), config.m_congestionPercentile,
+                    config.m_congestionPerPartition, config.m_maxOutstandingTxns);
+        }
+        if (config.m_autoTune && !config.m_congestionControl) {
             m_distributer.m_rateLimiter.enableAutoTuning(
                     config.m_autoTuneTargetInternalLatency);
         }
@@ -324,6 +333,75 @@ public final class ClientImpl implements Client {
         return internalSyncCallProcedure(nanos, invocation);
     }
 
+    /**
+     * Synchronously invoke a procedure call, blocking until the first chunk of
+     * the result is available. The server sends a result of a single table in
+     * chunks of at most fetchSize rows, which are retrieved from the returned
+     * stream as they are consumed. The client timeout applies to the first chunk.
+     * The whole result is still built at the site, or at the MPI, before it is
+     * sent, so the limit on the size of a result applies as with callProcedure:
+     * only the transfer to the client is chunked.
+     * While the consumer falls behind, reads on the connection the invocation was
+     * sent on stop, which holds back the responses to every other invocation on
+     * that connection until the stream catches up, is closed or fails after the
+     * connection response timeout. Use a separate client for streamed results
+     * if other invocations must not wait for them.
+     *
+     * @param fetchSize maximum number of rows in a chunk, must be positive.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param clientTimeout timeout for the procedure
+     * @param unit TimeUnit of procedure timeout
+     * @param parameters vararg list of procedure's parameter values.
+     * @return ResultStream of the result, which must be closed if it is not read to the end.
+     * @throws org.voltdb.client.ProcCallException
+     * @throws NoConnectionsException
+     */
+    public ResultStream callProcedureStreaming(
+            int fetchSize,
+            String procName,
+            long clientTimeout,
+            TimeUnit unit,
+            Object... parameters)
+                    throws IOException, NoConnectionsException, ProcCallException
+    {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        if (m_isShutdown) {
+            throw new NoConnectionsException("Client instance is shutdown");
+        }
+        if (m_blessedThreadIds.contains(Thread.currentThread().getId())) {
+            throw new IOException("Can't invoke a procedure synchronously from with the client callback thread " +
+                    " without deadlocking the client library");
+        }
+
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation = new ProcedureInvocation(
+                handle, BatchTimeoutOverrideType.NO_TIMEOUT, false, fetchSize, procName, parameters);
+        ResultStream stream = new ResultStream();
+        if ( ! internalAsyncCallProcedure(stream, unit.toNanos(clientTimeout), invocation)) {
+            final ClientResponseImpl r = new ClientResponseImpl(
+                    ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                    "",
+                    new VoltTable[0],
+                    String.format("Unable to queue client request."));
+            throw new ProcCallException(r, "Unable to queue client request.", null);
+        }
+
+        final ClientResponse first;
+        try {
+            first = stream.waitForFirstResponse();
+        } catch (final InterruptedException e) {
+            stream.close();
+            throw new java.io.InterruptedIOException("Interrupted while waiting for response");
+        }
+        if (first.getStatus() != ClientResponse.SUCCESS) {
+            throw new ProcCallException(first, first.getStatusString(), null);
+        }
+        return stream;
+    }
+
     /**
      * Asynchronously invoke a procedure call.
      * @param callback TransactionCallback that will be invoked with procedure results.
@@ -879,6 +957,21 @@ public final class ClientImpl implements Client {
 
     static final Logger LOG = Logger.getLogger(ClientImpl.class.getName());  // Logger shared by client package.
     private final Distributer m_distributer;                             // de/multiplexes connections to a cluster
+    // Handles of the most recently used prepared statements by SQL text, as many as the servers keep plans for.
+    // The Distributer routes a statement only as long as it is in here.
+    static final int MAX_PREPARED_STATEMENTS = 1000;
+    private final Map<String, Long> m_preparedHandles = new LinkedHashMap<String, Long>(16, .75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (size() > MAX_PREPARED_STATEMENTS) {
+                m_distributer.unregisterPreparedStatement(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
     private final Object m_backpressureLock = new Object();
     private boolean m_backpressure = false;
 
@@ -1016,6 +1109,109 @@ public final class ClientImpl implements Client {
 
     }
 
+    /**
+     * Hidden method to plan a single DML or DQL statement once with @AdHocPrepare.
+     * The executions of the statement are routed by its partitioning parameter
+     * when client affinity is enabled.
+     *
+     * @param sql SQL text of the statement
+     * @param parameterCount number of '?' parameters of the statement
+     * @return handle to execute the statement with, see {@link #callPreparedWithClientTimeout}
+     */
+    public long prepareAdHoc(String sql, int parameterCount)
+            throws IOException, NoConnectionsException, ProcCallException
+    {
+        Long handle;
+        synchronized (m_preparedHandles) {
+            handle = m_preparedHandles.get(sql);
+        }
+        if (handle != null) {
+            return handle;
+        }
+        VoltTable result = callProcedure("@AdHocPrepare", sql, parameterCount).getResults()[0];
+        result.advanceRow();
+        handle = result.getLong("HANDLE");
+        m_distributer.registerPreparedStatement(handle,
+                (int) result.getLong("PARTITION_PARAMETER"),
+                (int) result.getLong("PARTITION_PARAMETER_TYPE"),
+                result.getLong("READ_ONLY") != 0);
+        synchronized (m_preparedHandles) {
+            m_preparedHandles.put(sql, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Hidden method to execute a statement prepared with {@link #prepareAdHoc}.
+     * Only the handle and the parameters are sent, unless the host which
+     * executes the statement has no plan for it, after a catalog update or a
+     * rejoin, in which case the statement is executed again with its SQL text.
+     */
+    public ClientResponse callPreparedWithClientTimeout(
+            long statementHandle,
+            String sql,
+            long clientTimeout,
+            TimeUnit unit,
+            Object... parameters)
+                    throws IOException, NoConnectionsException, ProcCallException
+    {
+        Object[] params = preparedParameters(statementHandle, parameters);
+        try {
+            return callProcedureWithClientTimeout(BatchTimeoutOverrideType.NO_TIMEOUT, "@AdHocPrepared",
+                    clientTimeout, unit, params);
+        }
+        catch (ProcCallException e) {
+            ClientResponse response = e.getClientResponse();
+            if (response == null || response.getStatus() != ClientResponse.GRACEFUL_FAILURE ||
+                    !Constants.UNKNOWN_PREPARED_STATEMENT.equals(response.getStatusString())) {
+                throw e;
+            }
+        }
+        params[1] = sql;
+        return callProcedureWithClientTimeout(BatchTimeoutOverrideType.NO_TIMEOUT, "@AdHocPrepared",
+                clientTimeout, unit, params);
+    }
+
+    /**
+     * Hidden method to asynchronously execute a statement prepared with {@link #prepareAdHoc}.
+     * See the synchronous namesake.
+     *
+     * @return True if the execution was queued and false otherwise
+     */
+    public boolean callPreparedWithClientTimeout(
+            final ProcedureCallback callback,
+            long statementHandle,
+            final String sql,
+            final long clientTimeout,
+            final TimeUnit unit,
+            Object... parameters)
+                    throws IOException, NoConnectionsException
+    {
+        final Object[] params = preparedParameters(statementHandle, parameters);
+        return callProcedureWithClientTimeout(new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse response) throws Exception {
+                if (response.getStatus() == ClientResponse.GRACEFUL_FAILURE &&
+                        Constants.UNKNOWN_PREPARED_STATEMENT.equals(response.getStatusString())) {
+                    params[1] = sql;
+                    if (callProcedureWithClientTimeout(callback, BatchTimeoutOverrideType.NO_TIMEOUT, "@AdHocPrepared",
+                            clientTimeout, unit, params)) {
+                        return;
+                    }
+                }
+                callback.clientCallback(response);
+            }
+        }, BatchTimeoutOverrideType.NO_TIMEOUT, "@AdHocPrepared", clientTimeout, unit, params);
+    }
+
+    // The handle and the SQL text, null unless the host has no plan, precede the statement parameters
+    private static Object[] preparedParameters(long statementHandle, Object[] parameters) {
+        Object[] params = new Object[parameters.length + 2];
+        params[0] = statementHandle;
+        System.arraycopy(parameters, 0, params, 2, parameters.length);
+        return params;
+    }
+
     @Override
     public VoltBulkLoader getNewBulkLoader(String tableName, int maxBatchSize, boolean upsertMode, BulkLoaderFailureCallBack failureCallback) throws Exception
     {
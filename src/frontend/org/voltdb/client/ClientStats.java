@@ -74,6 +74,10 @@ public class ClientStats {
     long m_bytesSent;
     long m_bytesReceived;
 
+    // congestion window size, a current value summed over connections, and sends it held back
+    int m_congestionWindow;
+    long m_congestionThrottles;
+
     private static final long LOWEST_TRACKABLE = 50;
     private static final long HIGHEST_TRACKABLE = 10L * (1000L * 1000L);
     private static final int SIGNIFICANT_VALUE_DIGITS = 2;
@@ -116,6 +120,8 @@ public class ClientStats {
         m_latencyHistogram.reestablishTotalCount();
         m_bytesSent = other.m_bytesSent;
         m_bytesReceived = other.m_bytesReceived;
+        m_congestionWindow = other.m_congestionWindow;
+        m_congestionThrottles = other.m_congestionThrottles;
     }
 
     static ClientStats diff(ClientStats newer, ClientStats older) {
@@ -147,6 +153,9 @@ public class ClientStats {
         retval.m_bytesSent = newer.m_bytesSent - older.m_bytesSent;
         retval.m_bytesReceived = newer.m_bytesReceived - older.m_bytesReceived;
 
+        retval.m_congestionWindow = newer.m_congestionWindow;
+        retval.m_congestionThrottles = newer.m_congestionThrottles - older.m_congestionThrottles;
+
         return retval;
     }
 
@@ -195,6 +204,9 @@ public class ClientStats {
 
         m_bytesSent += other.m_bytesSent;
         m_bytesReceived += other.m_bytesReceived;
+
+        m_congestionWindow += other.m_congestionWindow;
+        m_congestionThrottles += other.m_congestionThrottles;
     }
 
     void update(long roundTripTimeNanos, int clusterRoundTripTime, boolean abort, boolean error, boolean timeout) {
@@ -448,6 +460,32 @@ public class ClientStats {
         return m_bytesReceived;
     }
 
+    /**
+     * Return the number of invocations congestion control allowed outstanding
+     * when the statistics were fetched, see
+     * {@link ClientConfig#enableCongestionControl(int, double)}. This can be
+     * specific to a connection or the sum over all connections, but is not
+     * recorded for per-procedure statistics.
+     *
+     * @return The congestion window, or 0 for per-procedure statistics or
+     * if congestion control is not enabled.
+     */
+    public int getCongestionWindow() {
+        return m_congestionWindow;
+    }
+
+    /**
+     * Return the number of times a full congestion window held back an
+     * invocation during the time period covered by this stats instance.
+     * This can be specific to a connection or global, but is not recorded
+     * for per-procedure statistics.
+     *
+     * @return The number of throttled sends or 0 for per-procedure statistics.
+     */
+    public long getCongestionThrottles() {
+        return m_congestionThrottles;
+    }
+
     /**
      * <p>Using the latency bucketing statistics gathered by the client, estimate
      * the k-percentile latency value for the time period covered by this stats
@@ -591,6 +629,10 @@ public class ClientStats {
                 m_hostname, m_port));
         sb.append(String.format("    invocations completed/aborted/errors/timeouts: %d/%d/%d/%d\n",
                 m_invocationsCompleted, m_invocationAborts, m_invocationErrors, m_invocationTimeouts));
+        if (m_congestionWindow > 0) {
+            sb.append(String.format("    congestion window/throttles: %d/%d\n",
+                    m_congestionWindow, m_congestionThrottles));
+        }
         if (m_invocationsCompleted > 0) {
             sb.append(String.format("    avg latency client/internal: %.2f/%d\n",
                     (m_roundTripTimeNanos / (double)m_invocationsCompleted) / 1000000.0, m_clusterRoundTripTime / m_invocationsCompleted));
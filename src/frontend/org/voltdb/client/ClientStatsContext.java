@@ -160,6 +160,8 @@ public class ClientStatsContext {
             if (cios != null) {
                 cs.m_bytesReceived = cios.m_bytesReceived;
                 cs.m_bytesSent = cios.m_bytesSent;
+                cs.m_congestionWindow = cios.m_congestionWindow;
+                cs.m_congestionThrottles = cios.m_congestionThrottles;
             }
             retval.put(e.getKey(), cs);
         }
@@ -224,7 +226,7 @@ public class ClientStatsContext {
     }
 
     /**
-     * Roll up the per-partition affinity stats and return the totals for each of the four
+     * Roll up the per-partition affinity stats and return the totals for each of the
      * categories. Will only be populated if client affinity is enabled.
      *
      * @return A {@link ClientAffinityStats} instance covering all partitions.
@@ -235,15 +237,19 @@ public class ClientStatsContext {
         long afReads = 0;
         long rrWrites = 0;
         long rrReads = 0;
+        long hedgedReads = 0;
+        long hedgeWins = 0;
         Map<Integer, ClientAffinityStats> affinityStats = getAffinityStats();
         for (Entry<Integer, ClientAffinityStats> e : affinityStats.entrySet()) {
             afWrites += e.getValue().getAffinityWrites();
             afReads += e.getValue().getAffinityReads();
             rrWrites += e.getValue().getRrWrites();
             rrReads += e.getValue().getRrReads();
+            hedgedReads += e.getValue().getHedgedReads();
+            hedgeWins += e.getValue().getHedgeWins();
         }
         ClientAffinityStats retval = new ClientAffinityStats(Integer.MAX_VALUE, afWrites, rrWrites,
-               afReads, rrReads);
+               afReads, rrReads, hedgedReads, hedgeWins);
         return retval;
     }
 
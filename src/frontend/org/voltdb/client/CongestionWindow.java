@@ -0,0 +1,182 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.Recorder;
+
+/**
+ * Caps the invocations outstanding on one connection, or to one partition
+ * leader over it, see {@link ClientConfig#enableCongestionControl(int, double)}.
+ *
+ * Every UPDATE_INTERVAL the window is adjusted from the round trip latencies
+ * recorded in that interval. It shrinks by DECREASE_FACTOR if the target
+ * percentile is above the target latency, and halves if the connection
+ * reported write backpressure. Otherwise, if the window held back sends in
+ * the interval, it grows by INCREASE_FRACTION, at least by one.
+ *
+ * Sends and responses only touch atomics and the histogram recorder. The
+ * adjustment is made by whichever thread first finds the interval over.
+ */
+class CongestionWindow {
+
+    static final long UPDATE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int INITIAL_WINDOW = 20;
+    static final double DECREASE_FACTOR = 0.8;
+    static final double INCREASE_FRACTION = 0.05;
+
+    // latencies are recorded in microseconds, like ClientStats
+    private static final long LOWEST_TRACKABLE = 1;
+    private static final long HIGHEST_TRACKABLE = TimeUnit.SECONDS.toMicros(60);
+
+    /** Window of connections when congestion control is off, never full */
+    static final CongestionWindow NONE = new CongestionWindow(-1, 0, Integer.MAX_VALUE);
+
+    private final long m_targetMicros;
+    private final double m_percentile;
+    private final int m_maxWindow;
+
+    private volatile int m_window;
+    private final AtomicInteger m_outstanding = new AtomicInteger();
+    private final AtomicLong m_throttles = new AtomicLong();
+    // a send was held back since the last adjustment
+    private volatile boolean m_limited = false;
+    // a send was held back and no slot has been freed since
+    private final AtomicBoolean m_blocked = new AtomicBoolean(false);
+    private final AtomicBoolean m_backpressure = new AtomicBoolean(false);
+
+    private final Recorder m_latencies;
+    private Histogram m_interval = null;
+    private final AtomicLong m_nextUpdateNanos = new AtomicLong(System.nanoTime() + UPDATE_INTERVAL_NANOS);
+
+    CongestionWindow(long targetNanos, double percentile, int maxWindow) {
+        m_targetMicros = TimeUnit.NANOSECONDS.toMicros(targetNanos);
+        m_percentile = percentile;
+        m_maxWindow = maxWindow;
+        m_window = Math.min(INITIAL_WINDOW, maxWindow);
+        m_latencies = targetNanos < 0 ? null : new Recorder(LOWEST_TRACKABLE, HIGHEST_TRACKABLE, 2);
+    }
+
+    boolean isFull() {
+        return m_latencies != null && m_outstanding.get() >= m_window;
+    }
+
+    /**
+     * Take a slot for an invocation, unless the window is full.
+     * @return true if the invocation can be sent
+     */
+    boolean tryAcquire() {
+        if (m_latencies == null) {
+            return true;
+        }
+        while (true) {
+            final int outstanding = m_outstanding.get();
+            if (outstanding >= m_window) {
+                // flag the wait before checking again, so a concurrent release can't miss it
+                m_blocked.set(true);
+                if (m_outstanding.get() >= m_window) {
+                    m_limited = true;
+                    m_throttles.incrementAndGet();
+                    return false;
+                }
+            }
+            else if (m_outstanding.compareAndSet(outstanding, outstanding + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Take a slot for an invocation that is not subject to backpressure,
+     * even if the window is full.
+     */
+    void forceAcquire() {
+        if (m_latencies != null) {
+            m_outstanding.incrementAndGet();
+        }
+    }
+
+    /**
+     * Free the slot of a completed invocation.
+     * @param nowNanos the time the invocation completed
+     * @param latencyNanos its round trip, or -1 if it was lost without a response
+     * @return true if sends were held back since the last release, and can be tried again
+     */
+    boolean release(long nowNanos, long latencyNanos) {
+        if (m_latencies == null) {
+            return false;
+        }
+        m_outstanding.decrementAndGet();
+        if (latencyNanos >= 0) {
+            m_latencies.recordValue(Math.min(HIGHEST_TRACKABLE,
+                    Math.max(LOWEST_TRACKABLE, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        }
+        maybeUpdate(nowNanos);
+        return m_blocked.getAndSet(false);
+    }
+
+    /**
+     * The connection could not write all it was given, the server is not keeping up.
+     */
+    void backpressure() {
+        if (m_latencies != null) {
+            m_backpressure.set(true);
+            m_nextUpdateNanos.set(Long.MIN_VALUE);
+        }
+    }
+
+    private void maybeUpdate(long nowNanos) {
+        final long nextUpdate = m_nextUpdateNanos.get();
+        if (nowNanos - nextUpdate < 0 && nextUpdate != Long.MIN_VALUE) {
+            return;
+        }
+        if ( ! m_nextUpdateNanos.compareAndSet(nextUpdate, nowNanos + UPDATE_INTERVAL_NANOS)) {
+            // another thread is adjusting the window
+            return;
+        }
+        int window = m_window;
+        synchronized (m_latencies) {
+            m_interval = m_latencies.getIntervalHistogram(m_interval);
+            if (m_backpressure.getAndSet(false)) {
+                window = window / 2;
+            }
+            else if (m_interval.getTotalCount() > 0 &&
+                    m_interval.getValueAtPercentile(m_percentile) > m_targetMicros) {
+                window = (int) (window * DECREASE_FACTOR);
+            }
+            else if (m_limited) {
+                window += Math.max(1, (int) (window * INCREASE_FRACTION));
+            }
+        }
+        m_limited = false;
+        m_window = Math.max(1, Math.min(m_maxWindow, window));
+    }
+
+    int getWindow() {
+        return m_latencies == null ? 0 : m_window;
+    }
+
+    long getThrottles() {
+        return m_throttles.get();
+    }
+}
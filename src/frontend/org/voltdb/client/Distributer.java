@@ -52,6 +52,8 @@ import java.util.concurrent.locks.LockSupport;
 import javax.net.ssl.SSLEngine;
 import javax.security.auth.Subject;
 
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.Recorder;
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashMap;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
@@ -139,6 +141,9 @@ class Distributer {
     private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<>();
     private final AtomicReference<ImmutableSortedMap<String, Procedure>> m_procedureInfo =
                                 new AtomicReference<ImmutableSortedMap<String, Procedure>>();
+    // Partitioning of the statements executed by handle with @AdHocPrepared, bounded by
+    // ClientImpl.MAX_PREPARED_STATEMENTS since ClientImpl unregisters the ones it evicts
+    private final Map<Long, Procedure> m_preparedStatements = new ConcurrentHashMap<>();
     private final AtomicReference<ImmutableSet<Integer>> m_partitionKeys = new AtomicReference<ImmutableSet<Integer>>();
     private final AtomicLong m_lastPartitionKeyFetched = new AtomicLong(0);
     private final AtomicReference<ClientResponse> m_partitionUpdateStatus = new AtomicReference<ClientResponse>();
@@ -154,6 +159,23 @@ class Distributer {
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
+    // Congestion control settings, see ClientConfig.enableCongestionControl, off while the target is negative
+    private volatile long m_congestionTargetNanos = -1;
+    private volatile double m_congestionPercentile;
+    private volatile boolean m_congestionPerPartition;
+    private volatile int m_congestionMaxWindow;
+
+    // Hedged reads, see ClientConfig.enableHedgedReads, off while the percentile is not positive
+    static final long HEDGE_DELAY_UPDATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private volatile double m_hedgePercentile = -1;
+    // Replica read latencies in microseconds, the hedge delay is derived from those of the last interval
+    private static final long REPLICA_READ_HIGHEST_TRACKABLE = TimeUnit.SECONDS.toMicros(60);
+    private final Recorder m_replicaReadLatencies = new Recorder(1, REPLICA_READ_HIGHEST_TRACKABLE, 2);
+    private Histogram m_replicaReadInterval = null;
+    private volatile long m_hedgeDelayNanos = Long.MAX_VALUE;
+    private final AtomicLong m_nextHedgeDelayUpdateNanos =
+            new AtomicLong(System.nanoTime() + HEDGE_DELAY_UPDATE_INTERVAL_NANOS);
+
     private final AtomicReference<ImmutableSet<Integer>> m_unconnectedHosts = new AtomicReference<ImmutableSet<Integer>>();
     private AtomicBoolean m_createConnectionUponTopoChangeInProgress = new AtomicBoolean(false);
     private boolean m_topologyChangeAware;
@@ -333,17 +355,30 @@ class Distributer {
                     // check for connection age
                     final long sinceLastResponse = Math.max(1, nowNanos - c.m_lastResponseTimeNanos);
 
-                    // if outstanding ping and timeoutMS, close the connection
-                    if (c.m_outstandingPing && (sinceLastResponse > m_connectionResponseTimeoutNanos)) {
-                        // memoize why it's closing
-                        c.m_closeCause = DisconnectCause.TIMEOUT;
-                        // this should trigger NodeConnection.stopping(..)
-                        c.m_connection.unregister();
+                    if (c.m_readsPaused) {
+                        // Reads held back by a result stream leave responses, pings included,
+                        // unread. A stream whose consumer holds them for as long as a
+                        // connection may go quiet is failed so the connection reads again.
+                        final ResultStream stream = c.m_pausingStream;
+                        if (stream != null && nowNanos - c.m_readsPausedNanos > m_connectionResponseTimeoutNanos) {
+                            stream.failIfHoldingReads(String.format(
+                                    "Result stream was not read for %d ms, the rest of the result was dropped.",
+                                    TimeUnit.NANOSECONDS.toMillis(m_connectionResponseTimeoutNanos)));
+                        }
                     }
+                    else {
+                        // if outstanding ping and timeoutMS, close the connection
+                        if (c.m_outstandingPing && (sinceLastResponse > m_connectionResponseTimeoutNanos)) {
+                            // memoize why it's closing
+                            c.m_closeCause = DisconnectCause.TIMEOUT;
+                            // this should trigger NodeConnection.stopping(..)
+                            c.m_connection.unregister();
+                        }
 
-                    // if 1/3 of the timeoutMS since last response, send a ping
-                    if ((!c.m_outstandingPing) && (sinceLastResponse > (m_connectionResponseTimeoutNanos / 3))) {
-                        c.sendPing();
+                        // if 1/3 of the timeoutMS since last response, send a ping
+                        if ((!c.m_outstandingPing) && (sinceLastResponse > (m_connectionResponseTimeoutNanos / 3))) {
+                            c.sendPing();
+                        }
                     }
 
                     // for each outstanding procedure
@@ -351,6 +386,11 @@ class Distributer {
                         final long handle = e.getKey();
                         final CallbackBookeeping cb = e.getValue();
 
+                        // a streamed result has answered, its chunks arrive as the consumer reads them
+                        if (cb.streaming) {
+                            continue;
+                        }
+
                         // if the timeout is expired, call the callback and remove the
                         // bookeeping data
                         final long deltaNanos = Math.max(1, nowNanos - cb.timestampNanos);
@@ -390,13 +430,15 @@ class Distributer {
     }
 
     class CallbackBookeeping {
-        public CallbackBookeeping(long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
+        public CallbackBookeeping(long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos,
+                boolean ignoreBackpressure, CongestionWindow window) {
             assert(callback != null);
             this.timestampNanos = timestampNanos;
             this.callback = callback;
             this.name = name;
             this.procedureTimeoutNanos = timeoutNanos;
             this.ignoreBackpressure = ignoreBackpressure;
+            this.window = window;
         }
         long timestampNanos;
         //Timeout in ms 0 means use conenction specified procedure timeoutMS.
@@ -404,6 +446,159 @@ class Distributer {
         ProcedureCallback callback;
         String name;
         boolean ignoreBackpressure;
+        // the congestion window the invocation holds a slot in
+        final CongestionWindow window;
+        // set once the first chunk of a streamed result is received
+        volatile boolean streaming = false;
+    }
+
+    /*
+     * A read-only single partition invocation sent to a replica, which is sent again to another
+     * replica of the partition if it is not answered within the hedge delay. The first response
+     * is passed to the callback of the invocation and the other one is dropped, it is not counted
+     * in the procedure stats either. The hedge delay is derived from the latencies of the first
+     * sends, whether or not they were answered first.
+     */
+    class HedgedRead implements Runnable {
+        private final ProcedureInvocation m_invocation;
+        private final ProcedureCallback m_callback;
+        private final int m_partition;
+        private final NodeConnection m_primary;
+        private final long m_startNanos;
+        private final long m_timeoutNanos;
+        private final AtomicBoolean m_done = new AtomicBoolean(false);
+        // sends not answered with a lost connection
+        private final AtomicInteger m_attempts = new AtomicInteger(1);
+
+        final Attempt m_primaryCallback = new Attempt(false);
+        private final Attempt m_hedgeCallback = new Attempt(true);
+
+        /*
+         * The callback of one send. The connection claims the response before it updates the
+         * procedure stats, and only counts the response which is passed on.
+         */
+        final class Attempt implements ProcedureCallback {
+            private final boolean m_hedge;
+            // set once the response has been claimed, by the thread which then invokes the callback
+            private boolean m_claimed = false;
+            private boolean m_passedOn = false;
+
+            Attempt(boolean hedge) {
+                m_hedge = hedge;
+            }
+
+            /**
+             * @return Whether the response is the one passed to the callback of the invocation
+             */
+            boolean claim(ClientResponse response) {
+                if (!m_claimed) {
+                    m_claimed = true;
+                    m_passedOn = HedgedRead.this.claim(response, m_hedge);
+                }
+                return m_passedOn;
+            }
+
+            @Override
+            public void clientCallback(ClientResponse response) throws Exception {
+                if (claim(response)) {
+                    complete(response, m_hedge);
+                }
+            }
+        }
+
+        HedgedRead(ProcedureInvocation invocation, ProcedureCallback callback, int partition,
+                NodeConnection primary, long startNanos, long timeoutNanos) {
+            m_invocation = invocation;
+            m_callback = callback;
+            m_partition = partition;
+            m_primary = primary;
+            m_startNanos = startNanos;
+            m_timeoutNanos = timeoutNanos;
+        }
+
+        // No hedging until there are latencies to derive the delay from
+        void schedule() {
+            final long delayNanos = m_hedgeDelayNanos;
+            if (delayNanos == Long.MAX_VALUE) {
+                return;
+            }
+            try {
+                m_ex.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+            }
+        }
+
+        /*
+         * Send the invocation again to another replica, unless it has been answered. Replicas that
+         * can't take it without waiting are skipped, and it is not hedged if there is none.
+         */
+        @Override
+        public void run() {
+            if (m_done.get()) {
+                return;
+            }
+            NodeConnection cxn = null;
+            synchronized (Distributer.this) {
+                final NodeConnection replicas[] = m_partitionReplicas.get(m_partition);
+                if (replicas == null) {
+                    return;
+                }
+                final int first = ThreadLocalRandom.current().nextInt(replicas.length);
+                for (int i = 0; i < replicas.length; i++) {
+                    final NodeConnection nc = replicas[(first + i) % replicas.length];
+                    if (nc != m_primary && nc.m_isConnected && nc.tryAcquire(m_partition, false)) {
+                        cxn = nc;
+                        break;
+                    }
+                }
+                if (cxn == null) {
+                    return;
+                }
+                final ClientAffinityStats stats = m_clientAffinityStats.get(m_partition);
+                if (stats != null) {
+                    stats.addHedgedRead();
+                }
+            }
+            m_attempts.incrementAndGet();
+
+            ByteBuffer buf = null;
+            try {
+                buf = serializeSPI(m_invocation);
+            } catch (Exception e) {
+                Throwables.propagate(e);
+            }
+            // Same handle on another connection. The timeout and round trip count from the first send,
+            // and it is not held back by the rate limiter, this thread also reaps timeouts.
+            cxn.createWork(m_startNanos, m_invocation.getHandle(), m_invocation.getProcName(), buf, m_hedgeCallback,
+                    true, m_timeoutNanos, cxn.window(m_partition));
+        }
+
+        private boolean claim(ClientResponse response, boolean hedge) {
+            // the first send's latency, also when the hedge answered first, so that the delay
+            // follows the replicas rather than the fastest of two
+            if (!hedge && response.getStatus() == ClientResponse.SUCCESS) {
+                final long nowNanos = System.nanoTime();
+                recordReplicaRead(nowNanos, nowNanos - m_startNanos);
+            }
+            // a lost connection leaves the answer to the other replica, if it was sent there too
+            if (response.getStatus() == ClientResponse.CONNECTION_LOST && m_attempts.decrementAndGet() > 0) {
+                return false;
+            }
+            return m_done.compareAndSet(false, true);
+        }
+
+        private void complete(ClientResponse response, boolean hedge) throws Exception {
+            if (hedge) {
+                synchronized (Distributer.this) {
+                    final ClientAffinityStats stats = m_clientAffinityStats.get(m_partition);
+                    if (stats != null) {
+                        stats.addHedgeWin();
+                    }
+                }
+            }
+            m_callback.clientCallback(response);
+        }
     }
 
     class NodeConnection extends VoltProtocolHandler implements org.voltcore.network.QueueMonitor {
@@ -415,6 +610,13 @@ class Distributer {
 
         volatile long m_lastResponseTimeNanos = System.nanoTime();
         boolean m_outstandingPing = false;
+        // set while a result stream with a full queue holds back reads
+        volatile boolean m_readsPaused = false;
+        volatile long m_readsPausedNanos = 0;
+        // the stream which last stopped reads, may have resumed them since
+        volatile ResultStream m_pausingStream = null;
+        // congestion windows by partition, or a single one under -1
+        private final ConcurrentMap<Integer, CongestionWindow> m_windows = new ConcurrentHashMap<>();
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
         public NodeConnection(long ids[]) {}
@@ -427,6 +629,11 @@ class Distributer {
          */
         public void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
+            createWork(nowNanos, handle, name, c, callback, ignoreBackpressure, timeoutNanos, CongestionWindow.NONE);
+        }
+
+        void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
+                ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos, CongestionWindow window) {
             assert(callback != null);
 
             //How long from the starting point in time to wait to get this stuff done
@@ -453,7 +660,8 @@ class Distributer {
                  * the transaction out on the wire due to max outstanding
                  */
                 final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
-                invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos, timeoutNanos, handle, ignoreBackpressure);
+                invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos, timeoutNanos, handle,
+                        ignoreBackpressure, window);
                 return;
             }
 
@@ -464,7 +672,7 @@ class Distributer {
             assert(callbacksToInvoke >= 0);
 
             //Optimistically submit the task
-            m_callbacks.put(handle, new CallbackBookeeping(nowNanos, callback, name, timeoutNanos, ignoreBackpressure));
+            m_callbacks.put(handle, new CallbackBookeeping(nowNanos, callback, name, timeoutNanos, ignoreBackpressure, window));
 
             //Schedule the timeout to fire relative to the amount of time
             //spent getting to this point. Might fire immediately
@@ -499,6 +707,7 @@ class Distributer {
 
                 //for bookkeeping, but it feels dishonest to call this here
                 m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
+                releaseWindow(window, nowNanos, -1);
                 return;
             } else {
                 m_connection.writeStream().enqueue(c);
@@ -532,16 +741,17 @@ class Distributer {
         void handleTimedoutCallback(long handle, long nowNanos) {
             //Callback doesn't have to be there, it may have already
             //received a response or been expired by the periodic expiration task, or a discrete expiration task
-            final CallbackBookeeping cb = m_callbacks.remove(handle);
+            final CallbackBookeeping cb = m_callbacks.get(handle);
 
-            //It was handled during the race
-            if (cb == null) {
+            //It was handled during the race, or is a result stream that has already answered
+            if (cb == null || cb.streaming || !m_callbacks.remove(handle, cb)) {
                 return;
             }
 
             final long deltaNanos = Math.max(1, nowNanos - cb.timestampNanos);
 
-            invokeCallbackWithTimeout(cb.name, cb.callback, deltaNanos, nowNanos, cb.procedureTimeoutNanos, handle, cb.ignoreBackpressure);
+            invokeCallbackWithTimeout(cb.name, cb.callback, deltaNanos, nowNanos, cb.procedureTimeoutNanos, handle,
+                    cb.ignoreBackpressure, cb.window);
         }
 
         /*
@@ -553,7 +763,8 @@ class Distributer {
                                        long nowNanos,
                                        long timeoutNanos,
                                        long handle,
-                                       boolean ignoreBackpressure) {
+                                       boolean ignoreBackpressure,
+                                       CongestionWindow window) {
             ClientResponseImpl r = new ClientResponseImpl(
                     ClientResponse.CONNECTION_TIMEOUT,
                     ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
@@ -575,7 +786,60 @@ class Distributer {
             assert(remainingToInvoke >= 0);
 
             m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
-            updateStatsForTimeout(procName, r.getClientRoundtripNanos(), r.getClusterRoundtrip());
+            // a timeout counts as a response as late as the timeout
+            releaseWindow(window, nowNanos, deltaNanos);
+            if (countsInStats(callback, r)) {
+                updateStatsForTimeout(procName, r.getClientRoundtripNanos(), r.getClusterRoundtrip());
+            }
+        }
+
+        /*
+         * Free the congestion window slot of a completed invocation, and end the
+         * backpressure reported to callers that the full window held back.
+         */
+        private void releaseWindow(CongestionWindow window, long nowNanos, long latencyNanos) {
+            if (window.release(nowNanos, latencyNanos)) {
+                // same lock as queue() reporting backpressure, for the same reason as offBackPressure
+                synchronized (Distributer.this) {
+                    for (final ClientStatusListenerExt csl : m_listeners) {
+                        csl.backpressure(false);
+                    }
+                }
+            }
+        }
+
+        /*
+         * The congestion window for invocations to the partition over this connection,
+         * or for the whole connection if windows are not kept per partition.
+         */
+        CongestionWindow window(int partition) {
+            final long targetNanos = m_congestionTargetNanos;
+            if (targetNanos < 0) {
+                return CongestionWindow.NONE;
+            }
+            final Integer key = m_congestionPerPartition ? partition : -1;
+            CongestionWindow window = m_windows.get(key);
+            if (window == null) {
+                window = new CongestionWindow(targetNanos, m_congestionPercentile, m_congestionMaxWindow);
+                final CongestionWindow existing = m_windows.putIfAbsent(key, window);
+                if (existing != null) {
+                    window = existing;
+                }
+            }
+            return window;
+        }
+
+        /*
+         * Take a slot in the congestion window for the partition, unless the connection has
+         * write backpressure or the window is full. Invocations that ignore backpressure
+         * always get one.
+         */
+        boolean tryAcquire(int partition, boolean ignoreBackpressure) {
+            if (ignoreBackpressure) {
+                window(partition).forceAcquire();
+                return true;
+            }
+            return !hadBackPressure() && window(partition).tryAcquire();
         }
 
         void sendPing() {
@@ -592,6 +856,13 @@ class Distributer {
             m_outstandingPing = true;
         }
 
+        /*
+         * Every invocation counts once in the stats, the response a hedged read drops doesn't count.
+         */
+        private boolean countsInStats(ProcedureCallback callback, ClientResponse response) {
+            return !(callback instanceof HedgedRead.Attempt) || ((HedgedRead.Attempt) callback).claim(response);
+        }
+
         private void updateStatsForTimeout(
                 final String procName,
                 final long roundTripNanos,
@@ -676,6 +947,12 @@ class Distributer {
                 return;
             }
 
+            // A chunk of a streamed result, the callback stays for the chunks that follow
+            if (response.hasMoreResults()) {
+                handleResultChunk(response);
+                return;
+            }
+
             //Race with expiration thread to be the first to remove the callback
             //from the map and process it
             final CallbackBookeeping stuff = m_callbacks.remove(response.getClientHandle());
@@ -710,7 +987,10 @@ class Distributer {
 
                 int clusterRoundTrip = response.getClusterRoundtrip();
                 m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
-                updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
+                releaseWindow(stuff.window, nowNanos, deltaNanos);
+                if (countsInStats(cb, response)) {
+                    updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
+                }
                 response.setClientRoundtrip(deltaNanos);
                 assert(response.getHashes() == null) : "A determinism hash snuck into the client wire protocol";
                 try {
@@ -725,6 +1005,50 @@ class Distributer {
             }
         }
 
+        /*
+         * Pass a chunk of a streamed result, other than the last, to the callback.
+         * Timeouts no longer apply to the invocation once it has answered, and a
+         * ResultStream with enough chunks queued stops reads on the connection
+         * until its consumer catches up.
+         */
+        private void handleResultChunk(ClientResponseImpl response) {
+            final CallbackBookeeping stuff = m_callbacks.get(response.getClientHandle());
+            if (stuff == null) {
+                // timed out before the first chunk, the rest of the result is dropped
+                return;
+            }
+            stuff.streaming = true;
+            response.setClientRoundtrip(Math.max(1, System.nanoTime() - stuff.timestampNanos));
+            try {
+                stuff.callback.clientCallback(response);
+            } catch (Throwable t) {
+                uncaughtException(stuff.callback, response, t);
+            }
+            if (stuff.callback instanceof ResultStream) {
+                final ResultStream stream = (ResultStream) stuff.callback;
+                m_pausingStream = stream;
+                stream.pauseReadsIfFull(m_pauseReads, m_resumeReads);
+            }
+        }
+
+        private final Runnable m_pauseReads = new Runnable() {
+            @Override
+            public void run() {
+                m_readsPausedNanos = System.nanoTime();
+                m_readsPaused = true;
+                m_connection.disableReadSelection();
+            }
+        };
+
+        private final Runnable m_resumeReads = new Runnable() {
+            @Override
+            public void run() {
+                m_lastResponseTimeNanos = System.nanoTime();
+                m_readsPaused = false;
+                m_connection.enableReadSelection();
+            }
+        };
+
         @Override
         public int getMaxRead() {
             return Integer.MAX_VALUE;
@@ -855,6 +1179,7 @@ class Distributer {
                 assert(remainingToInvoke >= 0);
 
                 m_rateLimiter.transactionResponseReceived(System.nanoTime(), -1, callBk.ignoreBackpressure);
+                releaseWindow(callBk.window, System.nanoTime(), -1);
             }
         }
 
@@ -879,7 +1204,14 @@ class Distributer {
 
         @Override
         public Runnable onBackPressure() {
-            return null;
+            return new Runnable() {
+                @Override
+                public void run() {
+                    for (CongestionWindow window : m_windows.values()) {
+                        window.backpressure();
+                    }
+                }
+            };
         }
 
         @Override
@@ -968,6 +1300,46 @@ class Distributer {
         m_subject = subject;
     }
 
+    /**
+     * Cap the invocations outstanding on each connection, or to each partition leader,
+     * with a window adjusted to keep the given latency percentile under the target.
+     */
+    void enableCongestionControl(long targetNanos, double percentile, boolean perPartition, int maxWindow) {
+        m_congestionPercentile = percentile;
+        m_congestionPerPartition = perPartition;
+        m_congestionMaxWindow = maxWindow;
+        m_congestionTargetNanos = targetNanos;
+    }
+
+    /**
+     * Send read-only single partition invocations routed to a replica again to another replica
+     * when they are not answered within the given percentile of the replica read latencies.
+     */
+    void enableHedgedReads(double percentile) {
+        m_hedgePercentile = percentile;
+    }
+
+    /*
+     * Record the latency of a replica read, and once an interval is over derive the hedge
+     * delay from the latencies recorded in it.
+     */
+    private void recordReplicaRead(long nowNanos, long latencyNanos) {
+        m_replicaReadLatencies.recordValue(Math.min(REPLICA_READ_HIGHEST_TRACKABLE,
+                Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        final long nextUpdate = m_nextHedgeDelayUpdateNanos.get();
+        if (nowNanos - nextUpdate < 0 ||
+                !m_nextHedgeDelayUpdateNanos.compareAndSet(nextUpdate, nowNanos + HEDGE_DELAY_UPDATE_INTERVAL_NANOS)) {
+            return;
+        }
+        synchronized (m_replicaReadLatencies) {
+            m_replicaReadInterval = m_replicaReadLatencies.getIntervalHistogram(m_replicaReadInterval);
+            if (m_replicaReadInterval.getTotalCount() > 0) {
+                m_hedgeDelayNanos = TimeUnit.MICROSECONDS.toNanos(
+                        m_replicaReadInterval.getValueAtPercentile(m_hedgePercentile));
+            }
+        }
+    }
+
     void createConnection(String host, String program, String password, int port, ClientAuthScheme scheme)
     throws UnknownHostException, IOException
     {
@@ -1144,6 +1516,8 @@ class Distributer {
 
         NodeConnection cxn = null;
         boolean backpressure = true;
+        CongestionWindow window = null;
+        HedgedRead hedge = null;
 
         /*
          * Synchronization is necessary to ensure that m_connections is not modified
@@ -1167,6 +1541,13 @@ class Distributer {
                 if (procedures != null) {
                     procedureInfo = procedures.get(invocation.getProcName());
                 }
+                if (procedureInfo == null && invocation.getProcName().equals("@AdHocPrepared") &&
+                        invocation.getPassedParamCount() > 0) {
+                    Object statementHandle = invocation.getPartitionParamValue(0);
+                    if (statementHandle instanceof Long) {
+                        procedureInfo = m_preparedStatements.get(statementHandle);
+                    }
+                }
                 Integer hashedPartition = -1;
 
                 if (procedureInfo != null) {
@@ -1187,17 +1568,23 @@ class Distributer {
                         NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
                         if (partitionReplicas != null && partitionReplicas.length > 0) {
                             cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
+                            if (cxn.m_isConnected && cxn.tryAcquire(hashedPartition, ignoreBackpressure)) {
+                                backpressure = false;
+                            }
+                            else {
                                 //See if there is one without backpressure, make sure it's still connected
                                 for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                    if (nc != cxn && nc.m_isConnected && nc.tryAcquire(hashedPartition, ignoreBackpressure)) {
                                         cxn = nc;
+                                        backpressure = false;
                                         break;
                                     }
                                 }
                             }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
+                            // Streamed results are not hedged, their chunks come from one connection
+                            if (!backpressure && m_hedgePercentile > 0 && partitionReplicas.length > 1 &&
+                                    !(cb instanceof ResultStream)) {
+                                hedge = new HedgedRead(invocation, cb, hashedPartition, cxn, nowNanos, timeoutNanos);
                             }
                         }
                     } else {
@@ -1205,7 +1592,7 @@ class Distributer {
                          * For writes or SAFE reads, this is the best way to go
                          */
                         cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        if (cxn != null && cxn.m_isConnected && cxn.tryAcquire(hashedPartition, ignoreBackpressure)) {
                             backpressure = false;
                         }
                     }
@@ -1215,6 +1602,7 @@ class Distributer {
                     // Client affinity picked a connection that was actually disconnected.  Reset to null
                     // and let the round-robin choice pick a connection
                     cxn = null;
+                    hedge = null;
                 }
                 ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
                 if (stats == null) {
@@ -1222,6 +1610,7 @@ class Distributer {
                     m_clientAffinityStats.put(hashedPartition, stats);
                 }
                 if (cxn != null) {
+                    window = cxn.window(hashedPartition);
                     if (procedureInfo != null && procedureInfo.readOnly) {
                         stats.addAffinityRead();
                     }
@@ -1243,12 +1632,13 @@ class Distributer {
             if (cxn == null) {
                 for (int i=0; i < totalConnections; ++i) {
                     cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    if (cxn.tryAcquire(-1, ignoreBackpressure)) {
                         // serialize and queue the invocation
                         backpressure = false;
                         break;
                     }
                 }
+                window = cxn.window(-1);
             }
 
             if (backpressure) {
@@ -1270,7 +1660,11 @@ class Distributer {
             } catch (Exception e) {
                 Throwables.propagate(e);
             }
-            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
+            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf,
+                    hedge == null ? cb : hedge.m_primaryCallback, ignoreBackpressure, timeoutNanos, window);
+            if (hedge != null) {
+                hedge.schedule();
+            }
         }
         if (m_topologyChangeAware) {
             createConnectionsUponTopologyChange();
@@ -1369,6 +1763,10 @@ class Distributer {
             long write = perConnIOStats.getSecond()[2];
 
             ClientIOStats cios = new ClientIOStats(conn.connectionId(), read, write);
+            for (CongestionWindow window : conn.m_windows.values()) {
+                cios.m_congestionWindow += window.getWindow();
+                cios.m_congestionThrottles += window.getThrottles();
+            }
             retval.put(conn.connectionId(), cios);
         }
 
@@ -1506,6 +1904,33 @@ class Distributer {
         m_procedureInfo.compareAndSet(oldProcs, ImmutableSortedMap.copyOf(procs));
     }
 
+    /**
+     * Route the executions of a prepared statement like calls of a procedure
+     * with the same partitioning.
+     * @param statementHandle handle returned by @AdHocPrepare
+     * @param partitionParameter index of the partitioning parameter among the statement parameters,
+     *                           -1 if the statement isn't partitioned on one of them
+     */
+    void registerPreparedStatement(long statementHandle, int partitionParameter, int partitionParameterType,
+            boolean readOnly) {
+        if (partitionParameter < 0) {
+            m_preparedStatements.put(statementHandle, new Procedure(true, readOnly, Procedure.PARAMETER_NONE,
+                    Procedure.PARAMETER_NONE));
+        }
+        else {
+            // The handle and the SQL text precede the statement parameters
+            m_preparedStatements.put(statementHandle, new Procedure(false, readOnly, partitionParameter + 2,
+                    partitionParameterType));
+        }
+    }
+
+    /**
+     * Stop routing the executions of a prepared statement, which the client no longer keeps a handle for.
+     */
+    void unregisterPreparedStatement(long statementHandle) {
+        m_preparedStatements.remove(statementHandle);
+    }
+
     private void updatePartitioning(VoltTable vt) {
         List<Integer> keySet = new ArrayList<Integer>();
         while (vt.advanceRow()) {
@@ -38,6 +38,8 @@ public class ProcedureInvocation {
     private final int m_batchTimeout;
     private final ParameterSet m_parameters;
     private final boolean m_allPartition;
+    // rows per response chunk, 0 to receive the whole result in one response
+    private final int m_fetchSize;
 
     // pre-cache this for serialization
     // this duplicates some other code, but it's nice to keep the client code
@@ -53,9 +55,17 @@ public class ProcedureInvocation {
     }
 
     public ProcedureInvocation(long handle, int batchTimeout, boolean allPartition, String procName, Object... parameters) {
+        this(handle, batchTimeout, allPartition, 0, procName, parameters);
+    }
+
+    public ProcedureInvocation(long handle, int batchTimeout, boolean allPartition, int fetchSize,
+            String procName, Object... parameters) {
         if ((batchTimeout < 0) && (batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT)) {
             throw new IllegalArgumentException("Timeout value can't be negative." );
         }
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size can't be negative." );
+        }
 
         m_clientHandle = handle;
         m_procName = procName;
@@ -65,6 +75,7 @@ public class ProcedureInvocation {
 
         m_batchTimeout = batchTimeout;
         m_allPartition = allPartition;
+        m_fetchSize = fetchSize;
     }
 
     /** return the clientHandle value */
@@ -96,6 +107,10 @@ public class ProcedureInvocation {
         return m_allPartition;
     }
 
+    public int getFetchSize() {
+        return m_fetchSize;
+    }
+
     public int getSerializedSize() {
         // convert proc name to bytes if needed
         if (m_procNameBytes == null) {
@@ -107,13 +122,14 @@ public class ProcedureInvocation {
         int batchExtensionSize = m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT ? 6 : 0;
         // 2 is one byte for ext type, one for size
         int allPartitionExtensionSize = m_allPartition ? 2 : 0;
+        int fetchSizeExtensionSize = m_fetchSize > 0 ? 6 : 0;
 
         int size =
             1 + // type
             4 + m_procNameBytes.length + // procname
             8 + // client handle
             1 + // extension count
-            batchExtensionSize + allPartitionExtensionSize + // extensions
+            batchExtensionSize + allPartitionExtensionSize + fetchSizeExtensionSize + // extensions
             m_parameters.getSerializedSize(); // parameters
         assert(size > 0); // sanity
         return size;
@@ -131,10 +147,11 @@ public class ProcedureInvocation {
 
         buf.putLong(m_clientHandle);
 
-        // there are two possible extensions, count which apply
+        // there are three possible extensions, count which apply
         byte extensionCount = 0;
         if (m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT) ++extensionCount;
         if (m_allPartition) ++extensionCount;
+        if (m_fetchSize > 0) ++extensionCount;
         // write the count as one byte
         buf.put(extensionCount);
         // write any extensions that apply
@@ -144,6 +161,9 @@ public class ProcedureInvocation {
         if (m_allPartition) {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
         }
+        if (m_fetchSize > 0) {
+            ProcedureInvocationExtensions.writeFetchSizeWithTypeByte(buf, m_fetchSize);
+        }
 
         m_parameters.flattenToBuffer(buf);
 
@@ -47,6 +47,7 @@ import java.nio.ByteBuffer;
 public abstract class ProcedureInvocationExtensions {
     public static final byte BATCH_TIMEOUT = 1;  // batch timeout
     public static final byte ALL_PARTITION = 2; // whether proc is part of run-everywhere
+    public static final byte FETCH_SIZE = 3; // rows per response chunk of a streamed result
 
     private static final int INTEGER_SIZE = 4;
 
@@ -87,6 +88,25 @@ public abstract class ProcedureInvocationExtensions {
         return true;
     }
 
+    public static void writeFetchSizeWithTypeByte(ByteBuffer buf, int fetchSize) {
+        buf.put(FETCH_SIZE);
+        writeLength(buf, INTEGER_SIZE);
+        buf.putInt(fetchSize);
+    }
+
+    public static int readFetchSize(ByteBuffer buf) {
+        int len = readLength(buf);
+        if (len != INTEGER_SIZE) {
+            throw new IllegalStateException(
+                    "Fetch size extension serialization length expected to be 4");
+        }
+        int fetchSize = buf.getInt();
+        if (fetchSize < 0) {
+            throw new IllegalStateException("Invalid fetch size deserialized: " + fetchSize);
+        }
+        return fetchSize;
+    }
+
     public static void skipUnknownExtension(ByteBuffer buf) {
         int len = readLength(buf);
         buf.position(buf.position() + len); // skip ahead
@@ -0,0 +1,162 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+
+/**
+ * <p>The result of an invocation made with a fetch size, see
+ * {@link ClientImpl#callProcedureStreaming}. The server sends the result
+ * table in chunks of at most fetch size rows, as they are consumed with
+ * {@link #nextChunk()}, instead of in one response.</p>
+ *
+ * <p>Only the transfer to the client is chunked. The server still builds the
+ * whole result table at the site, or at the MPI for a multi-partition
+ * invocation, before the first chunk is sent, so the limit on the size of a
+ * result applies as it does without a fetch size.</p>
+ *
+ * <p>A few chunks are queued as they arrive. When the queue is full, reads on
+ * the connection stop until the consumer catches up, which also holds back
+ * responses to other invocations sent on that connection. If reads stay
+ * stopped for the connection response timeout, the stream fails: the queued
+ * chunks are dropped, {@link #nextChunk()} throws, and reads resume. Call
+ * {@link #close()} to give up on the rest of the result; the chunks still in
+ * flight are then dropped as they arrive.</p>
+ */
+public class ResultStream implements ProcedureCallback, AutoCloseable {
+
+    /** Number of chunks received ahead of the consumer before reads stop */
+    static final int MAX_QUEUED_CHUNKS = Integer.getInteger("RESULT_STREAM_MAX_QUEUED_CHUNKS", 4);
+
+    private final ArrayDeque<ClientResponse> m_chunks = new ArrayDeque<>();
+    private boolean m_lastTaken = false;
+    private boolean m_closed = false;
+    // set while reads on the connection are stopped for this stream
+    private Runnable m_resumeReads = null;
+
+    @Override
+    public synchronized void clientCallback(ClientResponse response) {
+        if ( ! m_closed) {
+            m_chunks.offer(response);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Called by the connection after it passed a chunk. Stops reads with the
+     * pause task if the queue is full, the resume task runs once it is not.
+     */
+    synchronized void pauseReadsIfFull(Runnable pauseReads, Runnable resumeReads) {
+        if ( ! m_closed && m_resumeReads == null && m_chunks.size() >= MAX_QUEUED_CHUNKS) {
+            pauseReads.run();
+            m_resumeReads = resumeReads;
+        }
+    }
+
+    /**
+     * Called by the connection when reads have been stopped for too long.
+     * If this stream is the one holding them, drop its chunks, queue a failure
+     * for the consumer and resume reads.
+     */
+    synchronized void failIfHoldingReads(String message) {
+        if (m_resumeReads == null) {
+            return;
+        }
+        m_chunks.clear();
+        m_chunks.offer(new ClientResponseImpl(
+                ClientResponse.GRACEFUL_FAILURE,
+                ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                "",
+                new VoltTable[0],
+                message));
+        // drop the chunks still in flight
+        m_closed = true;
+        resumeReadsIfDrained();
+        notifyAll();
+    }
+
+    private void resumeReadsIfDrained() {
+        if (m_resumeReads != null && (m_closed || m_chunks.size() < MAX_QUEUED_CHUNKS)) {
+            m_resumeReads.run();
+            m_resumeReads = null;
+        }
+    }
+
+    /**
+     * Wait for the first response, without consuming it.
+     * @return The first response, which tells whether the invocation succeeded
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized ClientResponse waitForFirstResponse() throws InterruptedException {
+        while (m_chunks.isEmpty()) {
+            wait();
+        }
+        return m_chunks.peek();
+    }
+
+    /**
+     * Retrieve the next chunk of the result, waiting for it if necessary.
+     * All chunks have the schema of the result table.
+     *
+     * @return The next chunk, or null once the whole result has been retrieved
+     * or the stream has been closed
+     * @throws ProcCallException if the invocation failed, or if the connection
+     * was lost before the last chunk was received
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public VoltTable nextChunk() throws ProcCallException, InterruptedIOException {
+        final ClientResponse response;
+        synchronized (this) {
+            try {
+                while (m_chunks.isEmpty() && ! m_lastTaken && ! m_closed) {
+                    wait();
+                }
+            }
+            catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting for a result chunk");
+            }
+            if (m_chunks.isEmpty()) {
+                return null;
+            }
+            response = m_chunks.poll();
+            if ( ! ((ClientResponseImpl) response).hasMoreResults()) {
+                m_lastTaken = true;
+            }
+            resumeReadsIfDrained();
+        }
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            throw new ProcCallException(response, response.getStatusString(), null);
+        }
+        return response.getResults().length == 0 ? null : response.getResults()[0];
+    }
+
+    /**
+     * Drop the chunks received so far and any still to come.
+     */
+    @Override
+    public synchronized void close() {
+        m_closed = true;
+        m_chunks.clear();
+        resumeReadsIfDrained();
+        notifyAll();
+    }
+}
@@ -58,6 +58,10 @@ public class Constants
     public static final String JSON_SINGLE_PARTITION = "singlePartition";
     public static final String JSON_READ_ONLY = "readOnly";
 
+    // status string of an execution of a prepared statement that the host has no plan for,
+    // the client executes it again with its SQL text
+    public static final String UNKNOWN_PREPARED_STATEMENT = "Unknown prepared statement handle";
+
     // The transaction id layout.
     static final long UNUSED_SIGN_BITS = 1;
     static final long SEQUENCE_BITS = 49;
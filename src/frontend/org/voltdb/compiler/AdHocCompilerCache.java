@@ -18,6 +18,7 @@
 package org.voltdb.compiler;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -25,6 +26,7 @@ import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import org.apache.cassandra_voltpatches.MurmurHash3;
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
 import org.voltdb.utils.Encoder;
@@ -82,6 +84,8 @@ public class AdHocCompilerCache implements Serializable {
     // max cache size for parameterized plans
     final long MAX_LITERAL_MEM  = Long.getLong("ADHOC_COMPILER_CACHE_MAX_LITERAL_MEM_BYTES", 32*1024*1024);
     final int MAX_CORE_ENTRIES;
+    // max cache size for prepared statements
+    final int MAX_PREPARED_ENTRIES = Integer.getInteger("ADHOC_COMPILER_CACHE_MAX_PREPARED_ENTRIES", 1000);
 
     /** cache of literals to full plans */
     final Map<String, AdHocPlannedStatement> m_literalCache;
@@ -89,6 +93,19 @@ public class AdHocCompilerCache implements Serializable {
      *  each plan optionally has its own requirements for which parameters need to be bound
      *  to what values to enable its specialized (expression-indexed) plan. */
     final Map<String, List<BoundPlan> > m_coreCache;
+    /** cache of prepared statement handles to full plans, see {@link #preparedHandle(String)} */
+    final Map<Long, PreparedPlan> m_preparedCache;
+
+    /** the plan of a prepared statement along with the SQL text its handle was computed from */
+    static class PreparedPlan {
+        final String sql;
+        final AdHocPlannedStatement plan;
+
+        PreparedPlan(String sql, AdHocPlannedStatement plan) {
+            this.sql = sql;
+            this.plan = plan;
+        }
+    }
 
     // placeholder stats used during development that may/may not survive
     long m_literalHits = 0;
@@ -138,6 +155,16 @@ public class AdHocCompilerCache implements Serializable {
             }
 
         };
+
+        // an LRU cache map
+        m_preparedCache = new LinkedHashMap<Long, PreparedPlan>(MAX_PREPARED_ENTRIES * 2, .75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean removeEldestEntry(Map.Entry<Long, PreparedPlan> eldest) {
+                return size() > MAX_PREPARED_ENTRIES;
+            }
+        };
     }
 
     // define a LinkedHashMap based LRU cache bounds by both entry number and entry value on-heap size
@@ -344,6 +371,52 @@ public class AdHocCompilerCache implements Serializable {
         }
     }
 
+    /**
+     * The handle of a prepared statement only depends on its SQL text, so that
+     * every host, and every catalog version, agrees on it. A host which hasn't
+     * seen the statement can plan it again once the client sends the text along.
+     *
+     * @param sql SQL text of the prepared statement
+     * @return the handle clients execute the statement with
+     */
+    public static long preparedHandle(String sql) {
+        byte[] bytes = sql.getBytes(Constants.UTF8ENCODING);
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        long high = MurmurHash3.hash3_x64_128(buf, 0, bytes.length, 0);
+        long low = MurmurHash3.hash3_x64_128(buf, 0, bytes.length, 1);
+        return (high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param handle handle of a prepared statement
+     * @param sql SQL text of the statement, or null to trust the handle. The text
+     *            a plan was cached with is unique to its handle, see {@link #putPrepared}
+     * @return the plan of the statement, or null if it wasn't prepared against this catalog
+     *         or was prepared for another SQL text with the same handle
+     */
+    public synchronized AdHocPlannedStatement getPrepared(long handle, String sql) {
+        PreparedPlan prepared = m_preparedCache.get(handle);
+        if (prepared == null || (sql != null && !sql.equals(prepared.sql))) {
+            return null;
+        }
+        return prepared.plan;
+    }
+
+    /**
+     * Called from the PlannerTool when it finishes planning a prepared statement.
+     * @return false if a plan is cached for another SQL text with the same handle,
+     *         in which case this one isn't cached
+     */
+    public synchronized boolean putPrepared(long handle, String sql, AdHocPlannedStatement plan) {
+        assert(plan != null);
+        PreparedPlan prepared = m_preparedCache.get(handle);
+        if (prepared != null && !prepared.sql.equals(sql)) {
+            return false;
+        }
+        m_preparedCache.put(handle, new PreparedPlan(sql, plan));
+        return true;
+    }
+
     /**
      * Start a timer that prints cache stats to the console every 5s.
      * Used for development until we get better stats integration.
@@ -375,4 +448,12 @@ public class AdHocCompilerCache implements Serializable {
     public int getCoreCacheSize() {
         return m_coreCache.size();
     }
+
+    /**
+     * Return the number of prepared statements.
+     * @return  prepared statement cache size as a count
+     */
+    public synchronized int getPreparedCacheSize() {
+        return m_preparedCache.size();
+    }
 }
@@ -18,17 +18,223 @@
 package org.voltdb.compiler;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ComparisonExpression;
+import org.voltdb.expressions.ConstantValueExpression;
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.ParameterValueExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.expressions.VectorValueExpression;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Row count and column value estimates used to cost plans.
+ *
+ * Tables that have not been analyzed keep the fixed 100k-1M tuple guesses the
+ * planner has always used. Tables analyzed by @AnalyzeTable carry their row
+ * count in Table.estimatedtuplecount and per-column distinct counts and
+ * histograms in the catalog, which are loaded here and used to estimate the
+ * selectivity of predicates.
+ */
 public class DatabaseEstimates {
 
+    // Selectivities assumed when the statistics cannot say any better.
+    public static final double DEFAULT_EQ_SELECTIVITY = 0.1;
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3.0;
+    public static final double DEFAULT_NULL_SELECTIVITY = 0.05;
+    public static final double DEFAULT_SELECTIVITY = 0.5;
+
+    // Cap on estimated tuple counts, so that summing them over a plan cannot overflow.
+    private static final long MAX_TUPLE_COUNT = 1L << 50;
+
+    // Size of the assumed IN list when the list is a single vector parameter.
+    private static final int DEFAULT_IN_LIST_SIZE = 3;
+
     public static class TableEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // true if the tuple counts and column estimates were collected by @AnalyzeTable
+        public boolean analyzed = false;
+        public HashMap<String, ColumnEstimates> columns = new HashMap<String, ColumnEstimates>();
+    }
+
+    public static class ColumnEstimates {
+        // 0 if unknown
+        public long distinctCount = 0;
+        // fraction of the rows that are NULL, negative if unknown
+        public double nullFraction = -1.0;
+        // only collected for integer and timestamp columns
+        public Histogram histogram = null;
+    }
+
+    /**
+     * An equi-width histogram over the non-null values of an integer or timestamp
+     * column. Timestamps are bucketed by their microseconds since the epoch.
+     * It is stored in the catalog as "low,width,count0,count1,...", where bucket
+     * i holds the values in [low + i * width, low + (i + 1) * width).
+     */
+    public static class Histogram {
+        private final long m_low;
+        private final long m_width;
+        private final long[] m_counts;
+        private final long m_total;
+
+        public Histogram(long low, long width, long[] counts) {
+            assert(width > 0);
+            m_low = low;
+            m_width = width;
+            m_counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            m_total = total;
+        }
+
+        /**
+         * @return the histogram encoded by {@link #toString()}, or null if the
+         * string is empty or malformed.
+         */
+        public static Histogram fromString(String encoded) {
+            if (encoded == null || encoded.isEmpty()) {
+                return null;
+            }
+            String[] parts = encoded.split(",");
+            if (parts.length < 3) {
+                return null;
+            }
+            try {
+                long low = Long.parseLong(parts[0]);
+                long width = Long.parseLong(parts[1]);
+                if (width <= 0) {
+                    return null;
+                }
+                long[] counts = new long[parts.length - 2];
+                for (int ii = 0; ii < counts.length; ii++) {
+                    counts[ii] = Long.parseLong(parts[ii + 2]);
+                }
+                return new Histogram(low, width, counts);
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(m_low).append(',').append(m_width);
+            for (long count : m_counts) {
+                sb.append(',').append(count);
+            }
+            return sb.toString();
+        }
+
+        public long getTotal() {
+            return m_total;
+        }
+
+        /**
+         * @return the estimated fraction of the values that are less than value,
+         * assuming the values are evenly spread within each bucket.
+         */
+        public double fractionBelow(double value) {
+            if (m_total == 0 || value <= m_low) {
+                return 0.0;
+            }
+            double position = (value - m_low) / m_width;
+            if (position >= m_counts.length) {
+                return 1.0;
+            }
+            int bucket = (int) position;
+            double below = 0.0;
+            for (int ii = 0; ii < bucket; ii++) {
+                below += m_counts[ii];
+            }
+            below += m_counts[bucket] * (position - bucket);
+            return below / m_total;
+        }
+
+        /**
+         * @return the estimated fraction of the values in [lower, upper).
+         */
+        public double fractionBetween(double lower, double upper) {
+            return Math.max(0.0, fractionBelow(upper) - fractionBelow(lower));
+        }
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
+    private boolean m_hasStatistics = false;
+
+    public DatabaseEstimates() {
+    }
+
+    public DatabaseEstimates(Database db) {
+        loadStatistics(db);
+    }
+
+    /**
+     * Load the statistics of every analyzed table in the catalog.
+     */
+    public void loadStatistics(Database db) {
+        for (Table table : db.getTables()) {
+            long tupleCount = table.getEstimatedtuplecount();
+            if (tupleCount <= 0) {
+                continue;
+            }
+            TableEstimates tableEstimates = getEstimatesForTable(table.getTypeName());
+            tableEstimates.analyzed = true;
+            tableEstimates.maxTuples = tupleCount;
+            tableEstimates.minTuples = tupleCount;
+            tableEstimates.columns.clear();
+            for (Column column : table.getColumns()) {
+                ColumnEstimates columnEstimates = new ColumnEstimates();
+                columnEstimates.distinctCount = column.getDistinctcount();
+                columnEstimates.histogram = Histogram.fromString(column.getHistogram());
+                if (columnEstimates.histogram != null) {
+                    columnEstimates.nullFraction =
+                            Math.max(0.0, 1.0 - (double) columnEstimates.histogram.getTotal() / tupleCount);
+                }
+                tableEstimates.columns.put(column.getTypeName(), columnEstimates);
+            }
+            m_hasStatistics = true;
+        }
+    }
+
+    /**
+     * @return true if at least one table has statistics collected by @AnalyzeTable.
+     */
+    public boolean hasStatistics() {
+        return m_hasStatistics;
+    }
+
+    /**
+     * @return these estimates if any of the named tables has been analyzed, otherwise
+     * estimates without statistics, so that a statement over unanalyzed tables only
+     * is planned as if no table had been analyzed.
+     */
+    public DatabaseEstimates forTables(Collection<String> tableNames) {
+        if (! m_hasStatistics) {
+            return this;
+        }
+        for (String tableName : tableNames) {
+            TableEstimates tableEstimates = tables.get(tableName);
+            if (tableEstimates != null && tableEstimates.analyzed) {
+                return this;
+            }
+        }
+        return new DatabaseEstimates();
+    }
 
     public TableEstimates getEstimatesForTable(String tableName) {
         if (tables.containsKey(tableName) == false)
@@ -36,4 +242,224 @@ public class DatabaseEstimates {
 
         return tables.get(tableName);
     }
+
+    /**
+     * @return the estimates for the column, or null if its table has not been analyzed.
+     */
+    public ColumnEstimates getEstimatesForColumn(String tableName, String columnName) {
+        TableEstimates tableEstimates = tables.get(tableName);
+        if (tableEstimates == null || ! tableEstimates.analyzed) {
+            return null;
+        }
+        return tableEstimates.columns.get(columnName);
+    }
+
+    /**
+     * Round an estimated tuple count, never estimating less than one tuple.
+     */
+    public static long toTupleCount(double estimate) {
+        if (estimate >= MAX_TUPLE_COUNT) {
+            return MAX_TUPLE_COUNT;
+        }
+        return Math.max(1L, Math.round(estimate));
+    }
+
+    /**
+     * Estimate the fraction of the input rows that satisfy a predicate.
+     * @param predicate the predicate, or null for no predicate
+     * @return the selectivity, between 0 and 1
+     */
+    public double getSelectivity(AbstractExpression predicate) {
+        if (predicate == null) {
+            return 1.0;
+        }
+        return getSelectivity(ExpressionUtil.uncombinePredicate(predicate));
+    }
+
+    /**
+     * Estimate the fraction of the input rows that satisfy all of the conjuncts.
+     * The conjuncts are treated as independent, except that range filters on
+     * the same histogram column are combined into a single interval.
+     */
+    public double getSelectivity(Collection<AbstractExpression> conjuncts) {
+        double selectivity = 1.0;
+        Map<Histogram, double[]> ranges = new IdentityHashMap<>();
+        for (AbstractExpression conjunct : conjuncts) {
+            if ( ! addRangeBound(conjunct, ranges)) {
+                selectivity *= getTermSelectivity(conjunct);
+            }
+        }
+        for (Map.Entry<Histogram, double[]> range : ranges.entrySet()) {
+            double[] bounds = range.getValue();
+            selectivity *= range.getKey().fractionBetween(bounds[0], bounds[1]);
+        }
+        return clamp(selectivity);
+    }
+
+    private double getTermSelectivity(AbstractExpression expr) {
+        AbstractExpression left = expr.getLeft();
+        AbstractExpression right = expr.getRight();
+        switch (expr.getExpressionType()) {
+        case CONJUNCTION_AND:
+            return getSelectivity(expr);
+        case CONJUNCTION_OR: {
+            double leftSelectivity = getSelectivity(left);
+            double rightSelectivity = getSelectivity(right);
+            return clamp(leftSelectivity + rightSelectivity - leftSelectivity * rightSelectivity);
+        }
+        case OPERATOR_NOT:
+            return clamp(1.0 - getSelectivity(left));
+        case COMPARE_EQUAL:
+        case COMPARE_NOTDISTINCT:
+            return getEqualitySelectivity(left, right);
+        case COMPARE_NOTEQUAL:
+            return clamp(1.0 - getEqualitySelectivity(left, right));
+        case COMPARE_IN: {
+            int listSize = DEFAULT_IN_LIST_SIZE;
+            if (right instanceof VectorValueExpression && right.getArgs() != null) {
+                listSize = right.getArgs().size();
+            }
+            return clamp(listSize * getEqualitySelectivity(left, null));
+        }
+        case OPERATOR_IS_NULL: {
+            ColumnEstimates columnEstimates = getEstimatesForColumn(left);
+            if (columnEstimates != null && columnEstimates.nullFraction >= 0.0) {
+                return columnEstimates.nullFraction;
+            }
+            return DEFAULT_NULL_SELECTIVITY;
+        }
+        case COMPARE_LESSTHAN:
+        case COMPARE_LESSTHANOREQUALTO:
+        case COMPARE_GREATERTHAN:
+        case COMPARE_GREATERTHANOREQUALTO:
+        case COMPARE_LIKE:
+        case COMPARE_STARTSWITH:
+            return DEFAULT_RANGE_SELECTIVITY;
+        default:
+            return DEFAULT_SELECTIVITY;
+        }
+    }
+
+    private double getEqualitySelectivity(AbstractExpression left, AbstractExpression right) {
+        long distinct = Math.max(getDistinctCount(left), getDistinctCount(right));
+        if (distinct > 0) {
+            return 1.0 / distinct;
+        }
+        return DEFAULT_EQ_SELECTIVITY;
+    }
+
+    private long getDistinctCount(AbstractExpression expr) {
+        ColumnEstimates columnEstimates = getEstimatesForColumn(expr);
+        return columnEstimates == null ? 0 : columnEstimates.distinctCount;
+    }
+
+    private ColumnEstimates getEstimatesForColumn(AbstractExpression expr) {
+        if ( ! (expr instanceof TupleValueExpression)) {
+            return null;
+        }
+        TupleValueExpression tve = (TupleValueExpression) expr;
+        if (tve.getTableName() == null || tve.getColumnName() == null) {
+            return null;
+        }
+        return getEstimatesForColumn(tve.getTableName(), tve.getColumnName());
+    }
+
+    /**
+     * If the expression is a range comparison between a histogram column and a
+     * known value, narrow the column's interval in ranges.
+     * The interval is kept as an inclusive lower and exclusive upper bound.
+     * @return true if the comparison was added to ranges
+     */
+    private boolean addRangeBound(AbstractExpression expr, Map<Histogram, double[]> ranges) {
+        if ( ! (expr instanceof ComparisonExpression)) {
+            return false;
+        }
+        ExpressionType type = expr.getExpressionType();
+        AbstractExpression columnExpr = expr.getLeft();
+        AbstractExpression valueExpr = expr.getRight();
+        if ( ! (columnExpr instanceof TupleValueExpression)) {
+            columnExpr = expr.getRight();
+            valueExpr = expr.getLeft();
+            type = ComparisonExpression.reverses.get(type);
+        }
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+        case COMPARE_LESSTHAN:
+        case COMPARE_LESSTHANOREQUALTO:
+        case COMPARE_GREATERTHAN:
+        case COMPARE_GREATERTHANOREQUALTO:
+            break;
+        default:
+            return false;
+        }
+        ColumnEstimates columnEstimates = getEstimatesForColumn(columnExpr);
+        if (columnEstimates == null || columnEstimates.histogram == null) {
+            return false;
+        }
+        double value = getNumericValue(valueExpr);
+        if (Double.isNaN(value)) {
+            return false;
+        }
+
+        double[] bounds = ranges.get(columnEstimates.histogram);
+        if (bounds == null) {
+            bounds = new double[] { Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY };
+            ranges.put(columnEstimates.histogram, bounds);
+        }
+        // Histogram columns only hold integral values.
+        switch (type) {
+        case COMPARE_LESSTHAN:
+            bounds[1] = Math.min(bounds[1], Math.ceil(value));
+            break;
+        case COMPARE_LESSTHANOREQUALTO:
+            bounds[1] = Math.min(bounds[1], Math.floor(value) + 1);
+            break;
+        case COMPARE_GREATERTHAN:
+            bounds[0] = Math.max(bounds[0], Math.floor(value) + 1);
+            break;
+        default:
+            bounds[0] = Math.max(bounds[0], Math.ceil(value));
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of a constant, or of the constant an ad hoc parameter
+     * was extracted from, as a number (timestamps in microseconds since the
+     * epoch), or NaN if it is not known.
+     */
+    private static double getNumericValue(AbstractExpression expr) {
+        if (expr instanceof ParameterValueExpression) {
+            expr = ((ParameterValueExpression) expr).getOriginalValue();
+        }
+        if ( ! (expr instanceof ConstantValueExpression)) {
+            return Double.NaN;
+        }
+        String value = ((ConstantValueExpression) expr).getValue();
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException e) {
+        }
+        try {
+            return new TimestampType(value).getTime();
+        }
+        catch (IllegalArgumentException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static double clamp(double selectivity) {
+        if (Double.isNaN(selectivity)) {
+            return DEFAULT_SELECTIVITY;
+        }
+        return Math.min(1.0, Math.max(0.0, selectivity));
+    }
+
 }
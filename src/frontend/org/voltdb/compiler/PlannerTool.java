@@ -31,6 +31,7 @@ import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.catalog.Database;
 import org.voltdb.common.Constants;
+import org.voltdb.planner.AbstractCostModel;
 import org.voltdb.planner.BoundPlan;
 import org.voltdb.planner.CompiledPlan;
 import org.voltdb.planner.CorePlan;
@@ -38,7 +39,6 @@ import org.voltdb.planner.ParameterizationInfo;
 import org.voltdb.planner.PlanningErrorException;
 import org.voltdb.planner.QueryPlanner;
 import org.voltdb.planner.StatementPartitioning;
-import org.voltdb.planner.TrivialCostModel;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.Encoder;
 
@@ -53,6 +53,8 @@ public class PlannerTool {
     private static final VoltLogger compileLog = new VoltLogger("COMPILE");
 
     private Database m_database;
+    // Row counts and column statistics collected by @AnalyzeTable, if any
+    private DatabaseEstimates m_estimates;
     private byte[] m_catalogHash;
     private AdHocCompilerCache m_cache;
     private long m_adHocLargeFallbackCount = 0;
@@ -74,6 +76,7 @@ public class PlannerTool {
         assert(database != null);
 
         m_database = database;
+        m_estimates = new DatabaseEstimates(database);
         m_catalogHash = catalogHash;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
 
@@ -114,6 +117,7 @@ public class PlannerTool {
 
     public PlannerTool updateWhenNoSchemaChange(Database database, byte[] catalogHash) {
         m_database = database;
+        m_estimates = new DatabaseEstimates(database);
         m_catalogHash = catalogHash;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
 
@@ -137,6 +141,38 @@ public class PlannerTool {
         return planSql(sqlIn, infer, false, null, false, false);
     }
 
+    /**
+     * Plan a statement for repeated execution under a prepared statement handle.
+     * The plan of a statement with parameters carries no parameter values,
+     * the values of each execution are supplied along with the handle.
+     *
+     * @param handle          handle to cache the plan under, see {@link AdHocCompilerCache#preparedHandle(String)}
+     * @param preparedSql     SQL text the handle was computed from, cached along with the plan
+     * @param sql             the single DML or DQL statement of the text
+     * @param parameterCount  number of '?' parameters of the statement
+     * @return the plan
+     */
+    public AdHocPlannedStatement planPrepared(long handle, String preparedSql, String sql, int parameterCount) {
+        AdHocPlannedStatement plan = planSql(sql, StatementPartitioning.inferPartitioning(), false,
+                                             new Object[parameterCount], false, false);
+        if (parameterCount > 0) {
+            plan = new AdHocPlannedStatement(plan.sql, plan.core, ParameterSet.emptyParameterSet(), null);
+        }
+        if (!m_cache.putPrepared(handle, preparedSql, plan)) {
+            throw new PlanningErrorException(
+                    "The prepared statement handle collides with the one of another prepared statement.");
+        }
+        return plan;
+    }
+
+    /**
+     * @param sql SQL text of the statement, or null if the execution only sent the handle
+     * @return the plan of a prepared statement, or null if it hasn't been prepared against this catalog
+     */
+    public AdHocPlannedStatement getPrepared(long handle, String sql) {
+        return m_cache.getPrepared(handle, sql);
+    }
+
     private void logException(Exception e, String fmtLabel) {
         compileLog.error(fmtLabel + ": ", e);
     }
@@ -145,8 +181,8 @@ public class PlannerTool {
      * Stripped down compile that is ONLY used to plan default procedures.
      */
     public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
-        TrivialCostModel costModel = new TrivialCostModel();
-        DatabaseEstimates estimates = new DatabaseEstimates();
+        DatabaseEstimates estimates = m_estimates;
+        AbstractCostModel costModel = AbstractCostModel.forEstimates(estimates);
 
         CompiledPlan plan = null;
         // This try-with-resources block acquires a global lock on all planning
@@ -237,8 +273,8 @@ public class PlannerTool {
             String[] extractedLiterals = null;
             String parsedToken = null;
 
-            TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            DatabaseEstimates estimates = m_estimates;
+            AbstractCostModel costModel = AbstractCostModel.forEstimates(estimates);
             // This try-with-resources block acquires a global lock on all planning
             // This is required until we figure out how to do parallel planning.
             try (QueryPlanner planner = new QueryPlanner(
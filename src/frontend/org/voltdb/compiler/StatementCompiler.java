@@ -42,10 +42,10 @@ import org.voltdb.catalog.StmtParameter;
 import org.voltdb.catalog.Table;
 import org.voltdb.compiler.VoltCompiler.VoltCompilerException;
 import org.voltdb.expressions.ParameterValueExpression;
+import org.voltdb.planner.AbstractCostModel;
 import org.voltdb.planner.CompiledPlan;
 import org.voltdb.planner.QueryPlanner;
 import org.voltdb.planner.StatementPartitioning;
-import org.voltdb.planner.TrivialCostModel;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.DeletePlanNode;
@@ -195,7 +195,7 @@ public abstract class StatementCompiler {
         String sql = catalogStmt.getSqltext();
         String stmtName = catalogStmt.getTypeName();
         String procName = catalogStmt.getParent().getTypeName();
-        TrivialCostModel costModel = new TrivialCostModel();
+        AbstractCostModel costModel = AbstractCostModel.forEstimates(estimates);
 
         CompiledPlan plan = null;
 
@@ -1141,7 +1141,7 @@ public class VoltCompiler {
             ddlcompiler.compileToCatalog(db, m_isXDCR);
 
             // add database estimates info
-            addDatabaseEstimatesInfo(m_estimates, db);
+            addDatabaseEstimatesInfo(m_estimates, db, previousDBIfAny);
 
             // Process DDL exported tables
             NavigableMap<String, NavigableSet<String>> exportTables = voltDdlTracker.getExportedTables();
@@ -1340,15 +1340,31 @@ public class VoltCompiler {
         m_capturedDiagnosticDetail.add(json);
     }
 
-    static void addDatabaseEstimatesInfo(final DatabaseEstimates estimates, final Database db) {
-        // Not implemented yet. Don't panic.
-
-        /*for (Table table : db.getTables()) {
-            DatabaseEstimates.TableEstimates tableEst = new DatabaseEstimates.TableEstimates();
-            tableEst.maxTuples = 1000000;
-            tableEst.minTuples = 100000;
-            estimates.tables.put(table, tableEst);
-        }*/
+    /**
+     * Keep the statistics collected by @AnalyzeTable for every table whose
+     * schema is unchanged from the previous catalog, and load them into the
+     * estimates used to plan the statements.
+     */
+    static void addDatabaseEstimatesInfo(final DatabaseEstimates estimates, final Database db,
+                                         final Database previousDBIfAny) {
+        if (previousDBIfAny != null) {
+            for (Table table : db.getTables()) {
+                Table prevTable = previousDBIfAny.getTables().get(table.getTypeName());
+                if (prevTable == null || prevTable.getEstimatedtuplecount() <= 0 ||
+                        ! prevTable.getSignature().equals(table.getSignature())) {
+                    continue;
+                }
+                table.setEstimatedtuplecount(prevTable.getEstimatedtuplecount());
+                for (Column column : table.getColumns()) {
+                    Column prevColumn = prevTable.getColumns().get(column.getTypeName());
+                    if (prevColumn != null) {
+                        column.setDistinctcount(prevColumn.getDistinctcount());
+                        column.setHistogram(prevColumn.getHistogram());
+                    }
+                }
+            }
+        }
+        estimates.loadStatistics(db);
     }
 
     void addExportTableToConnector(final String targetName, final String tableName, final Database catdb)
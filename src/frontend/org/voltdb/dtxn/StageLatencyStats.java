@@ -0,0 +1,232 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.dtxn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.Recorder;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.dtxn.StageTimes.Stage;
+import org.voltdb.iv2.MpInitiator;
+
+/** Source of @Statistics STAGELATENCY, which breaks the latency of the transactions
+ * initiated on this host down into the stages of {@link StageTimes}, so that a
+ * latency regression can be traced to queueing, replication or execution.
+ *
+ * Statistics are returned with one row for each partition, procedure and stage.
+ * Multi-partition transactions are reported under the partition id of the MPI.
+ * Only transactions whose partition leader is on this host are included, and
+ * only when the server is started with -DSTAGE_LATENCY_STATS=true.
+ *
+ * Responses are recorded without locking or allocation. The histograms keep one
+ * significant digit, which is enough to tell which stage a regression is in.
+ */
+public class StageLatencyStats extends StatsSource {
+
+    // Longest stage tracked in microseconds, longer stages are recorded as this
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 1;
+
+    private static final Stage[] STAGES = Stage.values();
+
+    // The stages of one procedure on one partition
+    private static class StageRecorders {
+        final int m_partitionId;
+        final String m_procName;
+        // Written by the response threads
+        final Recorder[] m_recorders = new Recorder[STAGES.length];
+        // The rest is only used by the stats agent, holding the lock on this object.
+        // The last sample taken from each recorder, handed back for reuse
+        final Histogram[] m_samples = new Histogram[STAGES.length];
+        final Histogram[] m_totals = new Histogram[STAGES.length];
+        // Since the last interval request
+        final Histogram[] m_interval = new Histogram[STAGES.length];
+
+        StageRecorders(int partitionId, String procName) {
+            m_partitionId = partitionId;
+            m_procName = procName;
+            for (int ii = 0; ii < STAGES.length; ii++) {
+                m_recorders[ii] = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                m_totals[ii] = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+                m_interval[ii] = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+            }
+        }
+
+        void record(StageTimes times) {
+            for (Stage stage : STAGES) {
+                final long micros = TimeUnit.NANOSECONDS.toMicros(times.getNanos(stage));
+                m_recorders[stage.ordinal()].recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            }
+        }
+
+        synchronized void addRows(boolean interval, List<Object> rows) {
+            for (Stage stage : STAGES) {
+                final int ii = stage.ordinal();
+                m_samples[ii] = m_recorders[ii].getIntervalHistogram(m_samples[ii]);
+                m_totals[ii].add(m_samples[ii]);
+                m_interval[ii].add(m_samples[ii]);
+                final AbstractHistogram histogram;
+                if (interval) {
+                    histogram = m_interval[ii].copy();
+                    m_interval[ii].reset();
+                }
+                else {
+                    histogram = m_totals[ii].copy();
+                }
+                rows.add(new StageRow(m_partitionId, m_procName, stage, histogram));
+            }
+        }
+    }
+
+    // The stages of one procedure, by partition. Looked up without allocating.
+    private static class ProcedureRecorders {
+        final String m_procName;
+        // Indexed by partition id, replaced to add a partition
+        volatile StageRecorders[] m_partitions = new StageRecorders[0];
+        volatile StageRecorders m_multiPartition = null;
+
+        ProcedureRecorders(String procName) {
+            m_procName = procName;
+        }
+
+        StageRecorders get(int partitionId) {
+            final StageRecorders recorders;
+            if (partitionId == MpInitiator.MP_INIT_PID) {
+                recorders = m_multiPartition;
+            }
+            else {
+                final StageRecorders[] partitions = m_partitions;
+                recorders = partitionId < partitions.length ? partitions[partitionId] : null;
+            }
+            return recorders != null ? recorders : add(partitionId);
+        }
+
+        private synchronized StageRecorders add(int partitionId) {
+            if (partitionId == MpInitiator.MP_INIT_PID) {
+                if (m_multiPartition == null) {
+                    m_multiPartition = new StageRecorders(partitionId, m_procName);
+                }
+                return m_multiPartition;
+            }
+            StageRecorders[] partitions = m_partitions;
+            if (partitionId < partitions.length && partitions[partitionId] != null) {
+                return partitions[partitionId];
+            }
+            partitions = Arrays.copyOf(partitions, Math.max(partitions.length, partitionId + 1));
+            partitions[partitionId] = new StageRecorders(partitionId, m_procName);
+            m_partitions = partitions;
+            return partitions[partitionId];
+        }
+
+        void addRows(boolean interval, List<Object> rows) {
+            for (StageRecorders recorders : m_partitions) {
+                if (recorders != null) {
+                    recorders.addRows(interval, rows);
+                }
+            }
+            final StageRecorders multiPartition = m_multiPartition;
+            if (multiPartition != null) {
+                multiPartition.addRows(interval, rows);
+            }
+        }
+    }
+
+    private static class StageRow {
+        final int m_partitionId;
+        final String m_procName;
+        final Stage m_stage;
+        final AbstractHistogram m_histogram;
+
+        StageRow(int partitionId, String procName, Stage stage, AbstractHistogram histogram) {
+            m_partitionId = partitionId;
+            m_procName = procName;
+            m_stage = stage;
+            m_histogram = histogram;
+        }
+    }
+
+    private final ConcurrentHashMap<String, ProcedureRecorders> m_procedures = new ConcurrentHashMap<>();
+
+    public StageLatencyStats() {
+        super(false);
+    }
+
+    /**
+     * Add the stages of a completed transaction. Transactions without a complete breakdown are left out.
+     */
+    public void record(StageTimes times) {
+        if (!times.isComplete()) {
+            return;
+        }
+        ProcedureRecorders procedure = m_procedures.get(times.getProcName());
+        if (procedure == null) {
+            procedure = m_procedures.computeIfAbsent(times.getProcName(), ProcedureRecorders::new);
+        }
+        procedure.get(times.getPartitionId()).record(times);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        final List<Object> rows = new ArrayList<>();
+        for (ProcedureRecorders procedure : m_procedures.values()) {
+            procedure.addRows(interval, rows);
+        }
+        return rows.iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new ColumnInfo("PROCEDURE",    VoltType.STRING));
+        columns.add(new ColumnInfo("STAGE",        VoltType.STRING));
+        columns.add(new ColumnInfo("COUNT",        VoltType.BIGINT)); // transactions
+        columns.add(new ColumnInfo("AVG",          VoltType.BIGINT)); // microseconds
+        columns.add(new ColumnInfo("P50",          VoltType.BIGINT)); // microseconds
+        columns.add(new ColumnInfo("P95",          VoltType.BIGINT)); // microseconds
+        columns.add(new ColumnInfo("P99",          VoltType.BIGINT)); // microseconds
+        columns.add(new ColumnInfo("P99.9",        VoltType.BIGINT)); // microseconds
+        columns.add(new ColumnInfo("MAX",          VoltType.BIGINT)); // microseconds
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        super.updateStatsRow(rowKey, rowValues);
+        final StageRow row = (StageRow) rowKey;
+        final AbstractHistogram histogram = row.m_histogram;
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = row.m_partitionId;
+        rowValues[columnNameToIndex.get("PROCEDURE")]    = row.m_procName;
+        rowValues[columnNameToIndex.get("STAGE")]        = row.m_stage.name();
+        rowValues[columnNameToIndex.get("COUNT")]        = histogram.getTotalCount();
+        rowValues[columnNameToIndex.get("AVG")]          = (long) histogram.getMean();
+        rowValues[columnNameToIndex.get("P50")]          = histogram.getValueAtPercentile(50D);
+        rowValues[columnNameToIndex.get("P95")]          = histogram.getValueAtPercentile(95D);
+        rowValues[columnNameToIndex.get("P99")]          = histogram.getValueAtPercentile(99D);
+        rowValues[columnNameToIndex.get("P99.9")]        = histogram.getValueAtPercentile(99.9D);
+        rowValues[columnNameToIndex.get("MAX")]          = histogram.getMaxValue();
+    }
+}
@@ -0,0 +1,120 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.dtxn;
+
+/**
+ * Nanosecond timestamps of the stages of one transaction on its way through
+ * the initiating host, from the client interface to the partition leader
+ * (or the MPI), its site and back.
+ *
+ * The object is created by the client interface and travels by reference
+ * with the local initiate task and response messages. It is not serialized,
+ * so a transaction initiated on a remote host only gets the stages of the
+ * client interface and isn't part of the breakdown. Each stage is marked by
+ * the thread that finishes it; the messages passed between the threads order
+ * the marks, so the fields need no synchronization.
+ */
+public final class StageTimes {
+
+    // Collected only when asked for, the timestamps cost a few System.nanoTime() calls per transaction
+    public static final boolean ENABLED = Boolean.getBoolean("STAGE_LATENCY_STATS");
+
+    public enum Stage {
+        // Client interface: from the request being read to the initiation sent to the leader
+        INITIATE,
+        // Leader: delivery, sequencing, replication to the replicas and command logging
+        SEQUENCE,
+        // Waiting for durability of synchronous command logging and in the site task queue
+        QUEUE,
+        // Running the procedure, including the EE
+        EXECUTE,
+        // Waiting for the replicas to acknowledge a write, or for a safe read to be released
+        REPLICATE,
+        // Back to the client interface until the response is written
+        RESPOND
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final int m_partitionId;
+    private final String m_procName;
+    // The start of the first stage, then the end of each stage
+    private final long[] m_nanos = new long[STAGES.length + 1];
+
+    StageTimes(int partitionId, String procName, long createdNanos)
+    {
+        m_partitionId = partitionId;
+        m_procName = procName;
+        m_nanos[0] = createdNanos;
+    }
+
+    /**
+     * @return the timestamps for a new transaction, or null if stage latencies are not collected
+     */
+    public static StageTimes create(int partitionId, String procName, long createdNanos)
+    {
+        return ENABLED ? new StageTimes(partitionId, procName, createdNanos) : null;
+    }
+
+    /**
+     * Mark the end of a stage. A stage which ends more than once, by restarting
+     * the transaction, keeps its first end.
+     */
+    public void mark(Stage stage)
+    {
+        if (m_nanos[stage.ordinal() + 1] == 0) {
+            m_nanos[stage.ordinal() + 1] = System.nanoTime();
+        }
+    }
+
+    public int getPartitionId()
+    {
+        return m_partitionId;
+    }
+
+    public String getProcName()
+    {
+        return m_procName;
+    }
+
+    /**
+     * @return true if every stage has been marked in order
+     */
+    public boolean isComplete()
+    {
+        for (int ii = 1; ii < m_nanos.length; ii++) {
+            if (m_nanos[ii] == 0 || m_nanos[ii] < m_nanos[ii - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the duration of the stage in nanoseconds, or -1 if it wasn't marked
+     */
+    public long getNanos(Stage stage)
+    {
+        final long start = m_nanos[stage.ordinal()];
+        final long end = m_nanos[stage.ordinal() + 1];
+        if (start == 0 || end == 0) {
+            return -1;
+        }
+        return end - start;
+    }
+}
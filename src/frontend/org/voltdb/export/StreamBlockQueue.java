@@ -28,8 +28,9 @@ import org.voltcore.utils.DeferredSerialization;
 import org.voltdb.VoltDB;
 import org.voltdb.export.ExportDataSource.StreamTableSchemaSerializer;
 import org.voltdb.utils.BinaryDeque;
-import org.voltdb.utils.BinaryDeque.BinaryDequeScanner;
-import org.voltdb.utils.BinaryDeque.BinaryDequeTruncator;
+import org.voltdb.utils.BinaryDeque.BinaryDequeRangeScanner;
+import org.voltdb.utils.BinaryDeque.BinaryDequeRangeTruncator;
+import org.voltdb.utils.BinaryDeque.EntryRangeReader;
 import org.voltdb.utils.BinaryDeque.TruncatorResponse;
 import org.voltdb.utils.BinaryDequeReader;
 import org.voltdb.utils.PersistentBinaryDeque;
@@ -78,6 +79,21 @@ public class StreamBlockQueue {
     public static final String EXPORT_DISABLE_COMPRESSION_OPTION = "EXPORT_DISABLE_COMPRESSION";
     private static final boolean DISABLE_COMPRESSION = Boolean.getBoolean(EXPORT_DISABLE_COMPRESSION_OPTION);
 
+    // The sequence numbers of the rows in a buffer, recorded in the footers of the sealed PBD segments
+    static final EntryRangeReader SEQUENCE_NUMBER_READER = new EntryRangeReader() {
+        @Override
+        public long getStartId(ByteBuffer entry) {
+            return entry.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(entry.position());
+        }
+
+        @Override
+        public long getEndId(ByteBuffer entry) {
+            ByteBuffer b = entry.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            // seqNo(8) + committedSeqNo(8) + tupleCount(4)
+            return b.getLong(entry.position()) + b.getInt(entry.position() + 16) - 1;
+        }
+    };
+
     /**
      * Deque containing reference to stream blocks that are in memory. Some of these
      * stream blocks may still be persisted to disk others are stored completely in memory
@@ -99,7 +115,8 @@ public class StreamBlockQueue {
         m_streamName = streamName;
         StreamTableSchemaSerializer ds = new StreamTableSchemaSerializer(
                 VoltDB.instance().getCatalogContext(), m_streamName);
-        m_persistentDeque = new PersistentBinaryDeque(nonce, ds, new VoltFile(path), exportLog, !DISABLE_COMPRESSION);
+        m_persistentDeque = new PersistentBinaryDeque(nonce, ds, new VoltFile(path), exportLog, !DISABLE_COMPRESSION,
+                SEQUENCE_NUMBER_READER);
         m_path = path;
         m_nonce = nonce;
         m_reader = m_persistentDeque.openForRead(m_nonce);
@@ -337,7 +354,12 @@ public class StreamBlockQueue {
     // See PDB segment layout at beginning of this file.
     public void truncateToSequenceNumber(final long truncationSeqNo) throws IOException {
         assert(m_memoryDeque.isEmpty());
-        m_persistentDeque.parseAndTruncate(new BinaryDequeTruncator() {
+        m_persistentDeque.parseAndTruncate(new BinaryDequeRangeTruncator() {
+
+            @Override
+            public boolean isRetained(long startSequenceNumber, long lastSequenceNumber) {
+                return lastSequenceNumber <= truncationSeqNo;
+            }
 
             @Override
             public TruncatorResponse parse(BBContainer bbc) {
@@ -392,7 +414,7 @@ public class StreamBlockQueue {
         StreamTableSchemaSerializer ds = new StreamTableSchemaSerializer(
                 VoltDB.instance().getCatalogContext(), m_streamName);
         m_persistentDeque = new PersistentBinaryDeque(m_nonce, ds, new VoltFile(m_path), exportLog,
-                !DISABLE_COMPRESSION);
+                !DISABLE_COMPRESSION, SEQUENCE_NUMBER_READER);
         m_reader = m_persistentDeque.openForRead(m_nonce);
         // temporary debug stmt
         exportLog.info("After truncate, PBD size is " + (m_reader.sizeInBytes() - (8 * m_reader.getNumObjects())));
@@ -401,7 +423,12 @@ public class StreamBlockQueue {
     public ExportSequenceNumberTracker scanForGap() throws IOException {
         assert(m_memoryDeque.isEmpty());
         ExportSequenceNumberTracker tracker = new ExportSequenceNumberTracker();
-        m_persistentDeque.scanEntries(new BinaryDequeScanner() {
+        m_persistentDeque.scanEntries(new BinaryDequeRangeScanner() {
+            @Override
+            public void scanRange(long startSequenceNumber, long lastSequenceNumber) {
+                tracker.addRange(startSequenceNumber, lastSequenceNumber);
+            }
+
             @Override
             public void scan(BBContainer bbc) {
                 ByteBuffer b = bbc.b();
@@ -40,5 +40,13 @@ public class BorrowTransactionState extends ParticipantTransactionState
         return true;
     }
 
+    /**
+     * @return the txnId of the MP write this fragment may run beside, see
+     * BorrowTaskMessage.getOverlappedWriteTxnId()
+     */
+    long getOverlappedWriteTxnId()
+    {
+        return ((BorrowTaskMessage)m_notice).getOverlappedWriteTxnId();
+    }
 
 }
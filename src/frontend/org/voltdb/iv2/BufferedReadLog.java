@@ -23,6 +23,7 @@ import java.util.Iterator;
 
 import org.voltcore.messaging.Mailbox;
 import org.voltcore.messaging.VoltMessage;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
 
@@ -109,6 +110,9 @@ public class BufferedReadLog
             if (item.getSafeSpHandle() <= spHandle) {
                 // when the sp reads' handle is less equal than truncation handle
                 // we know any previous write has been confirmed and it's safe to release.
+                if (item.m_initiateMsg != null && item.m_initiateMsg.getStageTimes() != null) {
+                    item.m_initiateMsg.getStageTimes().mark(StageTimes.Stage.REPLICATE);
+                }
                 mailbox.send(item.getResponseHSId(), item.getMessage());
                 deq.poll();
             } else {
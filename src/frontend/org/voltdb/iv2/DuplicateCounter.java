@@ -27,6 +27,7 @@ import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.messaging.CompleteTransactionResponseMessage;
 import org.voltdb.messaging.DummyTransactionResponseMessage;
 import org.voltdb.messaging.FragmentResponseMessage;
@@ -58,6 +59,8 @@ public class DuplicateCounter
     final List<Long> m_expectedHSIds;
     final long m_txnId;
     final TransactionInfoBaseMessage m_openMessage;
+    // Stage timestamps of the transaction on its initiating host, if any
+    StageTimes m_stageTimes = null;
 
     DuplicateCounter(
             long destinationHSId,
@@ -177,8 +180,11 @@ public class DuplicateCounter
                 logRelevantMismatchInformation("HASH MISMATCH", hashes, message, pos);
                 return MISMATCH;
             }
-            m_lastResponse = message;
-            m_lastResultTables = resultTables;
+            // Keep a response with results over a replica's digest-only acknowledgement
+            if (m_lastResponse == null || !isDigestOnly(message) || isDigestOnly(m_lastResponse)) {
+                m_lastResponse = message;
+                m_lastResultTables = resultTables;
+            }
         }
 
         /*
@@ -201,6 +207,11 @@ public class DuplicateCounter
         }
     }
 
+    private static boolean isDigestOnly(VoltMessage message)
+    {
+        return message instanceof InitiateResponseMessage && ((InitiateResponseMessage) message).isDigestOnly();
+    }
+
     int offer(InitiateResponseMessage message)
     {
         ClientResponseImpl r = message.getClientResponseData();
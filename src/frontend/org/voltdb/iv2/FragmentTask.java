@@ -45,6 +45,7 @@ import org.voltdb.rejoin.TaskLog;
 import org.voltdb.utils.Encoder;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.MiscUtils;
+import org.voltdb.utils.SampledTrace;
 import org.voltdb.utils.VoltTableUtil;
 import org.voltdb.utils.VoltTrace;
 
@@ -55,6 +56,7 @@ public class FragmentTask extends FragmentTaskBase
     final Map<Integer, List<VoltTable>> m_inputDeps;
     boolean m_respBufferable = true;
     static final byte[] m_rawDummyResponse;
+    private static final int SAMPLED_RUN_FRAGMENT = SampledTrace.event("runfragmenttask", "partition");
 
     static {
         VoltTable dummyResponse = new VoltTable(new ColumnInfo("STATUS", VoltType.TINYINT));
@@ -123,6 +125,8 @@ public class FragmentTask extends FragmentTaskBase
                                                        "txnId", TxnEgo.txnIdToString(getTxnId()),
                                                        "partition", Integer.toString(siteConnection.getCorrespondingPartitionId())));
         }
+        final int partitionId = siteConnection.getCorrespondingPartitionId();
+        SampledTrace.begin(VoltTrace.Category.SPSITE, SAMPLED_RUN_FRAGMENT, getTxnId(), partitionId);
 
         // Setup this procedure with the site connection
         siteConnection.setupProcedure(m_fragmentMsg.getProcedureName());
@@ -165,6 +169,7 @@ public class FragmentTask extends FragmentTaskBase
         if (traceLog != null) {
             traceLog.add(VoltTrace::endDuration);
         }
+        SampledTrace.end(VoltTrace.Category.SPSITE, SAMPLED_RUN_FRAGMENT, getTxnId(), partitionId);
     }
 
     @Override
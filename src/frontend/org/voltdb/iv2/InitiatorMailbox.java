@@ -49,6 +49,7 @@ import org.voltdb.messaging.Iv2RepairLogResponseMessage;
 import org.voltdb.messaging.MigratePartitionLeaderMessage;
 import org.voltdb.messaging.RejoinMessage;
 import org.voltdb.messaging.RepairLogTruncationMessage;
+import org.voltdb.messaging.ReplicationBatchMessage;
 
 import com.google_voltpatches.common.base.Supplier;
 
@@ -295,6 +296,10 @@ public class InitiatorMailbox implements Mailbox
     @Override
     public void deliver(final VoltMessage message)
     {
+        if (message instanceof ReplicationBatchMessage) {
+            deliverBatch(((ReplicationBatchMessage) message).getMessages());
+            return;
+        }
         if (SCHEDULE_IN_SITE_THREAD) {
             SiteTasker.SiteTaskerRunnable task = new SiteTasker.SiteTaskerRunnable() {
                 @Override
@@ -315,6 +320,44 @@ public class InitiatorMailbox implements Mailbox
         }
     }
 
+    /**
+     * Deliver several messages, in order, under a single acquisition of the
+     * mailbox lock. Equivalent to calling {@link #deliver(VoltMessage)} for each.
+     */
+    public void deliverBatch(final List<VoltMessage> messages)
+    {
+        if (SCHEDULE_IN_SITE_THREAD) {
+            SiteTasker.SiteTaskerRunnable task = new SiteTasker.SiteTaskerRunnable() {
+                @Override
+                void run() {
+                    synchronized (InitiatorMailbox.this) {
+                        deliverBatchInternal(messages);
+                    }
+                }
+            };
+            if (hostLog.isDebugEnabled()) {
+                task.taskInfo = "Batch of " + messages.size() + " messages";
+            }
+            m_scheduler.getQueue().offer(task);
+        } else {
+            synchronized (this) {
+                deliverBatchInternal(messages);
+            }
+        }
+    }
+
+    private void deliverBatchInternal(List<VoltMessage> messages) {
+        // Lets the scheduler send the messages it replicates for the batch as one
+        m_scheduler.startBatch();
+        try {
+            for (VoltMessage message : messages) {
+                deliverInternal(message);
+            }
+        } finally {
+            m_scheduler.endBatch();
+        }
+    }
+
     protected void deliverInternal(VoltMessage message) {
         assert(lockingVows());
         logRxMessage(message);
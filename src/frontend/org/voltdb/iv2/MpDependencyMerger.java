@@ -0,0 +1,220 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json_voltpatches.JSONObject;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltTable;
+import org.voltdb.common.Constants;
+import org.voltdb.jni.Sha1Wrapper;
+import org.voltdb.planner.ActivePlanRepository;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.LimitPlanNode;
+import org.voltdb.plannodes.MergeReceivePlanNode;
+import org.voltdb.plannodes.PlanNodeTree;
+import org.voltdb.types.PlanNodeType;
+
+/**
+ * Drops the tables that the partitions return for a multi-partition fragment
+ * once the coordinator fragment has enough rows, instead of holding every
+ * partition's table until the last one has answered.
+ *
+ * This is only done for a coordinator fragment which applies a LIMIT, with no
+ * ORDER BY, to the rows it receives: it reads the tables in the order they
+ * arrived and needs only the first LIMIT + OFFSET rows. Every other reduction,
+ * such as a top N or an aggregate, is left to the coordinator fragment in the
+ * EE, which has to do it over the remaining rows anyway.
+ *
+ * The MPI still waits for every partition before running the coordinator
+ * fragment. The responses are part of the transaction, the partition sites
+ * hold it until it completes, and a response arriving after the coordinator
+ * fragment has run would be taken for the response to the next batch.
+ */
+public class MpDependencyMerger {
+    private static final VoltLogger tmLog = new VoltLogger("TM");
+
+    static final boolean ENABLED = Boolean.valueOf(System.getProperty("MP_STREAMING_MERGE", "true"));
+
+    // Number of coordinator fragments whose analysis is cached
+    private static final int PLAN_CACHE_SIZE = 1000;
+
+    /**
+     * What a coordinator fragment does with its input, found from its plan once.
+     */
+    interface CoordinatorPlan {
+        /**
+         * @return a merger for one execution of the fragment with the given
+         * parameters, or null if its input can't be cut short.
+         */
+        MpDependencyMerger createMerger(ParameterSet params);
+    }
+
+    private static final CoordinatorPlan NOT_MERGEABLE = params -> null;
+
+    private static final Map<Sha1Wrapper, CoordinatorPlan> s_plans =
+            new LinkedHashMap<Sha1Wrapper, CoordinatorPlan>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Sha1Wrapper, CoordinatorPlan> eldest) {
+                    return size() > PLAN_CACHE_SIZE;
+                }
+            };
+
+    private final long m_rowLimit;
+    private final List<VoltTable> m_tables = new ArrayList<>();
+    private long m_rowCount = 0;
+
+    MpDependencyMerger(long rowLimit) {
+        m_rowLimit = rowLimit;
+    }
+
+    /**
+     * Get a merger for the input of a coordinator fragment.
+     * @param planHash hash of the coordinator fragment plan
+     * @param fragmentId site-local id of the coordinator fragment plan
+     * @param params parameters of the statement
+     * @return the merger, or null if the fragment needs all of its input
+     */
+    public static MpDependencyMerger forCoordinatorFragment(byte[] planHash, long fragmentId, ParameterSet params) {
+        if (!ENABLED) {
+            return null;
+        }
+        Sha1Wrapper key = new Sha1Wrapper(planHash);
+        CoordinatorPlan plan;
+        synchronized (s_plans) {
+            plan = s_plans.get(key);
+        }
+        if (plan == null) {
+            plan = analyze(ActivePlanRepository.planForFragmentId(fragmentId));
+            synchronized (s_plans) {
+                s_plans.put(key, plan);
+            }
+        }
+        return plan.createMerger(params);
+    }
+
+    private static CoordinatorPlan analyze(byte[] jsonPlan) {
+        try {
+            PlanNodeTree pnt = new PlanNodeTree();
+            pnt.loadFromJSONPlan(new JSONObject(new String(jsonPlan, Constants.UTF8ENCODING)),
+                                 VoltDB.instance().getCatalogContext().database);
+            if (pnt.hasSubqueries()) {
+                // the subqueries may receive tables of their own
+                return NOT_MERGEABLE;
+            }
+            return analyze(pnt.getRootPlanNode());
+        }
+        catch (Exception e) {
+            if (tmLog.isDebugEnabled()) {
+                tmLog.debug("Unable to analyze coordinator fragment, all of its input will be kept", e);
+            }
+            return NOT_MERGEABLE;
+        }
+    }
+
+    /**
+     * Find out whether the coordinator fragment only needs the first rows of its input.
+     * @param root the send node at the root of the coordinator fragment
+     */
+    static CoordinatorPlan analyze(AbstractPlanNode root) {
+        // The nodes from the root down to the receive node, which must be a single chain
+        List<AbstractPlanNode> chain = new ArrayList<>();
+        AbstractPlanNode node = root;
+        while (node.getChildCount() == 1) {
+            node = node.getChild(0);
+            chain.add(node);
+        }
+        if (chain.isEmpty() || node.getChildCount() != 0 ||
+                !(node instanceof AbstractReceivePlanNode) || node instanceof MergeReceivePlanNode) {
+            return NOT_MERGEABLE;
+        }
+        chain.remove(chain.size() - 1);
+
+        // Projections keep every row in order, so look past them for the limit
+        int parentIndex = chain.size() - 1;
+        while (parentIndex >= 0 && chain.get(parentIndex).getPlanNodeType() == PlanNodeType.PROJECTION) {
+            parentIndex--;
+        }
+        if (parentIndex < 0 || !(chain.get(parentIndex) instanceof LimitPlanNode) ||
+                !chain.get(parentIndex).getInlinePlanNodes().isEmpty()) {
+            return NOT_MERGEABLE;
+        }
+        final LimitPlanNode limit = (LimitPlanNode) chain.get(parentIndex);
+        return params -> {
+            long rowLimit = getRowLimit(limit, params);
+            return rowLimit < 0 ? null : new MpDependencyMerger(rowLimit);
+        };
+    }
+
+    /**
+     * @return LIMIT + OFFSET of the limit node, or -1 if it can't be worked out here.
+     */
+    private static long getRowLimit(LimitPlanNode limit, ParameterSet params) {
+        if (limit.getLimitExpression() != null) {
+            return -1;
+        }
+        long rowLimit = getLimitValue(limit.getLimit(), limit.getLimitParameterIndex(), params);
+        long offset = getLimitValue(limit.getOffset(), limit.getOffsetParameterIndex(), params);
+        if (rowLimit < 0 || offset < 0) {
+            return -1;
+        }
+        return rowLimit + offset;
+    }
+
+    private static long getLimitValue(int value, long parameterIndex, ParameterSet params) {
+        if (parameterIndex < 0) {
+            return value;
+        }
+        if (params == null || !params.hasParam((int) parameterIndex)) {
+            return -1;
+        }
+        Object param = params.getParam((int) parameterIndex);
+        if (!(param instanceof Number) || param instanceof BigDecimal) {
+            return -1;
+        }
+        return Math.min(Integer.MAX_VALUE, ((Number) param).longValue());
+    }
+
+    /**
+     * Add a table received from one partition. It is dropped if the tables
+     * received before already hold LIMIT + OFFSET rows.
+     */
+    public void add(VoltTable table) {
+        // The first table is always kept so that the fragment gets its schema.
+        if (m_tables.isEmpty() || m_rowCount < m_rowLimit) {
+            m_tables.add(table);
+            m_rowCount += table.getRowCount();
+        }
+    }
+
+    /**
+     * @return the tables to use as the input of the coordinator fragment
+     */
+    public List<VoltTable> getTables() {
+        return new ArrayList<>(m_tables);
+    }
+}
@@ -20,6 +20,8 @@ package org.voltdb.iv2;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.zookeeper_voltpatches.KeeperException;
 import org.apache.zookeeper_voltpatches.ZooKeeper;
@@ -35,6 +37,7 @@ import org.voltdb.ProducerDRGateway;
 import org.voltdb.Promotable;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.TTLManager;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltZK;
@@ -51,6 +54,8 @@ public class MpInitiator extends BaseInitiator implements Promotable
 {
     public static final int MP_INIT_PID = TxnEgo.PARTITIONID_MAX_VALUE;
 
+    private ScheduledFuture<?> m_idleReadSiteReaper = null;
+
     public MpInitiator(HostMessenger messenger, List<Long> buddyHSIds, StatsAgent agent, int leaderNodeId)
     {
         super(VoltZK.iv2mpi,
@@ -94,6 +99,13 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 m_partitionId,
                 m_initiatorMailbox);
         sched.setMpRoSitePool(sitePool);
+        if (agent != null) {
+            agent.registerStatsSource(StatsSelector.MPREADPOOL, getInitiatorHSId(), sitePool.getStatsSource());
+        }
+        // Periodically shrink the read pool back down after a burst of reads
+        long reapInterval = Math.max(1, sitePool.getIdleTimeoutMs() / 4);
+        m_idleReadSiteReaper = VoltDB.instance().scheduleWork(sched::retireIdleReadSites,
+                reapInterval, reapInterval, TimeUnit.MILLISECONDS);
 
         // add ourselves to the ephemeral node list which BabySitters will watch for this
         // partition
@@ -102,6 +114,15 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 Long.toString(getInitiatorHSId()), null);
     }
 
+    @Override
+    public void shutdown()
+    {
+        if (m_idleReadSiteReaper != null) {
+            m_idleReadSiteReaper.cancel(false);
+        }
+        super.shutdown();
+    }
+
     @Override
     public void initDRGateway(StartAction startAction, ProducerDRGateway nodeDRGateway, boolean createMpDRGateway)
     {
@@ -273,6 +273,18 @@ public class MpInitiatorMailbox extends InitiatorMailbox
         });
     }
 
+    @Override
+    public void deliverBatch(final List<VoltMessage> messages) {
+        m_taskQueue.offer(new Runnable() {
+            @Override
+            public void run() {
+                for (VoltMessage message : messages) {
+                    deliverInternal(message);
+                }
+            }
+        });
+    }
+
     @Override
     void repairReplicasWith(final List<Long> needsRepair, final VoltMessage repairWork)
     {
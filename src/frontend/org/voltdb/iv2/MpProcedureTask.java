@@ -32,11 +32,13 @@ import org.voltdb.SiteProcedureConnection;
 import org.voltdb.SystemProcedureCatalog;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.rejoin.TaskLog;
 import org.voltdb.utils.LogKeys;
+import org.voltdb.utils.SampledTrace;
 import org.voltdb.utils.VoltTrace;
 
 import com.google_voltpatches.common.collect.Maps;
@@ -48,6 +50,8 @@ import com.google_voltpatches.common.collect.Maps;
  */
 public class MpProcedureTask extends ProcedureTask
 {
+    private static final int SAMPLED_RUN_MP = SampledTrace.event("mpinittask", "restart");
+
     final List<Long> m_initiatorHSIds = new ArrayList<Long>();
     // Need to store the new masters list so that we can update the list of masters
     // when we requeue this Task to for restart
@@ -149,6 +153,11 @@ public class MpProcedureTask extends ProcedureTask
             }
             return;
         }
+        SampledTrace.begin(VoltTrace.Category.MPSITE, SAMPLED_RUN_MP, getTxnId(), m_isRestart ? 1 : 0);
+        final StageTimes stageTimes = txn.m_initiationMsg.getStageTimes();
+        if (stageTimes != null) {
+            stageTimes.mark(StageTimes.Stage.QUEUE);
+        }
 
         // Let's ensure that we flush any previous attempts of this transaction
         // at the masters we're going to try to use this time around.
@@ -219,6 +228,9 @@ public class MpProcedureTask extends ProcedureTask
                 completeInitiateTask(siteConnection);
                 // Set the source HSId (ugh) to ourselves so we track the message path correctly
                 response.m_sourceHSId = m_initiator.getHSId();
+                if (stageTimes != null) {
+                    stageTimes.mark(StageTimes.Stage.EXECUTE);
+                }
                 m_initiator.deliver(response);
                 execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
                 if (hostLog.isDebugEnabled()) {
@@ -235,6 +247,7 @@ public class MpProcedureTask extends ProcedureTask
         if (traceLog != null) {
             traceLog.add(VoltTrace::endDuration);
         }
+        SampledTrace.end(VoltTrace.Category.MPSITE, SAMPLED_RUN_MP, getTxnId(), m_isRestart ? 1 : 0);
     }
 
     @Override
@@ -299,7 +312,7 @@ public class MpProcedureTask extends ProcedureTask
         // Update the masters list with the list provided when restart was triggered
         updateMasters(m_restartMasters.get(), m_restartMastersMap.get());
         m_isRestart = true;
-        m_queue.restart();
+        m_queue.restart(this);
     }
 
     private void taskToString(StringBuilder sb)
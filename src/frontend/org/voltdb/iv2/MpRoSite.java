@@ -392,6 +392,9 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
                 SiteTasker task = m_scheduler.take();
                 task.run(getSiteProcedureConnection());
             }
+            // Release the procedures (and the catalog they reference) as soon as the
+            // site is retired rather than when the pool lets go of the site.
+            m_loadedProcedures = null;
         }
         catch (OutOfMemoryError e)
         {
@@ -25,7 +25,12 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.BackendTarget;
@@ -37,19 +42,29 @@ import org.voltdb.StarvationTracker;
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
+ *
+ * The pool is elastic: it grows on demand (and ahead of demand when reads are
+ * queued behind a write) up to the maximum size, and sites which have sat idle
+ * for longer than the idle timeout are retired until the pool is back down to
+ * its minimum size. Sites built ahead of demand are constructed on the pool's
+ * own builder thread, which only takes the owner's lock to hand the finished
+ * site over, so that loading procedures never stalls MP offers and completions.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
 
     static int DEFAULT_MAX_POOL_SIZE = 20;
     static int INITIAL_POOL_SIZE = 1;
+    static long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+    static int RO_SITE_QUEUE_CAPACITY = 1024;
 
     class MpRoSiteContext {
         final private SiteTaskerQueue m_queue;
         final private MpRoSite m_site;
         final private CatalogContext m_catalogContext;
-        final private LoadedProcedureSet m_loadedProcedures;
         final private Thread m_siteThread;
+        // Time this site was last returned to the idle stack
+        private long m_idleSinceMs;
 
         MpRoSiteContext(long siteId, BackendTarget backend,
                 CatalogContext context, int partitionId,
@@ -57,16 +72,19 @@ class MpRoSitePool {
                 ThreadFactory threadFactory)
         {
             m_catalogContext = context;
-            m_queue = new SiteTaskerQueue(partitionId);
+            m_queue = new SiteTaskerQueue(partitionId, RO_SITE_QUEUE_CAPACITY);
             // IZZY: Just need something non-null for now
             m_queue.setStarvationTracker(new StarvationTracker(siteId));
             m_queue.setupQueueDepthTracker(siteId);
             m_site = new MpRoSite(m_queue, siteId, backend, m_catalogContext, partitionId);
-            m_loadedProcedures = new LoadedProcedureSet(m_site);
-            m_loadedProcedures.loadProcedures(m_catalogContext);
-            m_site.setLoadedProcedures(m_loadedProcedures);
+            // Only the site holds on to the procedure set so that it is released
+            // along with the site when the site is retired.
+            LoadedProcedureSet loadedProcedures = new LoadedProcedureSet(m_site);
+            loadedProcedures.loadProcedures(m_catalogContext);
+            m_site.setLoadedProcedures(loadedProcedures);
             m_siteThread = threadFactory.newThread(m_site);
             m_siteThread.start();
+            m_idleSinceMs = System.currentTimeMillis();
         }
 
         boolean offer(SiteTasker task) {
@@ -81,6 +99,14 @@ class MpRoSitePool {
             return m_catalogContext.catalogVersion;
         }
 
+        void markIdle(long nowMs) {
+            m_idleSinceMs = nowMs;
+        }
+
+        long getIdleSinceMs() {
+            return m_idleSinceMs;
+        }
+
         void shutdown() {
             m_site.startShutdown();
             // Need to unblock the site's run() loop on the take() call on the queue
@@ -95,7 +121,7 @@ class MpRoSitePool {
         }
     }
 
-    // Stack of idle MpRoSites
+    // Stack of idle MpRoSites, most recently used at the head
     private Deque<MpRoSiteContext> m_idleSites = new ArrayDeque<>();
     // Active sites, hashed by the txnID they're working on
     private Map<Long, MpRoSiteContext> m_busySites = new HashMap<>();
@@ -111,7 +137,27 @@ class MpRoSitePool {
     private CatalogContext m_catalogContext;
     private ThreadFactory m_poolThreadFactory;
     private final int m_poolSize;
+    private final int m_minPoolSize;
+    private final long m_idleTimeoutMs;
     private volatile boolean m_shuttingDown = false;
+    // The lock all pool operations are done under, the MpTransactionTaskQueue's
+    private Object m_ownerLock = this;
+    // Builds sites ahead of demand outside of the owner's lock
+    private final ExecutorService m_siteBuilder;
+    // Number of sites requested from the builder which have not been handed over yet
+    private int m_pendingSites = 0;
+
+    // Counters exposed through MpRoSitePoolStats. Only written while holding the
+    // MpTransactionTaskQueue lock, read by the stats agent, which must not look
+    // at the site collections themselves.
+    private volatile int m_currentPoolSize = 0;
+    private volatile int m_busySiteCount = 0;
+    private volatile int m_peakPoolSize = 0;
+    private volatile long m_sitesCreated = 0;
+    private volatile long m_sitesRetired = 0;
+    private volatile long m_rejectedOffers = 0;
+
+    private final MpRoSitePoolStats m_stats;
 
     MpRoSitePool(
             long siteId,
@@ -134,21 +180,66 @@ class MpRoSitePool {
             poolSize = DEFAULT_MAX_POOL_SIZE;
         }
         m_poolSize = poolSize;
-        tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
+        m_minPoolSize = Math.min(Integer.getInteger("mpiReadPoolMinSize", INITIAL_POOL_SIZE), m_poolSize);
+        m_idleTimeoutMs = Long.getLong("mpiReadPoolIdleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS);
+        tmLog.info("Setting size of MPI read pool to: " + m_minPoolSize + " - " + m_poolSize +
+                ", idle timeout " + m_idleTimeoutMs + " ms");
+        m_stats = new MpRoSitePoolStats(m_siteId, this);
+        m_siteBuilder = new ThreadPoolExecutor(0, 1, m_idleTimeoutMs, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                CoreUtils.getThreadFactory("RO MP Site Builder - " + CoreUtils.hsIdToString(m_siteId),
+                        CoreUtils.MEDIUM_STACK_SIZE));
 
         // Construct the initial pool
-        for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
-            MpRoSiteContext site = new MpRoSiteContext(m_siteId,
-                    m_backend,
-                    m_catalogContext,
-                    m_partitionId,
-                    m_initiatorMailbox,
-                    m_poolThreadFactory);
-            m_idleSites.push(site);
-            m_allSites.add(site);
+        for (int i = 0; i < m_minPoolSize; i++) {
+            m_idleSites.push(createSite());
         }
     }
 
+    /**
+     * Set the lock which the owner holds while calling into the pool. The builder
+     * thread takes it to hand over the sites it has constructed.
+     */
+    void setOwnerLock(Object lock)
+    {
+        m_ownerLock = lock;
+    }
+
+    /**
+     * Construct and start a new site running the given catalog.
+     */
+    MpRoSiteContext newSiteContext(CatalogContext context)
+    {
+        return new MpRoSiteContext(m_siteId,
+                m_backend,
+                context,
+                m_partitionId,
+                m_initiatorMailbox,
+                m_poolThreadFactory);
+    }
+
+    private MpRoSiteContext createSite()
+    {
+        return registerSite(newSiteContext(m_catalogContext));
+    }
+
+    private MpRoSiteContext registerSite(MpRoSiteContext site)
+    {
+        m_allSites.add(site);
+        m_sitesCreated++;
+        m_currentPoolSize = m_allSites.size();
+        m_peakPoolSize = Math.max(m_peakPoolSize, m_currentPoolSize);
+        return site;
+    }
+
+    private void retireSite(MpRoSiteContext site)
+    {
+        site.shutdown();
+        m_allSites.remove(site);
+        m_sitesRetired++;
+        m_currentPoolSize = m_allSites.size();
+    }
+
     /**
      * Update the catalog
      */
@@ -167,9 +258,8 @@ class MpRoSitePool {
             MpRoSiteContext site = siterator.next();
             if (site.getCatalogCRC() != m_catalogContext.getCatalogCRC()
                     || site.getCatalogVersion() != m_catalogContext.catalogVersion) {
-                site.shutdown();
-                m_idleSites.remove(site);
-                m_allSites.remove(site);
+                siterator.remove();
+                retireSite(site);
             }
         }
     }
@@ -182,6 +272,11 @@ class MpRoSitePool {
         m_catalogContext = context;
     }
 
+    CatalogContext getCatalogContext()
+    {
+        return m_catalogContext;
+    }
+
     /**
      * Repair: Submit the provided task to the MpRoSite running the transaction associated
      * with txnId.  This occurs when the MPI has survived a node failure and needs to interrupt and
@@ -208,7 +303,96 @@ class MpRoSitePool {
         if (m_shuttingDown) {
             return false;
         }
-        return (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize);
+        if (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize) {
+            return true;
+        }
+        m_rejectedOffers++;
+        return false;
+    }
+
+    /**
+     * Grow the pool ahead of demand so that the given number of queued reads
+     * can start as soon as they become runnable, without paying for site
+     * construction on the critical path. Never grows beyond the maximum size.
+     * The sites are built asynchronously on the builder thread.
+     */
+    void ensureCapacity(int pendingReads)
+    {
+        if (m_shuttingDown) {
+            return;
+        }
+        int target = Math.min(m_poolSize, m_busySites.size() + pendingReads);
+        while (m_busySites.size() + m_idleSites.size() + m_pendingSites < target) {
+            m_pendingSites++;
+            m_siteBuilder.execute(new Runnable() {
+                @Override
+                public void run() {
+                    buildSite();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs on the builder thread: construct a site without holding the owner's
+     * lock, then take the lock to add it to the idle sites. The site is thrown
+     * away if the pool was shut down, the catalog changed or the pool filled up
+     * while it was being built.
+     */
+    private void buildSite()
+    {
+        CatalogContext context;
+        synchronized (m_ownerLock) {
+            if (m_shuttingDown) {
+                m_pendingSites--;
+                return;
+            }
+            context = m_catalogContext;
+        }
+        MpRoSiteContext site = null;
+        try {
+            site = newSiteContext(context);
+        }
+        finally {
+            synchronized (m_ownerLock) {
+                m_pendingSites--;
+                if (site != null) {
+                    if (m_shuttingDown
+                            || context != m_catalogContext
+                            || m_busySites.size() + m_idleSites.size() >= m_poolSize) {
+                        site.shutdown();
+                    }
+                    else {
+                        registerSite(site);
+                        site.markIdle(System.currentTimeMillis());
+                        m_idleSites.push(site);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire the sites which have been idle for longer than the idle timeout,
+     * least recently used first, until the pool is back down to its minimum size.
+     * @return the number of sites retired
+     */
+    int retireIdleSites(long nowMs)
+    {
+        if (m_shuttingDown) {
+            return 0;
+        }
+        int retired = 0;
+        while (!m_idleSites.isEmpty()
+                && m_idleSites.size() + m_busySites.size() > m_minPoolSize
+                && nowMs - m_idleSites.peekLast().getIdleSinceMs() >= m_idleTimeoutMs) {
+            retireSite(m_idleSites.pollLast());
+            retired++;
+        }
+        if (retired > 0 && tmLog.isDebugEnabled()) {
+            tmLog.debug("Retired " + retired + " idle MP read sites, pool size is now " + m_allSites.size());
+        }
+        return retired;
     }
 
     /**
@@ -228,17 +412,11 @@ class MpRoSitePool {
         }
         else {
             if (m_idleSites.isEmpty()) {
-                MpRoSiteContext newSite = new MpRoSiteContext(m_siteId,
-                        m_backend,
-                        m_catalogContext,
-                        m_partitionId,
-                        m_initiatorMailbox,
-                        m_poolThreadFactory);
-                m_idleSites.push(newSite);
-                m_allSites.add(newSite);
+                m_idleSites.push(createSite());
             }
             site = m_idleSites.pop();
             m_busySites.put(txnId, site);
+            m_busySiteCount = m_busySites.size();
         }
         site.offer(task);
         return true;
@@ -257,23 +435,81 @@ class MpRoSitePool {
         if (site == null) {
             throw new RuntimeException("No busy site for txnID: " + txnId + " found, shouldn't happen.");
         }
+        m_busySiteCount = m_busySites.size();
         // check the catalog versions, only push back onto idle if the catalog hasn't changed
         // otherwise, just let it get garbage collected and let doWork() construct new ones for the
         // pool with the updated catalog.
         if (site.getCatalogCRC() == m_catalogContext.getCatalogCRC()
                 && site.getCatalogVersion() == m_catalogContext.catalogVersion) {
+            site.markIdle(System.currentTimeMillis());
             m_idleSites.push(site);
         }
         else {
-            site.shutdown();
-            m_allSites.remove(site);
+            retireSite(site);
         }
     }
 
+    MpRoSitePoolStats getStatsSource()
+    {
+        return m_stats;
+    }
+
+    int getMinPoolSize()
+    {
+        return m_minPoolSize;
+    }
+
+    int getMaxPoolSize()
+    {
+        return m_poolSize;
+    }
+
+    long getIdleTimeoutMs()
+    {
+        return m_idleTimeoutMs;
+    }
+
+    int getPoolSize()
+    {
+        return m_currentPoolSize;
+    }
+
+    int getBusySiteCount()
+    {
+        return m_busySiteCount;
+    }
+
+    int getPeakPoolSize()
+    {
+        return m_peakPoolSize;
+    }
+
+    long getSitesCreated()
+    {
+        return m_sitesCreated;
+    }
+
+    long getSitesRetired()
+    {
+        return m_sitesRetired;
+    }
+
+    long getRejectedOffers()
+    {
+        return m_rejectedOffers;
+    }
+
     void shutdown()
     {
         m_shuttingDown = true;
 
+        // Let a site under construction finish, it discards itself on hand over
+        m_siteBuilder.shutdown();
+        try {
+            m_siteBuilder.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+        }
+
         // Shutdown all, then join all, hopefully save some shutdown time for tests.
         synchronized(m_allSites) {
             for (MpRoSiteContext site : m_allSites) {
@@ -0,0 +1,110 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Report the size and churn of the MPI read-only site pool.
+ * Counters are reported as deltas when interval statistics are requested.
+ */
+public class MpRoSitePoolStats extends SiteStatsSource {
+
+    private final MpRoSitePool m_pool;
+
+    private boolean m_interval = false;
+    private long m_lastSitesCreated = 0;
+    private long m_lastSitesRetired = 0;
+    private long m_lastRejectedOffers = 0;
+
+    MpRoSitePoolStats(long siteId, MpRoSitePool pool) {
+        super(siteId, false);
+        m_pool = pool;
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("MIN_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("CURRENT_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("BUSY_SITES", VoltType.INTEGER));
+        columns.add(new ColumnInfo("PEAK_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("SITES_CREATED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("SITES_RETIRED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("REJECTED_OFFERS", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        long created = m_pool.getSitesCreated();
+        long retired = m_pool.getSitesRetired();
+        long rejected = m_pool.getRejectedOffers();
+        rowValues[columnNameToIndex.get("MIN_SIZE")] = m_pool.getMinPoolSize();
+        rowValues[columnNameToIndex.get("MAX_SIZE")] = m_pool.getMaxPoolSize();
+        rowValues[columnNameToIndex.get("CURRENT_SIZE")] = m_pool.getPoolSize();
+        rowValues[columnNameToIndex.get("BUSY_SITES")] = m_pool.getBusySiteCount();
+        rowValues[columnNameToIndex.get("PEAK_SIZE")] = m_pool.getPeakPoolSize();
+        if (m_interval) {
+            rowValues[columnNameToIndex.get("SITES_CREATED")] = created - m_lastSitesCreated;
+            rowValues[columnNameToIndex.get("SITES_RETIRED")] = retired - m_lastSitesRetired;
+            rowValues[columnNameToIndex.get("REJECTED_OFFERS")] = rejected - m_lastRejectedOffers;
+            m_lastSitesCreated = created;
+            m_lastSitesRetired = retired;
+            m_lastRejectedOffers = rejected;
+        }
+        else {
+            rowValues[columnNameToIndex.get("SITES_CREATED")] = created;
+            rowValues[columnNameToIndex.get("SITES_RETIRED")] = retired;
+            rowValues[columnNameToIndex.get("REJECTED_OFFERS")] = rejected;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -39,6 +39,7 @@ import org.voltdb.SystemProcedureCatalog;
 import org.voltdb.SystemProcedureCatalog.Config;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.exceptions.TransactionRestartException;
@@ -106,6 +107,11 @@ public class MpScheduler extends Scheduler
         m_pendingTasks.setMpRoSitePool(sitePool);
     }
 
+    void retireIdleReadSites()
+    {
+        m_pendingTasks.retireIdleSites();
+    }
+
     void updateCatalog(String diffCmds, CatalogContext context)
     {
         m_pendingTasks.updateCatalog(diffCmds, context);
@@ -388,6 +394,10 @@ public class MpScheduler extends Scheduler
 
         m_nextBuddy = (m_nextBuddy + 1) % m_buddyHSIds.size();
         m_outstandingTxns.put(task.m_txnState.txnId, task.m_txnState);
+        if (message.getStageTimes() != null) {
+            mp.setStageTimes(message.getStageTimes());
+            message.getStageTimes().mark(StageTimes.Stage.SEQUENCE);
+        }
         m_pendingTasks.offer(task);
     }
 
@@ -543,6 +553,9 @@ public class MpScheduler extends Scheduler
             }
             MpTransactionState txn = (MpTransactionState)m_outstandingTxns.remove(message.getTxnId());
             assert(txn != null);
+            if (message.getStageTimes() != null) {
+                message.getStageTimes().mark(StageTimes.Stage.REPLICATE);
+            }
             // the initiatorHSId is the ClientInterface mailbox. Yeah. I know.
             m_mailbox.send(message.getInitiatorHSId(), message);
             // We actually completed this MP transaction.  Create a fake CompleteTransactionMessage
@@ -0,0 +1,150 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.MaterializedViewHandlerInfo;
+import org.voltdb.catalog.MaterializedViewInfo;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.Table;
+import org.voltdb.catalog.TableRef;
+
+/**
+ * The tables a multi-partition procedure may read and write, built from the
+ * read and write sets the planner records in the catalog for each statement.
+ * The MPI uses them to decide which transactions can safely overlap.
+ *
+ * A procedure whose table access can't be determined (system procedures,
+ * ad hoc SQL, default procedures) is UNKNOWN, and conflicts with everything.
+ */
+final class MpTableAccess
+{
+    static final MpTableAccess UNKNOWN = new MpTableAccess(null, null, false);
+
+    // Upper case table names. Writes include the views maintained by the writes.
+    private final Set<String> m_reads;
+    private final Set<String> m_writes;
+    private final boolean m_replicatedReadsOnly;
+
+    MpTableAccess(Set<String> reads, Set<String> writes, boolean replicatedReadsOnly)
+    {
+        m_reads = reads;
+        m_writes = writes;
+        m_replicatedReadsOnly = replicatedReadsOnly;
+    }
+
+    static MpTableAccess forProcedure(Database db, Procedure proc)
+    {
+        if (db == null || proc == null || proc.getSystemproc()) {
+            return UNKNOWN;
+        }
+        Set<String> reads = new HashSet<>();
+        Set<String> writes = new HashSet<>();
+        for (Statement stmt : proc.getStatements()) {
+            // The plan of SWAP TABLE only names one of the two tables it changes
+            if (stmt.getSqltext().trim().regionMatches(true, 0, "SWAP", 0, 4)) {
+                return UNKNOWN;
+            }
+            addTableNames(reads, stmt.getTablesread());
+            addTableNames(writes, stmt.getTablesupdated());
+        }
+
+        boolean replicatedReadsOnly = true;
+        for (String tableName : reads) {
+            Table table = db.getTables().getIgnoreCase(tableName);
+            if (table == null) {
+                return UNKNOWN;
+            }
+            replicatedReadsOnly &= table.getIsreplicated();
+        }
+
+        // A write also changes the views of the written tables
+        Set<String> updatedViews = new HashSet<>();
+        for (Table table : db.getTables()) {
+            if (writes.contains(table.getTypeName().toUpperCase())) {
+                for (MaterializedViewInfo view : table.getViews()) {
+                    updatedViews.add(view.getDest().getTypeName().toUpperCase());
+                }
+            }
+            for (MaterializedViewHandlerInfo handler : table.getMvhandlerinfo()) {
+                for (TableRef source : handler.getSourcetables()) {
+                    if (writes.contains(source.getTable().getTypeName().toUpperCase())) {
+                        updatedViews.add(handler.getDesttable().getTypeName().toUpperCase());
+                    }
+                }
+            }
+        }
+        writes.addAll(updatedViews);
+
+        return new MpTableAccess(Collections.unmodifiableSet(reads),
+                Collections.unmodifiableSet(writes),
+                replicatedReadsOnly);
+    }
+
+    private static void addTableNames(Set<String> names, String csv)
+    {
+        for (String name : csv.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                names.add(name.toUpperCase());
+            }
+        }
+    }
+
+    boolean isKnown()
+    {
+        return this != UNKNOWN;
+    }
+
+    /**
+     * @return true for a read-only procedure which only reads replicated tables.
+     * Such a read needs no fragments from the partition masters, only the work
+     * borrowed from the MPI's local site, so it can run beside an MP write.
+     */
+    boolean isIsolatedRead()
+    {
+        return isKnown() && m_writes.isEmpty() && m_replicatedReadsOnly;
+    }
+
+    /**
+     * @return true if one of the two procedures may write a table that the other reads or writes
+     */
+    boolean conflictsWith(MpTableAccess other)
+    {
+        if (!isKnown() || !other.isKnown()) {
+            return true;
+        }
+        return !Collections.disjoint(m_writes, other.m_reads) ||
+               !Collections.disjoint(m_writes, other.m_writes) ||
+               !Collections.disjoint(m_reads, other.m_writes);
+    }
+
+    @Override
+    public String toString()
+    {
+        if (!isKnown()) {
+            return "MpTableAccess: UNKNOWN";
+        }
+        return "MpTableAccess: READS " + m_reads + " WRITES " + m_writes;
+    }
+}
@@ -83,6 +83,9 @@ public class MpTransactionState extends TransactionState
     Map<Integer, Set<Long>> m_remoteDeps;
     Map<Integer, List<VoltTable>> m_remoteDepTables =
         new HashMap<Integer, List<VoltTable>>();
+    // Dependencies of which the coordinator fragment only needs the first rows, see MpDependencyMerger
+    final Map<Integer, MpDependencyMerger> m_remoteDepMergers =
+        new HashMap<Integer, MpDependencyMerger>();
     private int m_drBufferChangedAgg = 0;
     private int m_localPartitionCount;
     private final boolean m_drProducerActive = VoltDB.instance().getNodeDRGateway() != null && VoltDB.instance().getNodeDRGateway().isActive();
@@ -97,6 +100,8 @@ public class MpTransactionState extends TransactionState
     boolean m_fragmentRestarted = false;
     final boolean m_nPartTxn;
     boolean m_haveSentfragment = false;
+    // The MP write the MPI has started beside this isolated read, see MpTransactionTaskQueue
+    volatile long m_overlappedWriteTxnId = Long.MIN_VALUE;
 
     //Master change from MigratePartitionLeader. The remote dependencies are built before MigratePartitionLeader. After
     //fragment restart, the FragmentResponseMessage will come from the new partition master. The map is used to remove
@@ -201,6 +206,15 @@ public class MpTransactionState extends TransactionState
         return partitionMastersCopy;
     }
 
+    /**
+     * Let the borrowed fragments of this isolated read run beside the given MP write
+     * at the buddy site. The MPI has checked the write changes no table this reads.
+     */
+    void setOverlappedWrite(long txnId)
+    {
+        m_overlappedWriteTxnId = txnId;
+    }
+
     /**
      * Used to reset the internal state of this transaction so it can be successfully restarted
      */
@@ -237,6 +251,7 @@ public class MpTransactionState extends TransactionState
         m_remoteWork = null;
         m_remoteDeps = null;
         m_remoteDepTables.clear();
+        m_remoteDepMergers.clear();
     }
 
     // I met this List at bandcamp...
@@ -245,6 +260,17 @@ public class MpTransactionState extends TransactionState
         setupProcedureResume(com.google_voltpatches.common.primitives.Ints.toArray(deps));
     }
 
+    /**
+     * Pass the tables of a remote dependency through the merger as they arrive, which drops
+     * them once the coordinator fragment has the rows it needs, rather than keeping all of
+     * them until every partition has answered.
+     * Must be called after {@link #setupProcedureResume(int[])} for the batch.
+     */
+    public void setRemoteDependencyMerger(int depId, MpDependencyMerger merger)
+    {
+        m_remoteDepMergers.put(depId, merger);
+    }
+
     @Override
     public void createLocalFragmentWork(FragmentTaskMessage task, boolean nonTransactional)
     {
@@ -373,12 +399,18 @@ public class MpTransactionState extends TransactionState
                 }
             }
             checkForDRBufferLimit();
+            for (Entry<Integer, MpDependencyMerger> e : m_remoteDepMergers.entrySet()) {
+                if (m_remoteDepTables.containsKey(e.getKey())) {
+                    m_remoteDepTables.put(e.getKey(), e.getValue().getTables());
+                }
+            }
         }
         // satisfied. Clear this defensively. Procedure runner is sloppy with
         // cleaning up if it decides new work is necessary that is local-only.
         m_remoteWork = null;
 
         BorrowTaskMessage borrowmsg = new BorrowTaskMessage(m_localWork);
+        borrowmsg.setOverlappedWriteTxnId(m_overlappedWriteTxnId);
         m_localWork.setCoordinatorTask(true);
         m_localWork.m_sourceHSId = m_mbox.getHSId();
         // if we created a bogus fragment to distribute to serialize restart and borrow tasks,
@@ -580,7 +612,13 @@ public class MpTransactionState extends TransactionState
             }
             // null dependency table is from a joining node, has no content, drop it
             if (table.getStatusCode() != VoltTableUtil.NULL_DEPENDENCY_STATUS) {
-                tables.add(table);
+                MpDependencyMerger merger = m_remoteDepMergers.get(depId);
+                if (merger != null) {
+                    merger.add(table);
+                }
+                else {
+                    tables.add(table);
+                }
             }
         }
         else if (tmLog.isDebugEnabled()){
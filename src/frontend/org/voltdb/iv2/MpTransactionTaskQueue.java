@@ -18,18 +18,19 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.CatalogContext;
+import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.exceptions.TransactionRestartException;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
@@ -37,17 +38,28 @@ import org.voltdb.messaging.FragmentTaskMessage;
 /**
  * Provide an implementation of the TransactionTaskQueue specifically for the MPI.
  * This class will manage separating the stream of reads and writes to different
- * Sites and block appropriately so that reads and writes never execute concurrently.
+ * Sites and block appropriately so that reads and writes never execute concurrently,
+ * except for reads of replicated tables which the current or queued writes don't
+ * touch, according to the table access of the procedures recorded in the catalog.
+ *
+ * Writes still run one at a time, even when their tables are disjoint: every
+ * partition site runs the fragments of one multi-partition transaction at a time,
+ * in the order the MPI sends them, so a second write would only wait at the sites.
  */
 public class MpTransactionTaskQueue extends TransactionTaskQueue
 {
     protected static final VoltLogger tmLog = new VoltLogger("TM");
 
-    // Track the current writes and reads in progress.  If writes contains anything, reads must be empty,
-    // and vice versa
+    // Allow reads which don't conflict with the writes to run beside them
+    static final boolean CONFLICT_AWARE = Boolean.valueOf(System.getProperty("MP_CONFLICT_AWARE_SCHEDULING", "true"));
+
+    // Track the current writes and reads in progress.  There is at most one write at a time.
+    // If writes contains anything, reads may only contain isolated reads which don't conflict with it.
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
     private final Map<Long, TransactionTask> m_currentReads = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
+    // Table access of the procedures by name, for the current catalog
+    private final Map<String, MpTableAccess> m_tableAccess = new HashMap<>();
 
     private MpRoSitePool m_sitePool = null;
 
@@ -59,11 +71,13 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     void setMpRoSitePool(MpRoSitePool sitePool)
     {
         m_sitePool = sitePool;
+        m_sitePool.setOwnerLock(this);
     }
 
     synchronized void updateCatalog(String diffCmds, CatalogContext context)
     {
         m_sitePool.updateCatalog(diffCmds, context);
+        m_tableAccess.clear();
     }
 
     synchronized void updateSettings(CatalogContext context)
@@ -71,6 +85,17 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         m_sitePool.updateSettings(context);
     }
 
+    /**
+     * Retire the MP read sites which have been idle for too long.
+     * Called periodically by the MPI.
+     */
+    synchronized void retireIdleSites()
+    {
+        if (m_sitePool != null) {
+            m_sitePool.retireIdleSites(System.currentTimeMillis());
+        }
+    }
+
     void shutdown()
     {
         if (m_sitePool != null) {
@@ -100,32 +125,28 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     synchronized void repair(SiteTasker task, List<Long> masters, Map<Integer, Long> partitionMasters, boolean balanceSPI)
     {
         // We know that every Site assigned to the MPI (either the main writer or
-        // any of the MP read pool) will only have one active transaction at a time,
-        // and that we either have active reads or active writes, but never both.
-        // Figure out which we're doing, and then poison all of the appropriate sites.
-        Map<Long, TransactionTask> currentSet;
-        boolean readonly = true;
+        // any of the MP read pool) will only have one active transaction at a time.
+        // The current write, if any, may have isolated reads running beside it,
+        // so repair and poison all of the sites with current transactions.
         if (!m_currentReads.isEmpty()) {
-            assert(m_currentWrites.isEmpty());
             if (tmLog.isDebugEnabled()) {
                 tmLog.debug("MpTTQ: repairing reads. MigratePartitionLeader:" + balanceSPI);
             }
             for (Long txnId : m_currentReads.keySet()) {
                 m_sitePool.repair(txnId, task);
             }
-            currentSet = m_currentReads;
         }
-        else {
+        if (!m_currentWrites.isEmpty() || m_currentReads.isEmpty()) {
             if (tmLog.isDebugEnabled()) {
                 tmLog.debug("MpTTQ: repairing writes. MigratePartitionLeader:" + balanceSPI);
             }
             m_taskQueue.offer(task);
-            currentSet = m_currentWrites;
-            readonly = false;
         }
-        for (Entry<Long, TransactionTask> e : currentSet.entrySet()) {
-            if (e.getValue() instanceof MpProcedureTask) {
-                MpProcedureTask next = (MpProcedureTask)e.getValue();
+        List<TransactionTask> currentSet = new ArrayList<>(m_currentReads.values());
+        currentSet.addAll(m_currentWrites.values());
+        for (TransactionTask current : currentSet) {
+            if (current instanceof MpProcedureTask) {
+                MpProcedureTask next = (MpProcedureTask)current;
                 if (tmLog.isDebugEnabled()) {
                     tmLog.debug("MpTTQ: poisoning task: " + next.toShortString());
                 }
@@ -191,22 +212,29 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         // Do we have something to do?
         // - If so, is it a write?
         //   - If so, are there reads or writes outstanding?
-        //     - if not, pull it from the backlog, add it to current write set, and queue it
+        //     - if not, or if the only reads are isolated reads which don't read
+        //       anything it writes, pull it from the backlog, add it to current write set, and queue it
         //     - if so, bail for now
         //   - If not, are there writes outstanding?
         //     - if not, while there are reads on the backlog and the pool has capacity:
         //       - pull the read from the backlog, add it to the current read set, and queue it.
         //       - bail when done
-        //     - if so, bail for now
+        //     - if so, warm up enough pool sites for the queued reads and bail for now
+        // - Is there a write running or waiting?
+        //   - If so, also start the isolated reads from the backlog which conflict with none
+        //     of the writes ahead of them, see offerIsolatedReads()
 
         boolean retval = false;
         if (!m_backlog.isEmpty()) {
             // We may not queue the next task, just peek to get the read-only state
             TransactionTask task = m_backlog.peekFirst();
             if (!task.getTransactionState().isReadOnly()) {
-                if (m_currentReads.isEmpty() && m_currentWrites.isEmpty()) {
+                if (m_currentWrites.isEmpty() && canRunBesideCurrentReads(task)) {
                     task = m_backlog.pollFirst();
                     m_currentWrites.put(task.getTxnId(), task);
+                    for (TransactionTask read : m_currentReads.values()) {
+                        setOverlappedWrite(read, task);
+                    }
                     taskQueueOffer(task);
                     retval = true;
                 }
@@ -225,10 +253,141 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                     task = m_backlog.peekFirst();
                 }
             }
+            else {
+                m_sitePool.ensureCapacity(countLeadingReads());
+            }
+        }
+        if (CONFLICT_AWARE && !m_backlog.isEmpty() &&
+                (!m_currentWrites.isEmpty() || !m_backlog.peekFirst().getTransactionState().isReadOnly())) {
+            retval |= offerIsolatedReads();
+        }
+        return retval;
+    }
+
+    /**
+     * @return true if the write can start while the current reads run, that is, if there
+     * are no current reads, or if they are all isolated reads of tables the write doesn't change.
+     */
+    private boolean canRunBesideCurrentReads(TransactionTask write)
+    {
+        if (m_currentReads.isEmpty()) {
+            return true;
+        }
+        if (!CONFLICT_AWARE) {
+            return false;
+        }
+        MpTableAccess writeAccess = getTableAccess(write);
+        for (TransactionTask read : m_currentReads.values()) {
+            MpTableAccess readAccess = getTableAccess(read);
+            if (!readAccess.isIsolatedRead() || readAccess.conflictsWith(writeAccess)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start the isolated reads in the backlog which conflict with neither the current
+     * write nor any of the writes queued ahead of them. Reads may overtake writes this
+     * way, but never the other way around, and nothing overtakes a transaction with
+     * unknown table access.
+     */
+    private boolean offerIsolatedReads()
+    {
+        boolean retval = false;
+        List<MpTableAccess> writesAhead = new ArrayList<>();
+        for (TransactionTask write : m_currentWrites.values()) {
+            writesAhead.add(getTableAccess(write));
+        }
+        Iterator<TransactionTask> iter = m_backlog.iterator();
+        while (iter.hasNext() && m_sitePool.canAcceptWork()) {
+            TransactionTask task = iter.next();
+            MpTableAccess access = getTableAccess(task);
+            if (!access.isKnown()) {
+                break;
+            }
+            if (!task.getTransactionState().isReadOnly()) {
+                writesAhead.add(access);
+                continue;
+            }
+            if (!access.isIsolatedRead() || conflictsWithAny(access, writesAhead)) {
+                continue;
+            }
+            iter.remove();
+            m_currentReads.put(task.getTxnId(), task);
+            for (TransactionTask write : m_currentWrites.values()) {
+                setOverlappedWrite(task, write);
+            }
+            taskQueueOffer(task);
+            retval = true;
         }
         return retval;
     }
 
+    /**
+     * Let the buddy site run the borrowed fragments of an isolated read beside the
+     * given write instead of queueing them behind it. The caller checked they don't conflict.
+     */
+    private static void setOverlappedWrite(TransactionTask read, TransactionTask write)
+    {
+        ((MpTransactionState)read.getTransactionState()).setOverlappedWrite(write.getTxnId());
+    }
+
+    private static boolean conflictsWithAny(MpTableAccess access, List<MpTableAccess> others)
+    {
+        for (MpTableAccess other : others) {
+            if (access.conflictsWith(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look up the table access of the procedure of a task, which is UNKNOWN
+     * for everything but user procedures in the current catalog.
+     */
+    MpTableAccess getTableAccess(TransactionTask task)
+    {
+        if (!(task instanceof MpProcedureTask) || m_sitePool == null) {
+            return MpTableAccess.UNKNOWN;
+        }
+        StoredProcedureInvocation invocation = task.getTransactionState().getInvocation();
+        if (invocation == null) {
+            return MpTableAccess.UNKNOWN;
+        }
+        String procName = invocation.getProcName();
+        MpTableAccess access = m_tableAccess.get(procName);
+        if (access == null) {
+            CatalogContext context = m_sitePool.getCatalogContext();
+            if (context == null) {
+                return MpTableAccess.UNKNOWN;
+            }
+            access = MpTableAccess.forProcedure(context.database, context.procedures.get(procName));
+            m_tableAccess.put(procName, access);
+        }
+        return access;
+    }
+
+    /**
+     * Count the reads at the head of the backlog which will be able to run
+     * concurrently once the current write completes. Stops counting at the
+     * maximum pool size since there's no point in looking further.
+     */
+    private int countLeadingReads()
+    {
+        int reads = 0;
+        int limit = m_sitePool.getMaxPoolSize();
+        Iterator<TransactionTask> iter = m_backlog.iterator();
+        while (iter.hasNext() && reads < limit) {
+            if (!iter.next().getTransactionState().isReadOnly()) {
+                break;
+            }
+            reads++;
+        }
+        return reads;
+    }
+
     /**
      * Indicate that the transaction associated with txnId is complete.  Perform
      * management of reads/writes in progress then call taskQueueOffer() to
@@ -255,27 +414,28 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     }
 
     /**
-     * Restart the current task at the head of the queue.  This will be called
-     * instead of flush by the currently blocking MP transaction in the event a
-     * restart is necessary.
+     * Restart the given task.  This will be called instead of flush by the currently
+     * blocking MP transaction in the event a restart is necessary.  If a write and
+     * isolated reads are running side by side, only the one restarting is re-submitted.
      */
     @Override
-    synchronized void restart()
+    synchronized void restart(TransactionTask task)
     {
-        if (!m_currentReads.isEmpty()) {
+        if (!m_currentReads.isEmpty() && !m_currentWrites.isEmpty()) {
+            assert(m_currentReads.containsKey(task.getTxnId()) || m_currentWrites.containsKey(task.getTxnId()));
+            taskQueueOffer(task);
+        }
+        else if (!m_currentReads.isEmpty()) {
             // re-submit all the tasks in the current read set to the pool.
             // the pool will ensure that things submitted with the same
             // txnID will go to the the MpRoSite which is currently running it
-            for (TransactionTask task : m_currentReads.values()) {
-                taskQueueOffer(task);
+            for (TransactionTask read : m_currentReads.values()) {
+                taskQueueOffer(read);
             }
         }
         else {
-            assert(!m_currentWrites.isEmpty());
-            TransactionTask task;
-            // There currently should only ever be one current write.  This
-            // is the awkward way to get a single value out of a Map
-            task = m_currentWrites.entrySet().iterator().next().getValue();
+            assert(m_currentWrites.containsKey(task.getTxnId()));
+            // There currently should only ever be one current write
             taskQueueOffer(task);
         }
     }
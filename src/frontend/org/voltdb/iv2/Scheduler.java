@@ -220,4 +220,11 @@ abstract public class Scheduler implements InitiatorMessageHandler
 
     //flush out read only transactions upon host failure
     public void cleanupTransactionBacklogOnRepair() {}
+
+    /**
+     * Bracket the delivery of a batch of messages under a single acquisition
+     * of the mailbox lock.
+     */
+    public void startBatch() {}
+    public void endBatch() {}
 }
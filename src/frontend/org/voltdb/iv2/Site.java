@@ -121,6 +121,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     private static final double m_taskLogReplayRatio =
             Double.valueOf(System.getProperty("TASKLOG_REPLAY_RATIO", "0.6"));
 
+    // Maximum number of tasks taken from the site tasker queue at once
+    private static final int TASK_BATCH_SIZE = Integer.getInteger("SITE_TASK_BATCH_SIZE", 32);
+
     // Set to false trigger shutdown.
     volatile boolean m_shouldContinue = true;
 
@@ -823,16 +826,25 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         m_startupConfig = null; // release the serializableCatalog.
         //Maintain a minimum ratio of task log (unrestricted) to live (restricted) transactions
         final MinimumRatioMaintainer mrm = new MinimumRatioMaintainer(m_taskLogReplayRatio);
+        final SiteTasker[] taskBatch = new SiteTasker[TASK_BATCH_SIZE];
         try {
             while (m_shouldContinue) {
                 if (m_rejoinState == kStateRunning) {
-                    // Normal operation blocks the site thread on the sitetasker queue.
-                    SiteTasker task = m_scheduler.take();
-                    if (task instanceof TransactionTask) {
-                        m_currentTxnId = ((TransactionTask)task).getTxnId();
-                        m_lastTxnTime = EstTime.currentTimeMillis();
+                    // Normal operation blocks the site thread on the sitetasker queue
+                    // and then runs whatever has accumulated in it as one batch.
+                    final int count = m_scheduler.takeBatch(taskBatch);
+                    for (int i = 0; i < count; i++) {
+                        SiteTasker task = taskBatch[i];
+                        taskBatch[i] = null;
+                        if (!m_shouldContinue) {
+                            continue;
+                        }
+                        if (task instanceof TransactionTask) {
+                            m_currentTxnId = ((TransactionTask)task).getTxnId();
+                            m_lastTxnTime = EstTime.currentTimeMillis();
+                        }
+                        task.run(getSiteProcedureConnection());
                     }
-                    task.run(getSiteProcedureConnection());
                 } else if (m_rejoinState == kStateReplayingRejoin) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
@@ -17,22 +17,91 @@
 
 package org.voltdb.iv2;
 
-import java.util.concurrent.LinkedTransferQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.QueueDepthTracker;
 import org.voltdb.StarvationTracker;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * The queue is a bounded multi-producer, single-consumer ring buffer. Producers
+ * claim a slot by advancing the tail and then publish the task into it; the site
+ * thread is the only consumer and owns the head. A consumer that finds the queue
+ * empty spins for a while before parking, and the spin budget adapts: it grows
+ * when work shows up while spinning and shrinks when the site ends up parking
+ * anyway, so idle sites stop burning CPU while busy sites avoid the park/unpark
+ * round trip.
+ *
+ * Producers never block. Offers to a full ring go to an unbounded overflow list
+ * tagged with the ring position they logically follow, which preserves each
+ * producer's FIFO order. Producers often hold locks the site thread needs in
+ * order to make progress (the InitiatorMailbox monitor, for one), so waiting for
+ * room could deadlock.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("SITE_TASK_QUEUE_CAPACITY", 64 * 1024);
+
+    // Upper bound on how long an idle consumer spins before parking. QUEUE_SPIN_MICROS,
+    // if set, keeps its old meaning of the spin time before blocking.
+    private static final long MAX_SPIN_NANOS = CoreUtils.QUEUE_SPIN_MICROSECONDS > 0 ?
+            CoreUtils.QUEUE_SPIN_MICROSECONDS :
+            TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("SITE_TASK_QUEUE_MAX_SPIN_MICROS", 20));
+    private static final long MIN_SPIN_NANOS = 1_000;
+
+    // How many times the consumer spins on a claimed but unpublished slot before
+    // it starts parking briefly to let the producer that claimed it run
+    private static final int PUBLISH_SPINS = 128;
+    private static final long PUBLISH_PARK_NANOS = 1_000;
+
+    // Queue depth statistics are updated once per this many single polls, or once per batch
+    static final int STATS_SAMPLE_INTERVAL = 16;
+
+    private static class OverflowTask {
+        final long m_position;
+        final SiteTasker m_task;
+        OverflowTask(long position, SiteTasker task) {
+            m_position = position;
+            m_task = task;
+        }
+    }
+
+    private final AtomicReferenceArray<SiteTasker> m_ring;
+    private final int m_mask;
+    private final int m_capacity;
+    // next slot to be claimed by a producer
+    private final AtomicLong m_tail = new AtomicLong();
+    // next slot to be consumed; only written by the consumer
+    private final AtomicLong m_head = new AtomicLong();
+    // tasks offered while the ring was full
+    private final Queue<OverflowTask> m_overflow = new ConcurrentLinkedQueue<>();
+
+    private volatile Thread m_consumer;
+    private volatile boolean m_consumerParked = false;
+    private long m_spinNanos = MAX_SPIN_NANOS / 2;
+    private int m_unsampledPolls = 0;
+    private final AtomicLong m_overflows = new AtomicLong();
+
     private StarvationTracker m_starvationTracker;
     private QueueDepthTracker m_queueDepthTracker;
     private int m_partitionId;
 
     public SiteTaskerQueue(int partitionId) {
+        this(partitionId, DEFAULT_CAPACITY);
+    }
+
+    public SiteTaskerQueue(int partitionId, int capacity) {
         m_partitionId = partitionId;
+        m_capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        m_mask = m_capacity - 1;
+        m_ring = new AtomicReferenceArray<>(m_capacity);
     }
 
     public int getPartitionId() {
@@ -42,30 +111,138 @@ public class SiteTaskerQueue
     public boolean offer(SiteTasker task)
     {
         task.setQueueOfferTime();
-        // update tracker before enqueue the task
-        // prevent another thread from polling a task and decrementing
-        // the queue depth before it is incremented
-        // i.e. avoid queueDepth < 0
-        m_queueDepthTracker.offerUpdate();
-        return m_tasks.offer(task);
+        long position;
+        for (;;) {
+            position = m_tail.get();
+            if (position - m_head.get() >= m_capacity) {
+                // The overflowed task goes after everything already claimed in the ring
+                // and before anything claimed later.
+                m_overflows.incrementAndGet();
+                m_overflow.offer(new OverflowTask(position, task));
+                break;
+            }
+            if (m_tail.compareAndSet(position, position + 1)) {
+                m_ring.set(slot(position), task);
+                break;
+            }
+        }
+        if (m_consumerParked) {
+            LockSupport.unpark(m_consumer);
+        }
+        return true;
+    }
+
+    private int slot(long position) {
+        return (int) (position & m_mask);
+    }
+
+    private void claimConsumer() {
+        final Thread current = Thread.currentThread();
+        if (m_consumer != current) {
+            m_consumer = current;
+        }
+    }
+
+    /*
+     * Consumer side poll without statistics. The caller must be the consumer thread.
+     */
+    private SiteTasker next() {
+        final long head = m_head.get();
+        if (!m_overflow.isEmpty() && m_overflow.peek().m_position <= head) {
+            return m_overflow.poll().m_task;
+        }
+        final int slot = slot(head);
+        SiteTasker task = m_ring.get(slot);
+        if (task == null) {
+            if (head == m_tail.get()) {
+                return null;
+            }
+            // A producer has claimed the slot but not published into it yet
+            int spins = 0;
+            while ((task = m_ring.get(slot)) == null) {
+                if (++spins > PUBLISH_SPINS) {
+                    // the producer was descheduled between claiming and publishing
+                    LockSupport.parkNanos(this, PUBLISH_PARK_NANOS);
+                }
+            }
+        }
+        m_ring.lazySet(slot, null);
+        m_head.lazySet(head + 1);
+        return task;
+    }
+
+    private void sampleStats(SiteTasker task, int count) {
+        m_unsampledPolls += count;
+        if (m_unsampledPolls >= STATS_SAMPLE_INTERVAL || count > 1) {
+            m_queueDepthTracker.pollUpdate(task.getQueueOfferTime(), m_unsampledPolls);
+            m_unsampledPolls = 0;
+        }
     }
 
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
+        claimConsumer();
+        SiteTasker task = next();
+        if (task == null) {
+            task = await();
+        }
+        sampleStats(task, 1);
+        return task;
+    }
 
+    /**
+     * Block until at least one task is available, then move as many tasks as are
+     * ready, up to the size of the array, into it.
+     * @return the number of tasks placed at the beginning of batch
+     */
+    public int takeBatch(SiteTasker[] batch) throws InterruptedException
+    {
+        claimConsumer();
+        SiteTasker task = next();
         if (task == null) {
-            m_starvationTracker.beginStarvation();
-        } else {
-            m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
-            return task;
+            task = await();
+        }
+        batch[0] = task;
+        int count = 1;
+        while (count < batch.length && (batch[count] = next()) != null) {
+            count++;
         }
+        sampleStats(task, count);
+        return count;
+    }
+
+    private SiteTasker await() throws InterruptedException
+    {
+        m_starvationTracker.beginStarvation();
         try {
-            task = CoreUtils.queueSpinTake(m_tasks);
-            // task is never null
-            m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
-            return task;
+            SiteTasker task;
+            final long spinStart = System.nanoTime();
+            while (System.nanoTime() - spinStart < m_spinNanos) {
+                if ((task = next()) != null) {
+                    // spinning paid off, be willing to spin a bit longer next time
+                    m_spinNanos = Math.min(MAX_SPIN_NANOS, m_spinNanos + (m_spinNanos >> 1) + MIN_SPIN_NANOS);
+                    return task;
+                }
+            }
+            m_spinNanos = Math.max(MIN_SPIN_NANOS, m_spinNanos >> 1);
+            for (;;) {
+                m_consumerParked = true;
+                try {
+                    // Recheck after advertising that we are about to park, a producer that
+                    // advanced the tail before seeing the flag won't unpark us.
+                    if ((task = next()) != null) {
+                        return task;
+                    }
+                    LockSupport.park(this);
+                }
+                finally {
+                    m_consumerParked = false;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
         } finally {
             m_starvationTracker.endStarvation();
         }
@@ -74,21 +251,45 @@ public class SiteTaskerQueue
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        SiteTasker task = m_tasks.poll();
+        claimConsumer();
+        SiteTasker task = next();
         if (task != null) {
-            m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
+            sampleStats(task, 1);
         }
         return task;
     }
 
-    // Non-blocking peek on the site tasker queue.
+    /**
+     * Move as many ready tasks as fit into batch without blocking.
+     * @return the number of tasks placed at the beginning of batch
+     */
+    public int drainTo(SiteTasker[] batch)
+    {
+        claimConsumer();
+        int count = 0;
+        while (count < batch.length && (batch[count] = next()) != null) {
+            count++;
+        }
+        if (count > 0) {
+            sampleStats(batch[0], count);
+        }
+        return count;
+    }
+
+    // Non-blocking peek on the site tasker queue. Safe to call from any thread,
+    // though the result is only a hint unless called by the consumer.
     public SiteTasker peek()
     {
-        return m_tasks.peek();
+        final long head = m_head.get();
+        OverflowTask overflow = m_overflow.peek();
+        if (overflow != null && overflow.m_position <= head) {
+            return overflow.m_task;
+        }
+        return m_ring.get(slot(head));
     }
 
     public boolean isEmpty() {
-        return m_tasks.isEmpty();
+        return m_tail.get() == m_head.get() && m_overflow.isEmpty();
     }
 
     public void setStarvationTracker(StarvationTracker tracker) {
@@ -96,11 +297,24 @@ public class SiteTaskerQueue
     }
 
     public QueueDepthTracker setupQueueDepthTracker(long siteId) {
-        m_queueDepthTracker = new QueueDepthTracker(siteId, m_tasks);
+        m_queueDepthTracker = new QueueDepthTracker(siteId, this);
         return m_queueDepthTracker;
     }
 
     public int size() {
-        return m_tasks.size();
+        // read head first so a concurrent poll can't make the result negative
+        final long head = m_head.get();
+        return (int) (m_tail.get() - head) + m_overflow.size();
+    }
+
+    public int getCapacity() {
+        return m_capacity;
+    }
+
+    /**
+     * @return the number of tasks which found the ring full and went to the overflow list
+     */
+    public long getOverflows() {
+        return m_overflows.get();
     }
 }
@@ -29,10 +29,12 @@ import org.voltdb.SiteProcedureConnection;
 import org.voltdb.VoltTable;
 import org.voltdb.client.BatchTimeoutOverrideType;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.rejoin.TaskLog;
 import org.voltdb.utils.LogKeys;
+import org.voltdb.utils.SampledTrace;
 import org.voltdb.utils.MiscUtils;
 import org.voltdb.utils.VoltTrace;
 
@@ -44,6 +46,8 @@ public class SpProcedureTask extends ProcedureTask
 {
     private static final boolean EXEC_TRACE_ENABLED;
     private static final boolean HOST_DEBUG_ENABLED;
+    private static final int SAMPLED_QUEUE_SP = SampledTrace.event("queuesp", "partition");
+    private static final int SAMPLED_RUN_SP = SampledTrace.event("runsptask", "partition");
     static {
         EXEC_TRACE_ENABLED = execLog.isTraceEnabled();
         HOST_DEBUG_ENABLED = hostLog.isDebugEnabled();
@@ -80,6 +84,9 @@ public class SpProcedureTask extends ProcedureTask
                                                        "txnId", TxnEgo.txnIdToString(getTxnId()),
                                                        "partition", Integer.toString(siteConnection.getCorrespondingPartitionId())));
         }
+        final int partitionId = siteConnection.getCorrespondingPartitionId();
+        SampledTrace.endAsync(VoltTrace.Category.SPI, SAMPLED_QUEUE_SP, getTxnId(), partitionId);
+        SampledTrace.begin(VoltTrace.Category.SPSITE, SAMPLED_RUN_SP, getTxnId(), partitionId);
 
         if (!m_txnState.isReadOnly()) {
             m_txnState.setBeginUndoToken(siteConnection.getLatestUndoToken());
@@ -87,6 +94,10 @@ public class SpProcedureTask extends ProcedureTask
 
         // cast up here .. ugly.
         SpTransactionState txnState = (SpTransactionState)m_txnState;
+        final StageTimes stageTimes = txnState.m_initiationMsg != null ? txnState.m_initiationMsg.getStageTimes() : null;
+        if (stageTimes != null) {
+            stageTimes.mark(StageTimes.Stage.QUEUE);
+        }
 
         InitiateResponseMessage response;
         int originalTimeout = siteConnection.getBatchTimeout();
@@ -112,6 +123,9 @@ public class SpProcedureTask extends ProcedureTask
         if (txnState.m_initiationMsg != null && !(txnState.m_initiationMsg.isForReplica())) {
             response.setExecutedOnPreviousLeader(true);
         }
+        if (stageTimes != null) {
+            stageTimes.mark(StageTimes.Stage.EXECUTE);
+        }
         m_initiator.deliver(response);
         if (EXEC_TRACE_ENABLED) {
             execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
@@ -122,6 +136,7 @@ public class SpProcedureTask extends ProcedureTask
         if (traceLog != null) {
             traceLog.add(VoltTrace::endDuration);
         }
+        SampledTrace.end(VoltTrace.Category.SPSITE, SAMPLED_RUN_SP, getTxnId(), partitionId);
 
         logToDR(siteConnection.getDRGateway(), txnState);
     }
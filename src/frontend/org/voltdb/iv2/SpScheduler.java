@@ -55,6 +55,7 @@ import org.voltdb.VoltDB;
 import org.voltdb.VoltDBInterface;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.exceptions.TransactionRestartException;
@@ -74,7 +75,9 @@ import org.voltdb.messaging.Iv2LogFaultMessage;
 import org.voltdb.messaging.MPBacklogFlushMessage;
 import org.voltdb.messaging.MultiPartitionParticipantMessage;
 import org.voltdb.messaging.RepairLogTruncationMessage;
+import org.voltdb.messaging.ReplicationBatchMessage;
 import org.voltdb.utils.MiscUtils;
+import org.voltdb.utils.SampledTrace;
 import org.voltdb.utils.VoltTrace;
 
 import com.google_voltpatches.common.collect.Sets;
@@ -88,6 +91,13 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     static final VoltLogger tmLog = new VoltLogger("TM");
     static final VoltLogger hostLog = new VoltLogger("HOST");
     private static final Object threadDumpLock = new Object();
+    private static final int SAMPLED_QUEUE_SP = SampledTrace.event("queuesp", "partition");
+    // Replicas acknowledge SP writes with the status and hashes of their response, without the results
+    static final boolean REPLICA_DIGEST_ACKS = Boolean.valueOf(System.getProperty("REPLICA_DIGEST_ACKS", "true"));
+    // Most tasks the leader replicates in one ReplicationBatchMessage, 1 to send them one by one
+    static final int REPLICATION_BATCH_SIZE = Integer.getInteger("REPLICATION_BATCH_SIZE", 64);
+    // Most acknowledgements a replica holds back while it runs the rest of a replicated batch
+    static final int REPLICA_ACK_BATCH_SIZE = Integer.getInteger("REPLICA_ACK_BATCH_SIZE", 8);
     static long txnIdForSiteThreadDump = 0;
     static class DuplicateCounterKey implements Comparable<DuplicateCounterKey> {
         private final long m_txnId;
@@ -192,6 +202,17 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
 
     private final boolean IS_KSAFE_CLUSTER;
 
+    // Messages waiting to go out together to m_batchDestinations, in order. Any other
+    // message sent meanwhile flushes them first, so the receivers see the same order.
+    private final List<VoltMessage> m_batchedMessages = new ArrayList<>();
+    private long[] m_batchDestinations = null;
+    // Nesting of the batches being delivered, the tasks replicated meanwhile are batched
+    private int m_deliveryBatchDepth = 0;
+    // Delivered batches whose tasks may not have run yet, their acknowledgements are batched
+    private int m_pendingAckBatches = 0;
+    // A task to send the truncation handle to the replicas is queued
+    private boolean m_truncationMsgScheduled = false;
+
     SpScheduler(int partitionId, SiteTaskerQueue taskQueue, SnapshotCompletionMonitor snapMonitor, boolean scoreboardEnabled)
     {
         super(partitionId, taskQueue);
@@ -213,6 +234,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     @Override
     public void setLeaderState(boolean isLeader)
     {
+        flushBatchedMessages();
         super.setLeaderState(isLeader);
         m_snapMonitor.addInterest(this);
         VoltDBInterface db = VoltDB.instance();
@@ -265,6 +287,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     " on " + CoreUtils.hsIdToString(m_mailbox.getHSId())
              + " from " + CoreUtils.hsIdCollectionToString(m_replicaHSIds));
         }
+        flushBatchedMessages();
         long[] replicasAdded = new long[0];
         if (m_replicaHSIds.size() > 0 && replicas.size() > m_replicaHSIds.size()) {
             // Remember the rejoin sites before update replicas set
@@ -288,7 +311,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             assert (duplicateCounter != null);
             duplicateCounter.addReplicas(replicasAdded);
             // Forward fragment message to new replica
-            m_mailbox.send(replicasAdded, duplicateCounter.getOpenMessage());
+            send(replicasAdded, duplicateCounter.getOpenMessage());
         }
 
         // Cleanup duplicate counters and collect DONE counters
@@ -331,7 +354,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     FragmentResponseMessage fresp = (FragmentResponseMessage)resp;
                     fresp.setExecutorSiteId(m_mailbox.getHSId());
                 }
-                m_mailbox.send(counter.m_destinationId, resp);
+                send(counter.m_destinationId, resp);
             }
             else {
                 hostLog.warn("TXN " + counter.getTxnId() + " lost all replicas and " +
@@ -375,7 +398,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 response.setResults(new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE,
                             new VoltTable[0],
                             ClientResponseImpl.IGNORED_TRANSACTION));
-                m_mailbox.send(response.getInitiatorHSId(), response);
+                send(response.getInitiatorHSId(), response);
             }
             m = m_replaySequencer.drain();
         }
@@ -411,7 +434,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     (TransactionInfoBaseMessage) message);
             if (dupe != null) {
                 // Duplicate initiate task message, send response
-                m_mailbox.send(dupe.getInitiatorHSId(), dupe);
+                send(dupe.getInitiatorHSId(), dupe);
             }
             else if (!m_replaySequencer.offer(sequenceWithUniqueId, (TransactionInfoBaseMessage) message)) {
                 canDeliver = true;
@@ -428,7 +451,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         new ClientResponseImpl(ClientResponseImpl.UNEXPECTED_FAILURE,
                                 new VoltTable[0], ClientResponseImpl.IGNORED_TRANSACTION);
                 response.setResults(clientResponse);
-                m_mailbox.send(response.getInitiatorHSId(), response);
+                send(response.getInitiatorHSId(), response);
             }
         }
         else {
@@ -573,6 +596,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     message.isForReplay());
 
             msg.setSpHandle(newSpHandle);
+            msg.setStageTimes(message.getStageTimes());
             logRepair(msg);
             // Also, if this is a vanilla single-part procedure, make the TXNID
             // be the SpHandle (for now)
@@ -615,7 +639,12 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 // K-safety cluster doesn't always mean partition has replicas,
                 // node failure may reduce the number of replicas for each partition
                 if (m_sendToHSIds.length > 0) {
-                    m_mailbox.send(m_sendToHSIds, replmsg);
+                    if (m_deliveryBatchDepth > 0 && REPLICATION_BATCH_SIZE > 1) {
+                        batchMessage(m_sendToHSIds, replmsg, REPLICATION_BATCH_SIZE);
+                    }
+                    else {
+                        send(m_sendToHSIds, replmsg);
+                    }
                 }
 
                 DuplicateCounter counter = new DuplicateCounter(
@@ -623,6 +652,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         msg.getTxnId(),
                         m_replicaHSIds,
                         replmsg);
+                counter.m_stageTimes = msg.getStageTimes();
 
                 safeAddToDuplicateCounterMap(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
             }
@@ -665,6 +695,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                                                     "hsId", CoreUtils.hsIdToString(m_mailbox.getHSId())));
         }
 
+        SampledTrace.beginAsync(VoltTrace.Category.SPI, SAMPLED_QUEUE_SP, msg.getTxnId(), m_partitionId);
+
         final String procedureName = msg.getStoredProcedureName();
         final SpProcedureTask task =
             new SpProcedureTask(m_mailbox, procedureName, m_pendingTasks, msg);
@@ -679,6 +711,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                                                     "partition", Integer.toString(m_partitionId)));
         }
 
+        if (msg.getStageTimes() != null) {
+            msg.getStageTimes().mark(StageTimes.Stage.SEQUENCE);
+        }
+
         //Durability future is always null for sync command logging
         //the transaction will be delivered again by the CL for execution once durable
         //Async command logging has to offer the task immediately with a Future for backpressure
@@ -746,7 +782,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             //to replica for repair
             Iv2InitiateTaskMessage replmsg =
                 new Iv2InitiateTaskMessage(m_mailbox.getHSId(), m_mailbox.getHSId(), message, true);
-            m_mailbox.send(com.google_voltpatches.common.primitives.Longs.toArray(needsRepair), replmsg);
+            send(com.google_voltpatches.common.primitives.Longs.toArray(needsRepair), replmsg);
         }
     }
 
@@ -784,7 +820,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (!needsRepair.isEmpty()) {
             FragmentTaskMessage replmsg =
                 new FragmentTaskMessage(m_mailbox.getHSId(), m_mailbox.getHSId(), message);
-            m_mailbox.send(com.google_voltpatches.common.primitives.Longs.toArray(needsRepair), replmsg);
+            send(com.google_voltpatches.common.primitives.Longs.toArray(needsRepair), replmsg);
         }
     }
 
@@ -793,7 +829,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     {
         //For mis-routed transactions, no update for truncation handle or duplicated counter
         if (message.isMisrouted()){
-            m_mailbox.send(message.getInitiatorHSId(), message);
+            send(message.getInitiatorHSId(), message);
             return;
         }
 
@@ -837,7 +873,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 m_duplicateCounters.remove(dcKey);
                 final TransactionState txn = m_outstandingTxns.get(message.getTxnId());
                 setRepairLogTruncationHandle(spHandle, (txn != null && txn.isLeaderMigrationInvolved()));
-                m_mailbox.send(counter.m_destinationId, counter.m_lastResponse);
+                if (counter.m_stageTimes != null) {
+                    counter.m_stageTimes.mark(StageTimes.Stage.REPLICATE);
+                }
+                send(counter.m_destinationId, counter.m_lastResponse);
             }
             else if (result == DuplicateCounter.MISMATCH) {
                 if (m_isLeader && m_sendToHSIds.length > 0) {
@@ -846,7 +885,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         sb.append(CoreUtils.getHostIdFromHSId(hsId) + ":" + CoreUtils.getSiteIdFromHSId(hsId)).append(" ");
                     }
                     hostLog.info("Send dump plan message to other replicas: " + sb.toString());
-                    m_mailbox.send(m_sendToHSIds, new DumpPlanThenExitMessage(counter.getStoredProcedureName()));
+                    send(m_sendToHSIds, new DumpPlanThenExitMessage(counter.getStoredProcedureName()));
                 }
                 RealVoltDB.printDiagnosticInformation(VoltDB.instance().getCatalogContext(),
                         counter.getStoredProcedureName(), m_procSet);
@@ -858,7 +897,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         sb.append(CoreUtils.getHostIdFromHSId(hsId) + ":" + CoreUtils.getSiteIdFromHSId(hsId)).append(" ");
                     }
                     hostLog.info("Send dump plan message to other replicas: " + sb.toString());
-                    m_mailbox.send(m_sendToHSIds, new DumpPlanThenExitMessage(counter.getStoredProcedureName()));
+                    send(m_sendToHSIds, new DumpPlanThenExitMessage(counter.getStoredProcedureName()));
                 }
                 RealVoltDB.printDiagnosticInformation(VoltDB.instance().getCatalogContext(),
                         counter.getStoredProcedureName(), m_procSet);
@@ -878,7 +917,20 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             //if the duplicate counter contains only the replica's HSIDs from failed hosts. That is, a response from a replica could get here
             //AFTER the transaction is completed. Such a response message should not be further propagated.
             if (m_mailbox.getHSId() != message.getInitiatorHSId()) {
-                m_mailbox.send(message.getInitiatorHSId(), message);
+                // The leader only compares the hashes of a replica's response and
+                // returns its own results, unless the leader is migrating.
+                if (REPLICA_DIGEST_ACKS && !m_isLeader && !message.isExecutedOnPreviousLeader()) {
+                    message.setDigestOnly();
+                }
+                if (message.getStageTimes() != null) {
+                    message.getStageTimes().mark(StageTimes.Stage.REPLICATE);
+                }
+                if (m_pendingAckBatches > 0 && message.isDigestOnly()) {
+                    batchMessage(new long[] { message.getInitiatorHSId() }, message, REPLICA_ACK_BATCH_SIZE);
+                }
+                else {
+                    send(message.getInitiatorHSId(), message);
+                }
             }
         }
 
@@ -1010,7 +1062,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 // K-safety cluster doesn't always mean partition has replicas,
                 // node failure may reduce the number of replicas for each partition.
                 if (m_sendToHSIds.length > 0) {
-                    m_mailbox.send(m_sendToHSIds,replmsg);
+                    send(m_sendToHSIds,replmsg);
                 }
                 DuplicateCounter counter;
                 /*
@@ -1202,7 +1254,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     private void handleFragmentResponseMessage(FragmentResponseMessage message)
     {
         if (isFragmentMisrouted(message)){
-            m_mailbox.send(message.getDestinationSiteId(), message);
+            send(message.getDestinationSiteId(), message);
             return;
         }
         final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.SPI);
@@ -1232,7 +1284,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 // MPI is tracking deps per partition HSID.  We need to make
                 // sure we write ours into the message getting sent to the MPI
                 resp.setExecutorSiteId(m_mailbox.getHSId());
-                m_mailbox.send(counter.m_destinationId, resp);
+                send(counter.m_destinationId, resp);
             }
             else if (result == DuplicateCounter.MISMATCH) {
                 VoltDB.crashGlobalVoltDB("HASH MISMATCH running multi-part procedure.", true, null);
@@ -1264,7 +1316,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             traceLog.add(() -> VoltTrace.endAsync("recvfragment", MiscUtils.hsIdPairTxnIdToString(m_mailbox.getHSId(), message.m_sourceHSId, message.getSpHandle(), message.getTxnId()),
                                                   "status", message.getStatusCode()));
         }
-        m_mailbox.send(message.getDestinationSiteId(), message);
+        send(message.getDestinationSiteId(), message);
     }
 
     private void handleCompleteTransactionMessage(CompleteTransactionMessage message)
@@ -1286,7 +1338,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             msg.setForReplica(true);
             msg.setRequireAck(true);
             if (m_sendToHSIds.length > 0 && !msg.isReadOnly()) {
-                m_mailbox.send(m_sendToHSIds, msg);
+                send(m_sendToHSIds, msg);
             }
         } else if(!m_isLeader) {
             setMaxSeenTxnId(msg.getSpHandle());
@@ -1386,7 +1438,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // These responses from replicas end here---do not send the message to itself
         // committed the transaction. avoid sending to itself from some stale message.
         if (!m_isLeader && msg.requireAck() && msg.getSPIHSId() != m_mailbox.getHSId()) {
-            m_mailbox.send(msg.getSPIHSId(), msg);
+            send(msg.getSPIHSId(), msg);
         }
     }
 
@@ -1443,7 +1495,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (m_isLeader) {
             builder.append("  replicas: ").append(CoreUtils.hsIdCollectionToString(m_replicaHSIds));
             if (m_sendToHSIds.length > 0) {
-                m_mailbox.send(m_sendToHSIds, new DumpMessage());
+                send(m_sendToHSIds, new DumpMessage());
             }
         }
         builder.append("\n  most recent SP handle: ").append(TxnEgo.txnIdToString(getCurrentTxnId()));
@@ -1485,7 +1537,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             if (m_sendToHSIds.length > 0) {
                 DummyTransactionTaskMessage replmsg = new DummyTransactionTaskMessage(m_mailbox.getHSId(), newSpHandle, uniqueId);
                 replmsg.setForReplica(true);
-                m_mailbox.send(m_sendToHSIds, replmsg);
+                send(m_sendToHSIds, replmsg);
 
                 DuplicateCounter counter = new DuplicateCounter(
                         HostMessenger.VALHALLA,
@@ -1521,7 +1573,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             // this will be on SPI without k-safety or replica only with k-safety
             setRepairLogTruncationHandle(spHandle, false);
             if (!m_isLeader) {
-                m_mailbox.send(message.getSPIHSId(), message);
+                send(message.getSPIHSId(), message);
             }
             return;
         }
@@ -1578,7 +1630,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             written = writeIv2ViableReplayEntryInternal(faultSpHandle);
             // Generate Iv2LogFault message and send it to replicas
             Iv2LogFaultMessage faultMsg = new Iv2LogFaultMessage(faultSpHandle, lastUniqueId);
-            m_mailbox.send(m_sendToHSIds, faultMsg);
+            send(m_sendToHSIds, faultMsg);
         }
         return written;
     }
@@ -1662,6 +1714,87 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         return m_maxScheduledTxnSpHandle;
     }
 
+    @Override
+    public void startBatch()
+    {
+        m_deliveryBatchDepth++;
+    }
+
+    @Override
+    public void endBatch()
+    {
+        if (--m_deliveryBatchDepth > 0) {
+            return;
+        }
+        // The tasks replicated for the batch go out together
+        flushBatchedMessages();
+        if (!m_isLeader && REPLICA_ACK_BATCH_SIZE > 1) {
+            // Acknowledge the tasks of the batch together, at the latest once they have run
+            m_pendingAckBatches++;
+            SiteTaskerRunnable r = new SiteTaskerRunnable() {
+                @Override
+                void run()
+                {
+                    synchronized (m_lock) {
+                        m_pendingAckBatches--;
+                        flushBatchedMessages();
+                    }
+                }
+            };
+            if (hostLog.isDebugEnabled()) {
+                r.taskInfo = "Replica acknowledgement flush";
+            }
+            // Safe on the delivery path, SiteTaskerQueue.offer() never blocks
+            m_tasks.offer(r);
+        }
+    }
+
+    /**
+     * Queue a message to be sent along with the next ones for the same destinations.
+     */
+    private void batchMessage(long[] destinations, VoltMessage message, int limit)
+    {
+        if (m_batchDestinations != null && !Arrays.equals(m_batchDestinations, destinations)) {
+            flushBatchedMessages();
+        }
+        message.m_sourceHSId = m_mailbox.getHSId();
+        m_batchDestinations = destinations;
+        m_batchedMessages.add(message);
+        if (m_batchedMessages.size() >= limit) {
+            flushBatchedMessages();
+        }
+    }
+
+    private void flushBatchedMessages()
+    {
+        if (m_batchedMessages.isEmpty()) {
+            return;
+        }
+        final long[] destinations = m_batchDestinations;
+        final VoltMessage message = m_batchedMessages.size() == 1 ? m_batchedMessages.get(0) :
+            new ReplicationBatchMessage(new ArrayList<>(m_batchedMessages));
+        m_batchedMessages.clear();
+        m_batchDestinations = null;
+        if (destinations.length == 1) {
+            m_mailbox.send(destinations[0], message);
+        }
+        else {
+            m_mailbox.send(destinations, message);
+        }
+    }
+
+    private void send(long destination, VoltMessage message)
+    {
+        flushBatchedMessages();
+        m_mailbox.send(destination, message);
+    }
+
+    private void send(long[] destinations, VoltMessage message)
+    {
+        flushBatchedMessages();
+        m_mailbox.send(destinations, message);
+    }
+
     private long getRepairLogTruncationHandleForReplicas()
     {
         m_lastSentTruncationHandle = m_repairLogTruncationHandle;
@@ -1679,7 +1812,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             // Because we still want to release the reads if no following writes will come to this replica.
             // Also advance the truncation point if this is not a leader but the response message is for leader.
             if (m_isLeader || isExecutedOnOldLeader) {
-                scheduleRepairLogTruncateMsg(m_repairLogTruncationHandle);
+                scheduleRepairLogTruncateMsg();
             }
         } else {
             // As far as I know, they are cases that will move truncation handle backwards.
@@ -1706,19 +1839,29 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
      * already advanced, so there is no need to send the message. This has the
      * benefit of sending more truncation messages when the throughput is low,
      * which makes the replicas see committed transactions faster.
+     *
+     * Only one such task is queued at a time. It sends the watermark the handle
+     * has reached when it runs, however many times it advanced meanwhile.
      */
-    private void scheduleRepairLogTruncateMsg(long newHandle)
+    private void scheduleRepairLogTruncateMsg()
     {
         // skip schedule jobs if no TxnCommitInterests need to be notified
         if (m_sendToHSIds.length == 0 && m_repairLog.hasNoTxnCommitInterests()) {
             return;
         }
+        // The queued task sends the handle as of when it runs, one is enough
+        if (m_truncationMsgScheduled) {
+            return;
+        }
+        m_truncationMsgScheduled = true;
 
         SiteTaskerRunnable r = new SiteTaskerRunnable() {
             @Override
             void run()
             {
                 synchronized (m_lock) {
+                    m_truncationMsgScheduled = false;
+                    final long newHandle = m_repairLogTruncationHandle;
                     if (m_lastSentTruncationHandle < newHandle) {
                         m_lastSentTruncationHandle = newHandle;
                         m_repairLog.notifyTxnCommitInterests(m_lastSentTruncationHandle);
@@ -1731,7 +1874,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                         // so that it can trigger the callbacks.
                         truncMsg.m_sourceHSId = m_mailbox.getHSId();
                         m_mailbox.deliver(truncMsg);
-                        m_mailbox.send(m_sendToHSIds, truncMsg);
+                        send(m_sendToHSIds, truncMsg);
                     }
                 }
             }
@@ -1822,7 +1965,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 if (tmLog.isDebugEnabled()) {
                     tmLog.debug(entry.getValue().getOpenMessage().getMessageInfo());
                 }
-                m_mailbox.send(replicasAdded, entry.getValue().getOpenMessage());
+                send(replicasAdded, entry.getValue().getOpenMessage());
             }
         }
         if (sentAny && tmLog.isDebugEnabled()) {
@@ -1839,7 +1982,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     @Override
     public void cleanupTransactionBacklogOnRepair() {
         if (m_isLeader && m_sendToHSIds.length > 0) {
-            m_mailbox.send(m_sendToHSIds, new MPBacklogFlushMessage());
+            send(m_sendToHSIds, new MPBacklogFlushMessage());
         }
         Iterator<Entry<Long, TransactionState>> iter = m_outstandingTxns.entrySet().iterator();
         while (iter.hasNext()) {
@@ -220,6 +220,13 @@ public class TransactionTaskQueue
              * it must from repair process, just let it through.
              */
             if (txnState.isSinglePartition() ){
+                // A replicated table read borrowed by the MPI can run beside the multi-part
+                // at the head if the MPI found the two don't conflict. The multi-parts
+                // behind the head are started by the MPI after it, and are checked too.
+                if (canRunBesideHead(txnState)) {
+                    taskQueueOffer(task);
+                    return;
+                }
                 m_backlog.addLast(task);
                 return;
             }
@@ -266,6 +273,12 @@ public class TransactionTaskQueue
         }
     }
 
+    private boolean canRunBesideHead(TransactionState txnState)
+    {
+        return txnState instanceof BorrowTransactionState &&
+               ((BorrowTransactionState)txnState).getOverlappedWriteTxnId() == m_backlog.getFirst().getTxnId();
+    }
+
     // Add a local method to offer to the SiteTaskerQueue so we have
     // a single point we can log through.
     private void taskQueueOffer(TransactionTask task)
@@ -449,13 +462,13 @@ public class TransactionTaskQueue
     }
 
     /**
-     * Restart the current task at the head of the queue.  This will be called
-     * instead of flush by the currently blocking MP transaction in the event a
-     * restart is necessary.
+     * Restart the given task, which is the current task at the head of the queue.
+     * This will be called instead of flush by the currently blocking MP transaction
+     * in the event a restart is necessary.
      */
-    synchronized void restart()
+    synchronized void restart(TransactionTask task)
     {
-        TransactionTask task = m_backlog.getFirst();
+        assert(m_backlog.getFirst().getTxnId() == task.getTxnId());
         if (task.needCoordination() && m_scoreboardEnabled) {
             coordinatedTaskQueueOffer(task);
         } else {
@@ -38,6 +38,7 @@ import org.voltdb.client.ClientStatsContext;
 import org.voltdb.client.NoConnectionsException;
 import org.voltdb.client.ProcCallException;
 import org.voltdb.client.ProcedureCallback;
+import org.voltdb.client.ResultStream;
 
 /**
  * Provides a high-level wrapper around the core {@link Client} class to provide performance
@@ -359,6 +360,69 @@ public class JDBC4ClientConnection implements Closeable {
         }
     }
 
+    /**
+     * Executes a procedure synchronously and returns a stream of its result, which the
+     * cluster sends in chunks of at most fetchSize rows as they are consumed.
+     *
+     * @param procedure
+     *            the name of the procedure to call.
+     * @param fetchSize
+     *            the maximum number of rows in a chunk.
+     * @param parameters
+     *            the list of parameters to pass to the procedure.
+     * @return the stream of the result table, which must be closed if it is not read to the end.
+     * @throws IOException
+     * @throws NoConnectionsException
+     * @throws ProcCallException
+     */
+    public ResultStream executeStreaming(String procedure, int fetchSize, long timeout, TimeUnit unit,
+            Object... parameters) throws NoConnectionsException, IOException, ProcCallException {
+        ClientImpl currentClient = this.getClient();
+        if (unit == null) {
+            unit = TimeUnit.SECONDS;
+        }
+        try {
+            return currentClient.callProcedureStreaming(fetchSize, procedure, timeout, unit, parameters);
+        }
+        catch (NoConnectionsException e) {
+            this.dropClient(currentClient);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a single DML or DQL statement by handle, preparing it on the first execution
+     * through this connection.
+     *
+     * @param sql
+     *            the SQL text of the statement.
+     * @param timeout
+     *            the timeout for the execution.
+     * @param unit
+     *            the timeout unit.
+     * @param parameters
+     *            the values of the '?' parameters of the statement.
+     * @return the response sent back by the VoltDB cluster for the statement execution.
+     * @throws IOException
+     * @throws NoConnectionsException
+     * @throws ProcCallException
+     */
+    public ClientResponse executePrepared(String sql, long timeout, TimeUnit unit, Object... parameters)
+            throws NoConnectionsException, IOException, ProcCallException {
+        ClientImpl currentClient = this.getClient();
+        if (unit == null) {
+            unit = TimeUnit.SECONDS;
+        }
+        try {
+            long handle = currentClient.prepareAdHoc(sql, parameters.length);
+            return currentClient.callPreparedWithClientTimeout(handle, sql, timeout, unit, parameters);
+        }
+        catch (NoConnectionsException e) {
+            this.dropClient(currentClient);
+            throw e;
+        }
+    }
+
     /**
      * Internal asynchronous callback used to track the execution performance of asynchronous calls.
      */
@@ -462,6 +526,64 @@ public class JDBC4ClientConnection implements Closeable {
         return future;
     }
 
+    /**
+     * Executes a procedure asynchronously with a timeout, then calls the provided callback with
+     * the server response upon completion.
+     *
+     * @param callback
+     *            the callback to call with the server response upon execution completion.
+     * @param timeout
+     *            the timeout for the execution.
+     * @param unit
+     *            the timeout unit.
+     * @param procedure
+     *            the name of the procedure to call.
+     * @param parameters
+     *            the list of parameters to pass to the procedure.
+     * @return the result of the submission false if the client connection was terminated and unable
+     *         to post the request to the server, true otherwise.
+     */
+    public boolean executeAsync(ProcedureCallback callback, long timeout, TimeUnit unit, String procedure,
+            Object... parameters) throws NoConnectionsException, IOException
+    {
+        ClientImpl currentClient = this.getClient();
+        if (unit == null) {
+            unit = TimeUnit.SECONDS;
+        }
+        try {
+            return currentClient.callProcedureWithClientTimeout(new TrackingCallback(this, procedure, callback),
+                    BatchTimeoutOverrideType.NO_TIMEOUT, procedure, timeout, unit, parameters);
+        }
+        catch (NoConnectionsException e) {
+            this.dropClient(currentClient);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a single DML or DQL statement by handle asynchronously, see
+     * {@link #executePrepared(String, long, TimeUnit, Object...)}.
+     *
+     * @return the result of the submission false if the client connection was terminated and unable
+     *         to post the request to the server, true otherwise.
+     */
+    public boolean executePreparedAsync(ProcedureCallback callback, String sql, long timeout, TimeUnit unit,
+            Object... parameters) throws NoConnectionsException, IOException, ProcCallException
+    {
+        ClientImpl currentClient = this.getClient();
+        if (unit == null) {
+            unit = TimeUnit.SECONDS;
+        }
+        try {
+            long handle = currentClient.prepareAdHoc(sql, parameters.length);
+            return currentClient.callPreparedWithClientTimeout(new TrackingCallback(this, "@AdHocPrepared", callback),
+                    handle, sql, timeout, unit, parameters);
+        }
+        catch (NoConnectionsException e) {
+            this.dropClient(currentClient);
+            throw e;
+        }
+    }
 
     /**
      * Gets the new version of the performance statistics for this connection only.
@@ -45,10 +45,16 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     public static final String COMMIT_THROW_EXCEPTION = "jdbc.committhrowexception";
     public static final String ROLLBACK_THROW_EXCEPTION = "jdbc.rollbackthrowexception";
     public static final String QUERYTIMEOUT_UNIT = "jdbc.querytimeout.unit";
+    // Maximum number of statements of an executeBatch() outstanding at once. Statements are submitted
+    // in order, but those outstanding together may run in any order on the server, and statements
+    // after a failed one may already have run. Set it to 1 to run them one at a time, in order.
+    public static final String BATCH_WINDOW = "jdbc.batchwindow";
+    static final int DEFAULT_BATCH_WINDOW = 16;
 
     protected final JDBC4ClientConnection NativeConnection;
     protected final String User;
     protected TimeUnit queryTimeOutUnit = TimeUnit.SECONDS;
+    protected int batchWindow = DEFAULT_BATCH_WINDOW;
     private boolean isClosed = false;
     private Properties props;
     private boolean autoCommit = true;
@@ -61,6 +67,12 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
         if (this.props.getProperty(JDBC4Connection.QUERYTIMEOUT_UNIT, "Seconds").equalsIgnoreCase("milliseconds")) {
             this.queryTimeOutUnit = TimeUnit.MILLISECONDS;
         }
+        try {
+            this.batchWindow = Math.max(1, Integer.parseInt(
+                    this.props.getProperty(BATCH_WINDOW, Integer.toString(DEFAULT_BATCH_WINDOW)).trim()));
+        } catch (NumberFormatException e) {
+            this.batchWindow = DEFAULT_BATCH_WINDOW;
+        }
     }
 
     private void checkClosed() throws SQLException
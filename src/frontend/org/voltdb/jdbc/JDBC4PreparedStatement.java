@@ -48,7 +48,7 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
     JDBC4PreparedStatement(JDBC4Connection connection, String sql) throws SQLException
     {
         super(connection);
-        VoltSQL query = VoltSQL.parseSQL(sql);
+        VoltSQL query = VoltSQL.parseSQL(sql, true);
         this.Query = query;
         this.parameters = this.Query.getParameterArray();
         this.parameterMetaData = new JDBC4ParameterMetaData(this, this.Query.getParameterCount()); // to be replaced with actual param count (!)
@@ -67,7 +67,7 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
         }
         else
         {
-            query = VoltSQL.parseSQL(sql);
+            query = VoltSQL.parseSQL(sql, true);
         }
         this.Query = query;
         this.parameters = this.Query.getParameterArray();
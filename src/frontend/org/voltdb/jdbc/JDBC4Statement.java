@@ -28,13 +28,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.client.ResultStream;
 import org.voltdb.parser.JDBCParser;
 import org.voltdb.parser.SQLLexer;
 import org.voltdb.parser.JDBCParser.ParsedCall;
@@ -55,13 +59,22 @@ public class JDBC4Statement implements java.sql.Statement
         private final byte type;
         private final byte queryType;   // Type of query EXEC'd by @AdHoc
         private final Object[] parameters;
+        // A single DML or DQL statement, executed by handle with @AdHocPrepared
+        // once it is bound to its parameters
+        private final boolean prepared;
 
         private VoltSQL(String[] sql, int parameterCount, byte type)
+        {
+            this(sql, parameterCount, type, false);
+        }
+
+        private VoltSQL(String[] sql, int parameterCount, byte type, boolean prepared)
         {
             this.sql = sql;
             this.parameterCount = parameterCount;
             this.type = this.queryType = type;
             this.parameters = null;
+            this.prepared = prepared;
         }
 
         private VoltSQL(String[] sql, int parameterCount, byte type, Object[] parameters)
@@ -70,12 +83,18 @@ public class JDBC4Statement implements java.sql.Statement
         }
 
         private VoltSQL(String[] sql, int parameterCount, byte type, byte queryType, Object[] parameters)
+        {
+            this(sql, parameterCount, type, queryType, parameters, false);
+        }
+
+        private VoltSQL(String[] sql, int parameterCount, byte type, byte queryType, Object[] parameters, boolean prepared)
         {
             this.sql = sql;
             this.parameterCount = parameterCount;
             this.type = type;
             this.queryType = queryType;
             this.parameters = parameters;
+            this.prepared = prepared;
         }
 
         public boolean hasParameters()
@@ -116,7 +135,9 @@ public class JDBC4Statement implements java.sql.Statement
         protected VoltTable[] execute(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit) throws SQLException {
             try
             {
-                if (this.type == TYPE_EXEC) {
+                if (this.type == TYPE_EXEC && this.prepared) {
+                    return connection.executePrepared(this.sql[0], timeout, queryTimeOutUnit, this.parameters).getResults();
+                } else if (this.type == TYPE_EXEC) {
                     return connection.execute(this.sql[0], timeout, queryTimeOutUnit, this.parameters).getResults();
                 } else {
                     return connection.execute("@AdHoc", timeout, queryTimeOutUnit, this.sql[0]).getResults();
@@ -124,34 +145,92 @@ public class JDBC4Statement implements java.sql.Statement
             }
             catch(ProcCallException e)
             {
-                ClientResponse response = e.getClientResponse();
-                if (response != null) {
-                    // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
-                    // for connection problems.
-                    switch (response.getStatus()) {
-                    case ClientResponse.CONNECTION_LOST:
-                        throw SQLError.get(e, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", e.getMessage());
-                    case ClientResponse.CONNECTION_TIMEOUT:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", e.getMessage());
-                    case ClientResponse.SERVER_UNAVAILABLE:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", e.getMessage());
-                    case ClientResponse.USER_ABORT:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "USER_ABORT", e.getMessage());
-                    case ClientResponse.UNEXPECTED_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
-                    case ClientResponse.GRACEFUL_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
-                    default:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
-                    }
+                throw toSQLException(e, e.getClientResponse(), e.getMessage());
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        // Executes a query whose result is sent in chunks of at most fetchSize rows as they are read.
+        protected ResultStream executeStreaming(JDBC4ClientConnection connection, int fetchSize, long timeout,
+                TimeUnit queryTimeOutUnit) throws SQLException {
+            try
+            {
+                if (this.type == TYPE_EXEC && this.prepared) {
+                    // Streaming is not offered by handle, send the statement text to @AdHoc
+                    Object[] args = new Object[this.parameters.length + 1];
+                    args[0] = this.sql[0];
+                    System.arraycopy(this.parameters, 0, args, 1, this.parameters.length);
+                    return connection.executeStreaming("@AdHoc", fetchSize, timeout, queryTimeOutUnit, args);
+                } else if (this.type == TYPE_EXEC) {
+                    return connection.executeStreaming(this.sql[0], fetchSize, timeout, queryTimeOutUnit, this.parameters);
+                } else {
+                    return connection.executeStreaming("@AdHoc", fetchSize, timeout, queryTimeOutUnit, this.sql[0]);
+                }
+            }
+            catch(ProcCallException e)
+            {
+                throw toSQLException(e, e.getClientResponse(), e.getMessage());
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        // Submits the statement without waiting for its response, which is passed to the callback.
+        protected void executeAsync(JDBC4ClientConnection connection, long timeout, TimeUnit queryTimeOutUnit,
+                ProcedureCallback callback) throws SQLException {
+            boolean queued;
+            try
+            {
+                if (this.type == TYPE_EXEC && this.prepared) {
+                    queued = connection.executePreparedAsync(callback, this.sql[0], timeout, queryTimeOutUnit, this.parameters);
+                } else if (this.type == TYPE_EXEC) {
+                    queued = connection.executeAsync(callback, timeout, queryTimeOutUnit, this.sql[0], this.parameters);
                 } else {
-                    throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+                    queued = connection.executeAsync(callback, timeout, queryTimeOutUnit, "@AdHoc", this.sql[0]);
                 }
             }
+            catch(ProcCallException e)
+            {
+                throw toSQLException(e, e.getClientResponse(), e.getMessage());
+            }
             catch(IOException e)
             {
                 throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
             }
+            if (!queued) {
+                throw SQLError.get(SQLError.CONNECTION_FAILURE, "Unable to queue the statement");
+            }
+        }
+
+        static SQLException toSQLException(Throwable cause, ClientResponse response, String message)
+        {
+            if (response != null) {
+                // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
+                // for connection problems.
+                switch (response.getStatus()) {
+                case ClientResponse.CONNECTION_LOST:
+                    return SQLError.get(cause, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", message);
+                case ClientResponse.CONNECTION_TIMEOUT:
+                    return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", message);
+                case ClientResponse.SERVER_UNAVAILABLE:
+                    return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", message);
+                case ClientResponse.USER_ABORT:
+                    return SQLError.get(cause, SQLError.GENERAL_ERROR, "USER_ABORT", message);
+                case ClientResponse.UNEXPECTED_FAILURE:
+                    return SQLError.get(cause, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", message);
+                case ClientResponse.GRACEFUL_FAILURE:
+                    return SQLError.get(cause, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", message);
+                default:
+                    return SQLError.get(cause, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), message);
+                }
+            } else {
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, message);
+            }
         }
 
         public static boolean isUpdateResult(VoltTable table)
@@ -172,6 +251,8 @@ public class JDBC4Statement implements java.sql.Statement
 
             if (this.type == TYPE_EXEC) {
                 return new VoltSQL(this.sql, this.parameterCount, this.type, params);
+            } else if (this.prepared) {
+                return new VoltSQL(this.sql, this.parameterCount, TYPE_EXEC, this.type, params, true);
             } else
             {
                 Object[] paramsOut = new Object[params.length+1];
@@ -194,6 +275,15 @@ public class JDBC4Statement implements java.sql.Statement
         }
 
         public static VoltSQL parseSQL(String queryIn) throws SQLException
+        {
+            return parseSQL(queryIn, false);
+        }
+
+        /**
+         * @param prepare  true for the SQL of a PreparedStatement, which is planned once on the server
+         *                 and then executed by handle if it is a single statement other than DDL
+         */
+        public static VoltSQL parseSQL(String queryIn, boolean prepare) throws SQLException
         {
             if (queryIn == null || queryIn.length() == 0) {
                 throw SQLError.get(SQLError.ILLEGAL_STATEMENT);
@@ -223,7 +313,13 @@ public class JDBC4Statement implements java.sql.Statement
                 parameterCount = queryParts.length-1;
             }
 
-            return new VoltSQL(new String[] {query}, parameterCount, type);
+            boolean prepared = false;
+            if (prepare) {
+                List<String> statements = SQLLexer.splitStatements(query).getCompletelyParsedStmts();
+                prepared = statements.size() == 1 && SQLLexer.extractDDLToken(statements.get(0)) == null;
+            }
+
+            return new VoltSQL(new String[] {query}, parameterCount, type, prepared);
         }
     }
 
@@ -421,40 +517,97 @@ public class JDBC4Statement implements java.sql.Statement
             return new int[0];
         }
 
-        int[] updateCounts = new int[batch.size()];
-        // keep a running total of update counts
-        int runningUpdateCount = 0;
+        final int[] updateCounts = new int[batch.size()];
+        final SQLException[] errors = new SQLException[batch.size()];
+        // Entries are submitted in order with at most batchWindow of them outstanding, which may
+        // complete in any order. A window of 1 waits for each entry to complete before the next
+        // one is submitted.
+        final int window = sourceConnection.batchWindow;
+        final Semaphore permits = new Semaphore(window);
 
-        int i = 0;
+        int submitted = 0;
         try {
-            for (; i < batch.size(); i++) {
-
-                setCurrentResult(
-                        null,
-                        (int) batch.get(i).execute(
-                                sourceConnection.NativeConnection,
-                                this.m_timeout,
-                                sourceConnection.queryTimeOutUnit)[0].fetchRow(
-                                0).getLong(0));
-                updateCounts[i] = this.lastUpdateCount;
-                runningUpdateCount += this.lastUpdateCount;
+            for (; submitted < batch.size(); submitted++) {
+                permits.acquireUninterruptibly();
+                // Stop submitting once an entry has failed, like a sequential batch would
+                if (firstError(errors, submitted) >= 0) {
+                    permits.release();
+                    break;
+                }
+                final int index = submitted;
+                try {
+                    batch.get(index).executeAsync(
+                            sourceConnection.NativeConnection,
+                            this.m_timeout,
+                            sourceConnection.queryTimeOutUnit,
+                            new ProcedureCallback() {
+                                @Override
+                                public void clientCallback(ClientResponse response) {
+                                    try {
+                                        if (response.getStatus() == ClientResponse.SUCCESS) {
+                                            updateCounts[index] = (int) response.getResults()[0].fetchRow(0).getLong(0);
+                                        } else {
+                                            errors[index] = VoltSQL.toSQLException(null, response, response.getStatusString());
+                                        }
+                                    } catch (RuntimeException e) {
+                                        errors[index] = SQLError.get(e);
+                                    } finally {
+                                        permits.release();
+                                    }
+                                }
+                            });
+                } catch (SQLException x) {
+                    errors[index] = x;
+                    permits.release();
+                }
             }
-        } catch (SQLException x) {
-            updateCounts[i] = EXECUTE_FAILED;
-            throw new BatchUpdateException(Arrays.copyOf(updateCounts, i + 1),
-                    x);
+            // Wait for the outstanding entries, the semaphore orders the writes of the callbacks
+            // before the reads below
+            permits.acquireUninterruptibly(window);
         } finally {
             clearBatch();
         }
-        // replace the update count from the last statement with the update count
-        // from the last batch.
+
+        int failed = firstError(errors, submitted);
+        if (failed >= 0) {
+            for (int i = 0; i < submitted; i++) {
+                if (errors[i] != null) {
+                    updateCounts[i] = EXECUTE_FAILED;
+                }
+            }
+            throw new BatchUpdateException(Arrays.copyOf(updateCounts, submitted), errors[failed]);
+        }
+        // keep a running total of update counts, which replaces the update count from the
+        // last statement
+        int runningUpdateCount = 0;
+        for (int updateCount : updateCounts) {
+            runningUpdateCount += updateCount;
+        }
         this.lastUpdateCount = runningUpdateCount;
 
         return updateCounts;
     }
 
+    private static int firstError(SQLException[] errors, int count)
+    {
+        for (int i = 0; i < count; i++) {
+            if (errors[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     protected ResultSet executeQuery(VoltSQL query) throws SQLException
     {
+        if (this.fetchSize > 0) {
+            // Rows are read from the cluster as the result set advances
+            setCurrentResult(null, -1);
+            ResultStream stream = query.executeStreaming(this.sourceConnection.NativeConnection, this.fetchSize,
+                    this.m_timeout, this.sourceConnection.queryTimeOutUnit);
+            this.result = new JDBC4StreamingResultSet(this, stream, this.maxRows);
+            return this.result;
+        }
         setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout, this.sourceConnection.queryTimeOutUnit), -1);
         return this.result;
     }
@@ -708,6 +861,8 @@ public class JDBC4Statement implements java.sql.Statement
     }
 
     // Gives the JDBC driver a hint as to the number of rows that should be fetched from the database when more rows are needed for ResultSet objects genrated by this Statement.
+    // A positive fetch size makes queries return forward only result sets, whose rows are sent by the cluster in chunks of that size as they are read.
+    // The cluster still builds the whole result first. While such a result set is not read, responses to other statements on the same connection wait.
     @Override
     public void setFetchSize(int rows) throws SQLException
     {
@@ -0,0 +1,221 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jdbc;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.voltdb.VoltTable;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ResultStream;
+
+// A forward only ResultSet over a result the cluster sends in chunks, see Statement.setFetchSize.
+// The 'table' of the base class is the current chunk, which is replaced by the next one when
+// the cursor moves past its last row. Only the current chunk and at most one read ahead are
+// held, so the cursor cannot move back. The cluster still builds the whole result before sending
+// it, so the limit on the size of a result applies as without a fetch size.
+
+public class JDBC4StreamingResultSet extends JDBC4ResultSet {
+    private final ResultStream stream;
+    private final int maxRows;
+    // Next chunk, read ahead by isLast
+    private VoltTable nextTable = null;
+    // Rows in the chunks before the current one
+    private int rowsBefore = 0;
+    private boolean started = false;
+    private boolean ended = false;
+
+    public JDBC4StreamingResultSet(Statement sourceStatement, ResultStream stream, int maxRows)
+            throws SQLException {
+        super(sourceStatement, firstChunk(stream));
+        this.stream = stream;
+        this.maxRows = maxRows;
+    }
+
+    private static VoltTable firstChunk(ResultStream stream) throws SQLException {
+        VoltTable chunk = readChunk(stream);
+        if (chunk == null) {
+            stream.close();
+            throw SQLError.get(SQLError.INVALID_QUERY_TYPE);
+        }
+        return chunk;
+    }
+
+    private static VoltTable readChunk(ResultStream stream) throws SQLException {
+        try {
+            return stream.nextChunk();
+        } catch (ProcCallException e) {
+            throw JDBC4Statement.VoltSQL.toSQLException(e, e.getClientResponse(), e.getMessage());
+        } catch (IOException e) {
+            throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+        }
+    }
+
+    // Next chunk with rows, or null at the end of the result.
+    private VoltTable nextNonEmptyChunk() throws SQLException {
+        VoltTable chunk = nextTable;
+        nextTable = null;
+        while (chunk == null || chunk.getRowCount() == 0) {
+            chunk = readChunk(stream);
+            if (chunk == null) {
+                return null;
+            }
+        }
+        return chunk;
+    }
+
+    private boolean atMaxRows() {
+        return maxRows > 0 && rowsBefore + table.getActiveRowIndex() + 1 >= maxRows;
+    }
+
+    private void end() {
+        ended = true;
+        nextTable = null;
+        stream.close();
+    }
+
+    private SQLException forwardOnly(String method) {
+        return SQLError.get(SQLError.ILLEGAL_STATEMENT, method + " on a forward only result set");
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        checkClosed();
+        throw forwardOnly("absolute");
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        checkClosed();
+        throw forwardOnly("afterLast");
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        checkClosed();
+        throw forwardOnly("beforeFirst");
+    }
+
+    // Releases the rows not read yet, the cluster stops sending them.
+    @Override
+    public void close() throws SQLException {
+        if (!isClosed()) {
+            end();
+        }
+        super.close();
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        checkClosed();
+        throw forwardOnly("first");
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        checkClosed();
+        if (!started || ended) {
+            return 0;
+        }
+        return rowsBefore + table.getActiveRowIndex() + 1;
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        checkClosed();
+        return started && ended;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        checkClosed();
+        return !started && !ended;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        checkClosed();
+        return started && !ended && rowsBefore == 0 && table.getActiveRowIndex() == 0;
+    }
+
+    // May wait for the next chunk to tell whether there is one.
+    @Override
+    public boolean isLast() throws SQLException {
+        checkClosed();
+        if (!started || ended) {
+            return false;
+        }
+        if (atMaxRows()) {
+            return true;
+        }
+        if (table.getActiveRowIndex() < table.getRowCount() - 1) {
+            return false;
+        }
+        nextTable = nextNonEmptyChunk();
+        return nextTable == null;
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        checkClosed();
+        throw forwardOnly("last");
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        checkClosed();
+        if (ended) {
+            return false;
+        }
+        if (started && atMaxRows()) {
+            end();
+            return false;
+        }
+        if (table.getActiveRowIndex() < table.getRowCount() - 1) {
+            started = true;
+            return table.advanceRow();
+        }
+        VoltTable chunk = nextNonEmptyChunk();
+        if (chunk == null) {
+            end();
+            return false;
+        }
+        rowsBefore += table.getRowCount();
+        table = chunk;
+        started = true;
+        return table.advanceRow();
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        checkClosed();
+        throw forwardOnly("previous");
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        checkClosed();
+        throw forwardOnly("relative");
+    }
+}
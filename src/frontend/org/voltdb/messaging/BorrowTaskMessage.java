@@ -45,6 +45,8 @@ public class BorrowTaskMessage extends TransactionInfoBaseMessage
 
     Map<Integer, List<VoltTable>> m_inputDeps = null;
     FragmentTaskMessage m_fragTask;
+    // The MP write the MPI found this read can run beside, if any
+    long m_overlappedWriteTxnId = Long.MIN_VALUE;
 
     /** Empty constructor for de-serialization */
     BorrowTaskMessage() {
@@ -81,6 +83,20 @@ public class BorrowTaskMessage extends TransactionInfoBaseMessage
         return m_inputDeps;
     }
 
+    public void setOverlappedWriteTxnId(long txnId)
+    {
+        m_overlappedWriteTxnId = txnId;
+    }
+
+    /**
+     * @return the txnId of the MP write this borrowed read may run beside,
+     * or Long.MIN_VALUE if it must wait for the MP transaction in progress
+     */
+    public long getOverlappedWriteTxnId()
+    {
+        return m_overlappedWriteTxnId;
+    }
+
     @Override
     public int getSerializedSize()
     {
@@ -29,6 +29,7 @@ import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.TheHashinator;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.iv2.DeterminismHash;
 import org.voltdb.iv2.TxnEgo;
 
@@ -59,10 +60,14 @@ public class InitiateResponseMessage extends VoltMessage {
     //when the site was leader partition
     boolean m_executedOnPreviousLeader = false;
     int m_hashMismatchPos = -1;
+    // A replica's acknowledgement, with the status and hashes of its response but no result tables
+    private boolean m_digestOnly = false;
 
 
     // No need to serialize it
     public boolean m_isFromNonRestartableSysproc = false;
+    // Not serialized, only set on the initiating host
+    private StageTimes m_stageTimes;
 
     /** Empty constructor for de-serialization */
     public InitiateResponseMessage()
@@ -106,6 +111,7 @@ public class InitiateResponseMessage extends VoltMessage {
         m_clientInterfaceHandle = task.getClientInterfaceHandle();
         m_connectionId = task.getConnectionId();
         m_readOnly = task.isReadOnly();
+        m_stageTimes = task.getStageTimes();
     }
 
     /**
@@ -199,6 +205,10 @@ public class InitiateResponseMessage extends VoltMessage {
         return m_currentHashinatorConfig;
     }
 
+    public StageTimes getStageTimes() {
+        return m_stageTimes;
+    }
+
     public void setMispartitioned(boolean mispartitioned, StoredProcedureInvocation invocation,
                                   Pair<Long, byte[]> currentHashinatorConfig) {
         m_mispartitioned = mispartitioned;
@@ -224,6 +234,28 @@ public class InitiateResponseMessage extends VoltMessage {
         m_response = r;
     }
 
+    /**
+     * Drop the result tables, keeping the status and the determinism hashes
+     * the leader compares. Only for the response of a replica to its leader,
+     * which answers the client with its own results.
+     */
+    public void setDigestOnly() {
+        if (m_response == null || m_mispartitioned || isMisrouted() || m_response.getResults().length == 0) {
+            return;
+        }
+        ClientResponseImpl digest = new ClientResponseImpl(m_response.getStatus(),
+                m_response.getAppStatus(), m_response.getAppStatusString(),
+                new VoltTable[0], m_response.getStatusString(), m_response.getClientHandle());
+        digest.setHashes(m_response.getHashes());
+        digest.setClusterRoundtrip(m_response.getClusterRoundtrip());
+        m_response = digest;
+        m_digestOnly = true;
+    }
+
+    public boolean isDigestOnly() {
+        return m_digestOnly;
+    }
+
     public void setMismatchPos(int pos) {
         m_hashMismatchPos = pos;
     }
@@ -256,6 +288,7 @@ public class InitiateResponseMessage extends VoltMessage {
             + 1 // mispartitioned invocation
             + 1 // for m_executedOnPreviousLeader
             + 1 // MP fragment was sent to SPIs (used for repair log truncation)
+            + 1 // digest only
             + m_response.getSerializedSize();
 
         if (m_mispartitioned || isMisrouted()) {
@@ -283,6 +316,7 @@ public class InitiateResponseMessage extends VoltMessage {
         buf.put((byte) (m_mispartitioned == true ? 1 : 0));
         buf.put((byte) (m_executedOnPreviousLeader == true ? 1 : 0));
         buf.put((byte) (m_mpFragmentSent  == true ? 1 : 0));
+        buf.put((byte) (m_digestOnly == true ? 1 : 0));
         m_response.flattenToBuffer(buf);
         if (m_mispartitioned || isMisrouted()) {
             buf.putLong(m_currentHashinatorConfig.getFirst());
@@ -308,6 +342,7 @@ public class InitiateResponseMessage extends VoltMessage {
         m_mispartitioned = buf.get() == 1;
         m_executedOnPreviousLeader = buf.get() == 1;
         m_mpFragmentSent = buf.get() == 1;
+        m_digestOnly = buf.get() == 1;
         m_response = new ClientResponseImpl();
         m_response.initFromBuffer(buf);
         m_commit = (m_response.getStatus() == ClientResponseImpl.SUCCESS);
@@ -336,6 +371,8 @@ public class InitiateResponseMessage extends VoltMessage {
         sb.append("\n READ-ONLY: ").append(m_readOnly);
         sb.append("\n RECOVERING: ").append(m_recovering);
         sb.append("\n MISPARTITIONED: ").append(m_mispartitioned);
+        if (m_digestOnly)
+            sb.append("\n DIGEST ONLY");
         if (m_commit)
             sb.append("\n  COMMIT");
         else
@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.dtxn.StageTimes;
 import org.voltdb.iv2.TxnEgo;
 import org.voltdb.iv2.UniqueIdGenerator;
 import org.voltdb.sysprocs.AdHocBase;
@@ -55,6 +56,8 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
 
     // not serialized.
     AtomicBoolean m_isDurable;
+    // not serialized, only set on the initiating host
+    StageTimes m_stageTimes;
 
     /** Empty constructor for de-serialization */
     public Iv2InitiateTaskMessage() {
@@ -211,6 +214,14 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         return m_connectionId;
     }
 
+    public StageTimes getStageTimes() {
+        return m_stageTimes;
+    }
+
+    public void setStageTimes(StageTimes stageTimes) {
+        m_stageTimes = stageTimes;
+    }
+
     public int[] getNParitionIds() {
         return m_nPartitions;
     }
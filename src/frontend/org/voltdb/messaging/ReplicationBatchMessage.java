@@ -0,0 +1,107 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.CoreUtils;
+
+/**
+ * A sequence of messages between a partition leader and one of its replicas,
+ * sent as one. The leader batches the tasks it replicates, the replica the
+ * acknowledgements of the tasks it ran. The client interface also uses it to
+ * hand a local leader the initiations of one network read. The receiving
+ * mailbox delivers them in order, like the separate messages.
+ */
+public class ReplicationBatchMessage extends VoltMessage {
+
+    private static final VoltDbMessageFactory s_factory = new VoltDbMessageFactory();
+
+    private List<VoltMessage> m_messages;
+
+    /** Empty constructor for de-serialization */
+    public ReplicationBatchMessage() {
+        super();
+    }
+
+    public ReplicationBatchMessage(List<VoltMessage> messages) {
+        super();
+        m_messages = messages;
+    }
+
+    public List<VoltMessage> getMessages() {
+        return m_messages;
+    }
+
+    @Override
+    public int getSerializedSize()
+    {
+        int msgsize = super.getSerializedSize();
+        msgsize += 4; // message count
+        for (VoltMessage message : m_messages) {
+            msgsize += 4 + message.getSerializedSize();
+        }
+        return msgsize;
+    }
+
+    @Override
+    public void flattenToBuffer(ByteBuffer buf) throws IOException
+    {
+        buf.put(VoltDbMessageFactory.REPLICATION_BATCH_ID);
+        buf.putInt(m_messages.size());
+        for (VoltMessage message : m_messages) {
+            final int size = message.getSerializedSize();
+            buf.putInt(size);
+            // Each message checks that it fills its buffer exactly
+            ByteBuffer slice = buf.slice();
+            slice.limit(size);
+            message.flattenToBuffer(slice.slice());
+            buf.position(buf.position() + size);
+        }
+        assert(buf.capacity() == buf.position());
+        buf.limit(buf.position());
+    }
+
+    @Override
+    protected void initFromBuffer(ByteBuffer buf) throws IOException
+    {
+        final int count = buf.getInt();
+        m_messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int size = buf.getInt();
+            ByteBuffer slice = buf.slice();
+            slice.limit(size);
+            m_messages.add(s_factory.createMessageFromBuffer(slice.slice(), m_sourceHSId));
+            buf.position(buf.position() + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("REPLICATION_BATCH (FROM ")
+          .append(CoreUtils.hsIdToString(m_sourceHSId))
+          .append(") OF ").append(m_messages == null ? 0 : m_messages.size()).append(" MESSAGES");
+        return sb.toString();
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.voltdb.planner;
 
+import org.voltdb.compiler.DatabaseEstimates;
+
 /**
  * Abstract base class for the code that computes plan cost given
  * a set of statistics for a plan.
@@ -32,4 +34,16 @@ public abstract class AbstractCostModel {
      * @return The computed cost of the plan.
      */
     public abstract double getPlanCost(PlanStatistics stats);
+
+    /**
+     * @return the cost model to use with the given estimates: one that takes the
+     * size of intermediate results into account when statistics have been
+     * collected by @AnalyzeTable, otherwise the trivial one.
+     */
+    public static AbstractCostModel forEstimates(DatabaseEstimates estimates) {
+        if (estimates.hasStatistics()) {
+            return new StatisticsCostModel();
+        }
+        return new TrivialCostModel();
+    }
 }
@@ -18,6 +18,7 @@
 package org.voltdb.planner;
 
 import java.io.File;
+import java.util.Collection;
 
 import org.hsqldb_voltpatches.VoltXMLElement;
 import org.json_voltpatches.JSONException;
@@ -103,6 +104,20 @@ public class PlanSelector implements Cloneable {
                 m_costModel, m_paramHints, m_detMode, m_quietPlanner);
     }
 
+    /**
+     * @return a new instance for a statement which refers to the named tables. It
+     * plans without statistics, using the cost model for no statistics, unless one
+     * of the tables has been analyzed.
+     */
+    public PlanSelector forTables(Collection<String> tableNames) {
+        DatabaseEstimates estimates = m_estimates.forTables(tableNames);
+        if (estimates == m_estimates) {
+            return (PlanSelector) clone();
+        }
+        return new PlanSelector(estimates, m_stmtName, m_procName, m_sql,
+                AbstractCostModel.forEstimates(estimates), m_paramHints, m_detMode, m_quietPlanner);
+    }
+
     /**
      * @param parsedStmt
      */
@@ -367,6 +367,20 @@ public class QueryPlanner implements AutoCloseable {
         return m_hasExceptionWhenParameterized;
     }
 
+    /**
+     * Collect the names of the tables the statement refers to, including those of its
+     * subqueries, from the "table" attributes of its elements.
+     */
+    private static void collectTableNames(VoltXMLElement xmlSQL, Set<String> tableNames) {
+        String tableName = xmlSQL.attributes.get("table");
+        if (tableName != null) {
+            tableNames.add(tableName);
+        }
+        for (VoltXMLElement child : xmlSQL.children) {
+            collectTableNames(child, tableNames);
+        }
+    }
+
     /**
      * Find the best plan given the VoltXMLElement.  By best here we mean the plan
      * which is scored the best according to our plan metric scoring.  The plan
@@ -462,9 +476,14 @@ public class QueryPlanner implements AutoCloseable {
         }
 
         // Init Assembler. Each plan assembler requires a new instance of the PlanSelector
-        // to keep track of the best plan
+        // to keep track of the best plan. Statistics are only used for statements over analyzed tables.
+        Set<String> tableNames = new HashSet<>();
+        collectTableNames(xmlSQL, tableNames);
+        for (Table table : parsedStmt.m_tableList) {
+            tableNames.add(table.getTypeName());
+        }
         PlanAssembler assembler = new PlanAssembler(m_db, m_partitioning,
-                (PlanSelector) m_planSelector.clone(), m_isLargeQuery);
+                m_planSelector.forTables(tableNames), m_isLargeQuery);
         // find the plan with minimal cost
         CompiledPlan bestPlan = assembler.getBestCostPlan(parsedStmt);
 
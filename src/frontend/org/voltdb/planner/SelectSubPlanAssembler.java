@@ -19,8 +19,10 @@ package org.voltdb.planner;
 
 import java.util.*;
 
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
@@ -32,12 +34,15 @@ import org.voltdb.plannodes.IndexSortablePlanNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
+import org.voltdb.types.SortDirectionType;
 import org.voltdb.utils.PermutationGenerator;
 
 /**
@@ -64,6 +69,9 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     // Stop generating any further possible plans, if we have reached xx% of available JVM heap memory
     private static final short MAX_HEAP_MEMORY_USAGE_PCT = 80;
     private static final long MAX_ALLOWED_PLAN_MEMORY = RUN_TIME.maxMemory() * MAX_HEAP_MEMORY_USAGE_PCT / 100;
+    // Plan equi-joins without a usable inner index as hash joins rather than nested loops,
+    // unless -DPLANNER_DISABLE_HASH_JOIN=true is given.
+    private static final boolean HASH_JOIN_ENABLED = ! Boolean.getBoolean("PLANNER_DISABLE_HASH_JOIN");
 
     /**
      * Stop further planning, if we have used more heap memory than we could hopefully exhaustively plan it out,
@@ -590,9 +598,11 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                                                               innerScanPlan);
             // Propagate information used for order by clauses in window functions
             // and the statement level order by clause.  This is only if the
-            // branch node is an inner join.
+            // branch node is an inner join that keeps the order of its outer
+            // child, which a hash join may not.
             if ((answer != null)
                     && (branchJoinNode.getJoinType() == JoinType.INNER)
+                    && ! (answer instanceof HashJoinPlanNode)
                     && outerScanPlan instanceof IndexSortablePlanNode) {
                 IndexUseForOrderBy indexUseForJoin = answer.indexUse();
                 IndexUseForOrderBy indexUseFromScan = ((IndexSortablePlanNode)outerScanPlan).indexUse();
@@ -737,7 +747,7 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
+            AbstractJoinPlanNode nljNode = null;
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -778,6 +788,13 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+            // The inner side gets no help from the outer rows here, so an equi-join is
+            // cheaper as a single pass over each child than as a rescan of the inner
+            // result per outer tuple.
+            nljNode = getHashJoinNode(joinNode, outerPlan, joinClauses);
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -825,6 +842,114 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Try to build a hash join for the given join node. Each join clause that is an
+     * equality between an expression of only outer tables and an expression of only
+     * inner tables of the same type becomes a hash key. The hash keys only narrow
+     * down the inner tuples to test, so all of the joinClauses are still expected
+     * to become the join predicate.
+     *
+     * No hash join is built for an inner join whose outer child was chosen to
+     * produce rows in the order of the statement or of a window function:
+     * the nested loop keeps that order and so saves a sort (and lets a LIMIT
+     * stop the scan early), while a hash join may not.
+     *
+     * @param joinNode the join node being planned.
+     * @param outerPlan the outer child plan of the join.
+     * @param joinClauses the candidate join predicate clauses.
+     * @return a hash join node with its hash keys set or null if the join type or
+     *         the join clauses do not permit a hash join.
+     */
+    private static HashJoinPlanNode getHashJoinNode(BranchNode joinNode,
+                                                    AbstractPlanNode outerPlan,
+                                                    List<AbstractExpression> joinClauses) {
+        if ( ! HASH_JOIN_ENABLED ||
+                (joinNode.getJoinType() != JoinType.INNER && joinNode.getJoinType() != JoinType.LEFT)) {
+            return null;
+        }
+        if (joinNode.getJoinType() == JoinType.INNER && outerPlan instanceof IndexSortablePlanNode) {
+            IndexUseForOrderBy outerIndexUse = ((IndexSortablePlanNode)outerPlan).indexUse();
+            if (outerIndexUse.getSortOrderFromIndexScan() != SortDirectionType.INVALID ||
+                    outerIndexUse.getWindowFunctionUsesIndex() != SubPlanAssembler.NO_INDEX_USE) {
+                return null;
+            }
+        }
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression expr : joinClauses) {
+            if (expr.getExpressionType() != ExpressionType.COMPARE_EQUAL) {
+                continue;
+            }
+            AbstractExpression left = expr.getLeft();
+            AbstractExpression right = expr.getRight();
+            if ( ! isHashableKeyType(left.getValueType()) || left.getValueType() != right.getValueType()) {
+                continue;
+            }
+            AbstractExpression outerKey;
+            AbstractExpression innerKey;
+            if (isExpressionOfTables(left, outerTables) && isExpressionOfTables(right, innerTables)) {
+                outerKey = left;
+                innerKey = right;
+            }
+            else if (isExpressionOfTables(right, outerTables) && isExpressionOfTables(left, innerTables)) {
+                outerKey = right;
+                innerKey = left;
+            }
+            else {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashKey(outerKey, innerKey);
+        }
+        return hjNode;
+    }
+
+    /**
+     * Floating point keys are excluded because 0.0 and -0.0 compare equal but
+     * do not hash alike, and geography values have no hash at all in the EE.
+     */
+    private static boolean isHashableKeyType(VoltType type) {
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case DECIMAL:
+        case TIMESTAMP:
+        case STRING:
+        case VARBINARY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the expression references at least one column and all of
+     *         its columns come from the given tables, with no subqueries.
+     */
+    private static boolean isExpressionOfTables(AbstractExpression expr, Collection<String> tableAliases) {
+        if (expr.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+            return false;
+        }
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
@@ -0,0 +1,52 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.planner;
+
+import java.util.HashMap;
+
+/**
+ * The cost model used once @AnalyzeTable has collected statistics for some
+ * tables. The plan nodes then estimate the tuples they process and produce
+ * from the row counts and predicate selectivities, so the cost is the total
+ * number of tuples read plus a smaller charge for every tuple that is handed
+ * to the next node.
+ */
+public class StatisticsCostModel extends AbstractCostModel {
+
+    // Producing a tuple costs less than reading one, but is not free.
+    static final double TUPLE_WRITTEN_WEIGHT = 0.1;
+
+    @Override
+    public double getPlanCost(PlanStatistics stats) {
+        double cost = 0;
+
+        for (int i = 0; i < stats.getLevelCount(); i++) {
+            HashMap<StatsField, Long> level = stats.getStatisticsForLevel(i);
+            cost += getValue(level, StatsField.TUPLES_READ);
+            cost += TUPLE_WRITTEN_WEIGHT * getValue(level, StatsField.TUPLES_WRITTEN);
+        }
+
+        return cost;
+    }
+
+    private static double getValue(HashMap<StatsField, Long> level, StatsField field) {
+        Long value = level.get(field);
+        return (value == null) ? 0 : value.doubleValue();
+    }
+
+}
@@ -25,6 +25,7 @@ import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONStringer;
 import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
@@ -444,6 +445,29 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode implements I
         return  (long) (childNode.getEstimatedProcessedTupleCount() * discountCountFactor);
     }
 
+    /**
+     * Estimate the number of tuples produced by the join when statistics have been
+     * collected by @AnalyzeTable: each pair of outer and inner tuples must pass
+     * the join and where predicates, and an outer join keeps every outer tuple.
+     *
+     * @param outerTupleCount estimated tuples from the outer child
+     * @param innerTupleCount estimated inner tuples paired with each outer tuple
+     * @return estimated output tuple count
+     */
+    protected long estimateJoinOutputTupleCount(long outerTupleCount, long innerTupleCount,
+                                                DatabaseEstimates estimates) {
+        double outputTupleCount = (double) outerTupleCount * innerTupleCount *
+                estimates.getSelectivity(m_joinPredicate) *
+                estimates.getSelectivity(m_wherePredicate);
+        if (m_joinType == JoinType.LEFT) {
+            outputTupleCount = Math.max(outputTupleCount, outerTupleCount);
+        }
+        else if (m_joinType == JoinType.FULL) {
+            outputTupleCount = Math.max(outputTupleCount, Math.max(outerTupleCount, innerTupleCount));
+        }
+        return DatabaseEstimates.toTupleCount(outputTupleCount);
+    }
+
     /**
      * When a project node is added to the top of the plan, we need to adjust
      * the differentiator field of TVEs to reflect differences in the scan
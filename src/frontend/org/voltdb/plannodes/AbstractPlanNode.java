@@ -436,6 +436,7 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
 
         computeCostEstimates(childOutputTupleCountEstimate, estimates, paramHints);
         stats.incrementStatistic(0, StatsField.TUPLES_READ, m_estimatedProcessedTupleCount);
+        stats.incrementStatistic(0, StatsField.TUPLES_WRITTEN, m_estimatedOutputTupleCount);
     }
 
     /**
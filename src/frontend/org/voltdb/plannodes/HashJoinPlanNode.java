@@ -0,0 +1,204 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * An equi-join that builds a hash table over the inner (right) child keyed on
+ * the inner hash expressions and probes it once per outer tuple with the
+ * matching outer hash expressions. Only INNER and LEFT joins are supported.
+ * The join predicate still holds every join clause, including the ones used as
+ * hash keys, and is evaluated against each candidate pair found by the probe.
+ *
+ * The EE may partition both inputs into large temp tables when the hash table
+ * would not fit within the fragment's temp table limits, so unlike the nested
+ * loop joins no ordering of the outer child is preserved.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS;
+    }
+
+    // Parallel lists: the i-th outer expression is compared for equality
+    // with the i-th inner expression, and both have the same value type.
+    private List<AbstractExpression> m_outerHashExpressions = new ArrayList<>();
+    private List<AbstractExpression> m_innerHashExpressions = new ArrayList<>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    /**
+     * Add a pair of equi-join key expressions.
+     * @param outerExpr expression that only references outer child columns
+     * @param innerExpr expression that only references inner child columns
+     */
+    public void addHashKey(AbstractExpression outerExpr, AbstractExpression innerExpr) {
+        assert(outerExpr.getValueType() == innerExpr.getValueType());
+        m_outerHashExpressions.add(outerExpr.clone());
+        m_innerHashExpressions.add(innerExpr.clone());
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Hash join node has mismatched hash key expressions");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+
+        resolveHashExpressions(m_outerHashExpressions, m_children.get(0).getOutputSchema(), 0);
+        resolveHashExpressions(m_innerHashExpressions, m_children.get(1).getOutputSchema(), 1);
+    }
+
+    private static void resolveHashExpressions(List<AbstractExpression> exprs,
+            NodeSchema schema, int tableIdx) {
+        for (AbstractExpression expr : exprs) {
+            for (TupleValueExpression tve : ExpressionUtil.getTupleValueExpressions(expr)) {
+                if (tve.setColumnIndexUsingSchema(schema) == -1) {
+                    throw new RuntimeException(
+                            "Unable to resolve column index for hash join TVE: " +
+                            tve.toString());
+                }
+                tve.setTableIndex(tableIdx);
+            }
+        }
+    }
+
+    @Override
+    public boolean isOutputOrdered(List<AbstractExpression> sortExpressions, List<SortDirectionType> sortDirections) {
+        // The EE may have to partition the outer table when the build side spills.
+        return false;
+    }
+
+    @Override
+    public void resolveSortDirection() {
+        m_sortDirection = SortDirectionType.INVALID;
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        // Each child is scanned exactly once: the inner to build the hash table
+        // and the outer to probe it.
+        assert(m_children.size() == 2);
+        if (estimates.hasStatistics()) {
+            long outerTupleCount = m_children.get(0).getEstimatedOutputTupleCount();
+            long innerTupleCount = m_children.get(1).getEstimatedOutputTupleCount();
+            // Inserting an inner tuple into the hash table costs about as much again as reading it,
+            // so the smaller input should be the inner one.
+            m_estimatedProcessedTupleCount = outerTupleCount + 2 * innerTupleCount;
+            m_estimatedOutputTupleCount = estimateJoinOutputTupleCount(outerTupleCount, innerTupleCount, estimates);
+            return;
+        }
+
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                m_children.get(1).m_estimatedProcessedTupleCount;
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        AbstractExpression.toJSONArray(stringer, Members.OUTER_HASH_EXPRESSIONS.name(), m_outerHashExpressions);
+        AbstractExpression.toJSONArray(stringer, Members.INNER_HASH_EXPRESSIONS.name(), m_innerHashExpressions);
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db)
+            throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        m_outerHashExpressions.clear();
+        m_innerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                                                  Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                                                  Members.INNER_HASH_EXPRESSIONS.name(), null);
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HASH ").append(m_joinType.toString()).append(" JOIN");
+        String prefix = "\n" + indent + " hash on ";
+        for (int ii = 0; ii < m_outerHashExpressions.size(); ii++) {
+            sb.append(prefix)
+              .append(m_outerHashExpressions.get(ii).explain("!?"))
+              .append(" = ")
+              .append(m_innerHashExpressions.get(ii).explain("!?"));
+            prefix = " AND ";
+        }
+        return sb.toString() + explainFilters(indent);
+    }
+
+}
@@ -595,6 +595,71 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
         return keyWidth;
     }
 
+    /**
+     * Estimate the fraction of the table's rows that the index scan visits, from
+     * the distinct counts and histograms collected by @AnalyzeTable.
+     * Each search key filters its index column, by equality except for a last key
+     * used in a range lookup, and the end expression can bound the scan further.
+     * @return the selectivity, or -1 if the index is on expressions rather than columns
+     */
+    private double getIndexedSelectivity(DatabaseEstimates estimates) {
+        if ( ! m_catalogIndex.getExpressionsjson().isEmpty()) {
+            return -1.0;
+        }
+        List<ColumnRef> indexedColRefs =
+                CatalogUtil.getSortedCatalogItems(m_catalogIndex.getColumns(), "index");
+        List<AbstractExpression> indexedFilters = new ArrayList<>();
+        Set<String> equalityColumns = new HashSet<>();
+        int keyCount = Math.min(m_searchkeyExpressions.size(), indexedColRefs.size());
+        for (int ii = 0; ii < keyCount; ii++) {
+            Column column = indexedColRefs.get(ii).getColumn();
+            ExpressionType comparison = ExpressionType.COMPARE_EQUAL;
+            if (ii == keyCount - 1) {
+                switch (m_lookupType) {
+                case GT:
+                    comparison = ExpressionType.COMPARE_GREATERTHAN;
+                    break;
+                case GTE:
+                    comparison = ExpressionType.COMPARE_GREATERTHANOREQUALTO;
+                    break;
+                case LT:
+                    comparison = ExpressionType.COMPARE_LESSTHAN;
+                    break;
+                case LTE:
+                    comparison = ExpressionType.COMPARE_LESSTHANOREQUALTO;
+                    break;
+                default:
+                    break;
+                }
+            }
+            if (comparison == ExpressionType.COMPARE_EQUAL) {
+                equalityColumns.add(column.getTypeName());
+            }
+            TupleValueExpression indexedColumn = new TupleValueExpression(
+                    m_targetTableName, m_targetTableAlias, column.getTypeName(), column.getTypeName());
+            indexedFilters.add(new ComparisonExpression(comparison, indexedColumn,
+                    m_searchkeyExpressions.get(ii)));
+        }
+        // The end expression repeats the equality keys; only count its other conditions.
+        for (AbstractExpression endExpr : ExpressionUtil.uncombinePredicate(m_endExpression)) {
+            if (endExpr.getExpressionType() == ExpressionType.COMPARE_EQUAL ||
+                    endExpr.getExpressionType() == ExpressionType.COMPARE_NOTDISTINCT) {
+                boolean isKeyRepeat = false;
+                for (TupleValueExpression tve : ExpressionUtil.getTupleValueExpressions(endExpr)) {
+                    if (m_targetTableName.equals(tve.getTableName()) &&
+                            equalityColumns.contains(tve.getColumnName())) {
+                        isKeyRepeat = true;
+                    }
+                }
+                if (isKeyRepeat) {
+                    continue;
+                }
+            }
+            indexedFilters.add(endExpr);
+        }
+        return estimates.getSelectivity(indexedFilters);
+    }
+
     @Override
     public void computeCostEstimates(long unusedChildOutputTupleCountEstimate,
                                      DatabaseEstimates estimates,
@@ -647,10 +712,27 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
         }
         assert(tuplesToRead > 0);
 
+        // Statistics collected by @AnalyzeTable replace the per-column guesses below.
+        double indexedSelectivity = -1.0;
+        if (tableEstimates.analyzed && m_lookupType != IndexLookupType.GEO_CONTAINS) {
+            indexedSelectivity = getIndexedSelectivity(estimates);
+        }
+
         // special case a unique match for the output count
         if (m_catalogIndex.getUnique() && (colCount == keyWidth)) {
             m_estimatedOutputTupleCount = 1;
         }
+        else if (indexedSelectivity >= 0.0) {
+            tuplesToRead += (int) Math.min(Integer.MAX_VALUE - 3,
+                    tableEstimates.maxTuples * indexedSelectivity);
+            // As below, any non-"covering unique" index scan costs more than a "covering unique" one.
+            if (tuplesToRead < 4) {
+                tuplesToRead = 4;
+            }
+            // Unlike the guesses below, the statistics can also estimate the effect of the post-filters.
+            m_estimatedOutputTupleCount = DatabaseEstimates.toTupleCount(tableEstimates.maxTuples *
+                    indexedSelectivity * estimates.getSelectivity(m_predicate));
+        }
         else {
             // If not a unique, covering index, favor (discount) the choice with the most columns
             // pre-filtered by the index. Cost starts at 90% of a comparable seqscan AND
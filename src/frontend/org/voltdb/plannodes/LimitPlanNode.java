@@ -130,6 +130,14 @@ public class LimitPlanNode extends AbstractPlanNode {
         stringer.key(Members.LIMIT_EXPRESSION.name()).value(m_limitExpression);
     }
 
+    public long getLimitParameterIndex() {
+        return m_limitParameterId;
+    }
+
+    public long getOffsetParameterIndex() {
+        return m_offsetParameterId;
+    }
+
     public void setLimitParameterIndex(long limitParameterId) {
         m_limitParameterId = limitParameterId;
     }
@@ -232,6 +232,16 @@ public class NestLoopIndexPlanNode extends AbstractJoinPlanNode {
 
         IndexScanPlanNode indexScan = getInlineIndexScan();
 
+        if (estimates.hasStatistics()) {
+            // The inlined index scan is costed per lookup, and there is one lookup per outer tuple.
+            long outerTupleCount = m_children.get(0).getEstimatedOutputTupleCount();
+            m_estimatedProcessedTupleCount = DatabaseEstimates.toTupleCount(
+                    (double) outerTupleCount * indexScan.getEstimatedProcessedTupleCount());
+            m_estimatedOutputTupleCount = estimateJoinOutputTupleCount(outerTupleCount,
+                    indexScan.getEstimatedOutputTupleCount(), estimates);
+            return;
+        }
+
         m_estimatedOutputTupleCount = indexScan.getEstimatedOutputTupleCount() + childOutputTupleCountEstimate;
         // Discount outer child estimates based on the number of its filters
         m_estimatedProcessedTupleCount = indexScan.getEstimatedProcessedTupleCount() + discountEstimatedProcessedTupleCount(m_children.get(0));
@@ -38,10 +38,18 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
                                      DatabaseEstimates estimates,
                                      ScalarValueHints[] paramHints)
     {
+        assert(m_children.size() == 2);
+        if (estimates.hasStatistics()) {
+            // The inner table is scanned once for every outer tuple.
+            long outerTupleCount = m_children.get(0).getEstimatedOutputTupleCount();
+            long innerTupleCount = m_children.get(1).getEstimatedOutputTupleCount();
+            m_estimatedProcessedTupleCount = DatabaseEstimates.toTupleCount((double) outerTupleCount * innerTupleCount);
+            m_estimatedOutputTupleCount = estimateJoinOutputTupleCount(outerTupleCount, innerTupleCount, estimates);
+            return;
+        }
 
         m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
         // Discount outer child estimates based on the number of its filters
-        assert(m_children.size() == 2);
         m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
                 m_children.get(1).m_estimatedProcessedTupleCount;
     }
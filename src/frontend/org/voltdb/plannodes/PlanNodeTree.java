@@ -119,6 +119,13 @@ public class PlanNodeTree implements JSONString {
         }
     }
 
+    /**
+     * @return true if the plan has subqueries, each with its own list of plan nodes
+     */
+    public boolean hasSubqueries() {
+        return m_planNodesListMap.size() > 1;
+    }
+
     public List<AbstractPlanNode> getNodeList() {
         return m_planNodesListMap.get(0);
     }
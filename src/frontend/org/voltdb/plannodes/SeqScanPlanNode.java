@@ -114,6 +114,12 @@ public class SeqScanPlanNode extends AbstractScanPlanNode implements ScanPlanNod
         // here to make sure that SeqScanPlanNode never gains an unfair advantage over IndexScanPlanNode.
         m_estimatedProcessedTupleCount = tableEstimates.maxTuples;
         m_estimatedOutputTupleCount = tableEstimates.maxTuples;
+        // With statistics from @AnalyzeTable the filters are taken into account after all,
+        // as they are for the post-filters of an index scan on an analyzed table.
+        if (tableEstimates.analyzed) {
+            m_estimatedOutputTupleCount = DatabaseEstimates.toTupleCount(
+                    tableEstimates.maxTuples * estimates.getSelectivity(m_predicate));
+        }
     }
 
     @Override
@@ -31,6 +31,9 @@ public class RejoinDataMessage extends VoltMessage {
     private long m_targetId = -1;
     // compressed snapshot data
     private byte[] m_data = null;
+    // compressed snapshot data in a (pooled) direct buffer owned by the sender,
+    // flattened straight onto the wire without an intermediate heap copy.
+    private ByteBuffer m_buffer = null;
 
     public RejoinDataMessage() {
         m_subject = Subject.DEFAULT.getId();
@@ -42,21 +45,40 @@ public class RejoinDataMessage extends VoltMessage {
         m_data = data;
     }
 
+    /**
+     * Create a message from compressed data held in a buffer. The sender must not
+     * release or modify the buffer until the message has been acked by the receiver.
+     */
+    public RejoinDataMessage(long targetId, ByteBuffer data) {
+        m_subject = Subject.DEFAULT.getId();
+        m_targetId = targetId;
+        m_buffer = data.duplicate();
+    }
+
     public long getTargetId() {
         return m_targetId;
     }
 
     public byte[] getData() {
+        if (m_data == null && m_buffer != null) {
+            // Only happens when the message is delivered locally
+            m_data = new byte[m_buffer.remaining()];
+            m_buffer.duplicate().get(m_data);
+        }
         return m_data;
     }
 
+    private int getDataLength() {
+        return m_data != null ? m_data.length : m_buffer.remaining();
+    }
+
     @Override
     public int getSerializedSize() {
         int msgsize = super.getSerializedSize();
         msgsize +=
                 8 + // m_targetId
                 4 + // data length
-                m_data.length;
+                getDataLength();
         return msgsize;
     }
 
@@ -72,8 +94,13 @@ public class RejoinDataMessage extends VoltMessage {
     public void flattenToBuffer(ByteBuffer buf) throws IOException {
         buf.put(VoltDbMessageFactory.REJOIN_DATA_ID);
         buf.putLong(m_targetId);
-        buf.putInt(m_data.length);
-        buf.put(m_data);
+        buf.putInt(getDataLength());
+        if (m_data != null) {
+            buf.put(m_data);
+        }
+        else {
+            buf.put(m_buffer.duplicate());
+        }
         buf.limit(buf.position());
     }
 }
@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of compressed bytes a stream snapshot data target may have
+ * on the wire without an ack. The window is sized to the bandwidth-delay
+ * product measured from the acks, so a fast link is kept full while a slow or
+ * congested one doesn't accumulate an unbounded backlog of pooled buffers.
+ *
+ * The sender thread calls {@link #awaitCapacity} and {@link #sent}, the ack
+ * receiver thread calls {@link #acked}.
+ */
+public class StreamSnapshotAckWindow {
+    public static final long MIN_WINDOW_BYTES = Long.getLong("REJOIN_MIN_WINDOW_BYTES", 8L * 1024 * 1024);
+    public static final long MAX_WINDOW_BYTES = Long.getLong("REJOIN_MAX_WINDOW_BYTES", 256L * 1024 * 1024);
+
+    // Shortest period over which the ack throughput is sampled
+    private static final long THROUGHPUT_SAMPLE_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Weight of a new sample in the moving averages
+    private static final double EWMA_ALPHA = 0.25;
+
+    private final long m_minWindow;
+    private final long m_maxWindow;
+
+    private long m_outstandingBytes = 0;
+    private long m_windowBytes;
+
+    private long m_totalAckedBytes = 0;
+    private long m_sampleAckedBytes = 0;
+    private long m_sampleStartNs;
+    private double m_bytesPerSecond = 0;
+    private double m_ackLatencyNs = 0;
+
+    public StreamSnapshotAckWindow() {
+        this(MIN_WINDOW_BYTES, MAX_WINDOW_BYTES);
+    }
+
+    public StreamSnapshotAckWindow(long minWindow, long maxWindow) {
+        m_minWindow = minWindow;
+        m_maxWindow = Math.max(minWindow, maxWindow);
+        m_windowBytes = m_minWindow;
+        m_sampleStartNs = System.nanoTime();
+    }
+
+    /**
+     * Block until there is room in the window. A block is always allowed out
+     * when nothing is outstanding so a single block larger than the window
+     * can't stall the stream.
+     * @return false if the wait timed out
+     */
+    public synchronized boolean awaitCapacity(long timeoutMs) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (m_outstandingBytes > 0 && m_outstandingBytes >= m_windowBytes) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                return false;
+            }
+            wait(remainingMs);
+        }
+        return true;
+    }
+
+    public synchronized void sent(int bytes) {
+        m_outstandingBytes += bytes;
+    }
+
+    /**
+     * Record that a block of the given size was acked, latencyNs after it was sent.
+     */
+    public synchronized void acked(int bytes, long latencyNs) {
+        m_outstandingBytes = Math.max(0, m_outstandingBytes - bytes);
+        m_totalAckedBytes += bytes;
+        m_sampleAckedBytes += bytes;
+        m_ackLatencyNs = m_ackLatencyNs == 0 ? latencyNs : ewma(m_ackLatencyNs, latencyNs);
+
+        final long now = System.nanoTime();
+        final long elapsed = now - m_sampleStartNs;
+        if (elapsed >= THROUGHPUT_SAMPLE_NS) {
+            double rate = m_sampleAckedBytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            m_bytesPerSecond = m_bytesPerSecond == 0 ? rate : ewma(m_bytesPerSecond, rate);
+            m_sampleAckedBytes = 0;
+            m_sampleStartNs = now;
+            resize();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Release anything waiting on the window, e.g. when the stream failed.
+     */
+    public synchronized void reset() {
+        m_outstandingBytes = 0;
+        notifyAll();
+    }
+
+    private void resize() {
+        // Twice the bandwidth-delay product leaves room for the acks in flight
+        double bdp = 2 * m_bytesPerSecond * m_ackLatencyNs / TimeUnit.SECONDS.toNanos(1);
+        m_windowBytes = Math.max(m_minWindow, Math.min(m_maxWindow, (long) bdp));
+    }
+
+    private static double ewma(double average, double sample) {
+        return average + EWMA_ALPHA * (sample - average);
+    }
+
+    public synchronized long getOutstandingBytes() {
+        return m_outstandingBytes;
+    }
+
+    public synchronized long getWindowBytes() {
+        return m_windowBytes;
+    }
+
+    public synchronized long getAckedBytes() {
+        return m_totalAckedBytes;
+    }
+
+    public synchronized long getBytesPerSecond() {
+        return (long) m_bytesPerSecond;
+    }
+
+    public synchronized long getAckLatencyMs() {
+        return TimeUnit.NANOSECONDS.toMillis((long) m_ackLatencyNs);
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.voltdb.rejoin;
 
+import java.nio.ByteBuffer;
+
 import org.voltcore.messaging.VoltMessage;
 import org.voltdb.exceptions.SerializableException;
 
@@ -31,6 +33,7 @@ public abstract class StreamSnapshotBase {
 
     public static interface MessageFactory {
         public VoltMessage makeDataMessage(long targetId, byte[] data);
+        public VoltMessage makeDataMessage(long targetId, ByteBuffer data);
 
         public boolean isAckEOS(VoltMessage msg);
         public long getAckTargetId(VoltMessage msg);
@@ -45,6 +48,12 @@ public abstract class StreamSnapshotBase {
             return new RejoinDataMessage(targetId, data);
         }
 
+        @Override
+        public VoltMessage makeDataMessage(long targetId, ByteBuffer data)
+        {
+            return new RejoinDataMessage(targetId, data);
+        }
+
         @Override
         public boolean isAckEOS(VoltMessage msg)
         {
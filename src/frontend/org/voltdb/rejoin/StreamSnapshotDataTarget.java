@@ -25,8 +25,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -93,8 +93,14 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
 
     // number of sent, but un-acked buffers
     final AtomicInteger m_outstandingWorkCount = new AtomicInteger(0);
-    // map of sent, but un-acked buffers, packaged up a bit
-    private final TreeMap<Integer, SendWork> m_outstandingWork = new TreeMap<Integer, SendWork>();
+    // map of sent, but un-acked buffers, packaged up a bit. Concurrent so that acks
+    // and the watchdog don't contend with the site thread writing to this target.
+    private final ConcurrentSkipListMap<Integer, SendWork> m_outstandingWork = new ConcurrentSkipListMap<Integer, SendWork>();
+    // limits the compressed bytes on the wire to the measured bandwidth-delay product
+    final StreamSnapshotAckWindow m_ackWindow = new StreamSnapshotAckWindow();
+    // uncompressed bytes handed to this target
+    private final AtomicLong m_rawBytesQueued = new AtomicLong(0);
+    private final long m_startTime = System.currentTimeMillis();
 
     int m_blockIndex = 0;
     private final AtomicReference<Runnable> m_onCloseHandler = new AtomicReference<Runnable>(null);
@@ -127,6 +133,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         rejoinLog.debug(String.format("Initializing snapshot stream processor " +
                 "for source site id: %s, and with processorid: %d%s" ,
                 CoreUtils.hsIdToString(HSId), m_targetId, (lowestDestSite?" [Lowest Site]":"")));
+        StreamSnapshotStats.register(this);
 
         // start a periodic task to look for timed out connections
         VoltDB.instance().scheduleWork(new Watchdog(0, writeTimeout), WATCHDOG_PERIOS_S, -1, TimeUnit.SECONDS);
@@ -151,8 +158,15 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         final long m_targetId;
         final long m_destHSId;
         final Set<Long> m_otherDestHSIds;
-        AtomicInteger m_ackCounter;
+        volatile AtomicInteger m_ackCounter;
         final long m_ts;
+        // window of the owning target, null for works not subject to flow control
+        final StreamSnapshotAckWindow m_window;
+        // compressed copy of a direct message buffer, produced on the computation service
+        private ListenableFuture<BBContainer> m_compressed;
+        // compressed bytes sent to the lowest destination and when they were sent
+        volatile int m_sentBytes;
+        volatile long m_sentNs;
 
         final boolean m_isEmpty;
 
@@ -170,11 +184,18 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_otherDestHSIds = null;
             m_ts = -1;
             m_future = null;
+            m_window = null;
         }
 
         SendWork (StreamSnapshotMessageType type, long targetId, long destHSId,
                   Set<Long> otherDestIds, BBContainer message,
                   SettableFuture<Boolean> future) {
+            this(type, targetId, destHSId, otherDestIds, message, future, null);
+        }
+
+        SendWork (StreamSnapshotMessageType type, long targetId, long destHSId,
+                  Set<Long> otherDestIds, BBContainer message,
+                  SettableFuture<Boolean> future, StreamSnapshotAckWindow window) {
             m_isEmpty = false;
             m_type = type;
             m_targetId = targetId;
@@ -183,6 +204,33 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_message = message;
             m_ts = System.currentTimeMillis();
             m_future = future;
+            m_window = window;
+        }
+
+        /**
+         * Start compressing a direct message buffer on the computation service
+         * into a pooled direct buffer, so that blocks are compressed in parallel
+         * while the sender thread keeps sending them in order.
+         */
+        synchronized void compressAsync() {
+            if (m_message == null || !m_message.b().isDirect()) {
+                return;
+            }
+            final ByteBuffer input = m_message.b().duplicate();
+            m_compressed = CompressionService.submitCompressionTask(new Callable<BBContainer>() {
+                @Override
+                public BBContainer call() throws Exception {
+                    BBContainer output =
+                            DBBPool.allocateDirectAndPool(CompressionService.maxCompressedLength(input.remaining()));
+                    try {
+                        CompressionService.compressBuffer(input, output.b());
+                    } catch (IOException e) {
+                        output.discard();
+                        throw e;
+                    }
+                    return output;
+                }
+            });
         }
 
         /**
@@ -191,7 +239,27 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
          */
         public synchronized void discard() {
             // discard the buffers and null them out
-            if (m_message != null) {
+            if (m_compressed != null) {
+                // The input buffer can't be recycled while it is still being compressed
+                final ListenableFuture<BBContainer> compressed = m_compressed;
+                final BBContainer message = m_message;
+                m_compressed = null;
+                m_message = null;
+                compressed.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (message != null) {
+                            message.discard();
+                        }
+                        try {
+                            compressed.get().discard();
+                        } catch (Exception ignore) {
+                            // compression failed, nothing to release
+                        }
+                    }
+                }, CoreUtils.SAMETHREADEXECUTOR);
+            }
+            else if (m_message != null) {
                 m_message.discard();
                 m_message = null;
             }
@@ -204,7 +272,17 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
          */
         protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
             final ByteBuffer messageBuffer = message.b();
-            if (messageBuffer.isDirect()) {
+            if (m_compressed != null) {
+                // The compressed buffer stays with this work until the block is acked
+                ByteBuffer compressed;
+                try {
+                    compressed = m_compressed.get().b();
+                } catch (Exception e) {
+                    throw new IOException("Failed to compress rejoin block", e);
+                }
+                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressed));
+                return compressed.remaining();
+            } else if (messageBuffer.isDirect()) {
                 byte[] data = CompressionService.compressBuffer(messageBuffer);
                 mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
                 return data.length;
@@ -269,6 +347,11 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                     m_ackCounter = new AtomicInteger(1);
                     sentBytes = send(mb, msgFactory, m_message);
                 }
+                m_sentBytes = sentBytes;
+                m_sentNs = System.nanoTime();
+                if (m_window != null) {
+                    m_window.sent(sentBytes);
+                }
                 rejoinLog.trace("Sent " + m_type.name() + " from " + m_targetId +
                         " expected ackCounter " + m_ackCounter +
                         " otherDestHSIds " + m_otherDestHSIds);
@@ -344,7 +427,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
      * Called by the watchdog from the periodic work thread to check if the
      * oldest unacked block is older than the timeout interval.
      */
-    private synchronized void checkTimeout(final long timeoutMs) {
+    private void checkTimeout(final long timeoutMs) {
         final Entry<Integer, SendWork> oldest = m_outstandingWork.firstEntry();
         if (oldest != null) {
             final long now = System.currentTimeMillis();
@@ -372,19 +455,22 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
 
         rejoinLog.trace("Clearing outstanding work.");
 
-        for (Entry<Integer, SendWork> e : m_outstandingWork.entrySet()) {
+        // Remove entries one at a time so that a racing ack can't release a work twice
+        Entry<Integer, SendWork> e;
+        while ((e = m_outstandingWork.pollFirstEntry()) != null) {
             e.getValue().discard();
+            m_outstandingWorkCount.decrementAndGet();
         }
-        m_outstandingWork.clear();
         m_outstandingWorkCount.set(0);
+        m_ackWindow.reset();
     }
 
     /**
-     * Synchronized method to handle the arrival of an Ack.
+     * Handle the arrival of an Ack. Runs on the ack receiver thread.
      * @param blockIndex The index of the block that is being acked.
      */
     @Override
-    public synchronized void receiveAck(int blockIndex) {
+    public void receiveAck(int blockIndex) {
         SendWork work = m_outstandingWork.get(blockIndex);
 
         // releases the BBContainers and cleans up
@@ -397,9 +483,11 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         if (work.receiveAck()) {
             rejoinLog.trace("Received ack for targetId " + m_targetId +
                     " removes block for index " + String.valueOf(blockIndex));
-            m_outstandingWorkCount.decrementAndGet();
-            m_outstandingWork.remove(blockIndex);
-            work.discard();
+            if (m_outstandingWork.remove(blockIndex) != null) {
+                m_outstandingWorkCount.decrementAndGet();
+                m_ackWindow.acked(work.m_sentBytes, System.nanoTime() - work.m_sentNs);
+                work.discard();
+            }
         }
         else {
             rejoinLog.trace("Received ack for targetId " + m_targetId +
@@ -474,6 +562,13 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                         }
                     }
 
+                    // Hold the block back until the target's ack window has room for it
+                    if (work.m_window != null) {
+                        while (!work.m_window.awaitCapacity(TimeUnit.SECONDS.toMillis(WATCHDOG_PERIOS_S))) {
+                            rejoinLog.debug("Stream snapshot target " + work.m_targetId +
+                                    " is waiting for acks before sending more data");
+                        }
+                    }
                     m_bytesSent.get(work.m_targetId).addAndGet(work.doWork(m_mb, m_msgFactory));
                     m_worksSent.get(work.m_targetId).incrementAndGet();
                 }
@@ -549,6 +644,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 chunk.putInt(tableId); // put table ID
 
                 chunk.position(0);
+                m_rawBytesQueued.addAndGet(chunk.remaining());
                 return send(StreamSnapshotMessageType.DATA, m_blockIndex++, chunkC, tableInfo.getFirst());
             } finally {
                 rejoinLog.trace("Finished call to write");
@@ -585,7 +681,8 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 " from targetId " + m_targetId + " to " + CoreUtils.hsIdToString(m_destHSId) +
                 (replicatedTable?", " + CoreUtils.hsIdCollectionToString(m_otherDestHostHSIds):""));
         SendWork sendWork = new SendWork(type, m_targetId, m_destHSId,
-                replicatedTable?m_otherDestHostHSIds:null, chunk, sendFuture);
+                replicatedTable?m_otherDestHostHSIds:null, chunk, sendFuture, m_ackWindow);
+        sendWork.compressAsync();
         m_outstandingWork.put(blockIndex, sendWork);
         m_outstandingWorkCount.incrementAndGet();
         m_sender.offer(sendWork);
@@ -629,6 +726,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
 
                 assert(m_outstandingWork.size() == 0);
             }
+            StreamSnapshotStats.deregister(this);
 
             rejoinLog.trace("Closed stream snapshot target " + m_targetId);
         }
@@ -690,6 +788,21 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         return m_sender.m_worksSent.get(m_targetId).get();
     }
 
+    long getDestHSId()
+    {
+        return m_destHSId;
+    }
+
+    long getRawBytesQueued()
+    {
+        return m_rawBytesQueued.get();
+    }
+
+    long getStartTime()
+    {
+        return m_startTime;
+    }
+
     @Override
     public void setOnCloseHandler(Runnable onClose) {
         m_onCloseHandler.set(onClose);
@@ -0,0 +1,94 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Progress and throughput of the stream snapshots this node is sending to
+ * rejoining or joining nodes, one row per active data target.
+ */
+public class StreamSnapshotStats extends StatsSource {
+
+    // Active data targets on this node, by target id
+    private static final Map<Long, StreamSnapshotDataTarget> m_targets = new ConcurrentSkipListMap<>();
+
+    static void register(StreamSnapshotDataTarget target) {
+        m_targets.put(target.m_targetId, target);
+    }
+
+    static void deregister(StreamSnapshotDataTarget target) {
+        m_targets.remove(target.m_targetId);
+    }
+
+    public StreamSnapshotStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("TARGET_ID", VoltType.BIGINT));
+        columns.add(new ColumnInfo("DESTINATION", VoltType.STRING));
+        columns.add(new ColumnInfo("ELAPSED_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BLOCKS_SENT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("UNCOMPRESSED_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES_SENT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES_ACKED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("OUTSTANDING_BLOCKS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("OUTSTANDING_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WINDOW_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ACK_LATENCY", VoltType.BIGINT));
+        columns.add(new ColumnInfo("THROUGHPUT", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        StreamSnapshotDataTarget target = (StreamSnapshotDataTarget) rowKey;
+        StreamSnapshotAckWindow window = target.m_ackWindow;
+        rowValues[columnNameToIndex.get("TARGET_ID")] = target.m_targetId;
+        rowValues[columnNameToIndex.get("DESTINATION")] = CoreUtils.hsIdToString(target.getDestHSId());
+        rowValues[columnNameToIndex.get("ELAPSED_TIME")] = System.currentTimeMillis() - target.getStartTime();
+        rowValues[columnNameToIndex.get("BLOCKS_SENT")] = target.getWorksWritten();
+        rowValues[columnNameToIndex.get("UNCOMPRESSED_BYTES")] = target.getRawBytesQueued();
+        rowValues[columnNameToIndex.get("BYTES_SENT")] = target.getBytesWritten();
+        rowValues[columnNameToIndex.get("BYTES_ACKED")] = window.getAckedBytes();
+        rowValues[columnNameToIndex.get("OUTSTANDING_BLOCKS")] = target.m_outstandingWorkCount.get();
+        rowValues[columnNameToIndex.get("OUTSTANDING_BYTES")] = window.getOutstandingBytes();
+        rowValues[columnNameToIndex.get("WINDOW_BYTES")] = window.getWindowBytes();
+        rowValues[columnNameToIndex.get("ACK_LATENCY")] = window.getAckLatencyMs();
+        rowValues[columnNameToIndex.get("THROUGHPUT")] = window.getBytesPerSecond();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        @SuppressWarnings("rawtypes")
+        Iterator iter = new ArrayList<>(m_targets.values()).iterator();
+        return (Iterator<Object>)iter;
+    }
+}
@@ -443,7 +443,7 @@ public abstract class AdHocNTBase extends UpdateApplicationBase {
      * Take a set of adhoc plans and pass them off to the right transactional
      * adhoc variant.
      */
-    private final CompletableFuture<ClientResponse> createAdHocTransaction(
+    protected final CompletableFuture<ClientResponse> createAdHocTransaction(
             final AdHocPlannedStmtBatch plannedStmtBatch,
             final boolean isSwapTables)
                     throws VoltTypeException
@@ -506,6 +506,66 @@ public abstract class AdHocNTBase extends UpdateApplicationBase {
         return callProcedure(procedureName, params);
     }
 
+    /**
+     * Plan a statement for @AdHocPrepared, and cache the plan under its handle.
+     * Only a single DML or DQL statement can be prepared.
+     */
+    public static AdHocPlannedStatement planPrepared(PlannerTool ptool, long handle, String sql, int parameterCount)
+            throws AdHocPlanningException
+    {
+        List<String> sqlStatements = new ArrayList<>();
+        AdHocSQLMix mix = processAdHocSQLStmtTypes(sql, sqlStatements);
+        if (mix != AdHocSQLMix.ALL_DML_OR_DQL || sqlStatements.size() != 1) {
+            throw new AdHocPlanningException("A prepared statement must be a single DML or DQL statement.");
+        }
+        if (parameterCount < 0) {
+            throw new AdHocPlanningException("Invalid parameter count " + parameterCount);
+        }
+
+        try {
+            return ptool.planPrepared(handle, sql, sqlStatements.get(0), parameterCount);
+        }
+        catch (Exception e) {
+            throw new AdHocPlanningException(e.getMessage());
+        }
+        catch (StackOverflowError error) {
+            // See compileAdHocSQL
+            throw new AdHocPlanningException("Encountered stack overflow error. " +
+                    "Try reducing the number of predicate expressions in the query.");
+        }
+    }
+
+    /**
+     * Execute the plan of a prepared statement with the parameters of one execution.
+     */
+    protected CompletableFuture<ClientResponse> runPrepared(AdHocPlannedStatement stmt, Object[] userParams)
+    {
+        // A statement without '?' parameters carries its extracted constants in the plan
+        int expectedParams = stmt.extractedParamArray().length == 0 ? stmt.core.parameterTypes.length : 0;
+        if (userParams.length != expectedParams) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE,
+                    String.format("Incorrect number of parameters passed: expected %d, passed %d",
+                                  expectedParams, userParams.length));
+        }
+
+        List<AdHocPlannedStatement> stmts = new ArrayList<>(1);
+        stmts.add(stmt);
+        AdHocPlannedStmtBatch plannedStmtBatch =
+                new AdHocPlannedStmtBatch(userParams.length == 0 ? null : userParams,
+                                          stmts,
+                                          stmt.getPartitioningParameterIndex(),
+                                          stmt.getPartitioningParameterType(),
+                                          stmt.getPartitioningParameterValue(),
+                                          null);
+        try {
+            return createAdHocTransaction(plannedStmtBatch, false);
+        }
+        catch (VoltTypeException vte) {
+            String msg = "Unable to execute prepared statement: " + vte.getMessage();
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE, msg);
+        }
+    }
+
     public static AdHocPlannedStmtBatch plan(PlannerTool ptool, String sql, Object[] userParams, boolean singlePartition)
             throws AdHocPlanningException
     {
@@ -0,0 +1,83 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.compiler.AdHocCompilerCache;
+import org.voltdb.compiler.AdHocPlannedStatement;
+
+/**
+ * Plan a single DML or DQL statement once, for repeated execution with
+ * @AdHocPrepared. Returns the handle of the statement along with what a client
+ * needs to route the executions like a single partition procedure call:
+ * the index and type of the partitioning parameter, or -1 if the statement
+ * isn't partitioned on one of its '?' parameters, and whether it is read-only.
+ */
+public class AdHocPrepare extends AdHocNTBase {
+
+    public CompletableFuture<ClientResponse> run(String sql, int parameterCount) {
+        if (sql == null) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE,
+                    "@AdHocPrepare requires the query parameter.");
+        }
+
+        CatalogContext context = VoltDB.instance().getCatalogContext();
+        long handle = AdHocCompilerCache.preparedHandle(sql);
+        AdHocPlannedStatement stmt;
+        try {
+            stmt = planPrepared(context.m_ptool, handle, sql, parameterCount);
+        }
+        catch (AdHocPlanningException e) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE, e.getMessage());
+        }
+
+        int partitionParameter = -1;
+        byte partitionParameterType = VoltType.INVALID.getValue();
+        int paramIndex = stmt.getPartitioningParameterIndex();
+        if (stmt.core.collectorFragment == null && paramIndex >= 0 && paramIndex < parameterCount &&
+                stmt.getPartitioningParameterType() != null) {
+            partitionParameter = paramIndex;
+            partitionParameterType = stmt.getPartitioningParameterType().getValue();
+        }
+
+        VoltTable vt = new VoltTable(new VoltTable.ColumnInfo("HANDLE", VoltType.BIGINT),
+                                     new VoltTable.ColumnInfo("PARTITION_PARAMETER", VoltType.INTEGER),
+                                     new VoltTable.ColumnInfo("PARTITION_PARAMETER_TYPE", VoltType.TINYINT),
+                                     new VoltTable.ColumnInfo("READ_ONLY", VoltType.TINYINT));
+        vt.addRow(handle, partitionParameter, partitionParameterType, stmt.core.readOnly ? 1 : 0);
+
+        ClientResponseImpl response =
+                new ClientResponseImpl(
+                        ClientResponseImpl.SUCCESS,
+                        ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                        null,
+                        new VoltTable[] { vt },
+                        null);
+
+        CompletableFuture<ClientResponse> fut = new CompletableFuture<>();
+        fut.complete(response);
+        return fut;
+    }
+}
@@ -0,0 +1,72 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltDB;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.common.Constants;
+import org.voltdb.compiler.AdHocCompilerCache;
+import org.voltdb.compiler.AdHocPlannedStatement;
+
+/**
+ * Execute a statement prepared with @AdHocPrepare. The parameters are the
+ * handle of the statement, its SQL text or null, and the values of its '?'
+ * parameters. The plan is looked up by handle, so the SQL text is only needed
+ * by a host without a plan for the current catalog: such a host answers an
+ * execution without the text with {@link Constants#UNKNOWN_PREPARED_STATEMENT}.
+ * When the text is sent, the cached plan is only used if it was planned for
+ * the same text; no two texts with the same handle are cached.
+ */
+public class AdHocPrepared extends AdHocNTBase {
+
+    public CompletableFuture<ClientResponse> run(ParameterSet params) {
+        Object[] paramArray = params.toArray();
+        if (paramArray.length < 2 || !(paramArray[0] instanceof Long) ||
+                (paramArray[1] != null && !(paramArray[1] instanceof String))) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE,
+                    "@AdHocPrepared expects the statement handle and SQL text followed by the statement parameters.");
+        }
+        long handle = (Long) paramArray[0];
+        String sql = (String) paramArray[1];
+        Object[] userParams = Arrays.copyOfRange(paramArray, 2, paramArray.length);
+
+        CatalogContext context = VoltDB.instance().getCatalogContext();
+        AdHocPlannedStatement stmt = context.m_ptool.getPrepared(handle, sql);
+        if (stmt == null) {
+            if (sql == null) {
+                return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE, Constants.UNKNOWN_PREPARED_STATEMENT);
+            }
+            if (AdHocCompilerCache.preparedHandle(sql) != handle) {
+                return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE,
+                        "The prepared statement handle doesn't match the SQL text.");
+            }
+            try {
+                stmt = planPrepared(context.m_ptool, handle, sql, userParams.length);
+            }
+            catch (AdHocPlanningException e) {
+                return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE, e.getMessage());
+            }
+        }
+        return runPrepared(stmt, userParams);
+    }
+}
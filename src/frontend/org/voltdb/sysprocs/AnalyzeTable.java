@@ -0,0 +1,324 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.CatalogContext;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.compiler.DatabaseEstimates.Histogram;
+import org.voltdb.utils.CatalogUtil;
+
+/**
+ * Non-transactional procedure to implement the public @AnalyzeTable system procedure.
+ *
+ * Collects the row count of a table, an estimate of the number of distinct values
+ * of each column, and an equi-width histogram of each integer and timestamp column.
+ * The statistics are gathered with aggregate queries, which every partition
+ * evaluates over its own rows before the coordinator merges the results, and are
+ * then stored in the catalog by a catalog update so that the planner can use them.
+ * Plans of stored procedures pick them up the next time they are compiled.
+ * The queries run one after the other without blocking the NT procedure thread.
+ */
+public class AnalyzeTable extends UpdateApplicationBase {
+    VoltLogger log = new VoltLogger("HOST");
+
+    // Number of buckets in a column histogram
+    static final int HISTOGRAM_BUCKETS = 16;
+
+    // Keys of the statistics passed to the catalog update
+    static final String TABLE_KEY = "table";
+    static final String TUPLE_COUNT_KEY = "tuplecount";
+    static final String COLUMNS_KEY = "columns";
+    static final String DISTINCT_COUNT_KEY = "distinctcount";
+    static final String HISTOGRAM_KEY = "histogram";
+
+    // The statistics collected for one column
+    static class ColumnStatistics {
+        final Column m_column;
+        // How the column values are bucketed: the column itself, or microseconds for timestamps
+        final String m_bucketedValue;
+        // Positions of the aggregates in the summary query result, -1 if not collected
+        int m_distinctCountIndex = -1;
+        int m_minIndex = -1;
+        long m_distinctCount = 0;
+        Histogram m_histogram = null;
+
+        ColumnStatistics(Column column) {
+            m_column = column;
+            VoltType type = VoltType.get((byte) column.getType());
+            if (type == VoltType.TIMESTAMP) {
+                m_bucketedValue = "SINCE_EPOCH(MICROSECOND, " + column.getName() + ")";
+            }
+            else if (type.isAnyIntegerType()) {
+                m_bucketedValue = column.getName();
+            }
+            else {
+                m_bucketedValue = null;
+            }
+        }
+
+        /**
+         * @return the aggregate estimating the number of distinct values, or null
+         * if it can't be collected cheaply. APPROX_COUNT_DISTINCT does not take
+         * floating point or variable length values, and COUNT(DISTINCT) can only
+         * be evaluated by the partitions of a partitioned table over its partitioning
+         * column. Anywhere else it would ship every row to the coordinator.
+         */
+        String getDistinctCountAggregate(Table table) {
+            switch (VoltType.get((byte) m_column.getType())) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case DECIMAL:
+            case TIMESTAMP:
+                // cheap to merge across partitions
+                return "APPROX_COUNT_DISTINCT(" + m_column.getName() + ")";
+            case FLOAT:
+            case STRING:
+            case VARBINARY:
+                if (table.getIsreplicated() || isPartitioningColumn(table)) {
+                    return "COUNT(DISTINCT " + m_column.getName() + ")";
+                }
+                return null;
+            default:
+                return null;
+            }
+        }
+
+        private boolean isPartitioningColumn(Table table) {
+            Column partitionColumn = table.getPartitioncolumn();
+            return partitionColumn != null && partitionColumn.getTypeName().equals(m_column.getTypeName());
+        }
+    }
+
+    public CompletableFuture<ClientResponse> run(String tableName) {
+        if (!allowPausedModeWork(false, isAdminConnection())) {
+            return makeQuickResponse(
+                    ClientResponse.SERVER_UNAVAILABLE,
+                    "Server is paused and is available in read-only mode - please try again later.");
+        }
+
+        final CatalogContext context = VoltDB.instance().getCatalogContext();
+        Table table;
+        try {
+            table = getValidatedTable(context, tableName);
+        }
+        catch (VoltAbortException e) {
+            return makeQuickResponse(ClientResponse.GRACEFUL_FAILURE, e.getMessage());
+        }
+
+        return collectStatistics(table).thenCompose(statistics -> {
+            logCatalogUpdateInvocation("@AnalyzeTable");
+            return updateApplication("@AnalyzeTable",
+                                     null,
+                                     statistics,
+                                     new String[0],
+                                     null,
+                                     false, /* isPromotion */
+                                     context.cluster.getUseddlschema());
+        }).exceptionally(t -> {
+            if (t instanceof CompletionException && t.getCause() != null) {
+                t = t.getCause();
+            }
+            return new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE, new VoltTable[0], t.getMessage());
+        });
+    }
+
+    Table getValidatedTable(CatalogContext ctx, String tableName) {
+        if (tableName == null) {
+            throw new VoltAbortException("@AnalyzeTable requires a table name.");
+        }
+        tableName = tableName.trim();
+        Table catTable = ctx.database.getTables().getIgnoreCase(tableName);
+        if (catTable == null) {
+            throw new VoltAbortException(String.format("Table \"%s\" not found.", tableName));
+        }
+        if (CatalogUtil.isTableExportOnly(ctx.database, catTable)) {
+            throw new VoltAbortException(String.format("Stream \"%s\" has no rows to analyze.", tableName));
+        }
+        return catTable;
+    }
+
+    /**
+     * Run the queries that collect the statistics of the table.
+     * @return a future for the statistics encoded as JSON for {@link #applyStatistics(Database, String)}
+     */
+    CompletableFuture<String> collectStatistics(final Table table) {
+        final List<ColumnStatistics> columns = new ArrayList<>();
+        for (Column column : CatalogUtil.getSortedCatalogItems(table.getColumns(), "index")) {
+            columns.add(new ColumnStatistics(column));
+        }
+
+        // One pass for the row count, distinct counts and histogram bounds.
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*)");
+        int index = 1;
+        for (ColumnStatistics stats : columns) {
+            String distinctCount = stats.getDistinctCountAggregate(table);
+            if (distinctCount != null) {
+                sql.append(", ").append(distinctCount);
+                stats.m_distinctCountIndex = index++;
+            }
+            if (stats.m_bucketedValue != null) {
+                sql.append(", MIN(").append(stats.m_bucketedValue).append(")");
+                sql.append(", MAX(").append(stats.m_bucketedValue).append(")");
+                stats.m_minIndex = index;
+                index += 2;
+            }
+        }
+        sql.append(" FROM ").append(table.getTypeName()).append(';');
+
+        return runQuery(sql.toString()).thenCompose(summary -> {
+            summary.advanceRow();
+            final long tupleCount = summary.getLong(0);
+            // The histograms are collected one column at a time
+            CompletableFuture<Void> histograms = CompletableFuture.completedFuture(null);
+            for (final ColumnStatistics stats : columns) {
+                if (stats.m_distinctCountIndex >= 0) {
+                    if (summary.getColumnType(stats.m_distinctCountIndex) == VoltType.FLOAT) {
+                        stats.m_distinctCount = Math.round(summary.getDouble(stats.m_distinctCountIndex));
+                    }
+                    else {
+                        stats.m_distinctCount = summary.getLong(stats.m_distinctCountIndex);
+                    }
+                }
+                if (stats.m_minIndex >= 0) {
+                    final long min = summary.getLong(stats.m_minIndex);
+                    if (summary.wasNull()) {
+                        // no values, or only NULLs
+                        continue;
+                    }
+                    final long max = summary.getLong(stats.m_minIndex + 1);
+                    histograms = histograms.thenCompose(v -> collectHistogram(table, stats, min, max));
+                }
+            }
+            return histograms.thenApply(v -> toJSON(table, tupleCount, columns));
+        });
+    }
+
+    private static String toJSON(Table table, long tupleCount, List<ColumnStatistics> columns) {
+        try {
+            JSONStringer stringer = new JSONStringer();
+            stringer.object();
+            stringer.keySymbolValuePair(TABLE_KEY, table.getTypeName());
+            // An analyzed empty table still counts as one row; zero means "not analyzed".
+            stringer.keySymbolValuePair(TUPLE_COUNT_KEY, Math.max(1, Math.min(Integer.MAX_VALUE, tupleCount)));
+            stringer.key(COLUMNS_KEY).object();
+            for (ColumnStatistics stats : columns) {
+                stringer.key(stats.m_column.getTypeName()).object();
+                stringer.keySymbolValuePair(DISTINCT_COUNT_KEY, Math.min(Integer.MAX_VALUE, stats.m_distinctCount));
+                stringer.keySymbolValuePair(HISTOGRAM_KEY,
+                        stats.m_histogram == null ? "" : stats.m_histogram.toString());
+                stringer.endObject();
+            }
+            stringer.endObject();
+            stringer.endObject();
+            return stringer.toString();
+        }
+        catch (JSONException e) {
+            throw new VoltAbortException("@AnalyzeTable failed to encode the statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count the values of a column in HISTOGRAM_BUCKETS equally wide ranges
+     * between its minimum and maximum, and set them as the histogram of the
+     * column. The range may be too wide to bucket, then there is no histogram.
+     */
+    private CompletableFuture<Void> collectHistogram(Table table, final ColumnStatistics stats, final long min, long max) {
+        long range;
+        try {
+            range = Math.addExact(Math.subtractExact(max, min), 1);
+        }
+        catch (ArithmeticException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final long width = range / HISTOGRAM_BUCKETS + (range % HISTOGRAM_BUCKETS == 0 ? 0 : 1);
+        final int bucketCount = (int) (range / width + (range % width == 0 ? 0 : 1));
+
+        String bucket = "(" + stats.m_bucketedValue + " - (" + min + ")) / " + width;
+        String sql = "SELECT " + bucket + ", COUNT(*) FROM " + table.getTypeName() +
+                " WHERE " + stats.m_column.getName() + " IS NOT NULL GROUP BY " + bucket + ";";
+        return runQuery(sql).thenAccept(result -> {
+            long[] counts = new long[bucketCount];
+            while (result.advanceRow()) {
+                int ii = (int) Math.max(0, Math.min(bucketCount - 1, result.getLong(0)));
+                counts[ii] += result.getLong(1);
+            }
+            stats.m_histogram = new Histogram(min, width, counts);
+        });
+    }
+
+    private CompletableFuture<VoltTable> runQuery(String sql) {
+        return callProcedure("@AdHoc", sql).thenApply(cr -> {
+            if (cr.getStatus() != ClientResponse.SUCCESS) {
+                throw new VoltAbortException("@AnalyzeTable failed to collect statistics: " + cr.getStatusString());
+            }
+            return cr.getResults()[0];
+        });
+    }
+
+    /**
+     * Store the statistics collected by {@link #collectStatistics(Table)} in the catalog.
+     */
+    static void applyStatistics(Database db, String statistics) throws JSONException {
+        JSONObject jobj = new JSONObject(statistics);
+        String tableName = jobj.getString(TABLE_KEY);
+        Table table = db.getTables().get(tableName);
+        if (table == null) {
+            throw new JSONException(String.format("Table \"%s\" was dropped while it was analyzed.", tableName));
+        }
+        JSONObject columns = jobj.getJSONObject(COLUMNS_KEY);
+        Map<String, JSONObject> columnStatistics = new HashMap<>();
+        for (Iterator<String> it = columns.keys(); it.hasNext(); ) {
+            String columnName = it.next();
+            columnStatistics.put(columnName, columns.getJSONObject(columnName));
+        }
+        table.setEstimatedtuplecount(jobj.getInt(TUPLE_COUNT_KEY));
+        for (Column column : table.getColumns()) {
+            JSONObject stats = columnStatistics.get(column.getTypeName());
+            if (stats == null) {
+                // added while the table was analyzed
+                column.setDistinctcount(0);
+                column.setHistogram("");
+                continue;
+            }
+            column.setDistinctcount(stats.getInt(DISTINCT_COUNT_KEY));
+            column.setHistogram(stats.getString(HISTOGRAM_KEY));
+        }
+    }
+}
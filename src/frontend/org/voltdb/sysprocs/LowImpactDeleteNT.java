@@ -118,6 +118,8 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
         long rowsLeft;
         long rowsJustDeleted;
         String errorMessages;
+        // latency of the slowest nibble delete in milliseconds
+        final AtomicLong maxLatency = new AtomicLong();
 
         NibbleStatus(long rowsLeft, long rowsJustDeleted, String errorMessages) {
             this.rowsLeft = rowsLeft;
@@ -125,6 +127,10 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
             rowsDeleted = new AtomicLong(rowsJustDeleted);
             this.errorMessages = errorMessages;
         }
+
+        void updateLatency(long latency) {
+            maxLatency.accumulateAndGet(latency, Math::max);
+        }
     }
 
     NibbleStatus runNibbleDeleteOperation(
@@ -217,7 +223,8 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                                 new ColumnInfo("DELETED_LAST_ROUND", VoltType.BIGINT),
                                 new ColumnInfo("LAST_DELETE_TIMESTAMP", VoltType.BIGINT),
                                 new ColumnInfo("STATUS", VoltType.BIGINT),
-                                new ColumnInfo("MESSAGE", VoltType.STRING));
+                                new ColumnInfo("MESSAGE", VoltType.STRING),
+                                new ColumnInfo("MAX_LATENCY", VoltType.BIGINT));
 
         // collect all the validated info and metadata needed
         // these throw helpful errors if they run into problems
@@ -228,6 +235,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
         Object value = getValidatedValue(colType, valueStr);
 
         // always run nibble delete at least once
+        long startTime = System.currentTimeMillis();
         NibbleStatus status = runNibbleDeleteOperation(
                     tableName,
                     columnName,
@@ -235,11 +243,12 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                     value,
                     chunksize,
                     catTable.getIsreplicated());
+        status.updateLatency(System.currentTimeMillis() - startTime);
         long rowsLeft = status.rowsLeft;
         // If any partition receive failure, report the delete status plus the error message back.
         if (!status.errorMessages.isEmpty()) {
             returnTable.addRow(status.rowsJustDeleted, rowsLeft, status.rowsJustDeleted, System.currentTimeMillis(),
-                    ClientResponse.GRACEFUL_FAILURE, status.errorMessages);
+                    ClientResponse.GRACEFUL_FAILURE, status.errorMessages, status.maxLatency.get());
             return returnTable;
         }
         // handle the case where we're jammed from the start (no rows deleted)
@@ -253,7 +262,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
         int attemptsLeft = (int)Math.min((long)Math.ceil((double)rowsLeft/(double)chunksize), (maxFrequency-1));
         if (attemptsLeft == 0) {
             returnTable.addRow(status.rowsJustDeleted, rowsLeft, status.rowsJustDeleted, System.currentTimeMillis(),
-                    ClientResponse.SUCCESS, "");
+                    ClientResponse.SUCCESS, "", status.maxLatency.get());
             return returnTable;
         }
 
@@ -271,6 +280,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
             }
             @Override
             public void run() {
+                long startTime = System.currentTimeMillis();
                 NibbleStatus thisStatus = runNibbleDeleteOperation(
                         tableName,
                         columnName,
@@ -278,6 +288,7 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                         value,
                         chunksize,
                         catTable.getIsreplicated());
+                status.updateLatency(System.currentTimeMillis() - startTime);
                 if (!thisStatus.errorMessages.isEmpty()) {
                     errors[attempt] = thisStatus.errorMessages;
                     success.set(false);
@@ -316,7 +327,8 @@ public class LowImpactDeleteNT extends VoltNTSystemProcedure {
                 status.rowsJustDeleted,
                 System.currentTimeMillis(),
                 success.get() ? ClientResponse.SUCCESS : ClientResponse.GRACEFUL_FAILURE,
-                success.get() ? "" : Arrays.toString(errors));
+                success.get() ? "" : Arrays.toString(errors),
+                status.maxLatency.get());
         return returnTable;
     }
 }
@@ -29,6 +29,7 @@ import org.apache.zookeeper_voltpatches.CreateMode;
 import org.apache.zookeeper_voltpatches.KeeperException;
 import org.apache.zookeeper_voltpatches.ZooKeeper;
 import org.hsqldb_voltpatches.HSQLInterface;
+import org.json_voltpatches.JSONException;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Pair;
 import org.voltdb.CatalogContext;
@@ -41,6 +42,7 @@ import org.voltdb.VoltZK;
 import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.CatalogDiffEngine;
 import org.voltdb.catalog.CatalogException;
+import org.voltdb.catalog.Database;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.common.Constants;
 import org.voltdb.compiler.CatalogChangeResult;
@@ -172,6 +174,23 @@ public abstract class UpdateApplicationBase extends VoltNTSystemProcedure {
                 // here and let it get filled in correctly later.
                 deploymentString = null;
             }
+            else if ("@AnalyzeTable".equals(invocationName)) {
+                // provided operationString holds the statistics collected by @AnalyzeTable,
+                // which are stored in the current catalog without recompiling anything
+                try {
+                    newCatalogJar = addStatisticsToCatalog(oldJar, operationString);
+                }
+                catch (JSONException e) {
+                    retval.errorMsg = "Unable to store the table statistics: " + e.getMessage();
+                    return retval;
+                }
+                // Real deploymentString should be the current deployment, just set it to null
+                // here and let it get filled in correctly later.
+                deploymentString = null;
+
+                // mark it as non-schema change
+                retval.hasSchemaChange = false;
+            }
             else {
                 // Shouldn't ever get here
                 retval.errorMsg = invocationName + " is not supported";
@@ -328,6 +347,24 @@ public abstract class UpdateApplicationBase extends VoltNTSystemProcedure {
         return jarfile;
     }
 
+    /**
+     * Store the statistics collected by @AnalyzeTable in the catalog of the jarfile.
+     */
+    private static InMemoryJarfile addStatisticsToCatalog(InMemoryJarfile jarfile, String statistics)
+            throws IOException, JSONException
+    {
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(jarfile);
+        if (serializedCatalog == null) {
+            throw new IOException("Unable to read the catalog from the catalog jar");
+        }
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        Database db = catalog.getClusters().get("cluster").getDatabases().get("database");
+        AnalyzeTable.applyStatistics(db, statistics);
+        jarfile.put(CatalogUtil.CATALOG_FILENAME, catalog.serialize().getBytes(Constants.UTF8ENCODING));
+        return jarfile;
+    }
+
     /**
      * @return NUll if no classes changed, otherwise return the update jar file.
      *
@@ -146,4 +146,37 @@ public interface BinaryDeque {
     public interface BinaryDequeScanner {
         public void scan(BBContainer bb);
     }
+
+    /*
+     * Gives the ids, for example the sequence numbers, of the first and last records in an object.
+     * When a deque knows them it records the ranges of ids of a segment in a footer when the segment
+     * is sealed, so that range scanners and truncators can skip the segment without reading it.
+     */
+    public interface EntryRangeReader {
+        /*
+         * Must not change the position or the limit of the buffer.
+         */
+        public long getStartId(ByteBuffer entry);
+
+        /*
+         * Less than the start id if the object has no records.
+         */
+        public long getEndId(ByteBuffer entry);
+    }
+
+    /*
+     * A scanner which only needs the ids of the objects. Segments whose footer records the ranges
+     * of ids are passed to scanRange, the others are scanned object by object.
+     */
+    public interface BinaryDequeRangeScanner extends BinaryDequeScanner {
+        public void scanRange(long startId, long endId);
+    }
+
+    /*
+     * A truncator which can tell from the ids of objects that parse would leave them alone.
+     * Segments where it does so for all the ranges of ids recorded in their footer are not read.
+     */
+    public interface BinaryDequeRangeTruncator extends BinaryDequeTruncator {
+        public boolean isRetained(long startId, long endId);
+    }
 }
@@ -29,6 +29,7 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -72,21 +73,37 @@ class PBDRegularSegment extends PBDSegment {
 
     private int m_numOfEntries = -1;
     private int m_size = -1;
+    // Entries written by append() which readers can't see until publish()
+    private int m_unpublishedEntries = 0;
+    private int m_unpublishedSize = 0;
     private boolean m_compress;
     private int m_segmentRandomId;
     private int m_extraHeaderSize = 0;
     // Not guaranteed to be valid unless m_extraHeaderSize > 0
     private int m_extraHeaderCrc = 0;
 
+    private final BinaryDeque.EntryRangeReader m_rangeReader;
+    // Ranges of ids of the entries, start and end ids in the first m_idRangeLength slots. Collected while the segment
+    // is written and read from the footer once it is sealed, null if not known.
+    private long[] m_idRanges = null;
+    private int m_idRangeLength = 0;
+    private boolean m_footerRead = false;
+
     private DBBPool.BBContainer m_segmentHeaderBuf = null;
     private DBBPool.BBContainer m_entryHeaderBuf = null;
     Boolean INJECT_PBD_CHECKSUM_ERROR = Boolean.getBoolean("INJECT_PBD_CHECKSUM_ERROR");
 
     PBDRegularSegment(long index, long id, File file, VoltLogger usageSpecificLog) {
+        this(index, id, file, usageSpecificLog, null);
+    }
+
+    PBDRegularSegment(long index, long id, File file, VoltLogger usageSpecificLog,
+            BinaryDeque.EntryRangeReader rangeReader) {
         super(file, index, id);
         m_crc = new CRC32();
         m_isFinal = PBDSegment.isFinal(m_file);
         m_usageSpecificLog = usageSpecificLog;
+        m_rangeReader = rangeReader;
         reset();
     }
 
@@ -189,6 +206,9 @@ class PBDRegularSegment extends PBDSegment {
             m_compress = compress;
             m_isActive = true;
             m_segmentRandomId = RANDOM.nextInt();
+            m_idRanges = m_rangeReader == null ? null : new long[16];
+            m_idRangeLength = 0;
+            m_footerRead = true;
         }
         if (forWrite) {
             m_fc.position(m_fc.size());
@@ -327,6 +347,8 @@ class PBDRegularSegment extends PBDSegment {
         if (!m_closed) {
             close();
         }
+        // Truncation drops the footer along with the entries after the truncation point
+        forgetIdRanges();
         openForTruncate();
         SegmentReader reader = openForRead(TRUNCATOR_CURSOR);
 
@@ -486,11 +508,20 @@ class PBDRegularSegment extends PBDSegment {
 
     @Override
     void finalize(boolean close) throws IOException {
+        final boolean wasActive = m_isActive;
         m_isActive = false;
         IOException exception = null;
         try {
+            if (wasActive && m_idRanges != null) {
+                m_idRanges = Arrays.copyOf(m_idRanges, m_idRangeLength);
+            }
             if (canBeFinalized()) {
                 sync();
+                if (wasActive) {
+                    // The footer is only written once the entries are durable
+                    writeFooter();
+                    sync();
+                }
                 setFinal(true);
             }
         } catch (IOException e) {
@@ -527,10 +558,134 @@ class PBDRegularSegment extends PBDSegment {
         return m_isFinal;
     }
 
-    private void incrementNumEntries(int size) throws IOException
+    @Override
+    long[] getIdRanges() throws IOException {
+        if (m_isActive) {
+            return null;
+        }
+        if (!m_footerRead) {
+            readFooter();
+            m_footerRead = true;
+        }
+        return m_idRanges;
+    }
+
+    private void forgetIdRanges() {
+        m_idRanges = null;
+        m_idRangeLength = 0;
+        m_footerRead = true;
+    }
+
+    private void addIdRange(long startId, long endId) {
+        if (endId < startId) {
+            return;
+        }
+        if (m_idRangeLength > 0 && startId == m_idRanges[m_idRangeLength - 1] + 1) {
+            m_idRanges[m_idRangeLength - 1] = endId;
+            return;
+        }
+        if (m_idRangeLength == MAX_FOOTER_ID_RANGES * 2) {
+            m_idRanges = null;
+            return;
+        }
+        if (m_idRangeLength == m_idRanges.length) {
+            m_idRanges = Arrays.copyOf(m_idRanges, m_idRangeLength * 2);
+        }
+        m_idRanges[m_idRangeLength++] = startId;
+        m_idRanges[m_idRangeLength++] = endId;
+    }
+
+    private void writeFooter() throws IOException {
+        if (m_numOfEntries <= 0) {
+            return;
+        }
+        final long[] idRanges = m_idRanges;
+        final int rangeCount = idRanges == null ? -1 : m_idRangeLength / 2;
+        ByteBuffer b = ByteBuffer.allocate(Math.max(rangeCount, 0) * FOOTER_ID_RANGE_BYTES + FOOTER_TRAILER_BYTES);
+        for (int i = 0; i < m_idRangeLength && idRanges != null; i++) {
+            b.putLong(idRanges[i]);
+        }
+        b.putInt(rangeCount);
+        b.putInt(m_numOfEntries);
+        b.putInt(m_size);
+        b.putInt(calculateFooterCrc(b.array(), b.position()));
+        b.putInt(FOOTER_MAGIC);
+        b.flip();
+        while (b.hasRemaining()) {
+            m_fc.write(b);
+        }
+        m_syncedSinceLastEdit = false;
+    }
+
+    /**
+     * Read the ranges of ids from the footer, leaves them unknown if the footer is missing or doesn't match
+     * the segment header
+     */
+    private void readFooter() throws IOException {
+        forgetIdRanges();
+        initializeFromHeader();
+        boolean wasClosed = false;
+        if (m_closed) {
+            wasClosed = true;
+            open(false, false, false);
+        }
+        try {
+            final long fileSize = m_fc.size();
+            final long entriesStart = SEGMENT_HEADER_BYTES + m_extraHeaderSize;
+            if (m_numOfEntries <= 0 || fileSize < entriesStart + FOOTER_TRAILER_BYTES) {
+                return;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(FOOTER_TRAILER_BYTES);
+            PBDUtils.readBufferFully(m_fc, trailer, (int) (fileSize - FOOTER_TRAILER_BYTES));
+            final int rangeCount = trailer.getInt();
+            final int numOfEntries = trailer.getInt();
+            final int size = trailer.getInt();
+            final int crc = trailer.getInt();
+            if (trailer.getInt() != FOOTER_MAGIC || numOfEntries != m_numOfEntries || size != m_size
+                    || rangeCount < 0 || rangeCount > MAX_FOOTER_ID_RANGES) {
+                return;
+            }
+            final long footerStart = fileSize - FOOTER_TRAILER_BYTES - (long) rangeCount * FOOTER_ID_RANGE_BYTES;
+            if (footerStart < entriesStart) {
+                return;
+            }
+            // Everything before the crc
+            ByteBuffer footer = ByteBuffer.allocate(rangeCount * FOOTER_ID_RANGE_BYTES + FOOTER_TRAILER_BYTES - 8);
+            PBDUtils.readBufferFully(m_fc, footer, (int) footerStart);
+            if (crc != calculateFooterCrc(footer.array(), footer.limit())) {
+                m_usageSpecificLog.warn("Ignoring the footer of " + m_file.getName() + ": invalid checksum");
+                return;
+            }
+            long[] idRanges = new long[rangeCount * 2];
+            for (int i = 0; i < idRanges.length; i++) {
+                idRanges[i] = footer.getLong();
+            }
+            m_idRanges = idRanges;
+            m_idRangeLength = idRanges.length;
+        } finally {
+            if (wasClosed) {
+                closeReadersAndFile();
+            }
+        }
+    }
+
+    private int calculateFooterCrc(byte[] footer, int length) {
+        m_crc.reset();
+        m_crc.update(footer, 0, length);
+        m_crc.update(m_segmentRandomId);
+        return (int) m_crc.getValue();
+    }
+
+    @Override
+    void publish() throws IOException
     {
-        m_numOfEntries++;
-        m_size += size;
+        if (m_unpublishedEntries == 0) {
+            return;
+        }
+        m_numOfEntries += m_unpublishedEntries;
+        m_size += m_unpublishedSize;
+        m_unpublishedEntries = 0;
+        m_unpublishedSize = 0;
         writeOutHeader();
     }
 
@@ -620,7 +775,7 @@ class PBDRegularSegment extends PBDSegment {
 
     // Used by Export path
     @Override
-    boolean offer(DBBPool.BBContainer cont) throws IOException
+    int append(DBBPool.BBContainer cont) throws IOException
     {
         if (m_closed) {
             throw new IOException("Segment closed");
@@ -628,10 +783,13 @@ class PBDRegularSegment extends PBDSegment {
         final ByteBuffer buf = cont.b();
         final int remaining = buf.remaining();
         boolean compress = m_compress && remaining >= 32 && buf.isDirect();
+        final boolean trackIds = m_idRanges != null;
+        final long startId = trackIds ? m_rangeReader.getStartId(buf) : 0;
+        final long endId = trackIds ? m_rangeReader.getEndId(buf) : 0;
 
         final int maxCompressedSize = (compress ? CompressionService.maxCompressedLength(remaining) : remaining) + ENTRY_HEADER_BYTES;
         if (remaining() < maxCompressedSize) {
-            return false;
+            return -1;
         }
 
         m_syncedSinceLastEdit = false;
@@ -659,8 +817,11 @@ class PBDRegularSegment extends PBDSegment {
             while (destBuf.b().hasRemaining()) {
                 m_fc.write(destBuf.b());
             }
-            // Update segment header
-            incrementNumEntries(remaining);
+            m_unpublishedEntries++;
+            m_unpublishedSize += remaining;
+            if (trackIds) {
+                addIdRange(startId, endId);
+            }
         } finally {
             destBuf.discard();
             if (compress) {
@@ -668,12 +829,12 @@ class PBDRegularSegment extends PBDSegment {
             }
         }
 
-        return true;
+        return remaining;
     }
 
     // Used by DR path
     @Override
-    int offer(DeferredSerialization ds) throws IOException
+    int append(DeferredSerialization ds) throws IOException
     {
         if (m_closed) {
             throw new IOException("closed");
@@ -684,6 +845,8 @@ class PBDRegularSegment extends PBDSegment {
         }
 
         m_syncedSinceLastEdit = false;
+        // The ids of serialized entries are not known
+        m_idRanges = null;
         DBBPool.BBContainer destBuf = DBBPool.allocateDirectAndPool(fullSize);
 
         try {
@@ -701,8 +864,8 @@ class PBDRegularSegment extends PBDSegment {
             while (destBuf.b().hasRemaining()) {
                 m_fc.write(destBuf.b());
             }
-            // Update segment header
-            incrementNumEntries(written);
+            m_unpublishedEntries++;
+            m_unpublishedSize += written;
             return written;
         } finally {
             destBuf.discard();
@@ -710,7 +873,8 @@ class PBDRegularSegment extends PBDSegment {
     }
 
     private void writeEntryHeader(ByteBuffer data, char flags) {
-        PBDUtils.writeEntryHeader(m_crc, m_entryHeaderBuf.b(), data, m_segmentRandomId + m_numOfEntries + 1, flags);
+        PBDUtils.writeEntryHeader(m_crc, m_entryHeaderBuf.b(), data,
+                m_segmentRandomId + m_numOfEntries + m_unpublishedEntries + 1, flags);
     }
 
     @Override
@@ -779,6 +943,10 @@ class PBDRegularSegment extends PBDSegment {
         private int m_discardCount = 0;
         private boolean m_readerClosed = false;
         private CRC32 m_crcReader = new CRC32();
+        // The entry header buffer of the segment belongs to the writer
+        private final ByteBuffer m_readerHeaderBuf = ByteBuffer.allocate(ENTRY_HEADER_BYTES);
+        // Offset of the next read within the entry being polled
+        private long m_entryReadOffset;
 
         public SegmentReader(String cursorId) throws IOException {
             assert(cursorId != null);
@@ -812,12 +980,12 @@ class PBDRegularSegment extends PBDSegment {
                 return null;
             }
 
-            final long writePos = m_fc.position();
-            m_fc.position(m_readOffset);
-
+            // Reads are positional so that they don't move the position the writer appends at,
+            // the read offset only moves past an entry once it has been completely read
+            m_entryReadOffset = m_readOffset;
             try {
                 //Get the length and size prefix and then read the object
-                ByteBuffer b = m_entryHeaderBuf.b();
+                ByteBuffer b = m_readerHeaderBuf;
                 b.clear();
                 if (!read(b)) {
                     return null;
@@ -875,6 +1043,7 @@ class PBDRegularSegment extends PBDSegment {
                     throw t;
                 }
 
+                m_readOffset = m_entryReadOffset;
                 m_bytesRead += uncompressedLen;
                 m_objectReadIndex++;
 
@@ -903,9 +1072,6 @@ class PBDRegularSegment extends PBDSegment {
                     return null;
                 }
                 throw e;
-            } finally {
-                m_readOffset = m_fc.position();
-                m_fc.position(writePos);
             }
         }
 
@@ -947,11 +1113,12 @@ class PBDRegularSegment extends PBDSegment {
         private boolean read(ByteBuffer buffer) throws IOException {
             do {
                 try {
-                    int read = m_fc.read(buffer);
+                    int read = m_fc.read(buffer, m_entryReadOffset);
                     if (read == -1) {
-                        throw new EOFException("EOF encountered reading " + m_file + " at position " + m_fc.position()
+                        throw new EOFException("EOF encountered reading " + m_file + " at position " + m_entryReadOffset
                                 + " expected to be able to read " + buffer.remaining() + " more bytes");
                     }
+                    m_entryReadOffset += read;
                 } catch (IOException e) {
                     throw new IOException("Error encountered reading: " + m_file, e);
                 }
@@ -960,6 +1127,7 @@ class PBDRegularSegment extends PBDSegment {
         }
 
         private void truncateToCurrentReadIndex() throws IOException {
+            forgetIdRanges();
             boolean wasReadOnly = m_fc.reopen(true);
             try {
                 setFinal(false);
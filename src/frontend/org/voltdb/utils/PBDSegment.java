@@ -68,6 +68,20 @@ public abstract class PBDSegment {
     public static final int ENTRY_HEADER_FLAG_OFFSET = ENTRY_HEADER_ENTRY_ID_OFFSET + 4;
     public static final int ENTRY_HEADER_BYTES = ENTRY_HEADER_FLAG_OFFSET + 2;
 
+    // Segment Footer layout, written after the last entry when the segment is sealed:
+    //  - ranges of ids of the entries, see BinaryDeque.EntryRangeReader (16 bytes per range: start id, end id)
+    //  - number of ranges, -1 if the ids are not known (4 bytes)
+    //  - total number of entries (4 bytes)
+    //  - total bytes of data (4 bytes, uncompressed size)
+    //  - crc of the footer and the random id of the segment (4 bytes)
+    //  - magic (4 bytes)
+    // The footer is only used if the entry count and size match the segment header.
+    static final int FOOTER_MAGIC = 0x50424446;
+    static final int FOOTER_TRAILER_BYTES = 20;
+    static final int FOOTER_ID_RANGE_BYTES = 16;
+    // More ranges than this are not recorded, the entries are too scattered for the footer to help
+    static final int MAX_FOOTER_ID_RANGES = Integer.getInteger("PBDSEGMENT_MAX_FOOTER_ID_RANGES", 4096);
+
     final File m_file;
     // Index of this segment in the in-memory segment map
     final long m_index;
@@ -132,9 +146,43 @@ public abstract class PBDSegment {
 
     abstract boolean hasAllFinishedReading() throws IOException;
 
-    abstract boolean offer(DBBPool.BBContainer cont) throws IOException;
+    /**
+     * Write an entry at the end of the segment without making it visible to readers, see {@link #publish()}.
+     * Appending doesn't require the lock of the deque, only that there is a single writer, so readers of the
+     * segment are not blocked by compression and file writes.
+     *
+     * @param cont the entry, discarded once it has been written
+     * @return the uncompressed size of the entry, or -1 if it doesn't fit in the segment
+     */
+    abstract int append(DBBPool.BBContainer cont) throws IOException;
+
+    /**
+     * @see #append(DBBPool.BBContainer)
+     * @return the size of the entry, or -1 if it doesn't fit in the segment
+     */
+    abstract int append(DeferredSerialization ds) throws IOException;
 
-    abstract int offer(DeferredSerialization ds) throws IOException;
+    /**
+     * Make the entries appended since the last call visible to readers and update the segment header.
+     * Must be called holding the lock of the deque.
+     */
+    abstract void publish() throws IOException;
+
+    boolean offer(DBBPool.BBContainer cont) throws IOException {
+        if (append(cont) < 0) {
+            return false;
+        }
+        publish();
+        return true;
+    }
+
+    int offer(DeferredSerialization ds) throws IOException {
+        int written = append(ds);
+        if (written >= 0) {
+            publish();
+        }
+        return written;
+    }
 
     // TODO: javadoc
     abstract int size();
@@ -186,6 +234,15 @@ public abstract class PBDSegment {
      */
     abstract void finalize(boolean close) throws IOException;
 
+    /**
+     * @return the ranges of ids of the entries recorded in the footer of a sealed segment, as consecutive start and
+     *         end ids, or {@code null} if the segment has no usable footer or the ids are not known
+     * @throws IOException If there was an error reading the footer
+     */
+    long[] getIdRanges() throws IOException {
+        return null;
+    }
+
     public static boolean setFinal(File file, boolean isFinal) {
 
         try {
@@ -90,12 +90,17 @@ class PbdQuarantinedSegment extends PBDSegment {
     }
 
     @Override
-    boolean offer(BBContainer cont) {
+    int append(BBContainer cont) {
         throw new UnsupportedOperationException();
     }
 
     @Override
-    int offer(DeferredSerialization ds) {
+    int append(DeferredSerialization ds) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void publish() {
         throw new UnsupportedOperationException();
     }
 
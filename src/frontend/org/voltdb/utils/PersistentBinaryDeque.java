@@ -79,7 +79,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     /**
      * Used to read entries from the PBD. Multiple readers may be active at the same time,
-     * but only one read or write may happen concurrently.
+     * reads are serialized by the lock of the deque. The writer only takes that lock to
+     * publish an entry it has already written, so reads are not blocked by file writes.
      */
     private class ReadCursor implements BinaryDequeReader {
         private final String m_cursorId;
@@ -87,7 +88,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
         // Number of objects out of the total
         //that were deleted at the time this cursor was created
         private final int m_numObjectsDeleted;
-        private int m_numRead;
+        private volatile int m_numRead;
         // If a rewind occurred this is set to the segment id where this cursor was before the rewind
         private long m_rewoundFromId = -1;
 
@@ -183,12 +184,11 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
         @Override
         public int getNumObjects() throws IOException {
-            synchronized(PersistentBinaryDeque.this) {
-                if (m_closed) {
-                    throw new IOException("Cannot compute object count of " + m_cursorId + " - Reader has been closed");
-                }
-                return m_numObjects - m_numObjectsDeleted - m_numRead;
+            // The counts are only changed holding the lock of the deque but read without it
+            if (m_closed) {
+                throw new IOException("Cannot compute object count of " + m_cursorId + " - Reader has been closed");
             }
+            return m_numObjects - m_numObjectsDeleted - m_numRead;
         }
 
         /*
@@ -352,14 +352,20 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private final TreeMap<Long, PBDSegment> m_segments = new TreeMap<>();
     private volatile boolean m_closed = false;
     private final HashMap<String, ReadCursor> m_readCursors = new HashMap<>();
-    private int m_numObjects;
-    private int m_numDeleted;
+    private volatile int m_numObjects;
+    private volatile int m_numDeleted;
+
+    // Held by the writer, and by the operations which replace or close segments, before the lock of the
+    // deque. Entries are appended to the tail segment holding only this lock, then published holding both.
+    private final Object m_writeLock = new Object();
 
     // Monotonic segment counter: note that this counter always *increases* even when
     // used for a *previous* segment (or inserting a segment *before* the others.
     private long m_segmentCounter = 0L;
 
     private DeferredSerialization m_extraHeader;
+    // Gives the ids of the entries recorded in the footers of sealed segments, may be null
+    private final EntryRangeReader m_entryRangeReader;
 
     /**
      * Create a persistent binary deque with the specified nonce and storage
@@ -389,7 +395,26 @@ public class PersistentBinaryDeque implements BinaryDeque {
     public PersistentBinaryDeque(final String nonce, DeferredSerialization extraHeader,
             final File path, VoltLogger logger,
             final boolean compress) throws IOException {
+        this(nonce, extraHeader, path, logger, compress, null);
+    }
+
+    /**
+     * Create a persistent binary deque whose sealed segments record the ids of their entries in a footer, so
+     * that {@link #scanEntries} and {@link #parseAndTruncate} can skip them with a range scanner or truncator.
+     *
+     * @param nonce
+     * @param extraHeader
+     * @param path
+     * @param logger
+     * @param compress
+     * @param entryRangeReader Gives the ids of the entries offered as buffers
+     * @throws IOException
+     */
+    public PersistentBinaryDeque(final String nonce, DeferredSerialization extraHeader,
+            final File path, VoltLogger logger,
+            final boolean compress, EntryRangeReader entryRangeReader) throws IOException {
         NativeLibraryLoader.loadVoltDB();
+        m_entryRangeReader = entryRangeReader;
         m_path = path;
         m_nonce = nonce;
         m_usageSpecificLog = logger;
@@ -696,7 +721,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void parseAndTruncate(BinaryDequeTruncator truncator) throws IOException {
+    public void parseAndTruncate(BinaryDequeTruncator truncator) throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (this) {
+                parseAndTruncateLocked(truncator);
+            }
+        }
+    }
+
+    private void parseAndTruncateLocked(BinaryDequeTruncator truncator) throws IOException {
         if (m_closed) {
             throw new IOException("Cannot parseAndTruncate(): PBD has been closed");
         }
@@ -723,6 +756,11 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
             final int truncatedEntries;
             try {
+                if (truncator instanceof BinaryDequeRangeTruncator
+                        && isRetained((BinaryDequeRangeTruncator) truncator, segment.getIdRanges())) {
+                    // The footer shows the truncation point is after this segment
+                    continue;
+                }
                 truncatedEntries = segment.parseAndTruncate(truncator);
             } catch (IOException e) {
                 m_usageSpecificLog.warn("Error performing parse and trunctate on segment " + segment.file()
@@ -800,8 +838,20 @@ public class PersistentBinaryDeque implements BinaryDeque {
         assertions();
     }
 
+    private static boolean isRetained(BinaryDequeRangeTruncator truncator, long[] idRanges) {
+        if (idRanges == null) {
+            return false;
+        }
+        for (int i = 0; i < idRanges.length; i += 2) {
+            if (!truncator.isRetained(idRanges[i], idRanges[i + 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     PBDSegment newSegment(long segmentIndex, long segmentId, File file) {
-        return new PBDRegularSegment(segmentIndex, segmentId, file, m_usageSpecificLog);
+        return new PBDRegularSegment(segmentIndex, segmentId, file, m_usageSpecificLog, m_entryRangeReader);
     }
 
     private PBDSegment initializeNewSegment(long segmentIndex, long segmentId, File file, String reason)
@@ -839,51 +889,61 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     @Override
     public void updateExtraHeader(DeferredSerialization extraHeaderSerializer) throws IOException {
-        m_extraHeader = extraHeaderSerializer;
-        addSegment(peekLastSegment());
+        synchronized (m_writeLock) {
+            synchronized (this) {
+                m_extraHeader = extraHeaderSerializer;
+                addSegment(peekLastSegment());
+            }
+        }
     }
 
     @Override
-    public synchronized void offer(BBContainer object) throws IOException {
-        assertions();
-        if (m_closed) {
-            throw new IOException("Closed");
+    public void offer(BBContainer object) throws IOException {
+        synchronized (m_writeLock) {
+            PBDSegment tail = getWriteSegment("Closed");
+            // Compress and write without holding the lock of the deque
+            if (tail.append(object) < 0) {
+                tail = addSegment(tail);
+                if (tail.append(object) < 0) {
+                    throw new IOException("Failed to offer object in PBD");
+                }
+            }
+            publish(tail);
         }
+    }
 
-        PBDSegment tail = peekLastSegment();
-        if (!tail.offer(object)) {
-            tail = addSegment(tail);
-            final boolean success = tail.offer(object);
-            if (!success) {
-                throw new IOException("Failed to offer object in PBD");
+    @Override
+    public int offer(DeferredSerialization ds) throws IOException {
+        synchronized (m_writeLock) {
+            PBDSegment tail = getWriteSegment("Cannot offer(): PBD has been Closed");
+            int written = tail.append(ds);
+            if (written < 0) {
+                tail = addSegment(tail);
+                written = tail.append(ds);
+                if (written < 0) {
+                    throw new IOException("Failed to offer object in PBD");
+                }
             }
+            publish(tail);
+            return written;
         }
-        m_numObjects++;
-        assertions();
     }
 
-    @Override
-    public synchronized int offer(DeferredSerialization ds) throws IOException {
+    private synchronized PBDSegment getWriteSegment(String closedMessage) throws IOException {
         assertions();
         if (m_closed) {
-            throw new IOException("Cannot offer(): PBD has been Closed");
+            throw new IOException(closedMessage);
         }
+        return peekLastSegment();
+    }
 
-        PBDSegment tail = peekLastSegment();
-        int written = tail.offer(ds);
-        if (written < 0) {
-            tail = addSegment(tail);
-            written = tail.offer(ds);
-            if (written < 0) {
-                throw new IOException("Failed to offer object in PBD");
-            }
-        }
+    private synchronized void publish(PBDSegment tail) throws IOException {
+        tail.publish();
         m_numObjects++;
         assertions();
-        return written;
     }
 
-    private PBDSegment addSegment(PBDSegment tail) throws IOException {
+    private synchronized PBDSegment addSegment(PBDSegment tail) throws IOException {
         //Check to see if the tail is completely consumed so we can close and delete it
         tail.finalize(!tail.isBeingPolled());
 
@@ -913,7 +973,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void push(BBContainer objects[], DeferredSerialization ds) throws IOException {
+    public void push(BBContainer objects[], DeferredSerialization ds) throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (this) {
+                pushLocked(objects, ds);
+            }
+        }
+    }
+
+    private void pushLocked(BBContainer objects[], DeferredSerialization ds) throws IOException {
         assertions();
         if (m_closed) {
             throw new IOException("Cannot push(): PBD has been Closed");
@@ -1075,7 +1143,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void sync() throws IOException {
+    public void sync() throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (this) {
+                syncLocked();
+            }
+        }
+    }
+
+    private void syncLocked() throws IOException {
         if (m_closed) {
             throw new IOException("Cannot sync(): PBD has been Closed");
         }
@@ -1087,7 +1163,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void close() throws IOException {
+    public void close() throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (this) {
+                closeLocked();
+            }
+        }
+    }
+
+    private void closeLocked() throws IOException {
         if (m_closed) {
             return;
         }
@@ -1118,7 +1202,15 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void closeAndDelete() throws IOException {
+    public void closeAndDelete() throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (this) {
+                closeAndDeleteLocked();
+            }
+        }
+    }
+
+    private void closeAndDeleteLocked() throws IOException {
         if (m_closed) {
             return;
         }
@@ -1284,6 +1376,16 @@ public class PersistentBinaryDeque implements BinaryDeque {
         for (Map.Entry<Long, PBDSegment> entry : m_segments.entrySet()) {
             PBDSegment segment = entry.getValue();
             try {
+                if (scanner instanceof BinaryDequeRangeScanner) {
+                    // Sealed segments with a footer are not read
+                    long[] idRanges = segment.getIdRanges();
+                    if (idRanges != null) {
+                        for (int i = 0; i < idRanges.length; i += 2) {
+                            ((BinaryDequeRangeScanner) scanner).scanRange(idRanges[i], idRanges[i + 1]);
+                        }
+                        continue;
+                    }
+                }
                 int truncatedEntries = segment.scan(scanner);
                 if (truncatedEntries > 0) {
                     m_numObjects -= truncatedEntries;
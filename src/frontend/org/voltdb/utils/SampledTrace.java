@@ -0,0 +1,283 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.utils.VoltTrace.Category;
+import org.voltdb.utils.VoltTrace.TraceEvent;
+import org.voltdb.utils.VoltTrace.TraceEventType;
+
+/**
+ * Continuous, low overhead tracing of a sample of the transactions.
+ *
+ * Unlike the events of {@link VoltTrace}, which are built as objects and only
+ * worth collecting while investigating a problem, sampled events are a few
+ * longs written into a preallocated ring buffer of the recording thread:
+ * the nanosecond timestamp, an interned event id, the transaction id and one
+ * numeric argument. Whether a transaction is sampled only depends on its id,
+ * so every thread and host traces the same transactions. The ring buffers are
+ * converted into Chrome trace events when they are dumped, along with the
+ * events of {@link VoltTrace}. The buffer of a thread which has exited is
+ * dropped once it has been dumped, or when another thread starts recording.
+ *
+ * This class is thread-safe.
+ */
+public final class SampledTrace {
+
+    // Fraction of the transactions traced, 0 to turn sampling off
+    static final double DEFAULT_SAMPLE_RATE = Double.parseDouble(System.getProperty("VOLTTRACE_SAMPLE_RATE", "0"));
+    // Events kept per thread, rounded up to a power of two
+    static final int BUFFER_EVENTS = Integer.getInteger("VOLTTRACE_SAMPLE_BUFFER_EVENTS", 16384);
+
+    private static final int SLOTS_PER_EVENT = 4;
+    private static final int SAMPLE_BITS = 24;
+
+    // Transactions whose mixed id falls below the threshold are sampled
+    private static volatile long s_threshold = thresholdFor(DEFAULT_SAMPLE_RATE);
+
+    // Interned event names and the name of the argument of each
+    private static final Map<String, Integer> s_eventIds = new ConcurrentHashMap<>();
+    private static final List<String[]> s_events = new CopyOnWriteArrayList<>();
+
+    private static final List<Ring> s_rings = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<Ring> s_ring = ThreadLocal.withInitial(() -> {
+        final Ring ring = new Ring(Thread.currentThread());
+        pruneRings();
+        s_rings.add(ring);
+        return ring;
+    });
+
+    private SampledTrace() {}
+
+    /**
+     * The events of one thread. Only the owning thread writes, the position is
+     * published after the event so that a dump sees complete events.
+     */
+    static final class Ring {
+        // Weak so that the ring doesn't keep an exited thread around
+        final WeakReference<Thread> m_owner;
+        final long m_tid;
+        final String m_threadName;
+        final long[] m_slots;
+        final int m_mask;
+        final AtomicLong m_position = new AtomicLong();
+
+        Ring(Thread thread) {
+            m_owner = new WeakReference<>(thread);
+            m_tid = thread.getId();
+            m_threadName = thread.getName();
+            final int events = Integer.highestOneBit(Math.max(2, BUFFER_EVENTS) * 2 - 1);
+            m_slots = new long[events * SLOTS_PER_EVENT];
+            m_mask = events - 1;
+        }
+
+        boolean isOwnerAlive() {
+            final Thread owner = m_owner.get();
+            return owner != null && owner.isAlive();
+        }
+
+        void record(long header, long txnId, long arg) {
+            final long position = m_position.get();
+            final int base = (int) (position & m_mask) * SLOTS_PER_EVENT;
+            m_slots[base] = System.nanoTime();
+            m_slots[base + 1] = header;
+            m_slots[base + 2] = txnId;
+            m_slots[base + 3] = arg;
+            m_position.lazySet(position + 1);
+        }
+
+        /**
+         * Convert the events still in the buffer. Events overwritten by the
+         * owning thread while they were copied are left out.
+         */
+        void collect(List<TraceEvent> events) {
+            final long end = m_position.get();
+            final long capacity = m_mask + 1;
+            final long start = Math.max(0, end - capacity);
+            final long[] copy = new long[(int) (end - start) * SLOTS_PER_EVENT];
+            for (long position = start; position < end; position++) {
+                System.arraycopy(m_slots, (int) (position & m_mask) * SLOTS_PER_EVENT,
+                                 copy, (int) (position - start) * SLOTS_PER_EVENT, SLOTS_PER_EVENT);
+            }
+            // the event being written when the copy finished may overwrite one more
+            final long first = Math.max(start, m_position.get() - capacity + 1);
+            if (first >= end) {
+                return;
+            }
+
+            final TraceEvent threadName = new TraceEvent(TraceEventType.METADATA, "thread_name", null,
+                                                         "name", m_threadName);
+            threadName.setTid(m_tid);
+            threadName.setNanos(copy[(int) (first - start) * SLOTS_PER_EVENT]);
+            events.add(threadName);
+            for (long position = first; position < end; position++) {
+                final int base = (int) (position - start) * SLOTS_PER_EVENT;
+                events.add(toTraceEvent(copy[base], copy[base + 1], copy[base + 2], copy[base + 3], m_tid));
+            }
+        }
+    }
+
+    private static long thresholdFor(double rate) {
+        if (!(rate > 0)) {
+            return 0;
+        }
+        return (long) (Math.min(rate, 1.0) * (1L << SAMPLE_BITS));
+    }
+
+    /**
+     * Set the fraction of the transactions to trace, 0 to stop sampling.
+     * The events already recorded stay in the buffers until overwritten.
+     */
+    public static void setSampleRate(double rate) {
+        s_threshold = thresholdFor(rate);
+    }
+
+    public static double getSampleRate() {
+        return (double) s_threshold / (1L << SAMPLE_BITS);
+    }
+
+    public static boolean isEnabled() {
+        return s_threshold > 0;
+    }
+
+    /**
+     * @return true if the events of the transaction should be recorded
+     */
+    public static boolean isSampled(long txnId) {
+        // Mix the bits since consecutive ids only differ in the low bits
+        return ((txnId * 0x9E3779B97F4A7C15L) >>> (64 - SAMPLE_BITS)) < s_threshold;
+    }
+
+    /**
+     * Intern an event name. Call sites keep the id in a static field.
+     * @param name     The name of the event in the trace
+     * @param argName  The name of its numeric argument
+     * @return the id to record the event with
+     */
+    public static int event(String name, String argName) {
+        synchronized (s_events) {
+            final String key = name + '\0' + argName;
+            Integer id = s_eventIds.get(key);
+            if (id == null) {
+                id = s_events.size();
+                s_events.add(new String[] { name, argName });
+                s_eventIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    private static long header(TraceEventType type, Category cat, int eventId) {
+        return ((long) type.ordinal() << 48) | ((long) cat.ordinal() << 32) | eventId;
+    }
+
+    /**
+     * Record the start of a span of a sampled transaction on the current thread.
+     */
+    public static void begin(Category cat, int eventId, long txnId, long arg) {
+        if (isSampled(txnId)) {
+            s_ring.get().record(header(TraceEventType.DURATION_BEGIN, cat, eventId), txnId, arg);
+        }
+    }
+
+    /**
+     * Record the end of the span started last on the current thread.
+     */
+    public static void end(Category cat, int eventId, long txnId, long arg) {
+        if (isSampled(txnId)) {
+            s_ring.get().record(header(TraceEventType.DURATION_END, cat, eventId), txnId, arg);
+        }
+    }
+
+    /**
+     * Record the start of a span of a sampled transaction which may end on another thread.
+     */
+    public static void beginAsync(Category cat, int eventId, long txnId, long arg) {
+        if (isSampled(txnId)) {
+            s_ring.get().record(header(TraceEventType.ASYNC_BEGIN, cat, eventId), txnId, arg);
+        }
+    }
+
+    /**
+     * Record the end of a span started with {@link #beginAsync}.
+     */
+    public static void endAsync(Category cat, int eventId, long txnId, long arg) {
+        if (isSampled(txnId)) {
+            s_ring.get().record(header(TraceEventType.ASYNC_END, cat, eventId), txnId, arg);
+        }
+    }
+
+    /**
+     * Record a point in time of a sampled transaction.
+     */
+    public static void instant(Category cat, int eventId, long txnId, long arg) {
+        if (isSampled(txnId)) {
+            s_ring.get().record(header(TraceEventType.INSTANT, cat, eventId), txnId, arg);
+        }
+    }
+
+    private static TraceEvent toTraceEvent(long nanos, long header, long txnId, long arg, long tid) {
+        final TraceEventType type = TraceEventType.values()[(int) (header >>> 48)];
+        final Category cat = Category.values()[(int) ((header >>> 32) & 0xFFFF)];
+        final String[] event = s_events.get((int) header);
+        final boolean async = type == TraceEventType.ASYNC_BEGIN || type == TraceEventType.ASYNC_END;
+        final TraceEvent traceEvent = new TraceEvent(type,
+                                                     type == TraceEventType.DURATION_END ? null : event[0],
+                                                     async ? Long.toHexString(txnId) : null,
+                                                     "txnId", Long.toString(txnId),
+                                                     event[1], Long.toString(arg));
+        traceEvent.setCategory(cat);
+        traceEvent.setTid(tid);
+        traceEvent.setNanos(nanos);
+        return traceEvent;
+    }
+
+    // Drop the rings of the threads which have exited
+    private static void pruneRings() {
+        for (Ring ring : s_rings) {
+            if (!ring.isOwnerAlive()) {
+                s_rings.remove(ring);
+            }
+        }
+    }
+
+    /**
+     * Convert the events in the ring buffers of all threads, oldest first.
+     * The last events of the threads which have exited are converted once,
+     * then their ring buffers are dropped.
+     */
+    static List<TraceEvent> collectEvents() {
+        final List<TraceEvent> events = new ArrayList<>();
+        for (Ring ring : s_rings) {
+            final boolean ownerAlive = ring.isOwnerAlive();
+            ring.collect(events);
+            if (!ownerAlive) {
+                s_rings.remove(ring);
+            }
+        }
+        events.sort((a, b) -> Long.compare(a.getNanos(), b.getNanos()));
+        return events;
+    }
+}
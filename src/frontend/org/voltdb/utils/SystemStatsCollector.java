@@ -17,16 +17,28 @@
 
 package org.voltdb.utils;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.processtools.ShellTools;
 
@@ -37,6 +49,9 @@ import org.voltdb.processtools.ShellTools;
  * It stored history in three buckets, each with a fixed size.
  * Each bucket should be more granular than the last.
  *
+ * On Linux the samples are read from procfs, on a low priority thread of
+ * their own, without forking "ps". Each sample also adds up the CPU time of
+ * the site, network and export threads.
  */
 public class SystemStatsCollector {
 
@@ -51,7 +66,20 @@ public class SystemStatsCollector {
     static int pid = 0;
     static boolean initialized = false;
     static GetRSSMode mode = GetRSSMode.PS;
-    static Thread thread = null;
+
+    // Samples are taken one at a time. The requests made while one is running are
+    // folded into a single next sample, which is added to every set they asked for.
+    // Guarded by the class lock.
+    private static boolean s_sampling = false;
+    private static boolean s_pendingSample = false;
+    private static boolean s_pendingMedium = false;
+    private static boolean s_pendingLarge = false;
+    private static ExecutorService s_sampler = null;
+
+    // CPU time of the process at the previous sample, to compute the CPU used in between
+    private static long s_lastCpuTime = -1;
+    private static long s_lastCpuNanos = 0;
+    private static final int s_processors = Runtime.getRuntime().availableProcessors();
 
     final static ArrayDeque<Datum> historyL = new ArrayDeque<Datum>(); // every hour
     final static ArrayDeque<Datum> historyM = new ArrayDeque<Datum>(); // every minute
@@ -165,6 +193,153 @@ public class SystemStatsCollector {
         }
     }
 
+    /**
+     * Reads the memory and CPU usage of this process from procfs. Linux only,
+     * but unlike "ps" it is cheap enough to be called every few seconds.
+     */
+    public static class ProcFSScraper {
+
+        // Clock ticks per second (USER_HZ) of the CPU times in /proc/<pid>/stat
+        static final int CLOCK_TICKS = Integer.getInteger("PROCFS_CLOCK_TICKS", 100);
+
+        /**
+         * Structure to hold the values read from procfs, -1 when unknown.
+         * Sizes are in bytes and CPU time in milliseconds.
+         */
+        public static class ProcFSData {
+            long rss = -1;
+            long rssPeak = -1;
+            long pss = -1;
+            long swap = -1;
+            long cpuTime = -1;
+            int threads = -1;
+        }
+
+        /**
+         * Parse the single line of /proc/<pid>/stat for the user and system CPU time
+         * and the number of threads.
+         */
+        static void parseStat(String line, ProcFSData data) {
+            // The command name in parentheses may contain spaces, the fields after it don't.
+            // Field 3 of proc(5), the state, comes first.
+            String[] fields = line.substring(line.lastIndexOf(')') + 2).trim().split("\\s+");
+            long utime = Long.parseLong(fields[11]);
+            long stime = Long.parseLong(fields[12]);
+            data.cpuTime = (utime + stime) * 1000 / CLOCK_TICKS;
+            data.threads = Integer.parseInt(fields[17]);
+        }
+
+        /**
+         * Parse a "Name:   1234 kB" line of /proc/<pid>/status or smaps_rollup.
+         * @return The size in bytes, or -1 if the line isn't for the given name.
+         */
+        static long parseKBLine(String line, String name) {
+            if (!line.startsWith(name) || line.length() <= name.length() || line.charAt(name.length()) != ':') {
+                return -1;
+            }
+            String[] parts = line.substring(name.length() + 1).trim().split("\\s+");
+            return Long.parseLong(parts[0]) * 1024;
+        }
+
+        static void parseStatus(List<String> lines, ProcFSData data) {
+            for (String line : lines) {
+                long value;
+                if ((value = parseKBLine(line, "VmRSS")) >= 0) {
+                    data.rss = value;
+                }
+                else if ((value = parseKBLine(line, "VmHWM")) >= 0) {
+                    data.rssPeak = value;
+                }
+                else if ((value = parseKBLine(line, "VmSwap")) >= 0) {
+                    data.swap = value;
+                }
+            }
+        }
+
+        static void parseSmapsRollup(List<String> lines, ProcFSData data) {
+            for (String line : lines) {
+                long value;
+                if ((value = parseKBLine(line, "Pss")) >= 0) {
+                    data.pss = value;
+                }
+                else if ((value = parseKBLine(line, "SwapPss")) >= 0) {
+                    // Swap charged to this process alone, more accurate than VmSwap
+                    data.swap = value;
+                }
+            }
+        }
+
+        /**
+         * Read the stats of a process from procfs.
+         * @param procDir The procfs directory of the process, e.g. /proc/self
+         * @return The stats, or null if procfs can't be read.
+         */
+        public static ProcFSData getProcFSData(Path procDir) {
+            ProcFSData data = new ProcFSData();
+            try {
+                parseStat(new String(Files.readAllBytes(procDir.resolve("stat")), StandardCharsets.US_ASCII), data);
+                parseStatus(Files.readAllLines(procDir.resolve("status"), StandardCharsets.US_ASCII), data);
+            }
+            catch (IOException | RuntimeException e) {
+                return null;
+            }
+            try {
+                // Only on 4.14 and later kernels. smaps itself is too expensive for a big heap.
+                parseSmapsRollup(Files.readAllLines(procDir.resolve("smaps_rollup"), StandardCharsets.US_ASCII), data);
+            }
+            catch (NoSuchFileException e) { }
+            catch (IOException | RuntimeException e) {
+                data.pss = -1;
+            }
+            return data.rss > 0 ? data : null;
+        }
+    }
+
+    /**
+     * The kinds of threads whose CPU usage is reported separately, by thread name.
+     */
+    public enum ThreadType {
+        SITE,
+        NETWORK,
+        EXPORT,
+        OTHER;
+
+        static ThreadType of(String name) {
+            if (name.contains(" Site - ")) {
+                return SITE;
+            }
+            if (name.contains("Network - ")) {
+                return NETWORK;
+            }
+            if (name.startsWith("Export") || name.contains("ExportDataSource") || name.contains(" Export ")) {
+                return EXPORT;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * CPU usage of the threads of one type at the last sample.
+     */
+    public static class ThreadTypeSample {
+        public final int threads;
+        // Total CPU time of the live threads, in milliseconds
+        public final long cpuTime;
+        // CPU used since the previous sample, as a fraction of one core
+        public final double cpuLoad;
+
+        ThreadTypeSample(int threads, long cpuTime, double cpuLoad) {
+            this.threads = threads;
+            this.cpuTime = cpuTime;
+            this.cpuLoad = cpuLoad;
+        }
+    }
+
+    // CPU time in nanoseconds of each thread at the previous sample, by thread id
+    private static Map<Long, Long> s_lastThreadCpuTimes = Collections.emptyMap();
+    private static long s_lastThreadSampleNanos = 0;
+    private static volatile Map<ThreadType, ThreadTypeSample> s_threadSamples = Collections.emptyMap();
+
     /**
      * Datum class is one sample of memory usage.
      */
@@ -175,6 +350,13 @@ public class SystemStatsCollector {
         public final long javausedheapmem;
         public final long javatotalsysmem;
         public final long javausedsysmem;
+        // -1 when not known on this platform
+        public final long pss;
+        public final long swap;
+        // CPU time of the process in milliseconds
+        public final long cpuTime;
+        // CPU used since the previous sample, as a fraction of all cores
+        public final double cpuLoad;
 
         /**
          * Constructor accepts some system values and generates some Java values.
@@ -182,6 +364,17 @@ public class SystemStatsCollector {
          * @param rss Resident set size.
          */
         public Datum(long rss) {
+            this(rss, -1, -1, -1, -1);
+        }
+
+        /**
+         * @param rss Resident set size.
+         * @param pss Proportional set size.
+         * @param swap Swapped out size.
+         * @param cpuTime CPU time of the process in milliseconds.
+         * @param cpuLoad CPU used since the previous sample, as a fraction of all cores.
+         */
+        public Datum(long rss, long pss, long swap, long cpuTime, double cpuLoad) {
             MemoryMXBean mmxb = ManagementFactory.getMemoryMXBean();
             MemoryUsage muheap = mmxb.getHeapMemoryUsage();
             MemoryUsage musys = mmxb.getNonHeapMemoryUsage();
@@ -192,6 +385,10 @@ public class SystemStatsCollector {
             javausedheapmem = muheap.getUsed();
             javatotalsysmem = musys.getCommitted();
             javausedsysmem = musys.getUsed();
+            this.pss = pss;
+            this.swap = swap;
+            this.cpuTime = cpuTime;
+            this.cpuLoad = cpuLoad;
         }
 
         /**
@@ -238,42 +435,126 @@ public class SystemStatsCollector {
         Datum d = generateCurrentSample();
         if (d == null)
             return null;
-        historyS.addLast(d);
-        if (historyS.size() > historySize) historyS.removeFirst();
-        if (medium) {
-            historyM.addLast(d);
-            if (historyM.size() > historySize) historyM.removeFirst();
-        }
-        if (large) {
-            historyL.addLast(d);
-            if (historyL.size() > historySize) historyL.removeFirst();
+        synchronized (SystemStatsCollector.class) {
+            historyS.addLast(d);
+            if (historyS.size() > historySize) historyS.removeFirst();
+            if (medium) {
+                historyM.addLast(d);
+                if (historyM.size() > historySize) historyM.removeFirst();
+            }
+            if (large) {
+                historyL.addLast(d);
+                if (historyL.size() > historySize) historyL.removeFirst();
 
+            }
+        }
+        if (testStatsProducer == null) {
+            sampleThreadsNow();
         }
         return d;
     }
 
     /**
-     * Fire off a thread to asynchronously collect stats.
+     * Add up the CPU time of the live threads by type, and the CPU they used
+     * since the previous sample.
+     */
+    static void sampleThreadsNow() {
+        ThreadMXBean tmxb = ManagementFactory.getThreadMXBean();
+        if (!tmxb.isThreadCpuTimeSupported() || !tmxb.isThreadCpuTimeEnabled()) {
+            return;
+        }
+        Thread[] threads = new Thread[Thread.activeCount() * 2 + 16];
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        int count = root.enumerate(threads, true);
+
+        long now = System.nanoTime();
+        Map<Long, Long> cpuTimes = new HashMap<>(count * 2);
+        Map<ThreadType, long[]> totals = new EnumMap<>(ThreadType.class);
+        for (ThreadType type : ThreadType.values()) {
+            // threads, CPU time, CPU time since the previous sample
+            totals.put(type, new long[3]);
+        }
+        for (int i = 0; i < count; i++) {
+            long id = threads[i].getId();
+            long cpuTime = tmxb.getThreadCpuTime(id);
+            if (cpuTime < 0) {
+                // exited meanwhile
+                continue;
+            }
+            cpuTimes.put(id, cpuTime);
+            Long last = s_lastThreadCpuTimes.get(id);
+            long[] total = totals.get(ThreadType.of(threads[i].getName()));
+            total[0]++;
+            total[1] += cpuTime;
+            total[2] += cpuTime - (last == null ? 0 : last);
+        }
+
+        long elapsed = now - s_lastThreadSampleNanos;
+        boolean first = s_lastThreadSampleNanos == 0;
+        Map<ThreadType, ThreadTypeSample> samples = new EnumMap<>(ThreadType.class);
+        for (Map.Entry<ThreadType, long[]> e : totals.entrySet()) {
+            long[] total = e.getValue();
+            double load = first || elapsed <= 0 ? 0.0 : (double) total[2] / elapsed;
+            samples.put(e.getKey(), new ThreadTypeSample((int) total[0], total[1] / 1000000, load));
+        }
+        s_lastThreadCpuTimes = cpuTimes;
+        s_lastThreadSampleNanos = now;
+        s_threadSamples = Collections.unmodifiableMap(samples);
+    }
+
+    /**
+     * @return CPU usage by thread type at the most recent sample, empty before the first one.
+     */
+    public static Map<ThreadType, ThreadTypeSample> getRecentThreadSamples() {
+        return s_threadSamples;
+    }
+
+    /**
+     * Collect stats on the low priority sampler thread. If a sample is being
+     * taken already, another one is taken after it.
      * @param medium Add result to medium set?
      * @param large Add result to large set?
      */
     public static synchronized void asyncSampleSystemNow(final boolean medium, final boolean large) {
-        // slow mode starts an async thread
-        if (mode == GetRSSMode.PS) {
-            if (thread != null) {
-                if (thread.isAlive()) return;
-                else thread = null;
-            }
-
-            thread = new Thread(new Runnable() {
-                @Override
-                public void run() { sampleSystemNow(medium, large); }
+        if (s_sampling) {
+            s_pendingSample = true;
+            s_pendingMedium |= medium;
+            s_pendingLarge |= large;
+            return;
+        }
+        s_sampling = true;
+        if (s_sampler == null) {
+            final ThreadFactory factory = CoreUtils.getThreadFactory(null, "System Stats Sampler",
+                    CoreUtils.SMALL_STACK_SIZE, false, null);
+            s_sampler = Executors.newSingleThreadExecutor(r -> {
+                Thread t = factory.newThread(r);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
             });
-            thread.start();
         }
-        // fast mode doesn't spawn a thread
-        else {
-            sampleSystemNow(medium, large);
+        s_sampler.execute(() -> sampleUntilNonePending(medium, large));
+    }
+
+    private static void sampleUntilNonePending(boolean medium, boolean large) {
+        while (true) {
+            try {
+                sampleSystemNow(medium, large);
+            } catch (RuntimeException e) {
+                // keep taking the pending samples
+                new VoltLogger("HOST").warn("Failed to sample system statistics", e);
+            }
+            synchronized (SystemStatsCollector.class) {
+                if (!s_pendingSample) {
+                    s_sampling = false;
+                    return;
+                }
+                medium = s_pendingMedium;
+                large = s_pendingLarge;
+                s_pendingSample = s_pendingMedium = s_pendingLarge = false;
+            }
         }
     }
 
@@ -299,10 +580,6 @@ public class SystemStatsCollector {
         pid = Integer.valueOf(pidString);
         initialized = true;
 
-        // get the RSS and other stats from scraping "ps" from the command line
-        PSScraper.PSData psdata = PSScraper.getPSData(pid);
-        assert(psdata.rss > 0);
-
         // figure out how much memory this thing has
         memorysize = pp.ramInMegabytes;
         assert(memorysize > 0);
@@ -322,8 +599,7 @@ public class SystemStatsCollector {
         if (rss > 0) mode = GetRSSMode.MACOSX_NATIVE;
 
         // try procfs
-        rss = getRSSFromProcFS();
-        if (rss > 0) mode = GetRSSMode.PROCFS;
+        if (ProcFSScraper.getProcFSData(PROC_SELF) != null) mode = GetRSSMode.PROCFS;
 
         // notify users if stats collection might be slow
         if (mode == GetRSSMode.PS) {
@@ -334,26 +610,15 @@ public class SystemStatsCollector {
         }
     }
 
+    private static final Path PROC_SELF = Paths.get("/proc/self");
+
     /**
      * Get the RSS using the procfs. If procfs is not
      * around, this will return -1;
      */
     private static long getRSSFromProcFS() {
-        try {
-            File statFile = new File(String.format("/proc/%d/stat", pid));
-            FileInputStream fis = new FileInputStream(statFile);
-            try {
-                BufferedReader r = new BufferedReader(new InputStreamReader(fis));
-                String stats = r.readLine();
-                String[] parts = stats.split(" ");
-                return Long.parseLong(parts[23]) * 4 * 1024;
-            } finally {
-                fis.close();
-            }
-        }
-        catch (Exception e) {
-            return -1;
-        }
+        ProcFSScraper.ProcFSData data = ProcFSScraper.getProcFSData(PROC_SELF);
+        return data == null ? -1 : data.rss;
     }
 
     public static synchronized long getRSSMB() {
@@ -375,20 +640,43 @@ public class SystemStatsCollector {
         if (!initialized) initialize();
 
         long rss = -1;
+        long pss = -1;
+        long swap = -1;
+        long cpuTime = -1;
         switch (mode) {
         case MACOSX_NATIVE:
             rss = ExecutionEngine.nativeGetRSS();
             break;
         case PROCFS:
-            rss = getRSSFromProcFS();
+            ProcFSScraper.ProcFSData procdata = ProcFSScraper.getProcFSData(PROC_SELF);
+            if (procdata != null) {
+                rss = procdata.rss;
+                pss = procdata.pss;
+                swap = procdata.swap;
+                cpuTime = procdata.cpuTime;
+            }
             break;
         case PS:
-            rss = PSScraper.getPSData(pid).rss;
+            PSScraper.PSData psdata = PSScraper.getPSData(pid);
+            if (psdata != null) {
+                rss = psdata.rss;
+                cpuTime = psdata.time;
+            }
             break;
         }
 
+        // CPU used since the previous sample, as a fraction of the machine
+        double cpuLoad = -1;
+        long now = System.nanoTime();
+        if (cpuTime >= 0 && s_lastCpuTime >= 0 && now > s_lastCpuNanos) {
+            cpuLoad = (cpuTime - s_lastCpuTime) * 1000000.0 / (now - s_lastCpuNanos) / s_processors;
+            cpuLoad = Math.max(0.0, Math.min(1.0, cpuLoad));
+        }
+        s_lastCpuTime = cpuTime;
+        s_lastCpuNanos = now;
+
         // create a new Datum which adds java stats
-        Datum d = new Datum(rss);
+        Datum d = new Datum(rss, pss, swap, cpuTime, cpuLoad);
         return d;
     }
 
@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.zip.GZIPOutputStream;
 
@@ -29,17 +31,28 @@ import org.voltcore.logging.VoltLogger;
 
 
 /**
- * Reads trace events from VoltTrace queue and writes them to files.
+ * Reads trace events from VoltTrace queue and writes them to files,
+ * followed by the events of the sampled transactions, if any.
  */
 public class TraceFileWriter implements Runnable {
     private static final VoltLogger s_logger = new VoltLogger("TRACER");
 
     private final File m_path;
     private final Queue<VoltTrace.TraceEventBatch> m_events;
+    private final List<VoltTrace.TraceEvent> m_sampledEvents;
 
     public TraceFileWriter(File path, Queue<VoltTrace.TraceEventBatch> events) {
+        this(path, events, Collections.emptyList());
+    }
+
+    /**
+     * @param sampledEvents Events of the sampled transactions, oldest first
+     */
+    public TraceFileWriter(File path, Queue<VoltTrace.TraceEventBatch> events,
+                           List<VoltTrace.TraceEvent> sampledEvents) {
         m_events = events;
         m_path = path;
+        m_sampledEvents = sampledEvents;
     }
 
     @Override
@@ -57,19 +70,26 @@ public class TraceFileWriter implements Runnable {
                     if (fileWriter == null) {
                         fileWriter = startTraceFile(m_path);
                         firstEventTime = event.getNanos();
+                        if (!m_sampledEvents.isEmpty()) {
+                            firstEventTime = Math.min(firstEventTime, m_sampledEvents.get(0).getNanos());
+                        }
                     } else {
                         fileWriter.write(",");
                     }
-
-                    event.setSyncNanos(firstEventTime);
-                    String json = jsonMapper.writeValueAsString(event);
-                    fileWriter.newLine();
-                    fileWriter.write(json);
-                    fileWriter.flush();
-
+                    writeEvent(fileWriter, jsonMapper, event, firstEventTime);
                     count++;
                 }
             }
+            for (VoltTrace.TraceEvent event : m_sampledEvents) {
+                if (fileWriter == null) {
+                    fileWriter = startTraceFile(m_path);
+                    firstEventTime = event.getNanos();
+                } else {
+                    fileWriter.write(",");
+                }
+                writeEvent(fileWriter, jsonMapper, event, firstEventTime);
+                count++;
+            }
         } catch(IOException e) { // also catches JSON exceptions
             s_logger.info("Unexpected IO exception in trace file writer. Stopping trace file writer.", e);
         }
@@ -81,6 +101,15 @@ public class TraceFileWriter implements Runnable {
         s_logger.info("Wrote " + count + " trace events to " + m_path.getAbsolutePath());
     }
 
+    private static void writeEvent(BufferedWriter bw, ObjectMapper jsonMapper, VoltTrace.TraceEvent event,
+                                   long firstEventTime) throws IOException {
+        event.setSyncNanos(firstEventTime);
+        String json = jsonMapper.writeValueAsString(event);
+        bw.newLine();
+        bw.write(json);
+        bw.flush();
+    }
+
     private static void close(BufferedWriter bw) {
         try {
             bw.newLine();
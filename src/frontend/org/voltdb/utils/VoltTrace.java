@@ -51,7 +51,8 @@ import org.voltcore.utils.CoreUtils;
  * Utility class to log Chrome Trace Event format trace messages into files.
  * Trace events are queued in a ring buffer. When the buffer is full, oldest
  * events will be removed to make room for new events. Events in the ring buffer
- * can be dumped to a file on user's request.
+ * can be dumped to a file on user's request. The events of the transactions
+ * sampled by {@link SampledTrace} are dumped into the same file.
  *
  * This class is thread-safe.
  */
@@ -369,7 +370,11 @@ public class VoltTrace implements Runnable {
     }
 
     private ListenableFuture dumpEvents(File path) {
-        if (m_emptyQueue == null || m_traceEvents.isEmpty()) {
+        if (m_emptyQueue == null) {
+            return null;
+        }
+        final List<TraceEvent> sampledEvents = SampledTrace.collectEvents();
+        if (m_traceEvents.isEmpty() && sampledEvents.isEmpty()) {
             return null;
         }
 
@@ -377,7 +382,7 @@ public class VoltTrace implements Runnable {
         m_traceEvents = m_emptyQueue;
         m_emptyQueue = null;
 
-        final ListenableFuture future = m_writerThread.submit(new TraceFileWriter(path, writeQueue));
+        final ListenableFuture future = m_writerThread.submit(new TraceFileWriter(path, writeQueue, sampledEvents));
         future.addListener(() -> m_work.offer(() -> m_emptyQueue = writeQueue), CoreUtils.SAMETHREADEXECUTOR);
         return future;
     }
@@ -389,13 +394,7 @@ public class VoltTrace implements Runnable {
      * already a write in progress.
      */
     private String write(String logDir) throws IOException, ExecutionException, InterruptedException {
-        final File file = new File(logDir, "trace_" + System.currentTimeMillis() + ".json.gz");
-        if (file.exists()) {
-            throw new IOException("Trace file " + file.getAbsolutePath() + " already exists");
-        }
-        if (!file.getParentFile().canWrite() || !file.getParentFile().canExecute()) {
-            throw new IOException("Trace file " + file.getAbsolutePath() + " is not writable");
-        }
+        final File file = newTraceFile(logDir);
 
         SettableFuture<Future> f = SettableFuture.create();
         m_work.offer(() -> f.set(dumpEvents(file)));
@@ -409,6 +408,32 @@ public class VoltTrace implements Runnable {
         }
     }
 
+    private static File newTraceFile(String logDir) throws IOException {
+        final File file = new File(logDir, "trace_" + System.currentTimeMillis() + ".json.gz");
+        if (file.exists()) {
+            throw new IOException("Trace file " + file.getAbsolutePath() + " already exists");
+        }
+        if (!file.getParentFile().canWrite() || !file.getParentFile().canExecute()) {
+            throw new IOException("Trace file " + file.getAbsolutePath() + " is not writable");
+        }
+        return file;
+    }
+
+    /**
+     * Write the events of the sampled transactions to file, on the calling
+     * thread, when no tracer is running.
+     * @return The file path if written, or null if there are no events.
+     */
+    private static synchronized String writeSampledEvents(String logDir) throws IOException {
+        final List<TraceEvent> sampledEvents = SampledTrace.collectEvents();
+        if (sampledEvents.isEmpty()) {
+            return null;
+        }
+        final File file = newTraceFile(logDir);
+        new TraceFileWriter(file, new LinkedList<>(), sampledEvents).run();
+        return file.getAbsolutePath();
+    }
+
     @Override
     public void run() {
         while (!m_shutdown) {
@@ -550,14 +575,15 @@ public class VoltTrace implements Runnable {
     }
 
     /**
-     * Write all trace events in the queue to file.
-     * @return The file path if written successfully, or null if a write is already in progress.
+     * Write all trace events in the queue, and the events of the sampled transactions, to file.
+     * @return The file path if written successfully, or null if a write is already in progress
+     * or there are no events.
      */
     public static String dump(String logDir) throws IOException {
         String path = null;
         final VoltTrace tracer = s_tracer;
 
-        if (tracer != null) {
+        if (tracer != null || SampledTrace.isEnabled()) {
             final File dir = new File(logDir);
             if (!dir.getParentFile().canWrite() || !dir.getParentFile().canExecute()) {
                 throw new IOException("Trace log parent directory " + dir.getParentFile().getAbsolutePath() +
@@ -570,7 +596,7 @@ public class VoltTrace implements Runnable {
             }
 
             try {
-                path = tracer.write(logDir);
+                path = tracer != null ? tracer.write(logDir) : writeSampledEvents(logDir);
             } catch (Exception e) {
                 s_logger.info("Unable to write trace file: " + e.getMessage(), e);
             }
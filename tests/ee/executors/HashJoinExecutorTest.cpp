@@ -0,0 +1,424 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <string>
+#include <tuple>
+#include <vector>
+
+#include <boost/foreach.hpp>
+#include <boost/optional.hpp>
+
+#include "harness.h"
+
+#include "test_utils/LargeTempTableTopend.hpp"
+#include "test_utils/Tools.hpp"
+#include "test_utils/TupleComparingTest.hpp"
+#include "test_utils/UniqueEngine.hpp"
+
+#include "common/LargeTempTableBlockCache.h"
+#include "common/ValuePeeker.hpp"
+#include "common/executorcontext.hpp"
+#include "common/tabletuple.h"
+#include "execution/ExecutorVector.h"
+#include "storage/AbstractTempTable.hpp"
+#include "storage/LargeTempTableBlock.h"
+#include "storage/table.h"
+#include "storage/tableiterator.h"
+
+using namespace voltdb;
+
+// Catalog for the following DDL:
+//
+// CREATE TABLE T1 (
+//     A INTEGER,
+//     B INTEGER NOT NULL
+// );
+// PARTITION TABLE T1 ON COLUMN B;
+//
+// CREATE TABLE T2 (
+//     A INTEGER,
+//     C INTEGER NOT NULL
+// );
+// PARTITION TABLE T2 ON COLUMN C;
+
+const std::string catalogPayload =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 1199145600\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno -1\n"
+    "set $PREV jsonapi true\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV heartbeatTimeout 90\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled true\n"
+    "set $PREV drRole \"master\"\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 5555\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 1000\n"
+    "set $PREV preferredSource 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"hash\"\n"
+    "add /clusters#cluster/databases#database groups administrator\n"
+    "set /clusters#cluster/databases#database/groups#administrator admin true\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database groups user\n"
+    "set /clusters#cluster/databases#database/groups#user admin false\n"
+    "set $PREV defaultproc true\n"
+    "set $PREV defaultprocread true\n"
+    "set $PREV sql true\n"
+    "set $PREV sqlread true\n"
+    "set $PREV allproc true\n"
+    "add /clusters#cluster/databases#database tables T1\n"
+    "set /clusters#cluster/databases#database/tables#T1 isreplicated false\n"
+    "set $PREV partitioncolumn /clusters#cluster/databases#database/tables#T1/columns#B\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"T1|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#T1 columns A\n"
+    "set /clusters#cluster/databases#database/tables#T1/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#T1 columns B\n"
+    "set /clusters#cluster/databases#database/tables#T1/columns#B index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable false\n"
+    "set $PREV name \"B\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database tables T2\n"
+    "set /clusters#cluster/databases#database/tables#T2 isreplicated false\n"
+    "set $PREV partitioncolumn /clusters#cluster/databases#database/tables#T2/columns#C\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"T2|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#T2 columns A\n"
+    "set /clusters#cluster/databases#database/tables#T2/columns#A index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"A\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#T2 columns C\n"
+    "set /clusters#cluster/databases#database/tables#T2/columns#C index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable false\n"
+    "set $PREV name \"C\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database snapshotSchedule default\n"
+    "set /clusters#cluster/databases#database/snapshotSchedule#default enabled false\n"
+    "set $PREV frequencyUnit \"h\"\n"
+    "set $PREV frequencyValue 24\n"
+    "set $PREV retain 2\n"
+    "set $PREV prefix \"AUTOSNAP\"\n"
+    "add /clusters#cluster deployment deployment\n"
+    "set /clusters#cluster/deployment#deployment kfactor 0\n"
+    "add /clusters#cluster/deployment#deployment systemsettings systemsettings\n"
+    "set /clusters#cluster/deployment#deployment/systemsettings#systemsettings temptablemaxsize 100\n"
+    "set $PREV snapshotpriority 6\n"
+    "set $PREV elasticduration 50\n"
+    "set $PREV elasticthroughput 2\n"
+    "set $PREV querytimeout 10000\n"
+    "add /clusters#cluster logconfig log\n"
+    "set /clusters#cluster/logconfig#log enabled false\n"
+    "set $PREV synchronous false\n"
+    "set $PREV fsyncInterval 200\n"
+    "set $PREV maxTxns 2147483647\n"
+    "set $PREV logSize 1024\n";
+
+
+// Column COLUMN_IDX of the outer (TABLE_IDX 0) or inner (TABLE_IDX 1) tuple
+static std::string tve(int columnIdx, int tableIdx) {
+    std::ostringstream oss;
+    oss << "{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":" << columnIdx
+        << ",\"TABLE_IDX\":" << tableIdx << "}";
+    return oss.str();
+}
+
+static std::string column(const std::string& name, int columnIdx) {
+    return "{\"COLUMN_NAME\":\"" + name + "\",\"EXPRESSION\":" + tve(columnIdx, 0) + "}";
+}
+
+static std::string scan(int id, const std::string& tableName, const std::string& keyName) {
+    std::ostringstream oss;
+    oss << "{\"ID\":" << id << ",\"PLAN_NODE_TYPE\":\"SEQSCAN\","
+        << "\"INLINE_NODES\":[{\"ID\":" << (id + 1) << ",\"PLAN_NODE_TYPE\":\"PROJECTION\","
+        << "\"OUTPUT_SCHEMA\":[" << column("A", 0) << "," << column(keyName, 1) << "]}],"
+        << "\"TARGET_TABLE_NAME\":\"" << tableName << "\",\"TARGET_TABLE_ALIAS\":\"" << tableName << "\"}";
+    return oss.str();
+}
+
+// The plan the planner produces for
+//
+// SELECT * FROM T1 <joinType> JOIN T2 ON T1.A = T2.A;
+//
+// with T1 the outer and T2 the inner (build) side of the hash join.
+static std::string hashJoinPlan(const std::string& joinType) {
+    std::ostringstream oss;
+    oss << "{\"PLAN_NODES_LISTS\":[{\"STATEMENT_ID\":0,\"PLAN_NODES\":["
+        << "{\"ID\":1,\"PLAN_NODE_TYPE\":\"HASHJOIN\",\"CHILDREN_IDS\":[2,4],"
+        << "\"OUTPUT_SCHEMA\":[" << column("A", 0) << "," << column("B", 1) << ","
+        <<                          column("A", 2) << "," << column("C", 3) << "],"
+        << "\"JOIN_TYPE\":\"" << joinType << "\","
+        << "\"PRE_JOIN_PREDICATE\":null,"
+        << "\"JOIN_PREDICATE\":{\"TYPE\":10,\"VALUE_TYPE\":23,"
+        <<     "\"LEFT\":" << tve(0, 0) << ",\"RIGHT\":" << tve(0, 1) << "},"
+        << "\"WHERE_PREDICATE\":null,"
+        << "\"OUTER_HASH_EXPRESSIONS\":[" << tve(0, 0) << "],"
+        << "\"INNER_HASH_EXPRESSIONS\":[" << tve(0, 1) << "]},"
+        << scan(2, "T1", "B") << ","
+        << scan(4, "T2", "C")
+        << "]}],"
+        << "\"EXECUTE_LISTS\":[{\"EXECUTE_LIST\":[2,4,1]}],"
+        << "\"IS_LARGE_QUERY\":false}";
+    return oss.str();
+}
+
+// Counts the large temp table blocks written out to make room in the block cache
+class CountingLargeTempTableTopend : public LargeTempTableTopend {
+public:
+    CountingLargeTempTableTopend() : m_storeCount(0) { }
+
+    bool storeLargeTempTableBlock(voltdb::LargeTempTableBlock* block) {
+        ++m_storeCount;
+        return LargeTempTableTopend::storeLargeTempTableBlock(block);
+    }
+
+    int storeCount() const {
+        return m_storeCount;
+    }
+
+private:
+    int m_storeCount;
+};
+
+class HashJoinExecutorTest : public TupleComparingTest {
+protected:
+    typedef std::tuple<boost::optional<int>, int> InRow;
+    typedef std::tuple<boost::optional<int>, int, boost::optional<int>, boost::optional<int>> OutRow;
+
+    void insertRows(VoltDBEngine* engine, const std::string& tableName, const std::vector<InRow>& rows) {
+        Table* table = engine->getTableByName(tableName);
+        StandAloneTupleStorage storage{table->schema()};
+        TableTuple tupleToInsert = storage.tuple();
+        BOOST_FOREACH(auto initValues, rows) {
+            Tools::initTuple(&tupleToInsert, initValues);
+            table->insertTuple(tupleToInsert);
+        }
+    }
+
+    void verifyResult(Table* result, const std::vector<OutRow>& expectedTuples) {
+        ASSERT_EQ(expectedTuples.size(), result->activeTupleCount());
+        int i = 0;
+        TableTuple iterTuple{result->schema()};
+        TableIterator iter = result->iterator();
+        while (iter.next(iterTuple)) {
+            ASSERT_TUPLES_EQ(expectedTuples[i], iterTuple);
+            ++i;
+        }
+    }
+
+    void insertSmallTables(VoltDBEngine* engine) {
+        // Unique inner keys, so the output follows the order of the outer table
+        insertRows(engine, "T1", std::vector<InRow>{
+                InRow{1,           10},
+                InRow{2,           20},
+                InRow{boost::none, 30},
+                InRow{4,           40},
+                InRow{2,           50}
+            });
+        insertRows(engine, "T2", std::vector<InRow>{
+                InRow{3,           300},
+                InRow{2,           200},
+                InRow{boost::none, 999},
+                InRow{1,           100}
+            });
+    }
+};
+
+TEST_F(HashJoinExecutorTest, innerJoin) {
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+    insertSmallTables(engine.get());
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), hashJoinPlan("INNER"), 0);
+    ASSERT_NE(NULL, ev.get());
+
+    // NULL keys match nothing, not even each other
+    std::vector<OutRow> expectedTuples{
+        OutRow{1, 10, 1, 100},
+        OutRow{2, 20, 2, 200},
+        OutRow{2, 50, 2, 200}
+    };
+
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+    verifyResult(result.get(), expectedTuples);
+
+    // Again, to make sure the hash table was released
+    ExecutorContext::getExecutorContext()->cleanupAllExecutors();
+    result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+    verifyResult(result.get(), expectedTuples);
+}
+
+TEST_F(HashJoinExecutorTest, leftJoin) {
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+    insertSmallTables(engine.get());
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), hashJoinPlan("LEFT"), 0);
+    ASSERT_NE(NULL, ev.get());
+
+    // Outer tuples without a match, including the one with a NULL key, are null-padded
+    std::vector<OutRow> expectedTuples{
+        OutRow{1,           10, 1,           100},
+        OutRow{2,           20, 2,           200},
+        OutRow{boost::none, 30, boost::none, boost::none},
+        OutRow{4,           40, boost::none, boost::none},
+        OutRow{2,           50, 2,           200}
+    };
+
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+    verifyResult(result.get(), expectedTuples);
+}
+
+TEST_F(HashJoinExecutorTest, leftJoinEmptyInner) {
+    UniqueEngine engine = UniqueEngineBuilder().build();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+    insertRows(engine.get(), "T1", std::vector<InRow>{
+            InRow{1, 10},
+            InRow{2, 20}
+        });
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), hashJoinPlan("LEFT"), 0);
+    ASSERT_NE(NULL, ev.get());
+
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+    verifyResult(result.get(), std::vector<OutRow>{
+            OutRow{1, 10, boost::none, boost::none},
+            OutRow{2, 20, boost::none, boost::none}
+        });
+}
+
+// A build side over half of the temp table memory limit is partitioned into
+// large temp tables.  The block cache holds fewer blocks than the two inputs
+// take in partitions, so this only succeeds if the inputs are partitioned one
+// at a time and the partition count stays within the blocks the cache can pin.
+TEST_F(HashJoinExecutorTest, partitionedJoin) {
+    const int64_t tempTableMemoryLimit = 6 * LargeTempTableBlock::BLOCK_SIZE_IN_BYTES;
+    // Each inner tuple takes over 40 bytes in the hash table, so this is more
+    // than half of the limit.
+    const int innerRows = 1000000;
+    const int unmatchedOuterRows = 1000;
+
+    CountingLargeTempTableTopend* topend = new CountingLargeTempTableTopend();
+    UniqueEngine engine = UniqueEngineBuilder()
+        .setTopend(std::unique_ptr<LargeTempTableTopend>(topend))
+        .setTempTableMemoryLimit(tempTableMemoryLimit)
+        .build();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+
+    Table* outerTable = engine->getTableByName("T1");
+    Table* innerTable = engine->getTableByName("T2");
+    StandAloneTupleStorage outerStorage{outerTable->schema()};
+    StandAloneTupleStorage innerStorage{innerTable->schema()};
+    TableTuple outerTuple = outerStorage.tuple();
+    TableTuple innerTuple = innerStorage.tuple();
+    for (int i = 0; i < innerRows + unmatchedOuterRows; ++i) {
+        Tools::initTuple(&outerTuple, std::make_tuple(i, i));
+        outerTable->insertTuple(outerTuple);
+        if (i < innerRows) {
+            Tools::initTuple(&innerTuple, std::make_tuple(i, -i));
+            innerTable->insertTuple(innerTuple);
+        }
+    }
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), hashJoinPlan("INNER"), 0);
+    ASSERT_NE(NULL, ev.get());
+
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_NE(NULL, result.get());
+
+    // Partitions were written out to make room for others
+    ASSERT_TRUE(topend->storeCount() > 0);
+
+    // The output order depends on the partitioning, so check each tuple
+    ASSERT_EQ(innerRows, result->activeTupleCount());
+    TableTuple iterTuple{result->schema()};
+    TableIterator iter = result->iterator();
+    while (iter.next(iterTuple)) {
+        int key = ValuePeeker::peekAsInteger(iterTuple.getNValue(0));
+        ASSERT_TRUE(key < innerRows);
+        ASSERT_EQ(key, ValuePeeker::peekAsInteger(iterTuple.getNValue(1)));
+        ASSERT_EQ(key, ValuePeeker::peekAsInteger(iterTuple.getNValue(2)));
+        ASSERT_EQ(-key, ValuePeeker::peekAsInteger(iterTuple.getNValue(3)));
+    }
+    result.reset();
+
+    // Every partition is released
+    LargeTempTableBlockCache* lttBlockCache = ExecutorContext::getExecutorContext()->lttBlockCache();
+    ASSERT_EQ(0, lttBlockCache->numPinnedEntries());
+    ASSERT_EQ(0, lttBlockCache->totalBlockCount());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
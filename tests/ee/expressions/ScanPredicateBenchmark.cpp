@@ -0,0 +1,232 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+/*
+ * Compares a scan predicate evaluated through the generic comparison and
+ * conjunction expressions with the same predicate built by
+ * ExpressionUtil::comparisonFactory, which picks the integer and timestamp
+ * evaluators. Both must select the same rows; the timings are printed.
+ *
+ * The predicate is "a >= ? AND ts < constant AND id <> constant" on a
+ * table of (id BIGINT, a INTEGER, ts TIMESTAMP) with some NULL values.
+ */
+
+#include <cstdlib>
+#include <ctime>
+#include <iostream>
+#include <sys/time.h>
+#include <vector>
+#include <boost/scoped_array.hpp>
+#include <boost/scoped_ptr.hpp>
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/PlannerDomValue.h"
+#include "common/TupleSchema.h"
+#include "common/tabletuple.h"
+#include "common/ValueFactory.hpp"
+#include "expressions/comparisonexpression.h"
+#include "expressions/conjunctionexpression.h"
+#include "expressions/expressionutil.h"
+
+using namespace voltdb;
+
+#define ROWS 200000
+#define RUNS 20
+
+static int64_t getMicrosNow() {
+    timeval tv;
+    gettimeofday(&tv, NULL);
+    return tv.tv_sec * 1000000 + tv.tv_usec;
+}
+
+class ScanPredicateBenchmark : public Test {
+public:
+    ScanPredicateBenchmark()
+        : m_emptyRoot("{}")
+    {
+        std::vector<ValueType> types;
+        types.push_back(VALUE_TYPE_BIGINT);
+        types.push_back(VALUE_TYPE_INTEGER);
+        types.push_back(VALUE_TYPE_TIMESTAMP);
+        std::vector<int32_t> columnSizes;
+        columnSizes.push_back(8);
+        columnSizes.push_back(4);
+        columnSizes.push_back(8);
+        std::vector<bool> allowNull(3, true);
+        m_schema = TupleSchema::createTupleSchemaForTest(types, columnSizes, allowNull);
+        m_tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+        m_storage.reset(new char[m_tupleLength * ROWS]);
+
+        const time_t seed = time(NULL);
+        std::cout << "Seed " << seed << std::endl;
+        srand(static_cast<unsigned int>(seed));
+        for (int ii = 0; ii < ROWS; ii++) {
+            TableTuple tuple(m_storage.get() + m_tupleLength * ii, m_schema);
+            tuple.setNValue(0, ValueFactory::getBigIntValue(ii));
+            if (rand() % 20 == 0) {
+                tuple.setNValue(1, NValue::getNullValue(VALUE_TYPE_INTEGER));
+            }
+            else {
+                tuple.setNValue(1, ValueFactory::getIntegerValue(rand() % 1000));
+            }
+            if (rand() % 20 == 0) {
+                tuple.setNValue(2, NValue::getNullValue(VALUE_TYPE_TIMESTAMP));
+            }
+            else {
+                tuple.setNValue(2, ValueFactory::getTimestampValue(rand() % 1000000));
+            }
+        }
+        m_param = ValueFactory::getIntegerValue(250);
+    }
+
+    ~ScanPredicateBenchmark() {
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    AbstractExpression* column(int idx, ValueType vt) {
+        AbstractExpression *tve = new TupleValueExpression(0, idx);
+        tve->setValueType(vt);
+        return tve;
+    }
+
+    AbstractExpression* constant(const NValue &value, ValueType vt) {
+        AbstractExpression *cve = new ConstantValueExpression(value);
+        cve->setValueType(vt);
+        return cve;
+    }
+
+    AbstractExpression* parameter(ValueType vt) {
+        AbstractExpression *pve = new ParameterValueExpression(0, &m_param);
+        pve->setValueType(vt);
+        return pve;
+    }
+
+    /** The predicate as the generic, type agnostic expressions evaluate it. */
+    AbstractExpression* generalPredicate() {
+        AbstractExpression *aGte = new ComparisonExpression<CmpGte>(
+                EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+                column(1, VALUE_TYPE_INTEGER), parameter(VALUE_TYPE_INTEGER));
+        AbstractExpression *tsLt = new ComparisonExpression<CmpLt>(
+                EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                column(2, VALUE_TYPE_TIMESTAMP),
+                constant(ValueFactory::getTimestampValue(500000), VALUE_TYPE_TIMESTAMP));
+        AbstractExpression *idNe = new ComparisonExpression<CmpNe>(
+                EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                column(0, VALUE_TYPE_BIGINT),
+                constant(ValueFactory::getBigIntValue(ROWS / 2), VALUE_TYPE_BIGINT));
+        return new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND,
+                new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND, aGte, tsLt),
+                idNe);
+    }
+
+    /** The same predicate as built from a plan fragment. */
+    AbstractExpression* specializedPredicate() {
+        PlannerDomValue dom = m_emptyRoot.rootObject();
+        AbstractExpression *aGte = ExpressionUtil::comparisonFactory(dom,
+                EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+                column(1, VALUE_TYPE_INTEGER), parameter(VALUE_TYPE_INTEGER));
+        AbstractExpression *tsLt = ExpressionUtil::comparisonFactory(dom,
+                EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                column(2, VALUE_TYPE_TIMESTAMP),
+                constant(ValueFactory::getTimestampValue(500000), VALUE_TYPE_TIMESTAMP));
+        AbstractExpression *idNe = ExpressionUtil::comparisonFactory(dom,
+                EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                column(0, VALUE_TYPE_BIGINT),
+                constant(ValueFactory::getBigIntValue(ROWS / 2), VALUE_TYPE_BIGINT));
+        return ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+                ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND, aGte, tsLt),
+                idNe);
+    }
+
+    TableTuple tupleAt(int idx) {
+        return TableTuple(m_storage.get() + m_tupleLength * idx, m_schema);
+    }
+
+protected:
+    PlannerDomRoot m_emptyRoot;
+    TupleSchema *m_schema;
+    size_t m_tupleLength;
+    boost::scoped_array<char> m_storage;
+    NValue m_param;
+};
+
+TEST_F(ScanPredicateBenchmark, SameRows) {
+    boost::scoped_ptr<AbstractExpression> general(generalPredicate());
+    boost::scoped_ptr<AbstractExpression> specialized(specializedPredicate());
+    for (int ii = 0; ii < ROWS; ii++) {
+        TableTuple tuple = tupleAt(ii);
+        NValue expected = general->eval(&tuple, NULL);
+        NValue actual = specialized->eval(&tuple, NULL);
+        ASSERT_EQ(expected.isNull(), actual.isNull());
+        ASSERT_EQ(expected.isTrue(), actual.isTrue());
+        ASSERT_EQ(expected.isTrue(), specialized->evalPredicate(&tuple, NULL));
+    }
+
+    // A parameter bound to a value of another type takes the NValue comparison
+    m_param = ValueFactory::getDoubleValue(250.5);
+    for (int ii = 0; ii < ROWS; ii++) {
+        TableTuple tuple = tupleAt(ii);
+        ASSERT_EQ(general->eval(&tuple, NULL).isTrue(), specialized->evalPredicate(&tuple, NULL));
+    }
+}
+
+TEST_F(ScanPredicateBenchmark, Scan) {
+    boost::scoped_ptr<AbstractExpression> general(generalPredicate());
+    boost::scoped_ptr<AbstractExpression> specialized(specializedPredicate());
+
+    int64_t generalMatches = 0;
+    int64_t start = getMicrosNow();
+    for (int run = 0; run < RUNS; run++) {
+        for (int ii = 0; ii < ROWS; ii++) {
+            TableTuple tuple = tupleAt(ii);
+            if (general->eval(&tuple, NULL).isTrue()) {
+                generalMatches++;
+            }
+        }
+    }
+    int64_t generalMicros = getMicrosNow() - start;
+
+    int64_t specializedMatches = 0;
+    start = getMicrosNow();
+    for (int run = 0; run < RUNS; run++) {
+        for (int ii = 0; ii < ROWS; ii++) {
+            TableTuple tuple = tupleAt(ii);
+            if (specialized->evalPredicate(&tuple, NULL)) {
+                specializedMatches++;
+            }
+        }
+    }
+    int64_t specializedMicros = getMicrosNow() - start;
+
+    ASSERT_EQ(generalMatches, specializedMatches);
+    std::cout << "Scanned " << ROWS << " rows " << RUNS << " times, "
+              << generalMatches / RUNS << " matches per scan" << std::endl
+              << "  generic expressions:     " << generalMicros << " microseconds" << std::endl
+              << "  specialized expressions: " << specializedMicros << " microseconds" << std::endl;
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
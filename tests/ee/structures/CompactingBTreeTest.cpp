@@ -0,0 +1,236 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <iostream>
+#include <map>
+#include <cstdlib>
+#include <cstdio>
+#include <sys/time.h>
+#include "harness.h"
+#include "structures/CompactingBTree.h"
+#include "common/FixUnusedAssertHack.h"
+
+using namespace voltdb;
+using namespace std;
+
+class IntComparator {
+public:
+    inline int operator()(const int &lhs, const int &rhs) const {
+        if (lhs > rhs) return 1;
+        else if (lhs < rhs) return -1;
+        else return 0;
+    }
+
+    int compareWithoutPointer(const int &lhs, const int &rhs) const {
+        return operator()(lhs, rhs);
+    }
+};
+
+typedef voltdb::CompactingBTree<NormalKeyValuePair<int, int>, IntComparator, true> RankedBTree;
+typedef voltdb::CompactingBTree<NormalKeyValuePair<int, int>, IntComparator, false> BTree;
+
+class CompactingBTreeTest : public Test {
+public:
+    CompactingBTreeTest() {
+    }
+
+    ~CompactingBTreeTest() {
+    }
+
+    /*
+     * Compare every entry, in both directions, and the rank of every
+     * distinct key with the std::multimap holding the same entries.
+     */
+    void verifyContents(RankedBTree &volt, std::multimap<int, int> &stl) {
+        ASSERT_TRUE(volt.verify());
+        ASSERT_EQ(static_cast<int64_t>(stl.size()), volt.size());
+
+        RankedBTree::iterator volti = volt.begin();
+        int64_t rank = 1;
+        for (std::multimap<int, int>::iterator stli = stl.begin(); stli != stl.end(); stli++, rank++) {
+            ASSERT_FALSE(volti.isEnd());
+            ASSERT_EQ(stli->first, volti.key());
+            ASSERT_TRUE(volt.findRank(rank).equals(volti));
+            if (stli == stl.begin() || (--std::multimap<int, int>::iterator(stli))->first != stli->first) {
+                ASSERT_EQ(rank, volt.rankLower(stli->first));
+                ASSERT_EQ(rank + static_cast<int64_t>(stl.count(stli->first)) - 1, volt.rankUpper(stli->first));
+            }
+            volti.moveNext();
+        }
+        ASSERT_TRUE(volti.isEnd());
+
+        volti = volt.rbegin();
+        for (std::multimap<int, int>::reverse_iterator stli = stl.rbegin(); stli != stl.rend(); stli++) {
+            ASSERT_FALSE(volti.isEnd());
+            ASSERT_EQ(stli->first, volti.key());
+            volti.movePrev();
+        }
+        ASSERT_TRUE(volti.isEnd());
+    }
+};
+
+TEST_F(CompactingBTreeTest, Trivial) {
+    BTree volt(true, IntComparator());
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.begin().isEnd());
+    ASSERT_TRUE(volt.find(1).isEnd());
+
+    ASSERT_TRUE(volt.insert(1, 10) == NULL);
+    ASSERT_TRUE(volt.insert(2, 20) == NULL);
+    ASSERT_EQ(10, *volt.insert(1, 11));
+    ASSERT_EQ(2, volt.size());
+    ASSERT_EQ(20, volt.find(2).value());
+    ASSERT_TRUE(volt.lowerBound(3).isEnd());
+    ASSERT_EQ(2, volt.upperBound(1).key());
+
+    ASSERT_TRUE(volt.erase(1));
+    ASSERT_FALSE(volt.erase(1));
+    ASSERT_TRUE(volt.erase(2));
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(0, static_cast<int64_t>(volt.bytesAllocated()));
+}
+
+TEST_F(CompactingBTreeTest, Bounds) {
+    RankedBTree volt(false, IntComparator());
+    // enough entries for a tree of three levels
+    for (int i = 0; i < 100000; i++) {
+        volt.insert((i / 4) * 2, i);
+    }
+    ASSERT_TRUE(volt.verify());
+
+    for (int key = -1; key < 50001; key++) {
+        RankedBTree::iterator lower = volt.lowerBound(key);
+        RankedBTree::iterator upper = volt.upperBound(key);
+        if (key < 0) {
+            ASSERT_TRUE(lower.equals(volt.begin()));
+        }
+        else if (key >= 49998) {
+            ASSERT_TRUE(upper.isEnd());
+        }
+        if (key % 2 == 0 && key >= 0 && key < 50000) {
+            ASSERT_EQ(key, lower.key());
+            ASSERT_EQ(key / 2 * 4 + 1, volt.rankLower(key));
+            ASSERT_EQ(key / 2 * 4 + 4, volt.rankUpper(key));
+            int count = 0;
+            for (; ! lower.equals(upper); lower.moveNext()) {
+                ASSERT_EQ(key, lower.key());
+                count++;
+            }
+            ASSERT_EQ(4, count);
+        }
+        else {
+            ASSERT_TRUE(lower.equals(upper));
+            ASSERT_TRUE(volt.find(key).isEnd());
+            ASSERT_EQ(-1, volt.rankLower(key));
+        }
+    }
+}
+
+TEST_F(CompactingBTreeTest, RandomUniqueRank) {
+    RankedBTree volt(true, IntComparator());
+    std::multimap<int, int> stl;
+
+    srand(0);
+    for (int round = 0; round < 20; round++) {
+        // grow or shrink the tree in turns, so nodes split, merge and move
+        const bool growing = (round % 4) != 3;
+        for (int i = 0; i < 5000; i++) {
+            int key = rand() % 20000;
+            if (growing || rand() % 4 == 0) {
+                const int *conflict = volt.insert(key, i);
+                if (stl.find(key) == stl.end()) {
+                    ASSERT_TRUE(conflict == NULL);
+                    stl.insert(std::pair<int, int>(key, i));
+                }
+                else {
+                    ASSERT_EQ(stl.find(key)->second, *conflict);
+                }
+            }
+            else {
+                std::multimap<int, int>::iterator stli = stl.lower_bound(key);
+                if (stli == stl.end()) {
+                    ASSERT_TRUE(volt.lowerBound(key).isEnd());
+                    continue;
+                }
+                RankedBTree::iterator volti = volt.lowerBound(key);
+                ASSERT_EQ(stli->first, volti.key());
+                ASSERT_TRUE(volt.erase(volti));
+                stl.erase(stli);
+            }
+        }
+        verifyContents(volt, stl);
+    }
+
+    size_t bytes = volt.bytesAllocated();
+    while ( ! stl.empty()) {
+        ASSERT_TRUE(volt.erase(stl.begin()->first));
+        stl.erase(stl.begin());
+        if (stl.size() % 5000 == 0) {
+            verifyContents(volt, stl);
+            ASSERT_TRUE(volt.bytesAllocated() <= bytes);
+        }
+    }
+    ASSERT_EQ(0, static_cast<int64_t>(volt.bytesAllocated()));
+}
+
+TEST_F(CompactingBTreeTest, RandomMultiRank) {
+    RankedBTree volt(false, IntComparator());
+    std::multimap<int, int> stl;
+
+    srand(1);
+    for (int round = 0; round < 20; round++) {
+        const bool growing = (round % 4) != 3;
+        for (int i = 0; i < 5000; i++) {
+            // few distinct keys, so runs of duplicates span several leaves
+            int key = rand() % 500;
+            if (growing || rand() % 4 == 0) {
+                ASSERT_TRUE(volt.insert(key, i) == NULL);
+                stl.insert(std::pair<int, int>(key, i));
+            }
+            else if (stl.find(key) != stl.end()) {
+                ASSERT_TRUE(volt.erase(key));
+                stl.erase(stl.find(key));
+            }
+            else {
+                ASSERT_FALSE(volt.erase(key));
+            }
+        }
+        verifyContents(volt, stl);
+    }
+
+    for (int key = 0; key < 500; key++) {
+        while (volt.erase(key)) {
+            stl.erase(stl.find(key));
+        }
+        if (key % 50 == 0) {
+            verifyContents(volt, stl);
+        }
+    }
+    ASSERT_TRUE(stl.empty());
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(0, static_cast<int64_t>(volt.bytesAllocated()));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
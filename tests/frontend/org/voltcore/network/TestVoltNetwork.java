@@ -67,6 +67,10 @@ public class TestVoltNetwork extends TestCase {
 
         }
 
+        @Override
+        public void handleMessagesDone(Connection c) {
+        }
+
         @Override
         public ByteBuffer retrieveNextMessage(NIOReadStream c) {
             // TODO Auto-generated method stub
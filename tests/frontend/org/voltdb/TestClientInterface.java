@@ -24,11 +24,13 @@
 package org.voltdb;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -37,6 +39,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,6 +49,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -81,6 +85,7 @@ import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.ReplicationBatchMessage;
 import org.voltdb.settings.DbSettings;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.MiscUtils;
@@ -207,6 +212,7 @@ public class TestClientInterface {
         ProcedurePartitionData data = new ProcedurePartitionData("A", "i");
         builder.addStmtProcedure("hello", "select * from A where i = ?", data);
         builder.addStmtProcedure("hellorw", "delete from A where i = ?", data);
+        builder.addStmtProcedure("hellomp", "select count(*) from A");
 
         if (!builder.compile(cat.getAbsolutePath())) {
             throw new IOException();
@@ -310,6 +316,74 @@ public class TestClientInterface {
         assertEquals(1, invocation.getParameterAtIndex(0));
     }
 
+    @Test
+    public void testBatchedInitiationToRemoteLeader() throws Exception {
+        doReturn(CoreUtils.getHSIdFromHostAndSite(1, 1)).when(m_cartographer).getHSIdForSinglePartitionMaster(anyInt());
+        final InvocationDispatcher dispatcher = m_ci.getDispatcher();
+        dispatcher.openInitiationBatch();
+        assertNull(m_ci.handleRead(createMsg("hello", 1), m_handler, m_cxn));
+        assertNull(m_ci.handleRead(createMsg("hellorw", 1), m_handler, m_cxn));
+        // nothing goes out until the read has been handled
+        verify(m_messenger, never()).send(anyLong(), any(VoltMessage.class));
+
+        // the leader is on another host, so the messages are sent one at a time in order
+        dispatcher.flushInitiationBatch();
+        ArgumentCaptor<Iv2InitiateTaskMessage> messageCaptor =
+                ArgumentCaptor.forClass(Iv2InitiateTaskMessage.class);
+        verify(m_messenger, times(2)).send(anyLong(), messageCaptor.capture());
+        assertEquals("hello", messageCaptor.getAllValues().get(0).getStoredProcedureName());
+        assertEquals("hellorw", messageCaptor.getAllValues().get(1).getStoredProcedureName());
+    }
+
+    @Test
+    public void testBatchedInitiationToLocalLeader() throws Exception {
+        final InvocationDispatcher dispatcher = m_ci.getDispatcher();
+        dispatcher.openInitiationBatch();
+        assertNull(m_ci.handleRead(createMsg("hello", 1), m_handler, m_cxn));
+        assertNull(m_ci.handleRead(createMsg("hellorw", 1), m_handler, m_cxn));
+        dispatcher.flushInitiationBatch();
+
+        // one message for the leader, sent through the mailbox like any other
+        ArgumentCaptor<VoltMessage> messageCaptor = ArgumentCaptor.forClass(VoltMessage.class);
+        verify(m_messenger).send(eq(m_cartographer.getHSIdForSinglePartitionMaster(0)), messageCaptor.capture());
+        ReplicationBatchMessage batch = (ReplicationBatchMessage) messageCaptor.getValue();
+        assertEquals(m_ci.m_mailbox.getHSId(), batch.m_sourceHSId);
+        List<VoltMessage> messages = batch.getMessages();
+        assertEquals(2, messages.size());
+        assertEquals("hello", ((Iv2InitiateTaskMessage) messages.get(0)).getStoredProcedureName());
+        assertEquals("hellorw", ((Iv2InitiateTaskMessage) messages.get(1)).getStoredProcedureName());
+        for (VoltMessage message : messages) {
+            assertEquals(m_ci.m_mailbox.getHSId(), message.m_sourceHSId);
+        }
+
+        // outside of a read initiations are sent immediately
+        reset(m_messenger);
+        readAndCheck(createMsg("hello", 1), "hello", 1, true, true);
+    }
+
+    @Test
+    public void testMultiPartitionInitiationSendsBatchFirst() throws Exception {
+        final InvocationDispatcher dispatcher = m_ci.getDispatcher();
+        dispatcher.openInitiationBatch();
+        assertNull(m_ci.handleRead(createMsg("hello", 1), m_handler, m_cxn));
+        assertNull(m_ci.handleRead(createMsg("hellorw", 1), m_handler, m_cxn));
+        // the single partition initiations before it go out first
+        assertNull(m_ci.handleRead(createMsg("hellomp"), m_handler, m_cxn));
+        // the batch is still open for the ones after it
+        assertNull(m_ci.handleRead(createMsg("hello", 1), m_handler, m_cxn));
+        assertNull(m_ci.handleRead(createMsg("hellorw", 1), m_handler, m_cxn));
+        dispatcher.flushInitiationBatch();
+
+        ArgumentCaptor<VoltMessage> messageCaptor = ArgumentCaptor.forClass(VoltMessage.class);
+        verify(m_messenger, times(3)).send(anyLong(), messageCaptor.capture());
+        List<VoltMessage> sent = messageCaptor.getAllValues();
+        assertEquals(2, ((ReplicationBatchMessage) sent.get(0)).getMessages().size());
+        Iv2InitiateTaskMessage mp = (Iv2InitiateTaskMessage) sent.get(1);
+        assertEquals("hellomp", mp.getStoredProcedureName());
+        assertFalse(mp.isSinglePartition());
+        assertEquals(2, ((ReplicationBatchMessage) sent.get(2)).getMessages().size());
+    }
+
     @Test
     public void testGC() throws Exception {
         ByteBuffer msg = createMsg("@GC");
@@ -519,6 +593,48 @@ public class TestClientInterface {
         assertEquals(newHashinatorVersion, TheHashinator.getCurrentVersionedConfig().getFirst().longValue());
     }
 
+    @Test
+    public void testResultChunks() throws IOException {
+        VoltTable table = new VoltTable(new ColumnInfo("i", VoltType.INTEGER), new ColumnInfo("s", VoltType.STRING));
+        for (int i = 0; i < 1000; i++) {
+            table.addRow(i, "row " + i);
+        }
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, "", 42);
+        assertTrue(ClientInterface.ResultStreamWork.shouldStream(response, 300));
+        assertFalse(ClientInterface.ResultStreamWork.shouldStream(response, 1000));
+        assertFalse(ClientInterface.ResultStreamWork.shouldStream(response, 0));
+
+        int row = 0;
+        int chunks = 0;
+        boolean more = true;
+        while (more) {
+            ClientResponseImpl chunk = ClientInterface.ResultStreamWork.nextChunk(response, table, row, 300, 1 << 20);
+            ByteBuffer buf = ByteBuffer.allocate(chunk.getSerializedSize());
+            chunk.flattenToBuffer(buf);
+            buf.flip();
+            ClientResponseImpl received = new ClientResponseImpl();
+            received.initFromBuffer(buf);
+            assertEquals(42, received.getClientHandle());
+            more = received.hasMoreResults();
+
+            VoltTable rows = received.getResults()[0];
+            assertEquals(more ? 300 : 100, rows.getRowCount());
+            while (rows.advanceRow()) {
+                assertEquals(row, rows.getLong(0));
+                assertEquals("row " + row, rows.getString(1));
+                row++;
+            }
+            chunks++;
+        }
+        assertEquals(1000, row);
+        assertEquals(4, chunks);
+
+        // A chunk stops at the byte limit, but holds at least one row
+        ClientResponseImpl chunk = ClientInterface.ResultStreamWork.nextChunk(response, table, 0, 300, 1);
+        assertEquals(1, chunk.getResults()[0].getRowCount());
+        assertTrue(chunk.hasMoreResults());
+    }
+
     @Test
     public void testGetPartitionKeys() throws IOException {
         //Unsupported type
@@ -0,0 +1,110 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import org.voltdb.TTLController.State;
+
+import junit.framework.TestCase;
+
+public class TestTTLController extends TestCase {
+
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_FREQUENCY = 10;
+    static final int BUDGET = 100;
+    static final int QUEUE_LIMIT = 50;
+
+    public void testStartsWithConfiguredDeletes() {
+        TTLController controller = new TTLController(BATCH_SIZE, MAX_FREQUENCY, BUDGET, QUEUE_LIMIT);
+        assertEquals(State.STARTING, controller.getState());
+        assertEquals(BATCH_SIZE, controller.getBatchSize());
+        assertEquals(MAX_FREQUENCY, controller.getFrequency());
+        assertTrue(controller.startRound());
+    }
+
+    public void testBacklogGrowsBatches() {
+        TTLController controller = new TTLController(BATCH_SIZE, MAX_FREQUENCY, BUDGET, QUEUE_LIMIT);
+        int lastBatchSize = controller.getBatchSize();
+        for (int round = 0; round < 20; round++) {
+            controller.update(1000000, 10, 0);
+            assertEquals(State.BACKLOG, controller.getState());
+            assertTrue(controller.getBatchSize() >= lastBatchSize);
+            assertTrue(controller.getFrequency() <= MAX_FREQUENCY);
+            lastBatchSize = controller.getBatchSize();
+        }
+        // bounded by a multiple of the configured batch size
+        assertEquals(BATCH_SIZE * TTLController.MAX_BATCH_GROWTH, controller.getBatchSize());
+        assertEquals(MAX_FREQUENCY, controller.getFrequency());
+    }
+
+    public void testOverloadCutsBack() {
+        TTLController controller = new TTLController(BATCH_SIZE, MAX_FREQUENCY, BUDGET, QUEUE_LIMIT);
+        controller.update(1000000, BUDGET + 1, 0);
+        assertEquals(State.OVERLOADED, controller.getState());
+        assertEquals(BATCH_SIZE / 2, controller.getBatchSize());
+        assertEquals(MAX_FREQUENCY / 2, controller.getFrequency());
+
+        controller.update(1000000, 10, QUEUE_LIMIT + 1);
+        assertEquals(State.OVERLOADED, controller.getState());
+        assertEquals(BATCH_SIZE / 4, controller.getBatchSize());
+        assertEquals(QUEUE_LIMIT + 1, controller.getLastQueueDepth());
+
+        for (int round = 0; round < 20; round++) {
+            controller.failed();
+        }
+        assertEquals(1, controller.getBatchSize());
+        assertEquals(1, controller.getFrequency());
+    }
+
+    public void testIdleSkipsRounds() {
+        TTLController controller = new TTLController(BATCH_SIZE, MAX_FREQUENCY, BUDGET, QUEUE_LIMIT);
+        int[] expectedSkips = { 0, 1, 2, 4, 8, 8 };
+        for (int skips : expectedSkips) {
+            assertTrue(controller.startRound());
+            controller.update(0, 1, 0);
+            assertEquals(State.IDLE, controller.getState());
+            assertEquals(1, controller.getFrequency());
+            for (int ii = 0; ii < skips; ii++) {
+                assertFalse(controller.startRound());
+            }
+        }
+        // A backlog ends the idle backoff
+        assertTrue(controller.startRound());
+        controller.update(5000, 1, 0);
+        assertEquals(State.BACKLOG, controller.getState());
+        assertTrue(controller.startRound());
+    }
+
+    public void testBufferLimit() {
+        TTLController controller = new TTLController(BATCH_SIZE, MAX_FREQUENCY, BUDGET, QUEUE_LIMIT);
+        controller.update(1000000, 10, 0);
+        assertTrue(controller.getBatchSize() > BATCH_SIZE);
+        // Larger batches than configured go back to the configured size
+        assertFalse(controller.exceededBufferLimit());
+        assertEquals(BATCH_SIZE, controller.getBatchSize());
+        controller.update(1000000, 10, 0);
+        assertEquals(BATCH_SIZE, controller.getBatchSize());
+        // but the configured size can't be purged
+        assertTrue(controller.exceededBufferLimit());
+    }
+}
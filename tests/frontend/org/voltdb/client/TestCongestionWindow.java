@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.client;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TestCongestionWindow extends TestCase {
+
+    private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private long m_now;
+
+    @Override
+    public void setUp() {
+        m_now = System.nanoTime();
+    }
+
+    // a time at which the next adjustment is due
+    private long nextInterval() {
+        m_now += 2 * CongestionWindow.UPDATE_INTERVAL_NANOS;
+        return m_now;
+    }
+
+    private static void fill(CongestionWindow window) {
+        while (window.tryAcquire()) {}
+    }
+
+    public void testNone() {
+        CongestionWindow none = CongestionWindow.NONE;
+        for (int ii = 0; ii < 1000; ii++) {
+            assertTrue(none.tryAcquire());
+        }
+        assertFalse(none.isFull());
+        assertFalse(none.release(nextInterval(), SLOW));
+        assertEquals(0, none.getWindow());
+        assertEquals(0, none.getThrottles());
+    }
+
+    public void testFullAndRelease() {
+        CongestionWindow window = new CongestionWindow(TARGET_NANOS, 99.0, 100);
+        assertEquals(CongestionWindow.INITIAL_WINDOW, window.getWindow());
+        for (int ii = 0; ii < CongestionWindow.INITIAL_WINDOW; ii++) {
+            assertFalse(window.isFull());
+            assertTrue(window.tryAcquire());
+        }
+        assertTrue(window.isFull());
+        assertFalse(window.tryAcquire());
+        assertFalse(window.tryAcquire());
+        assertEquals(2, window.getThrottles());
+
+        // sends not subject to backpressure go over the window
+        window.forceAcquire();
+        assertTrue(window.release(m_now, FAST));
+        assertTrue(window.isFull());
+        assertFalse(window.release(m_now, FAST));
+        assertFalse(window.isFull());
+        assertTrue(window.tryAcquire());
+        assertEquals(CongestionWindow.INITIAL_WINDOW, window.getWindow());
+    }
+
+    public void testGrowWhenLimited() {
+        CongestionWindow window = new CongestionWindow(TARGET_NANOS, 99.0, 22);
+        // not limited, no growth
+        window.tryAcquire();
+        window.release(nextInterval(), FAST);
+        assertEquals(CongestionWindow.INITIAL_WINDOW, window.getWindow());
+
+        fill(window);
+        window.release(nextInterval(), FAST);
+        assertEquals(CongestionWindow.INITIAL_WINDOW + 1, window.getWindow());
+
+        // capped at the maximum
+        for (int ii = 0; ii < 3; ii++) {
+            fill(window);
+            window.release(nextInterval(), FAST);
+        }
+        assertEquals(22, window.getWindow());
+    }
+
+    public void testShrinkOverTarget() {
+        CongestionWindow window = new CongestionWindow(TARGET_NANOS, 99.0, 100);
+        fill(window);
+        for (int ii = 0; ii < 10; ii++) {
+            window.release(m_now, SLOW);
+        }
+        assertEquals(CongestionWindow.INITIAL_WINDOW, window.getWindow());
+        window.release(nextInterval(), SLOW);
+        assertEquals((int) (CongestionWindow.INITIAL_WINDOW * CongestionWindow.DECREASE_FACTOR), window.getWindow());
+
+        // a fast median does not help when the tail is over the target
+        fill(window);
+        for (int ii = 0; ii < 5; ii++) {
+            window.release(m_now, FAST);
+        }
+        window.release(nextInterval(), SLOW);
+        assertEquals((int) (16 * CongestionWindow.DECREASE_FACTOR), window.getWindow());
+
+        // never below one
+        for (int ii = 0; ii < 20; ii++) {
+            window.tryAcquire();
+            window.release(nextInterval(), SLOW);
+        }
+        assertEquals(1, window.getWindow());
+    }
+
+    public void testBackpressure() {
+        CongestionWindow window = new CongestionWindow(TARGET_NANOS, 99.0, 100);
+        fill(window);
+        // halves on the next release, without waiting for the interval
+        window.backpressure();
+        window.release(m_now, FAST);
+        assertEquals(CongestionWindow.INITIAL_WINDOW / 2, window.getWindow());
+        // only once
+        window.release(nextInterval(), FAST);
+        assertEquals(CongestionWindow.INITIAL_WINDOW / 2, window.getWindow());
+    }
+}
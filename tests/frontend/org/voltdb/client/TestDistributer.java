@@ -31,27 +31,74 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
 import org.junit.Test;
 import org.voltcore.network.Connection;
 import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.ReverseDNSCache;
 import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltProtocolHandler;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
 
 import junit.framework.TestCase;
 
 public class TestDistributer extends TestCase {
 
+    private static final ScheduledExecutorService s_responseDelayer =
+            Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Mock response delayer"));
+
+    // One partition replicated on hosts 0 and 1, led by host 0
+    private static VoltTable[] topology() {
+        VoltTable partitions = new VoltTable(
+                new VoltTable.ColumnInfo("Partition", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("Sites", VoltType.STRING),
+                new VoltTable.ColumnInfo("Leader", VoltType.STRING));
+        partitions.addRow(0, "0:0,1:0", "0:0");
+        partitions.addRow(Constants.MP_INIT_PID, "0:0", "0:0");
+        VoltTable hashConfig = new VoltTable(
+                new VoltTable.ColumnInfo("HASHTYPE", VoltType.STRING),
+                new VoltTable.ColumnInfo("HASHCONFIG", VoltType.VARBINARY));
+        // a single token, everything hashes to partition 0
+        ByteBuffer config = ByteBuffer.allocate(12);
+        config.putInt(1).putInt(Integer.MIN_VALUE).putInt(0);
+        hashConfig.addRow("ELASTIC", config.array());
+        return new VoltTable[] { partitions, hashConfig };
+    }
+
+    // A read-only procedure ReadFoo partitioned on its first parameter
+    private static VoltTable[] procedures() throws JSONException {
+        VoltTable procs = new VoltTable(
+                new VoltTable.ColumnInfo("PROCEDURE_CAT", VoltType.STRING),
+                new VoltTable.ColumnInfo("PROCEDURE_SCHEM", VoltType.STRING),
+                new VoltTable.ColumnInfo("PROCEDURE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("RESERVED1", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("RESERVED2", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("RESERVED3", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("REMARKS", VoltType.STRING));
+        JSONObject remarks = new JSONObject();
+        remarks.put(Constants.JSON_READ_ONLY, true);
+        remarks.put(Constants.JSON_SINGLE_PARTITION, true);
+        remarks.put(Constants.JSON_PARTITION_PARAMETER, 0);
+        remarks.put(Constants.JSON_PARTITION_PARAMETER_TYPE, VoltType.INTEGER.getValue());
+        procs.addRow(null, null, "ReadFoo", null, null, null, remarks.toString());
+        return new VoltTable[] { procs };
+    }
+
     class MockInputHandler extends VoltProtocolHandler {
 
         volatile boolean gotPing = false;
@@ -60,6 +107,11 @@ public class TestDistributer extends TestCase {
         volatile Semaphore invokedSubscribe = new Semaphore(0);
         volatile Semaphore invokedTopology = new Semaphore(0);
         volatile Semaphore invokedSystemInformation = new Semaphore(0);
+        // answer topology and catalog requests with the ones of a two node cluster, see topology()
+        volatile boolean sendTopology = false;
+        // delay the responses to user procedures
+        volatile long responseDelayMillis = 0;
+        volatile Connection subscribed = null;
 
         @Override
         public int getMaxRead() {
@@ -67,7 +119,7 @@ public class TestDistributer extends TestCase {
         }
 
         @Override
-        public void handleMessage(ByteBuffer message, Connection c) {
+        public void handleMessage(ByteBuffer message, final Connection c) {
             try {
                 StoredProcedureInvocation spi = new StoredProcedureInvocation();
                 spi.initFromBuffer(message);
@@ -78,14 +130,39 @@ public class TestDistributer extends TestCase {
                 if (proc.equals("@Ping"))
                     gotPing = true;
 
-                if (sendResponses.get()) {
+                if (sendResponses.get() && spi.getFetchSize() > 0) {
+                    // ten chunks of fetch size rows, all sent at once
+                    for (int chunk = 0; chunk < 10; chunk++) {
+                        VoltTable vt = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
+                        for (int row = 0; row < spi.getFetchSize(); row++) {
+                            vt.addRow(chunk * spi.getFetchSize() + row);
+                        }
+                        ClientResponseImpl response = new ClientResponseImpl(ClientResponseImpl.SUCCESS,
+                                new VoltTable[] { vt }, "Extra String", spi.getClientHandle());
+                        response.setMoreResults(chunk < 9);
+                        ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+                        buf.putInt(buf.capacity() - 4);
+                        response.flattenToBuffer(buf);
+                        buf.clear();
+                        c.writeStream().enqueue(buf);
+                    }
+                    roundTrips.incrementAndGet();
+                }
+                else if (sendResponses.get()) {
                     VoltTable vt[] = new VoltTable[0];
                     if (proc.equals("@Subscribe")) {
+                        subscribed = c;
                         invokedSubscribe.release();
                     } else if (proc.equals("@Statistics")) {
                         invokedTopology.release();
+                        if (sendTopology) {
+                            vt = topology();
+                        }
                     } else if (proc.equals("@SystemCatalog")) {
                         invokedSystemInformation.release();
+                        if (sendTopology) {
+                            vt = procedures();
+                        }
                     } else {
                         vt = new VoltTable[1];
                         vt[0] = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
@@ -99,11 +176,21 @@ public class TestDistributer extends TestCase {
                         response = new ClientResponseImpl(ClientResponseImpl.SUCCESS, vt,
                                 "Extra String", spi.getClientHandle());
                     }
-                    ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+                    final ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
                     buf.putInt(buf.capacity() - 4);
                     response.flattenToBuffer(buf);
                     buf.clear();
-                    c.writeStream().enqueue(buf);
+                    if (responseDelayMillis > 0 && !proc.startsWith("@")) {
+                        s_responseDelayer.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                c.writeStream().enqueue(buf);
+                            }
+                        }, responseDelayMillis, TimeUnit.MILLISECONDS);
+                    }
+                    else {
+                        c.writeStream().enqueue(buf);
+                    }
                     roundTrips.incrementAndGet();
                     System.err.println("Sending response.");
                 }
@@ -116,6 +203,17 @@ public class TestDistributer extends TestCase {
             }
         }
 
+        // Send a topology update to the subscribed client
+        void pushTopology() {
+            ClientResponseImpl response = new ClientResponseImpl(ClientResponseImpl.SUCCESS, topology(),
+                    "Extra String", Distributer.ASYNC_TOPO_HANDLE);
+            ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+            buf.putInt(buf.capacity() - 4);
+            response.flattenToBuffer(buf);
+            buf.clear();
+            subscribed.writeStream().enqueue(buf);
+        }
+
         @Override
         public void started(Connection c) {
             // TODO Auto-generated method stub
@@ -170,6 +268,9 @@ public class TestDistributer extends TestCase {
     // A fake server.
     class MockVolt extends Thread {
         boolean handleConnection = true;
+        int hostId = 0;
+        boolean sendTopology = false;
+        long responseDelayMillis = 0;
         MockVolt(int port) throws IOException {
             network = new VoltNetworkPool();
             network.start();
@@ -231,13 +332,15 @@ public class TestDistributer extends TestCase {
                         responseBuffer.putInt(30);
                         responseBuffer.put((byte)0);//version
                         responseBuffer.put((byte)0);//success response
-                        responseBuffer.putInt(0);//hostId
+                        responseBuffer.putInt(hostId);//hostId
                         responseBuffer.putLong(0);//connectionId
                         responseBuffer.putLong(0);//instanceId
                         responseBuffer.putInt(0);//instanceId pt 2
                         responseBuffer.putInt(0);
                         responseBuffer.flip();
                         handler = new MockInputHandler();
+                        handler.sendTopology = sendTopology;
+                        handler.responseDelayMillis = responseDelayMillis;
                         client.write(responseBuffer);
 
                         client.configureBlocking(false);
@@ -890,6 +993,192 @@ public class TestDistributer extends TestCase {
        }
     }
 
+    public void testResultStream() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        MockVolt volt = null;
+
+        try {
+            volt = new MockVolt(21212);
+            volt.start();
+
+            ClientImpl clt = (ClientImpl) ClientFactory.createClient();
+            clt.createConnection("localhost");
+
+            // more chunks than the stream queues, so reads stop until they are consumed
+            try (ResultStream stream = clt.callProcedureStreaming(100, "Foo", 10, TimeUnit.SECONDS)) {
+                long expected = 0;
+                VoltTable chunk;
+                while ((chunk = stream.nextChunk()) != null) {
+                    Thread.sleep(10);
+                    while (chunk.advanceRow()) {
+                        assertEquals(expected++, chunk.getLong(0));
+                    }
+                }
+                assertEquals(1000, expected);
+            }
+
+            // closing the stream early resumes reads for other responses
+            ResultStream stream = clt.callProcedureStreaming(100, "Foo", 10, TimeUnit.SECONDS);
+            assertEquals(100, stream.nextChunk().getRowCount());
+            Thread.sleep(100);
+            stream.close();
+            assertNull(stream.nextChunk());
+            assertEquals(1, clt.callProcedure("Bar", 1).getResults()[0].getRowCount());
+        }
+        finally {
+            if (volt != null) {
+                volt.shutdown();
+            }
+        }
+    }
+
+    public void testAbandonedResultStream() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        MockVolt volt = null;
+
+        try {
+            volt = new MockVolt(21212);
+            volt.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setConnectionResponseTimeout(3000);
+            ClientImpl clt = (ClientImpl) ClientFactory.createClient(config);
+            clt.createConnection("localhost");
+
+            // never read, so the stream stops reads on the connection
+            ResultStream stream = clt.callProcedureStreaming(100, "Foo", 10, TimeUnit.SECONDS);
+            Thread.sleep(100);
+
+            // other invocations still time out while reads are stopped
+            SyncCallback cb = new SyncCallback();
+            clt.callProcedureWithClientTimeout(cb, BatchTimeoutOverrideType.NO_TIMEOUT, "Bar", 500, TimeUnit.MILLISECONDS, 1);
+            cb.waitForResponse();
+            assertEquals(ClientResponse.CONNECTION_TIMEOUT, cb.getResponse().getStatus());
+
+            // the stream fails once it has held reads for the connection response timeout,
+            // and the connection reads again
+            assertEquals(1, clt.callProcedure("Bar", 1).getResults()[0].getRowCount());
+            try {
+                stream.nextChunk();
+                fail();
+            }
+            catch (ProcCallException expected) {
+                assertTrue(expected.getMessage().contains("was not read"));
+            }
+            assertNull(stream.nextChunk());
+            stream.close();
+        }
+        finally {
+            if (volt != null) {
+                volt.shutdown();
+            }
+        }
+    }
+
+    public void testCongestionControl() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        MockVolt volt = null;
+        Client clt = null;
+
+        try {
+            volt = new MockVolt(21212);
+            volt.start();
+
+            ClientConfig config = new ClientConfig();
+            config.enableCongestionControl(1000, 99.0);
+            clt = ClientFactory.createClient(config);
+            clt.createConnection("localhost");
+
+            // more than the initial window, so sends wait for responses to free it
+            for (int ii = 0; ii < 200; ii++) {
+                clt.callProcedure(new NullCallback(), "Foo", ii);
+            }
+            clt.drain();
+
+            ClientStatsContext context = clt.createStatsContext();
+            Map<Long, ClientStats> stats = context.fetch().getStatsByConnection();
+            assertEquals(1, stats.size());
+            ClientStats cxnStats = stats.values().iterator().next();
+            assertTrue(cxnStats.getCongestionWindow() >= 1);
+            assertTrue(cxnStats.getCongestionThrottles() > 0);
+            assertEquals(cxnStats.getCongestionThrottles(), context.getStats().getCongestionThrottles());
+        }
+        finally {
+            if (clt != null) clt.close();
+            if (volt != null) {
+                volt.shutdown();
+            }
+        }
+    }
+
+    public void testHedgedReads() throws Exception {
+        if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+        MockVolt fast = null;
+        MockVolt slow = null;
+        Client clt = null;
+
+        try {
+            fast = new MockVolt(21212);
+            fast.sendTopology = true;
+            fast.start();
+            slow = new MockVolt(21213);
+            slow.hostId = 1;
+            slow.sendTopology = true;
+            slow.responseDelayMillis = 200;
+            slow.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setSendReadsToReplicasByDefault(true);
+            // half the reads go to the slow replica, hedge after the fast quarter
+            config.enableHedgedReads(25.0);
+            clt = ClientFactory.createClient(config);
+            clt.createConnection("localhost", 21212);
+            clt.createConnection("localhost", 21213);
+            // the topology was fetched before the second connection
+            while (fast.handler.subscribed == null) {
+                Thread.sleep(10);
+            }
+            fast.handler.pushTopology();
+
+            ClientStatsContext context = clt.createStatsContext();
+            long calls = 0;
+            while (context.fetch().getAggregateAffinityStats().getAffinityReads() == 0) {
+                clt.callProcedure("ReadFoo", 1);
+                calls++;
+            }
+            // reads are hedged once there are latencies to derive the delay from
+            final long start = System.nanoTime();
+            long slowest = 0;
+            while (System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3)) {
+                final long callStart = System.nanoTime();
+                assertEquals(ClientResponse.SUCCESS, clt.callProcedure("ReadFoo", 1).getStatus());
+                calls++;
+                if (System.nanoTime() - start > TimeUnit.SECONDS.toNanos(2)) {
+                    slowest = Math.max(slowest, System.nanoTime() - callStart);
+                }
+            }
+            assertTrue(slowest < TimeUnit.MILLISECONDS.toNanos(150));
+
+            ClientAffinityStats stats = context.fetch().getAggregateAffinityStats();
+            assertTrue(stats.getHedgedReads() > 0);
+            assertTrue(stats.getHedgeWins() > 0);
+            assertTrue(stats.getHedgeWins() <= stats.getHedgedReads());
+
+            // the responses of the hedged reads which lost are not counted, once the slow ones are in
+            Thread.sleep(500);
+            assertEquals(calls, context.fetch().getStatsForProcedure("ReadFoo").getInvocationsCompleted());
+        }
+        finally {
+            if (clt != null) clt.close();
+            if (fast != null) {
+                fast.shutdown();
+            }
+            if (slow != null) {
+                slow.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testClientBlockedOnMaxOutstanding() throws Exception {
         // TODO: write a mock server that can grock ssl
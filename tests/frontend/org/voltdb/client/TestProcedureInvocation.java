@@ -210,6 +210,30 @@ public class TestProcedureInvocation extends TestCase{
         verifySpi(spi);
     }
 
+    public void testFetchSize() throws Exception {
+        assertEquals(0, pi.getFetchSize());
+        ProcedureInvocation fetching = new ProcedureInvocation(11, 1000, false, 500, "proc", 1, "two");
+        ByteBuffer buf = ByteBuffer.allocate(fetching.getSerializedSize());
+        fetching.flattenToBuffer(buf);
+        assertFalse(buf.hasRemaining());
+        buf.flip();
+
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.initFromBuffer(buf);
+        assertEquals(11, spi.getClientHandle());
+        assertEquals(1000, spi.getBatchTimeout());
+        assertEquals(500, spi.getFetchSize());
+        assertEquals("proc", spi.getProcName());
+        assertEquals("two", spi.getParams().toArray()[1]);
+        assertEquals(500, spi.getShallowCopy().getFetchSize());
+
+        try {
+            new ProcedureInvocation(12, 1000, false, -1, "proc");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
     public void testGetAsBytes() throws Exception {
         StoredProcedureInvocation spi = null;
         try {
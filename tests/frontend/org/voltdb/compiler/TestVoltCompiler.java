@@ -1345,6 +1345,22 @@ public class TestVoltCompiler extends TestCase {
         }
     }
 
+    public void testDDLCompilerBTreeIndexAllowed() {
+        for (int ii = 0; ii < column_types.length; ii++) {
+            String schema =
+                "create table t(id " + column_types[ii] + " not null, num integer not null,\n" +
+                "               constraint pk_btree primary key (id, num));\n" +
+                "create index idx_t_id_btree on t(id);";
+            VoltCompiler c = compileSchemaForDDLTest(schema, can_be_tree[ii]);
+            assertFalse(c.hasErrors());
+            Table tbl = assertTableT(c);
+            for (Index idx : tbl.getIndexes()) {
+                assertEquals(IndexType.BTREE.getValue(), idx.getType());
+                assertTrue(idx.getCountable());
+            }
+        }
+    }
+
     public void testUniqueIndexAllowed() {
         String schema =
                 "create table t(id integer not null, num integer not null);\n" +
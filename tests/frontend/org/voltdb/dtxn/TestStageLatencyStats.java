@@ -0,0 +1,126 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.dtxn;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.dtxn.StageTimes.Stage;
+import org.voltdb.iv2.MpInitiator;
+
+import junit.framework.TestCase;
+
+public class TestStageLatencyStats extends TestCase {
+
+    private static StageTimes completedTransaction(int partitionId, String procName) {
+        StageTimes times = new StageTimes(partitionId, procName, System.nanoTime());
+        for (Stage stage : Stage.values()) {
+            times.mark(stage);
+        }
+        return times;
+    }
+
+    private static VoltTable statsTable(StageLatencyStats stats, boolean interval) {
+        VoltTable table = new VoltTable(stats.getColumnSchema().toArray(new ColumnInfo[0]));
+        for (Object[] row : stats.getStatsRows(interval, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    private static long countFor(VoltTable table, int partitionId, String procName, Stage stage) {
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            if (table.getLong("PARTITION_ID") == partitionId &&
+                    table.getString("PROCEDURE").equals(procName) &&
+                    table.getString("STAGE").equals(stage.name())) {
+                return table.getLong("COUNT");
+            }
+        }
+        return -1;
+    }
+
+    public void testMarks() {
+        StageTimes times = new StageTimes(3, "Foo", System.nanoTime());
+        assertFalse(times.isComplete());
+        assertEquals(-1, times.getNanos(Stage.SEQUENCE));
+        times.mark(Stage.INITIATE);
+        long initiate = times.getNanos(Stage.INITIATE);
+        assertTrue(initiate >= 0);
+        // A stage keeps its first end
+        times.mark(Stage.INITIATE);
+        assertEquals(initiate, times.getNanos(Stage.INITIATE));
+        for (Stage stage : Stage.values()) {
+            times.mark(stage);
+        }
+        assertTrue(times.isComplete());
+    }
+
+    public void testRecordByPartitionAndProcedure() {
+        StageLatencyStats stats = new StageLatencyStats();
+        stats.record(completedTransaction(1, "Foo"));
+        stats.record(completedTransaction(1, "Foo"));
+        stats.record(completedTransaction(2, "Foo"));
+        stats.record(completedTransaction(2, "Bar"));
+
+        // A transaction initiated on a remote leader only has the client interface stages
+        StageTimes remote = new StageTimes(1, "Foo", System.nanoTime());
+        remote.mark(Stage.INITIATE);
+        remote.mark(Stage.RESPOND);
+        stats.record(remote);
+
+        VoltTable table = statsTable(stats, false);
+        assertEquals(3 * Stage.values().length, table.getRowCount());
+        for (Stage stage : Stage.values()) {
+            assertEquals(2, countFor(table, 1, "Foo", stage));
+            assertEquals(1, countFor(table, 2, "Foo", stage));
+            assertEquals(1, countFor(table, 2, "Bar", stage));
+        }
+    }
+
+    public void testInterval() {
+        StageLatencyStats stats = new StageLatencyStats();
+        stats.record(completedTransaction(1, "Foo"));
+        assertEquals(1, countFor(statsTable(stats, true), 1, "Foo", Stage.EXECUTE));
+        assertEquals(0, countFor(statsTable(stats, true), 1, "Foo", Stage.EXECUTE));
+        stats.record(completedTransaction(1, "Foo"));
+        stats.record(completedTransaction(1, "Foo"));
+        assertEquals(2, countFor(statsTable(stats, true), 1, "Foo", Stage.EXECUTE));
+        // The totals since startup are kept
+        assertEquals(3, countFor(statsTable(stats, false), 1, "Foo", Stage.EXECUTE));
+    }
+
+    public void testMultiPartitionAndNewPartitions() {
+        StageLatencyStats stats = new StageLatencyStats();
+        stats.record(completedTransaction(MpInitiator.MP_INIT_PID, "Foo"));
+        stats.record(completedTransaction(5, "Foo"));
+        stats.record(completedTransaction(0, "Foo"));
+        stats.record(completedTransaction(5, "Foo"));
+
+        VoltTable table = statsTable(stats, false);
+        assertEquals(3 * Stage.values().length, table.getRowCount());
+        assertEquals(1, countFor(table, MpInitiator.MP_INIT_PID, "Foo", Stage.QUEUE));
+        assertEquals(1, countFor(table, 0, "Foo", Stage.QUEUE));
+        assertEquals(2, countFor(table, 5, "Foo", Stage.QUEUE));
+    }
+}
@@ -0,0 +1,145 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.planner.PlannerTestCase;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.SchemaColumn;
+
+public class TestMpDependencyMerger extends PlannerTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        setupSchema(PlannerTestCase.class.getResource("testplans-groupby-ddl.sql"), "testmerger", false);
+    }
+
+    private MpDependencyMerger mergerFor(String sql, ParameterSet params) {
+        List<AbstractPlanNode> fragments = compileToFragments(sql);
+        assertEquals(2, fragments.size());
+        MpDependencyMerger.CoordinatorPlan plan = MpDependencyMerger.analyze(fragments.get(0));
+        return plan.createMerger(params);
+    }
+
+    // Empty tables shaped like the output of the partition fragment of a statement
+    private List<VoltTable> partitionTablesFor(String sql, int partitionCount) {
+        List<AbstractPlanNode> fragments = compileToFragments(sql);
+        List<ColumnInfo> columns = new ArrayList<>();
+        for (SchemaColumn column : fragments.get(1).getOutputSchema()) {
+            columns.add(new ColumnInfo("C" + columns.size(), column.getValueType()));
+        }
+        List<VoltTable> tables = new ArrayList<>();
+        for (int partition = 0; partition < partitionCount; partition++) {
+            tables.add(new VoltTable(columns.toArray(new ColumnInfo[columns.size()])));
+        }
+        return tables;
+    }
+
+    /**
+     * The rows the coordinator fragment's LIMIT produces from its input: the receive
+     * node appends the tables in the order they arrived, the limit skips the offset.
+     */
+    private static List<List<Object>> coordinatorLimit(List<VoltTable> tables, int limit, int offset) {
+        List<List<Object>> rows = new ArrayList<>();
+        int skipped = 0;
+        for (VoltTable table : tables) {
+            table.resetRowPosition();
+            while (table.advanceRow() && rows.size() < limit) {
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                List<Object> row = new ArrayList<>();
+                for (int column = 0; column < table.getColumnCount(); column++) {
+                    row.add(table.get(column, table.getColumnType(column)));
+                }
+                rows.add(row);
+            }
+            table.resetRowPosition();
+        }
+        return rows;
+    }
+
+    /**
+     * Check that the coordinator fragment's LIMIT gives the same rows over the tables
+     * the merger keeps as over all the tables, and that the merger dropped some.
+     */
+    private void checkMergedLimit(String sql, ParameterSet params, int limit, int offset,
+                                  int[] partitionRowCounts, int expectedKeptTables) {
+        MpDependencyMerger merger = mergerFor(sql, params);
+        assertNotNull(merger);
+        List<VoltTable> tables = partitionTablesFor(sql, partitionRowCounts.length);
+        for (int partition = 0; partition < tables.size(); partition++) {
+            VoltTable table = tables.get(partition);
+            for (int row = 0; row < partitionRowCounts[partition]; row++) {
+                table.addRow(partition, row);
+            }
+            merger.add(table);
+        }
+        List<VoltTable> kept = merger.getTables();
+        assertEquals(expectedKeptTables, kept.size());
+        assertEquals(coordinatorLimit(tables, limit, offset), coordinatorLimit(kept, limit, offset));
+    }
+
+    public void testFirstRows() {
+        // Once LIMIT + OFFSET rows are in, the other partitions' tables are dropped.
+        checkMergedLimit("select A1, B1 from P1 limit 3 offset 1;", null, 3, 1,
+                         new int[] { 4, 4, 4, 4 }, 1);
+        checkMergedLimit("select A1, B1 from P1 limit 3 offset 1;", null, 3, 1,
+                         new int[] { 0, 2, 1, 3, 4 }, 4);
+        // Fewer rows than the limit, so every table is kept.
+        checkMergedLimit("select A1, B1 from P1 limit 10;", null, 10, 0,
+                         new int[] { 2, 2, 2 }, 3);
+    }
+
+    public void testFirstRowsOfProjection() {
+        checkMergedLimit("select A1 + 1, B1 from P1 limit 2;", null, 2, 0,
+                         new int[] { 1, 1, 1, 1 }, 2);
+    }
+
+    public void testParameterizedLimit() {
+        final String sql = "select A1, B1 from P1 limit ? offset ?;";
+        checkMergedLimit(sql, ParameterSet.fromArrayNoCopy(2, 3), 2, 3,
+                         new int[] { 3, 3, 3 }, 2);
+        // A limit that isn't an integer is left for the EE to reject.
+        assertNull(mergerFor(sql, ParameterSet.fromArrayNoCopy("2", 3)));
+        assertNull(mergerFor(sql, null));
+    }
+
+    public void testNotMergeable() {
+        // The coordinator needs every row, or reduces them in a way left to the EE.
+        assertNull(mergerFor("select * from P1 where A1 > 3;", null));
+        assertNull(mergerFor("select * from P1 order by A1;", null));
+        assertNull(mergerFor("select A1, B1 from P1 order by B1 desc, A1 limit 3;", null));
+        assertNull(mergerFor("select count(distinct B1) from P1;", null));
+        assertNull(mergerFor("select A1, sum(C1) from P1 group by A1;", null));
+        assertNull(mergerFor("select min(C1), max(D1) from P1;", null));
+        assertNull(mergerFor("select A1, count(*) from P1 group by A1 limit 2;", null));
+    }
+}
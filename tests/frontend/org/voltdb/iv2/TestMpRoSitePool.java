@@ -0,0 +1,274 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.voltdb.BackendTarget;
+import org.voltdb.CatalogContext;
+import org.voltdb.VoltTable;
+
+import junit.framework.TestCase;
+
+public class TestMpRoSitePool extends TestCase
+{
+    static final long IDLE_TIMEOUT_MS = 1000;
+
+    // Sites handed out by the pool under test, and the threads which built them
+    final List<MpRoSitePool.MpRoSiteContext> m_sites = new ArrayList<>();
+    final List<Thread> m_builders = new ArrayList<>();
+    // If set, site construction signals m_building then waits for the gate
+    volatile CountDownLatch m_building = null;
+    volatile CountDownLatch m_buildGate = null;
+    MpRoSitePool m_dut;
+
+    @Override
+    public void setUp()
+    {
+        System.setProperty("mpiReadPoolSize", "4");
+        System.setProperty("mpiReadPoolMinSize", "1");
+        System.setProperty("mpiReadPoolIdleTimeoutMs", Long.toString(IDLE_TIMEOUT_MS));
+        m_dut = new MpRoSitePool(0, BackendTarget.NATIVE_EE_JNI, mock(CatalogContext.class), 0, null) {
+            @Override
+            MpRoSiteContext newSiteContext(CatalogContext context)
+            {
+                if (m_buildGate != null) {
+                    m_building.countDown();
+                    try {
+                        m_buildGate.await();
+                    } catch (InterruptedException e) {
+                    }
+                }
+                // Keep the real idle time keeping, without a site thread behind it
+                MpRoSiteContext site = mock(MpRoSiteContext.class, CALLS_REAL_METHODS);
+                doNothing().when(site).shutdown();
+                doNothing().when(site).joinThread();
+                doReturn(true).when(site).offer(any(SiteTasker.class));
+                doReturn(0L).when(site).getCatalogCRC();
+                doReturn(0L).when(site).getCatalogVersion();
+                synchronized (m_sites) {
+                    m_sites.add(site);
+                    m_builders.add(Thread.currentThread());
+                }
+                return site;
+            }
+        };
+    }
+
+    @Override
+    public void tearDown()
+    {
+        m_dut.shutdown();
+        System.clearProperty("mpiReadPoolSize");
+        System.clearProperty("mpiReadPoolMinSize");
+        System.clearProperty("mpiReadPoolIdleTimeoutMs");
+    }
+
+    void waitForPoolSize(int size) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (m_dut.getPoolSize() != size) {
+            assertTrue("pool size stuck at " + m_dut.getPoolSize(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    // The pool grows on demand up to the maximum, then rejects work
+    @Test
+    public void testGrowsToMaximum()
+    {
+        assertEquals(1, m_dut.getPoolSize());
+        for (long txnId = 1; txnId <= 4; txnId++) {
+            assertTrue(m_dut.doWork(txnId, mock(TransactionTask.class)));
+        }
+        assertEquals(4, m_dut.getPoolSize());
+        assertEquals(4, m_dut.getBusySiteCount());
+        assertEquals(4, m_dut.getPeakPoolSize());
+        assertEquals(4, m_dut.getSitesCreated());
+
+        assertFalse(m_dut.canAcceptWork());
+        assertFalse(m_dut.doWork(5, mock(TransactionTask.class)));
+        assertEquals(2, m_dut.getRejectedOffers());
+
+        m_dut.completeWork(1);
+        assertTrue(m_dut.canAcceptWork());
+        assertEquals(3, m_dut.getBusySiteCount());
+        assertEquals(4, m_dut.getPoolSize());
+    }
+
+    // Idle sites are retired, least recently used first, down to the minimum size
+    @Test
+    public void testRetiresIdleSites()
+    {
+        for (long txnId = 1; txnId <= 3; txnId++) {
+            m_dut.doWork(txnId, mock(TransactionTask.class));
+        }
+        long now = System.currentTimeMillis();
+        for (long txnId = 1; txnId <= 3; txnId++) {
+            m_dut.completeWork(txnId);
+        }
+        // Not idle for long enough yet
+        assertEquals(0, m_dut.retireIdleSites(now));
+        assertEquals(3, m_dut.getPoolSize());
+
+        assertEquals(2, m_dut.retireIdleSites(now + 2 * IDLE_TIMEOUT_MS));
+        assertEquals(1, m_dut.getPoolSize());
+        assertEquals(2, m_dut.getSitesRetired());
+        // Never below the minimum
+        assertEquals(0, m_dut.retireIdleSites(now + 4 * IDLE_TIMEOUT_MS));
+        assertEquals(1, m_dut.getPoolSize());
+        assertEquals(3, m_dut.getPeakPoolSize());
+        int shutdown = 0;
+        for (MpRoSitePool.MpRoSiteContext site : m_sites) {
+            try {
+                verify(site, times(1)).shutdown();
+                shutdown++;
+            }
+            catch (AssertionError e) {
+            }
+        }
+        assertEquals(2, shutdown);
+    }
+
+    // Sites built ahead of demand are constructed off the owner's lock and
+    // handed over once the builder can take it
+    @Test
+    public void testEnsureCapacityBuildsOutsideLock() throws Exception
+    {
+        Object lock = new Object();
+        m_dut.setOwnerLock(lock);
+        synchronized (lock) {
+            m_dut.doWork(1, mock(TransactionTask.class));
+            m_dut.ensureCapacity(3);
+            // The caller does not wait for the sites
+            assertEquals(1, m_dut.getPoolSize());
+            // Asking again while they are being built does not build more
+            m_dut.ensureCapacity(3);
+        }
+        waitForPoolSize(4);
+        for (int i = 1; i < m_builders.size(); i++) {
+            assertNotSame(Thread.currentThread(), m_builders.get(i));
+        }
+        assertEquals(4, m_sites.size());
+        // Never grows beyond the maximum
+        synchronized (lock) {
+            m_dut.ensureCapacity(10);
+        }
+        Thread.sleep(50);
+        assertEquals(4, m_dut.getPoolSize());
+        assertEquals(4, m_sites.size());
+    }
+
+    // Sites which finish building after the catalog changed are discarded
+    @Test
+    public void testEnsureCapacityDropsStaleSites() throws Exception
+    {
+        Object lock = new Object();
+        m_dut.setOwnerLock(lock);
+        synchronized (lock) {
+            m_dut.doWork(1, mock(TransactionTask.class));
+            m_building = new CountDownLatch(1);
+            m_buildGate = new CountDownLatch(1);
+            m_dut.ensureCapacity(2);
+        }
+        // Change the catalog while the first site is being built
+        assertTrue(m_building.await(10, TimeUnit.SECONDS));
+        synchronized (lock) {
+            m_dut.updateSettings(mock(CatalogContext.class));
+        }
+        m_buildGate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (m_sites.size() < 3) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        // The first one is discarded, the second one was built with the new catalog
+        assertEquals(2, m_dut.getPoolSize());
+        verify(m_sites.get(1)).shutdown();
+        verify(m_sites.get(2), never()).shutdown();
+    }
+
+    // MPREADPOOL reports the pool size and counters, as deltas for interval stats
+    @Test
+    public void testStats()
+    {
+        for (long txnId = 1; txnId <= 4; txnId++) {
+            m_dut.doWork(txnId, mock(TransactionTask.class));
+        }
+        m_dut.canAcceptWork();
+        for (long txnId = 1; txnId <= 4; txnId++) {
+            m_dut.completeWork(txnId);
+        }
+        m_dut.retireIdleSites(System.currentTimeMillis() + 2 * IDLE_TIMEOUT_MS);
+
+        MpRoSitePoolStats stats = m_dut.getStatsSource();
+        VoltTable table = new VoltTable(stats.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]));
+        for (Object[] row : stats.getStatsRows(true, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        assertEquals(1, table.getRowCount());
+        table.advanceRow();
+        assertEquals(1, table.getLong("MIN_SIZE"));
+        assertEquals(4, table.getLong("MAX_SIZE"));
+        assertEquals(1, table.getLong("CURRENT_SIZE"));
+        assertEquals(0, table.getLong("BUSY_SITES"));
+        assertEquals(4, table.getLong("PEAK_SIZE"));
+        assertEquals(4, table.getLong("SITES_CREATED"));
+        assertEquals(3, table.getLong("SITES_RETIRED"));
+        assertEquals(1, table.getLong("REJECTED_OFFERS"));
+
+        // Interval counters are reset, cumulative ones are not
+        m_dut.doWork(5, mock(TransactionTask.class));
+        m_dut.doWork(6, mock(TransactionTask.class));
+        Object[] row = stats.getStatsRows(true, System.currentTimeMillis())[0];
+        VoltTable interval = new VoltTable(stats.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]));
+        interval.addRow(row);
+        interval.advanceRow();
+        assertEquals(1, interval.getLong("SITES_CREATED"));
+        assertEquals(0, interval.getLong("SITES_RETIRED"));
+        assertEquals(0, interval.getLong("REJECTED_OFFERS"));
+        assertEquals(2, interval.getLong("BUSY_SITES"));
+
+        row = stats.getStatsRows(false, System.currentTimeMillis())[0];
+        VoltTable total = new VoltTable(stats.getColumnSchema().toArray(new VoltTable.ColumnInfo[0]));
+        total.addRow(row);
+        total.advanceRow();
+        assertEquals(5, total.getLong("SITES_CREATED"));
+        assertEquals(3, total.getLong("SITES_RETIRED"));
+    }
+}
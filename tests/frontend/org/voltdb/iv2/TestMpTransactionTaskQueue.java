@@ -35,10 +35,15 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
+import com.google_voltpatches.common.base.Splitter;
+import com.google_voltpatches.common.collect.Sets;
+
 import junit.framework.TestCase;
 
 public class TestMpTransactionTaskQueue extends TestCase
@@ -53,9 +58,24 @@ public class TestMpTransactionTaskQueue extends TestCase
         return task;
     }
 
+    MpProcedureTask makeTransactionTask(long txnid, boolean readOnly, MpTableAccess access)
+    {
+        m_tableAccess.put(txnid, access);
+        return makeTransactionTask(txnid, readOnly);
+    }
+
+    static MpTableAccess makeTableAccess(String reads, String writes, boolean replicatedReadsOnly)
+    {
+        return new MpTableAccess(Sets.newHashSet(reads.split(",")),
+                Sets.newHashSet(Splitter.on(',').omitEmptyStrings().split(writes)),
+                replicatedReadsOnly);
+    }
+
     SiteTaskerQueue m_writeQueue;
     MpRoSitePool m_MPpool;
     MpTransactionTaskQueue m_dut;
+    // Table access by txnId, UNKNOWN if not given
+    final Map<Long, MpTableAccess> m_tableAccess = new HashMap<>();
 
     @Override
     public void setUp()
@@ -64,7 +84,14 @@ public class TestMpTransactionTaskQueue extends TestCase
         m_MPpool = mock(MpRoSitePool.class);
         // Accept work for a while
         when(m_MPpool.canAcceptWork()).thenReturn(true);
-        m_dut = new MpTransactionTaskQueue(m_writeQueue);
+        m_dut = new MpTransactionTaskQueue(m_writeQueue) {
+            @Override
+            MpTableAccess getTableAccess(TransactionTask task)
+            {
+                MpTableAccess access = m_tableAccess.get(task.getTxnId());
+                return access == null ? MpTableAccess.UNKNOWN : access;
+            }
+        };
         m_dut.setMpRoSitePool(m_MPpool);
     }
 
@@ -150,4 +177,69 @@ public class TestMpTransactionTaskQueue extends TestCase
         verify(m_MPpool).doWork(eq(readtxnid), any(TransactionTask.class));
         verify(m_MPpool).doWork(eq(readtxnid2), any(TransactionTask.class));
     }
+
+    // Isolated reads of replicated tables run beside the writes which don't touch them
+    @Test
+    public void testIsolatedReadsBesideWrites()
+    {
+        TxnEgo txnId = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        txnId = txnId.makeNext();
+        long write1 = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(write1, false, makeTableAccess("P1", "P1", false)));
+        verify(m_writeQueue).offer(any(TransactionTask.class));
+
+        // An isolated read of another table starts right away
+        txnId = txnId.makeNext();
+        long read1 = txnId.getTxnId();
+        MpProcedureTask read1Task = makeTransactionTask(read1, true, makeTableAccess("R1", "", true));
+        m_dut.offer(read1Task);
+        verify(m_MPpool).doWork(eq(read1), any(TransactionTask.class));
+        // and its borrowed fragments may run beside the write at the buddy site
+        verify((MpTransactionState)read1Task.getTransactionState()).setOverlappedWrite(write1);
+        // but not one reading the written table, nor one needing the partitions
+        txnId = txnId.makeNext();
+        long read2 = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(read2, true, makeTableAccess("P1", "", false)));
+        txnId = txnId.makeNext();
+        long read3 = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(read3, true, makeTableAccess("P2", "", false)));
+        verify(m_MPpool, never()).doWork(eq(read2), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(read3), any(TransactionTask.class));
+
+        // Isolated reads may overtake queued writes which don't touch their tables
+        txnId = txnId.makeNext();
+        long write2 = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(write2, false, makeTableAccess("R1", "R1", true)));
+        txnId = txnId.makeNext();
+        long read4 = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(read4, true, makeTableAccess("R1", "", true)));
+        txnId = txnId.makeNext();
+        long read5 = txnId.getTxnId();
+        MpProcedureTask read5Task = makeTransactionTask(read5, true, makeTableAccess("R2", "", true));
+        m_dut.offer(read5Task);
+        verify(m_MPpool, never()).doWork(eq(read4), any(TransactionTask.class));
+        verify(m_MPpool).doWork(eq(read5), any(TransactionTask.class));
+
+        // Nothing overtakes a transaction with unknown table access
+        txnId = txnId.makeNext();
+        m_dut.offer(makeTransactionTask(txnId.getTxnId(), false));
+        txnId = txnId.makeNext();
+        long read6 = txnId.getTxnId();
+        m_dut.offer(makeTransactionTask(read6, true, makeTableAccess("R2", "", true)));
+        verify(m_MPpool, never()).doWork(eq(read6), any(TransactionTask.class));
+
+        // The reads queued behind the first write start when it completes
+        m_dut.flush(write1);
+        verify(m_MPpool).doWork(eq(read2), any(TransactionTask.class));
+        verify(m_MPpool).doWork(eq(read3), any(TransactionTask.class));
+        // and the second write once only the reads it doesn't conflict with are left
+        m_dut.flush(read2);
+        m_dut.flush(read3);
+        verify(m_writeQueue, times(1)).offer(any(TransactionTask.class));
+        m_dut.flush(read1);
+        verify(m_writeQueue, times(2)).offer(any(TransactionTask.class));
+        verify((MpTransactionState)read5Task.getTransactionState()).setOverlappedWrite(write2);
+        verify(m_MPpool, never()).doWork(eq(read4), any(TransactionTask.class));
+        verify(m_MPpool, never()).doWork(eq(read6), any(TransactionTask.class));
+    }
 }
@@ -0,0 +1,258 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.voltdb.StarvationTracker;
+
+import junit.framework.TestCase;
+
+public class TestSiteTaskerQueue extends TestCase
+{
+    private static class NumberedTask extends SiteTasker.SiteTaskerRunnable {
+        final int m_producer;
+        final int m_seq;
+
+        NumberedTask(int producer, int seq) {
+            m_producer = producer;
+            m_seq = seq;
+        }
+
+        @Override
+        void run() {}
+    }
+
+    private static SiteTaskerQueue getSiteTaskerQueue(int capacity) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, capacity);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(1024, getSiteTaskerQueue(1000).getCapacity());
+        assertEquals(1024, getSiteTaskerQueue(1024).getCapacity());
+        assertEquals(2048, getSiteTaskerQueue(1025).getCapacity());
+    }
+
+    @Test
+    public void testFifoAcrossWrap() throws Exception {
+        SiteTaskerQueue queue = getSiteTaskerQueue(8);
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5; i++) {
+                queue.offer(new NumberedTask(0, round * 5 + i));
+            }
+            assertEquals(5, queue.size());
+            assertEquals(next, ((NumberedTask) queue.peek()).m_seq);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(next++, ((NumberedTask) queue.take()).m_seq);
+            }
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void testBatchDrain() throws Exception {
+        SiteTaskerQueue queue = getSiteTaskerQueue(64);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        SiteTasker[] batch = new SiteTasker[4];
+        assertEquals(4, queue.takeBatch(batch));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ((NumberedTask) batch[i]).m_seq);
+        }
+        assertEquals(4, queue.drainTo(batch));
+        assertEquals(4, ((NumberedTask) batch[0]).m_seq);
+        assertEquals(2, queue.drainTo(batch));
+        assertEquals(9, ((NumberedTask) batch[1]).m_seq);
+        assertEquals(0, queue.drainTo(batch));
+    }
+
+    /**
+     * The consumer offering to its own full queue must not block, and the
+     * overflowed tasks must still come out in offer order.
+     */
+    @Test
+    public void testConsumerOfferToFullQueue() throws Exception {
+        SiteTaskerQueue queue = getSiteTaskerQueue(4);
+        // make this thread the consumer
+        assertNull(queue.poll());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        assertEquals(10, queue.size());
+        // once there is room again offers go back to the ring, behind the overflow
+        assertEquals(0, ((NumberedTask) queue.take()).m_seq);
+        queue.offer(new NumberedTask(0, 10));
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, ((NumberedTask) queue.peek()).m_seq);
+            assertEquals(i, ((NumberedTask) queue.take()).m_seq);
+        }
+        assertTrue(queue.isEmpty());
+        assertEquals(6, queue.getOverflows());
+    }
+
+    /**
+     * A producer offering to a full queue while holding a lock the site thread
+     * needs (as the InitiatorMailbox monitor is held when delivering) must not
+     * wait for room, or neither would make progress.
+     */
+    @Test
+    public void testProducerNeverWaitsForRoom() throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(4);
+        final Object lock = new Object();
+        final CountDownLatch consumerStarted = new CountDownLatch(1);
+        final List<Integer> taken = new ArrayList<>();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    assertNull(queue.poll());
+                    consumerStarted.countDown();
+                    for (int i = 0; i < 10; i++) {
+                        int seq = ((NumberedTask) queue.take()).m_seq;
+                        // the site thread taking the producer's lock, e.g. to send a response
+                        synchronized (lock) {
+                            taken.add(seq);
+                        }
+                    }
+                }
+                catch (InterruptedException e) {}
+            }
+        };
+        synchronized (lock) {
+            consumer.start();
+            assertTrue(consumerStarted.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 10; i++) {
+                queue.offer(new NumberedTask(0, i));
+            }
+        }
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, taken.get(i).intValue());
+        }
+        assertTrue(queue.getOverflows() > 0);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testTakeWakesOnOffer() throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(16);
+        final AtomicReference<SiteTasker> taken = new AtomicReference<>();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    taken.set(queue.take());
+                }
+                catch (InterruptedException e) {}
+            }
+        };
+        consumer.start();
+        // give the consumer time to give up spinning and park
+        Thread.sleep(100);
+        SiteTasker task = new NumberedTask(0, 0);
+        queue.offer(task);
+        consumer.join(10000);
+        assertFalse(consumer.isAlive());
+        assertSame(task, taken.get());
+    }
+
+    @Test
+    public void testTakeIsInterruptible() throws Exception {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(16);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.take();
+                }
+                catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(100);
+        consumer.interrupt();
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Several producers racing to fill a small ring while the consumer drains
+     * it in batches; every task arrives exactly once and each producer's tasks
+     * arrive in the order they were offered.
+     */
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int producers = 4;
+        final int perProducer = 50000;
+        final SiteTaskerQueue queue = getSiteTaskerQueue(256);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.offer(new NumberedTask(producer, i));
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+
+        int[] expected = new int[producers];
+        SiteTasker[] batch = new SiteTasker[32];
+        int received = 0;
+        while (received < producers * perProducer) {
+            int count = queue.takeBatch(batch);
+            for (int i = 0; i < count; i++) {
+                NumberedTask task = (NumberedTask) batch[i];
+                assertEquals(expected[task.m_producer]++, task.m_seq);
+            }
+            received += count;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, expected[p]);
+        }
+    }
+}
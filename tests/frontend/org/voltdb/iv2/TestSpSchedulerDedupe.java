@@ -24,6 +24,7 @@
 package org.voltdb.iv2;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyObject;
@@ -57,10 +58,15 @@ import org.voltdb.SnapshotCompletionMonitor;
 import org.voltdb.StarvationTracker;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltDB;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.messaging.BorrowTaskMessage;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.ReplicationBatchMessage;
 import org.voltdb.messaging.TestVoltMessageSerialization;
 
 import com.google_voltpatches.common.collect.ImmutableMap;
@@ -71,6 +77,7 @@ public class TestSpSchedulerDedupe
     SnapshotCompletionMonitor snapMonitor;
     MapCache iv2masters;
     ProcedureRunner runner;
+    CommandLog cl;
     Scheduler dut;
     private static MockVoltDB s_mockVoltDB = new MockVoltDB();
 
@@ -95,6 +102,11 @@ public class TestSpSchedulerDedupe
     }
 
     public void createObjs() throws JSONException
+    {
+        createObjs(true);
+    }
+
+    public void createObjs(boolean scoreboardEnabled) throws JSONException
     {
         mbox = mock(Mailbox.class);
         when(mbox.getHSId()).thenReturn(dut_hsid);
@@ -106,12 +118,12 @@ public class TestSpSchedulerDedupe
         fakecache.put("0", new JSONObject("{hsid:0}"));
         when(iv2masters.pointInTimeCache()).thenReturn(ImmutableMap.copyOf(fakecache));
 
-        final CommandLog cl = mock(CommandLog.class);
+        cl = mock(CommandLog.class);
         doReturn(CoreUtils.COMPLETED_FUTURE).when(cl).log(any(Iv2InitiateTaskMessage.class), anyLong(), any(int[].class),
                                                           any(CommandLog.DurabilityListener.class),
                                                           any(TransactionTask.class));
 
-        dut = new SpScheduler(0, getSiteTaskerQueue(), snapMonitor, true);
+        dut = new SpScheduler(0, getSiteTaskerQueue(), snapMonitor, scoreboardEnabled);
         dut.setMailbox(mbox);
         dut.setCommandLog(cl);
         dut.setLock(mbox);
@@ -143,6 +155,52 @@ public class TestSpSchedulerDedupe
         return task;
     }
 
+    private static BorrowTaskMessage createBorrow(long txnId, long overlappedWriteTxnId)
+    {
+        FragmentTaskMessage frag = TestVoltMessageSerialization.createFragmentTaskMessage(txnId, true, dut_hsid, null);
+        BorrowTaskMessage borrow = new BorrowTaskMessage(frag);
+        borrow.setOverlappedWriteTxnId(overlappedWriteTxnId);
+        return borrow;
+    }
+
+    @Test
+    public void testIsolatedBorrowRunsBesideMpWrite() throws Exception
+    {
+        TxnEgo ego = TxnEgo.makeZero(MpInitiator.MP_INIT_PID);
+        long primary_hsid = 1111l;
+
+        createObjs(false);
+        // async command logging, the fragment is offered right away
+        when(cl.canOfferTask()).thenReturn(true);
+        ego = ego.makeNext();
+        long writeTxnId = ego.getTxnId();
+        dut.deliver(TestVoltMessageSerialization.createFragmentTaskMessage(writeTxnId, false, primary_hsid, null));
+        assertEquals(1, dut.getQueue().size());
+
+        // a borrowed read the MPI didn't start beside the write waits for it
+        ego = ego.makeNext();
+        dut.deliver(createBorrow(ego.getTxnId(), Long.MIN_VALUE));
+        assertEquals(1, dut.getQueue().size());
+
+        // so does one started beside another write
+        ego = ego.makeNext();
+        dut.deliver(createBorrow(ego.getTxnId(), writeTxnId - 1));
+        assertEquals(1, dut.getQueue().size());
+
+        // the isolated read started beside the write in progress runs next to it
+        ego = ego.makeNext();
+        long isolatedTxnId = ego.getTxnId();
+        dut.deliver(createBorrow(isolatedTxnId, writeTxnId));
+        assertEquals(2, dut.getQueue().size());
+
+        SiteTasker task = dut.getQueue().poll();
+        assertTrue(task instanceof FragmentTask);
+        assertEquals(writeTxnId, ((FragmentTask) task).getTxnId());
+        task = dut.getQueue().poll();
+        assertTrue(task instanceof BorrowedTask);
+        assertEquals(isolatedTxnId, ((BorrowedTask) task).getTxnId());
+    }
+
     @Test
     public void testReplicaInitiateTaskResponse() throws Exception
     {
@@ -266,6 +324,118 @@ public class TestSpSchedulerDedupe
         verify(mbox, times(1)).send(eq(primary_hsid), eq(resp));
     }
 
+    @Test
+    public void testPrimaryRespondsWithOwnResultsOverDigestAck() throws Exception
+    {
+        s_mockVoltDB.setKFactor(1);
+
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        long primary_hsid = 1111l;
+
+        createObjs();
+        dut.setLeaderState(true);
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(2l);
+        dut.updateReplicas(replicas, null, null);
+        Iv2InitiateTaskMessage sptask = createMsg(txnid, false, true, primary_hsid);
+        dut.deliver(sptask);
+        ArgumentCaptor<Iv2InitiateTaskMessage> replmsg = ArgumentCaptor.forClass(Iv2InitiateTaskMessage.class);
+        verify(mbox, times(1)).send(eq(new long[] {2}), replmsg.capture());
+
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT));
+        table.addRow(1);
+        InitiateResponseMessage resp = new InitiateResponseMessage(sptask);
+        resp.setResults(new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, null));
+        InitiateResponseMessage replresp = new InitiateResponseMessage(replmsg.getValue());
+        replresp.setResults(new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, null));
+        replresp.setDigestOnly();
+        assertEquals(0, replresp.getClientResponseData().getResults().length);
+
+        // the replica's acknowledgement arrives last, the client still gets the results
+        dut.deliver(resp);
+        dut.deliver(replresp);
+        verify(mbox, times(1)).send(eq(primary_hsid), eq(resp));
+    }
+
+    @Test
+    public void testPrimaryBatchesReplicatedTasks() throws Exception
+    {
+        s_mockVoltDB.setKFactor(1);
+
+        TxnEgo ego = TxnEgo.makeZero(0);
+        long primary_hsid = 1111l;
+
+        createObjs();
+        dut.setLeaderState(true);
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(2l);
+        dut.updateReplicas(replicas, null, null);
+
+        dut.startBatch();
+        for (int i = 0; i < 3; i++) {
+            ego = ego.makeNext();
+            dut.deliver(createMsg(ego.getTxnId(), false, true, primary_hsid));
+        }
+        verify(mbox, times(0)).send(anyLong(), (VoltMessage)anyObject());
+        verify(mbox, times(0)).send(any(long[].class), (VoltMessage)anyObject());
+        dut.endBatch();
+
+        ArgumentCaptor<VoltMessage> replmsg = ArgumentCaptor.forClass(VoltMessage.class);
+        verify(mbox, times(1)).send(eq(2l), replmsg.capture());
+        assertTrue(replmsg.getValue() instanceof ReplicationBatchMessage);
+        List<VoltMessage> tasks = ((ReplicationBatchMessage) replmsg.getValue()).getMessages();
+        assertEquals(3, tasks.size());
+        long lastSpHandle = Long.MIN_VALUE;
+        for (VoltMessage task : tasks) {
+            assertTrue(((Iv2InitiateTaskMessage) task).getSpHandle() > lastSpHandle);
+            lastSpHandle = ((Iv2InitiateTaskMessage) task).getSpHandle();
+        }
+    }
+
+    @Test
+    public void testReplicaBatchesAcknowledgements() throws Exception
+    {
+        s_mockVoltDB.setKFactor(1);
+
+        TxnEgo ego = TxnEgo.makeZero(0);
+        long primary_hsid = 1111l;
+
+        createObjs();
+        List<Iv2InitiateTaskMessage> sptasks = new ArrayList<>();
+        dut.startBatch();
+        for (int i = 0; i < 2; i++) {
+            ego = ego.makeNext();
+            Iv2InitiateTaskMessage sptask = createMsg(ego.getTxnId(), false, true, primary_hsid);
+            sptasks.add(sptask);
+            dut.deliver(sptask);
+        }
+        dut.endBatch();
+
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT));
+        table.addRow(1);
+        for (Iv2InitiateTaskMessage sptask : sptasks) {
+            InitiateResponseMessage resp = new InitiateResponseMessage(sptask);
+            resp.setResults(new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, null));
+            dut.deliver(resp);
+        }
+        // held back until the tasks of the batch have run
+        verify(mbox, times(0)).send(anyLong(), (VoltMessage)anyObject());
+
+        SiteTasker task;
+        while ((task = dut.getQueue().poll()) != null) {
+            if (task instanceof SiteTasker.SiteTaskerRunnable) {
+                task.run(null);
+            }
+        }
+        ArgumentCaptor<VoltMessage> ack = ArgumentCaptor.forClass(VoltMessage.class);
+        verify(mbox, times(1)).send(eq(primary_hsid), ack.capture());
+        List<VoltMessage> acks = ((ReplicationBatchMessage) ack.getValue()).getMessages();
+        assertEquals(2, acks.size());
+        for (VoltMessage resp : acks) {
+            assertTrue(((InitiateResponseMessage) resp).isDigestOnly());
+        }
+    }
+
     @Test
     public void testPrimaryFragmentTaskResponseReplicas() throws Exception
     {
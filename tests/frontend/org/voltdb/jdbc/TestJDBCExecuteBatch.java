@@ -0,0 +1,175 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+
+/**
+ * executeBatch() against a mocked client connection. Each statement of the
+ * batch is an insert whose SQL text carries the update count it answers with,
+ * or a negative count to fail.
+ */
+public class TestJDBCExecuteBatch {
+
+    // The statements in the order they were submitted, and the ones which had completed by then
+    private final List<String> m_submitted = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> m_completedAtSubmission = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> m_completed = Collections.synchronizedList(new ArrayList<String>());
+
+    private static ClientResponse response(String sql) {
+        // the driver terminates the statement with ';'
+        int count = Integer.parseInt(sql.substring(sql.lastIndexOf(' ') + 1, sql.length() - 1));
+        ClientResponse response = mock(ClientResponse.class);
+        if (count < 0) {
+            when(response.getStatus()).thenReturn(ClientResponse.GRACEFUL_FAILURE);
+            when(response.getStatusString()).thenReturn("failed " + sql);
+        }
+        else {
+            VoltTable table = new VoltTable(new VoltTable.ColumnInfo("modified_tuples", VoltType.BIGINT));
+            table.addRow(count);
+            when(response.getStatus()).thenReturn(ClientResponse.SUCCESS);
+            when(response.getResults()).thenReturn(new VoltTable[] { table });
+        }
+        return response;
+    }
+
+    // Answers each statement from another thread after a little while
+    private Statement createStatement(String batchWindow) throws Exception {
+        JDBC4ClientConnection client = mock(JDBC4ClientConnection.class);
+        doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                final ProcedureCallback callback = invocation.getArgument(0);
+                final String sql = invocation.getArgument(4);
+                m_completedAtSubmission.clear();
+                m_completedAtSubmission.addAll(m_completed);
+                m_submitted.add(sql);
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(5);
+                            m_completed.add(sql);
+                            callback.clientCallback(response(sql));
+                        }
+                        catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }.start();
+                return true;
+            }
+        }).when(client).executeAsync(any(ProcedureCallback.class), anyLong(), any(TimeUnit.class),
+                                     eq("@AdHoc"), anyString());
+        Properties props = new Properties();
+        if (batchWindow != null) {
+            props.setProperty(JDBC4Connection.BATCH_WINDOW, batchWindow);
+        }
+        return new JDBC4Connection(client, props).createStatement();
+    }
+
+    @Test
+    public void testUpdateCounts() throws Exception {
+        Statement stmt = createStatement("4");
+        for (int i = 0; i < 10; i++) {
+            stmt.addBatch("insert into T values " + i);
+        }
+        int[] counts = stmt.executeBatch();
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, counts);
+        assertEquals(45, stmt.getUpdateCount());
+        assertEquals(10, m_submitted.size());
+        // the batch is cleared
+        assertArrayEquals(new int[0], stmt.executeBatch());
+    }
+
+    @Test
+    public void testBatchUpdateException() throws Exception {
+        Statement stmt = createStatement("1");
+        stmt.addBatch("insert into T values 1");
+        stmt.addBatch("insert into T values 2");
+        stmt.addBatch("insert into T values -1");
+        stmt.addBatch("insert into T values 3");
+        try {
+            stmt.executeBatch();
+            fail("The third statement fails");
+        }
+        catch (BatchUpdateException e) {
+            // Counts of the statements up to the failed one, which isn't followed by any other
+            assertArrayEquals(new int[] { 1, 2, Statement.EXECUTE_FAILED }, e.getUpdateCounts());
+            assertTrue(e.getMessage().contains("failed insert into T values -1;"));
+        }
+        assertEquals(3, m_submitted.size());
+    }
+
+    @Test
+    public void testWindowOfOneRunsInOrder() throws Exception {
+        Statement stmt = createStatement("1");
+        for (int i = 0; i < 5; i++) {
+            stmt.addBatch("insert into T values " + i);
+        }
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, stmt.executeBatch());
+        // Every statement was submitted after the previous one completed
+        assertEquals(5, m_submitted.size());
+        assertEquals(m_submitted.subList(0, 4), m_completedAtSubmission);
+    }
+
+    @Test
+    public void testDefaultWindowPipelines() throws Exception {
+        Statement stmt = createStatement(null);
+        for (int i = 0; i < 5; i++) {
+            stmt.addBatch("insert into T values " + i);
+        }
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, stmt.executeBatch());
+        assertEquals(5, m_submitted.size());
+        // Statements were submitted before the previous ones completed
+        assertTrue(m_completedAtSubmission.size() < 4);
+    }
+}
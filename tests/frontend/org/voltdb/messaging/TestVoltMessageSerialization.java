@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.voltcore.messaging.HeartbeatMessage;
 import org.voltcore.messaging.HeartbeatResponseMessage;
@@ -160,6 +161,63 @@ public class TestVoltMessageSerialization extends TestCase {
         assertTrue(iresponse2.isReadOnly());
     }
 
+    public void testDigestOnlyResponse() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("elmerfudd");
+        spi.setParams(57, "wrascallywabbit");
+
+        Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 8, 10L, 100045, 99, false, true, spi, 2101, 3101, false);
+
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("foobar", VoltType.STRING)
+        );
+        table.addRow("howmanylicksdoesittaketogettothecenterofatootsiepop");
+
+        InitiateResponseMessage iresponse = new InitiateResponseMessage(itask);
+        ClientResponseImpl cr = new ClientResponseImpl(ClientResponse.SUCCESS,
+                new VoltTable[] { table, table }, null);
+        cr.setHashes(new int[] { 1, 2, 3, 4, 5 });
+        iresponse.setResults(cr);
+        iresponse.setClientHandle(99);
+        iresponse.setDigestOnly();
+
+        InitiateResponseMessage iresponse2 = (InitiateResponseMessage) checkVoltMessage(iresponse);
+
+        assertTrue(iresponse2.isDigestOnly());
+        assertTrue(iresponse2.shouldCommit());
+        assertEquals(0, iresponse2.getClientResponseData().getResults().length);
+        assertEquals(99, iresponse2.getClientResponseData().getClientHandle());
+        assertTrue(Arrays.equals(cr.getHashes(), iresponse2.getClientResponseData().getHashes()));
+    }
+
+    public void testReplicationBatch() throws IOException {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setClientHandle(25);
+        spi.setProcName("elmerfudd");
+        spi.setParams(57, "wrascallywabbit");
+
+        List<VoltMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Iv2InitiateTaskMessage itask = new Iv2InitiateTaskMessage(23, 8, 10L, 100045 + i, 99, false, true, spi, 2101, 3101, false);
+            itask.setSpHandle(100045 + i);
+            messages.add(itask);
+        }
+        messages.add(new RepairLogTruncationMessage(100047));
+
+        ReplicationBatchMessage batch = new ReplicationBatchMessage(messages);
+        ReplicationBatchMessage batch2 = (ReplicationBatchMessage) checkVoltMessage(batch);
+
+        assertEquals(4, batch2.getMessages().size());
+        for (int i = 0; i < 3; i++) {
+            Iv2InitiateTaskMessage itask2 = (Iv2InitiateTaskMessage) batch2.getMessages().get(i);
+            assertEquals(100045 + i, itask2.getTxnId());
+            assertEquals(100045 + i, itask2.getSpHandle());
+            assertEquals("elmerfudd", itask2.getStoredProcedureName());
+        }
+        assertEquals(100047, ((RepairLogTruncationMessage) batch2.getMessages().get(3)).getHandle());
+    }
+
     public void testMispartitionedResponse() throws IOException {
         StoredProcedureInvocation spi = new StoredProcedureInvocation();
         spi.setClientHandle(25);
@@ -136,8 +136,8 @@ public class PlannerTestAideDeCamp {
         // name will look like "basename-stmt-#"
         String name = catalogStmt.getParent().getTypeName() + "-" + catalogStmt.getTypeName();
 
-        DatabaseEstimates estimates = new DatabaseEstimates();
-        TrivialCostModel costModel = new TrivialCostModel();
+        DatabaseEstimates estimates = new DatabaseEstimates(db);
+        AbstractCostModel costModel = AbstractCostModel.forEstimates(estimates);
         StatementPartitioning partitioning;
         if (inferPartitioning) {
             partitioning = StatementPartitioning.inferPartitioning();
@@ -35,8 +35,8 @@ import org.voltdb.catalog.Database;
 import org.voltdb.compiler.DeterminismMode;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
 import org.voltdb.types.ExpressionType;
@@ -531,25 +531,25 @@ public class PlannerTestCase extends TestCase {
 
     /**
      * Assert that a two-fragment plan's coordinator fragment does a left join
-     * with a specific replicated table on its outer side.
+     * of the given join node type with a specific replicated table on its outer side.
      **/
     protected static void assertReplicatedLeftJoinCoordinator(
-            List<AbstractPlanNode> lpn, String replicatedTable) {
+            List<AbstractPlanNode> lpn, String replicatedTable, PlanNodeType joinNodeType) {
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         pn = lpn.get(0);
         assertTopDownTree(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinNodeType,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.RECEIVE);
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinNodeType);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertEquals(2, nlj.getChildCount());
         seqScan = (SeqScanPlanNode) nlj.getChild(0);
@@ -24,6 +24,10 @@
 package org.voltdb.planner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
@@ -39,10 +43,13 @@ import org.voltdb.VoltDB;
 import org.voltdb.catalog.Catalog;
 import org.voltdb.client.NoConnectionsException;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.compiler.AdHocCompilerCache;
 import org.voltdb.compiler.AdHocPlannedStatement;
 import org.voltdb.compiler.PlannerTool;
 import org.voltdb.settings.DbSettings;
 import org.voltdb.settings.NodeSettings;
+import org.voltdb.sysprocs.AdHocNTBase;
+import org.voltdb.sysprocs.AdHocNTBase.AdHocPlanningException;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.MiscUtils;
 
@@ -92,6 +99,59 @@ public class TestAdHocPlans extends AdHocQueryTester {
         }
     }
 
+    @Test
+    public void testPreparedStatements() throws Exception {
+        String sql = "select NONPART from PARTED1 where PARTVAL = ?;";
+        long handle = AdHocCompilerCache.preparedHandle(sql);
+        assertEquals(handle, AdHocCompilerCache.preparedHandle(sql));
+        assertNull(m_pt.getPrepared(handle, null));
+
+        AdHocPlannedStatement stmt = AdHocNTBase.planPrepared(m_pt, handle, sql, 1);
+        assertSame(stmt, m_pt.getPrepared(handle, null));
+        assertSame(stmt, m_pt.getPrepared(handle, sql));
+        assertNull(stmt.core.collectorFragment);
+        assertEquals(0, stmt.getPartitioningParameterIndex());
+        assertEquals(0, stmt.extractedParamArray().length);
+
+        // Planned again from the core cache, still without parameter values
+        String otherSql = "select NONPART from PARTED1 where PARTVAL = ? ;";
+        long otherHandle = AdHocCompilerCache.preparedHandle(otherSql);
+        assertTrue(handle != otherHandle);
+        stmt = AdHocNTBase.planPrepared(m_pt, otherHandle, otherSql, 1);
+        assertEquals(0, stmt.getPartitioningParameterIndex());
+        assertEquals(0, stmt.extractedParamArray().length);
+
+        // A plan is only used for the text it was prepared for, and no other
+        // text can be prepared under the same handle
+        assertNull(m_pt.getPrepared(handle, otherSql));
+        try {
+            AdHocNTBase.planPrepared(m_pt, handle, otherSql, 1);
+            fail("Handle collision");
+        }
+        catch (AdHocPlanningException expected) {
+        }
+        assertNotNull(m_pt.getPrepared(handle, sql));
+
+        sql = "select PARTVAL from PARTED1 where NONPART = ?;";
+        stmt = AdHocNTBase.planPrepared(m_pt, AdHocCompilerCache.preparedHandle(sql), sql, 1);
+        assertNotNull(stmt.core.collectorFragment);
+
+        try {
+            sql = "create table NOT_PREPARED (ID integer);";
+            AdHocNTBase.planPrepared(m_pt, AdHocCompilerCache.preparedHandle(sql), sql, 0);
+            fail("DDL can't be prepared");
+        }
+        catch (AdHocPlanningException expected) {
+        }
+        try {
+            sql = "select * from PARTED1 where PARTVAL = ?;";
+            AdHocNTBase.planPrepared(m_pt, AdHocCompilerCache.preparedHandle(sql), sql, 2);
+            fail("Wrong parameter count");
+        }
+        catch (AdHocPlanningException expected) {
+        }
+    }
+
     /**
      * For planner-only testing, most of the args are ignored.
      */
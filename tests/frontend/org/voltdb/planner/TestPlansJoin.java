@@ -28,12 +28,13 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.NodeSchema;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.SchemaColumn;
@@ -64,6 +65,12 @@ public class TestPlansJoin extends PlannerTestCase {
         @Override
         public String toString() { return m_string; }
         ExpressionType toOperator() { return m_operator; }
+        // Equi-joins with no usable index are planned as hash joins,
+        // but NULLs must match under IS NOT DISTINCT FROM, so it can not be hashed.
+        PlanNodeType joinNodeType() {
+            return m_operator == ExpressionType.COMPARE_EQUAL ?
+                    PlanNodeType.HASHJOIN : PlanNodeType.NESTLOOP;
+        }
     }
 
     public void testBasicInnerJoin() {
@@ -76,13 +83,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         followAssertedLeftChain(pn,
                 PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         assertEquals(4, pn.getOutputSchema().size());
 
         for (JoinOp joinOp : JoinOp.JOIN_OPS) {
@@ -107,7 +114,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, R1.C, D FROM R1 JOIN R2 ON R1.C" +
@@ -115,21 +122,21 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 3,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, C, R1.D FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 3,
                 PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
 
         query = "SELECT R1.A, R2.C, R1.D FROM R1 JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 3, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         assertEquals("R1", selectColumns.getColumn(0).getTableName());
@@ -139,7 +146,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT R1.A, C, R1.D FROM R1 JOIN R2 USING(C)";
         pn = compileToTopDownTree(query, 3, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         assertEquals("R1", selectColumns.getColumn(0).getTableName());
@@ -189,8 +196,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C JOIN R3 ON R3.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -200,8 +207,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -209,8 +216,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 INNER JOIN R2 USING (C) INNER JOIN R3 USING(C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -219,14 +226,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R3_NOC.A";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 null, // weakened. soon, replace with: NESTLOOPINDEX, SEQSCAN?
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         if (joinOp == JoinOp.EQUAL) { // weaken test for now
-            node = followAssertedLeftChain(node, PlanNodeType.NESTLOOP,
+            node = followAssertedLeftChain(node, PlanNodeType.HASHJOIN,
                     PlanNodeType.NESTLOOPINDEX,
                     PlanNodeType.SEQSCAN);
         }
@@ -258,7 +265,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
         boolean theOpIsOnTheLeft;
@@ -266,11 +273,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE R1.A" +
                 joinOp + "R2.A AND R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -286,12 +293,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE R1.A" +
                 joinOp + "R2.A AND R1.C > R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         theOpIsOnTheLeft = (predicate != null) &&
@@ -313,12 +320,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 ON R1.A" +
                 joinOp + "R2.A WHERE R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -338,12 +345,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 ON R1.A" +
                 joinOp + "R2.A WHERE R1.C > R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         theOpIsOnTheLeft = (predicate != null) &&
@@ -366,14 +373,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A AND R1.C" +
                 joinOp + "R3.C AND R1.A > 0";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -385,7 +392,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("R3", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        nlj = (NestLoopPlanNode) nlj.getChild(0);
+        nlj = (AbstractJoinPlanNode) nlj.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -406,12 +413,12 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A AND R1.C" +
                 joinOp + "R2.C WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -434,13 +441,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R1 JOIN R2 USING (A, C)";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -453,13 +460,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R1 JOIN R2 USING (A, C) WHERE A > 0";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
@@ -481,14 +488,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.A JOIN R3 ON R1.C" +
                 joinOp + "R3.C WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -500,7 +507,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("R3", seqScan.getTargetTableName());
         assertNull(seqScan.getPredicate());
 
-        nlj = (NestLoopPlanNode) nlj.getChild(0);
+        nlj = (AbstractJoinPlanNode) nlj.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -523,7 +530,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
         SchemaColumn sc0;
@@ -531,7 +538,7 @@ public class TestPlansJoin extends PlannerTestCase {
 
         query = "SELECT max(A) FROM R1 JOIN R2 USING(A)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         for (SchemaColumn sc : selectColumns) {
@@ -541,12 +548,12 @@ public class TestPlansJoin extends PlannerTestCase {
             assertNotSame(-1, tve.getColumnIndex());
         }
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
+                PlanNodeType.HASHJOIN);
         assertNotNull(AggregatePlanNode.getInlineAggregationNode(node));
 
         query = "SELECT distinct(A) FROM R1 JOIN R2 USING(A)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
         for (SchemaColumn sc : selectColumns) {
@@ -560,7 +567,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -578,12 +585,12 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -604,8 +611,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM P1 LABEL LEFT JOIN R2 USING(A) WHERE A > 0";
         lpn = compileToFragments(query);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertTrue(JoinType.LEFT == nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -630,12 +637,12 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -664,7 +671,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -678,7 +685,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         theConstantIsOnTheLeft = (predicate != null) &&
                 (predicate.getLeft() != null) &&
@@ -712,7 +719,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -732,11 +739,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.A" +
                 joinOp + "R2.A AND R2.C = 1 ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
@@ -748,11 +755,11 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_TUPLE);
@@ -779,7 +786,7 @@ public class TestPlansJoin extends PlannerTestCase {
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -811,7 +818,7 @@ public class TestPlansJoin extends PlannerTestCase {
         node = followAssertedLeftChain(pn, true,
                 PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         theConstantIsOnTheLeft = (predicate != null) &&
                 (predicate.getLeft() != null) &&
@@ -850,7 +857,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String pattern;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
 
         query = "SELECT * FROM R1, R2";
@@ -859,7 +866,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getJoinPredicate());
 
         for (JoinOp joinOp : JoinOp.JOIN_OPS) {
@@ -876,17 +883,17 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
 
         query = "SELECT * FROM R1 JOIN R2 ON ABS(R1.A) " +
                 joinOp + " ABS(R2.A) ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.FUNCTION,
@@ -897,11 +904,11 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1, R2 WHERE ABS(R1.A) " +
                 joinOp + " ABS(R2.A) ";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
                 ExpressionType.FUNCTION,
@@ -954,7 +961,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1045,14 +1052,14 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R1.A WHERE R3.C > 0 AND R2.C >= 5";
         pn = compileToTopDownTree(query, 7, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -1154,7 +1161,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1163,13 +1170,13 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT A, C FROM R2 JOIN R1 USING(A, C)";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                PlanNodeType.HASHJOIN);
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
                 ExpressionType.COMPARE_EQUAL,
@@ -1224,7 +1231,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1234,13 +1241,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.CONJUNCTION_AND,
                 joinOp.toOperator(),
@@ -1347,7 +1354,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
 
@@ -1355,12 +1362,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1377,12 +1384,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND R1.A = 5";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -1411,7 +1418,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         AbstractExpression predicate;
 
@@ -1421,13 +1428,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1443,7 +1450,7 @@ public class TestPlansJoin extends PlannerTestCase {
         // Same but with distributed table
         query = "SELECT * FROM P1 RIGHT JOIN R2 ON P1.C" + joinOp + "R2.C";
         lpn = compileToFragments(query);
-        assertReplicatedLeftJoinCoordinator(lpn, "R2");
+        assertReplicatedLeftJoinCoordinator(lpn, "R2", joinOp.joinNodeType());
 
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
@@ -1464,7 +1471,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
@@ -1473,12 +1480,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -1497,12 +1504,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND R1.A > 0 AND R2.A < 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_GREATERTHAN,
                 ExpressionType.VALUE_TUPLE, ExpressionType.VALUE_CONSTANT);
@@ -1525,12 +1532,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C AND (R1.A > 0 OR R2.A < 0)";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         boolean theOrIsOnTheLeft = (predicate != null) &&
@@ -1572,12 +1579,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R1.A > 0 AND R2.A IS NULL AND (R1.C > R2.C OR R2.C IS NULL)";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1608,12 +1615,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R3 LEFT JOIN R2 ON R3.A" +
                 joinOp + "R2.A WHERE R3.A > 3 AND R3.C < 0";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.INDEXSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1634,12 +1641,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 LEFT JOIN R3 ON R3.C" +
                 joinOp + "R2.C WHERE R3.A > 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.INNER, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1690,7 +1697,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-        PlanNodeType.NESTLOOP,
+        joinOp.joinNodeType(),
         PlanNodeType.SEQSCAN,
         PlanNodeType.SEQSCAN);
 
@@ -1699,7 +1706,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         lpn = compileToFragments(query);
         assertEquals(2, lpn.size());
-        assertReplicatedLeftJoinCoordinator(lpn, "R2");
+        assertReplicatedLeftJoinCoordinator(lpn, "R2", joinOp.joinNodeType());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
                 PlanNodeType.SEQSCAN);
@@ -1710,7 +1717,7 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments(query);
         assertEquals(2, lpn.size());
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1734,7 +1741,7 @@ public class TestPlansJoin extends PlannerTestCase {
         AbstractPlanNode pn;
         AbstractPlanNode node;
         NestLoopIndexPlanNode nlij;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -1742,12 +1749,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R3 LEFT JOIN R2 ON R3.A" +
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1766,13 +1773,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -1823,7 +1830,7 @@ public class TestPlansJoin extends PlannerTestCase {
         AbstractPlanNode pn;
         AbstractPlanNode node;
         NestLoopIndexPlanNode nlij;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
         SeqScanPlanNode seqScan;
@@ -1866,12 +1873,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 LEFT JOIN R3 ON R3.C" +
                 joinOp + "R2.A AND R3.A > 0 AND R3.C != 0 AND R2.A < 6";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(JoinType.LEFT, nlj.getJoinType());
         predicate = nlj.getPreJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_LESSTHAN,
@@ -1949,7 +1956,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(2, lpn.size());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1957,7 +1964,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 LEFT JOIN P1 ON P1.C" +
                 joinOp + "R2.C";
         lpn = compileToFragments(query);
-        assertReplicatedLeftJoinCoordinator(lpn, "R2");
+        assertReplicatedLeftJoinCoordinator(lpn, "R2", joinOp.joinNodeType());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
                 PlanNodeType.SEQSCAN);
@@ -1970,7 +1977,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(2, lpn.size());
         pn = lpn.get(1);
         assertTopDownTree(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -1996,7 +2003,7 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> lpn;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         NestLoopIndexPlanNode nlij;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -2016,11 +2023,11 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments(query);
         assertEquals(2, lpn.size());
         //*enable to debug*/printExplainPlan(lpn);
-        assertReplicatedLeftJoinCoordinator(lpn, "R3");
+        assertReplicatedLeftJoinCoordinator(lpn, "R3", joinOp.joinNodeType());
         pn = lpn.get(0);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, joinOp.toOperator(),
@@ -2108,7 +2115,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         AbstractPlanNode node;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         SeqScanPlanNode seqScan;
         IndexScanPlanNode indexScan;
         AbstractExpression predicate;
@@ -2119,38 +2126,38 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R2.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE R1.C > 0";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R3 ON R1.C" +
@@ -2158,14 +2165,14 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.INDEXSCAN);
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R3 ON R1.C" +
@@ -2185,13 +2192,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R2.C WHERE ABS(R2.C) < 10";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
@@ -2199,14 +2206,14 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP,
+                    joinOp.joinNodeType(),
                     PlanNodeType.SEQSCAN,
                     PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
@@ -2214,27 +2221,27 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 5,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 RIGHT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R2.C) < 10";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
@@ -2249,42 +2256,42 @@ public class TestPlansJoin extends PlannerTestCase {
                  true,
                  PlanNodeType.SEND,
                  PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R2.C) <  10 OR R2.C IS NOT NULL";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R1.C) <  10 AND R1.C > 3";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.C" +
                 joinOp + "R2.C WHERE ABS(R1.C) <  10 OR R2.C IS NOT NULL";
         pn = compileToTopDownTree(query, 5, PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
 
         // Test with seqscan with different filers.
@@ -2293,15 +2300,15 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compileToTopDownTree(query, 4,
                 true,
                 PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         //* enable for debug */ System.out.println(pn.toExplainPlanString());
         node = followAssertedLeftChain(pn,
                     true,
                     PlanNodeType.SEND,
-                    PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                    joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.INNER);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -2313,13 +2320,13 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R1.A WHERE R2.A IS NULL";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                  PlanNodeType.PROJECTION,
-                 PlanNodeType.NESTLOOP);
-        nlj = (NestLoopPlanNode) node;
+                 joinOp.joinNodeType());
+        nlj = (AbstractJoinPlanNode) node;
         assertEquals(nlj.getJoinType(), JoinType.LEFT);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
@@ -2435,11 +2442,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
 
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2456,11 +2463,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertProjectingCoordinator(lpn);
 
         assertTopDownTree(lpn.get(1), PlanNodeType.SEND,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
                 PlanNodeType.NESTLOOPINDEX,
                 PlanNodeType.NESTLOOPINDEX,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                joinOp.joinNodeType(),
+                joinOp.joinNodeType(),
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
@@ -2497,14 +2504,14 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
         query = "SELECT lr.a a, rr.a FROM r1 lr JOIN r1 rr using (a) ORDER BY a;";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.ORDERBY,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
 
@@ -2517,8 +2524,8 @@ public class TestPlansJoin extends PlannerTestCase {
                 " INNER JOIN R3 USING(C);";
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2536,7 +2543,7 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2545,7 +2552,7 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2554,7 +2561,7 @@ public class TestPlansJoin extends PlannerTestCase {
         compileToTopDownTree(query, 2, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
                 PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2713,7 +2720,7 @@ public class TestPlansJoin extends PlannerTestCase {
                 joinOp + "R3.A";
         compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 null,
                 PlanNodeType.SEQSCAN);
 
@@ -2727,7 +2734,7 @@ public class TestPlansJoin extends PlannerTestCase {
         String query;
         AbstractPlanNode pn;
         OrderByPlanNode orderBy;
-        NestLoopPlanNode nlj;
+        AbstractJoinPlanNode nlj;
         AggregatePlanNode aggr;
         NodeSchema selectColumns;
         SchemaColumn col;
@@ -2750,7 +2757,7 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals(ExpressionType.VALUE_TUPLE, s.get(0).getExpressionType());
 
         // WHERE
-        nlj = (NestLoopPlanNode) orderBy.getChild(0);
+        nlj = (AbstractJoinPlanNode) orderBy.getChild(0);
         assertNull(nlj.getPreJoinPredicate());
         predicate = nlj.getJoinPredicate();
         assertExprTopDownTree(predicate, ExpressionType.COMPARE_EQUAL,
@@ -2794,8 +2801,8 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 JOIN R2 USING (C) JOIN R3 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
@@ -2810,7 +2817,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 LEFT JOIN R2 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -2824,7 +2831,7 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT C FROM R1 RIGHT JOIN R2 USING (C)";
         pn = compileToTopDownTree(query, 1, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         selectColumns = pn.getOutputSchema();
@@ -2845,12 +2852,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R2 JOIN R1 USING (C) WHERE R1.A > 0";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R1", sn.getTargetTableName());
@@ -2859,12 +2866,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A > 0 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R2", sn.getTargetTableName());
@@ -2873,12 +2880,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A > 0 AND R1.A < 3 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R2", sn.getTargetTableName());
@@ -2887,12 +2894,12 @@ public class TestPlansJoin extends PlannerTestCase {
         query = "SELECT * FROM R1 JOIN R2 USING (C) WHERE R1.A = 0 AND R1.D < 3 AND R2.A = 3";
         pn = compileToTopDownTree(query, 4, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN,
                 PlanNodeType.SEQSCAN);
         node = followAssertedLeftChain(pn, PlanNodeType.SEND,
                 PlanNodeType.PROJECTION,
-                PlanNodeType.NESTLOOP,
+                PlanNodeType.HASHJOIN,
                 PlanNodeType.SEQSCAN);
         sn = (AbstractScanPlanNode) node;
         assertEquals("R1", sn.getTargetTableName());
@@ -3076,6 +3083,107 @@ public class TestPlansJoin extends PlannerTestCase {
         }
     }
 
+    public void testHashJoin() {
+        String query;
+        AbstractPlanNode pn;
+        AbstractPlanNode node;
+        HashJoinPlanNode hj;
+        String explained;
+
+        // Each equality between the two sides becomes a hash key,
+        // the other join clauses are only evaluated by the join predicate.
+        query = "SELECT * FROM R1 JOIN R2 ON R1.A = R2.A AND R1.C > R2.C";
+        pn = compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+        hj = (HashJoinPlanNode) pn.getChild(0);
+        assertEquals(JoinType.INNER, hj.getJoinType());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        assertEquals(1, hj.getInnerHashExpressions().size());
+        assertEquals("R1", ((TupleValueExpression) hj.getOuterHashExpressions().get(0)).getTableName());
+        assertEquals("R2", ((TupleValueExpression) hj.getInnerHashExpressions().get(0)).getTableName());
+        assertEquals(ExpressionType.CONJUNCTION_AND, hj.getJoinPredicate().getExpressionType());
+
+        query = "SELECT * FROM R1 JOIN R2 ON R1.A = R2.A AND R2.C = R1.C";
+        pn = compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+        hj = (HashJoinPlanNode) pn.getChild(0);
+        assertEquals(2, hj.getOuterHashExpressions().size());
+        for (AbstractExpression expr : hj.getOuterHashExpressions()) {
+            assertEquals("R1", ((TupleValueExpression) expr).getTableName());
+        }
+
+        query = "SELECT * FROM R1 LEFT JOIN R2 ON R1.A = R2.A";
+        pn = compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) pn.getChild(0)).getJoinType());
+
+        // FULL joins, non-equality joins and keys of different types
+        // stay with the nested loop join.
+        query = "SELECT * FROM R1 FULL JOIN R2 ON R1.A = R2.A";
+        compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+
+        query = "SELECT * FROM R1 JOIN R2 ON R1.A > R2.A";
+        compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+
+        query = "SELECT * FROM R1 JOIN R2 ON R1.A + 1 = R2.A";
+        compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+
+        // An inner index still wins over hashing.
+        query = "SELECT * FROM R1 JOIN R3 ON R1.A = R3.A";
+        compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOPINDEX,
+                PlanNodeType.SEQSCAN);
+
+        // An outer index scan that provides the statement order keeps
+        // the nested loop join, so there is no sort above the join.
+        query = "SELECT * FROM R4 JOIN R2 ON R4.B = R2.A ORDER BY R4.A";
+        pn = compileToTopDownTree(query, 6, true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.INDEXSCAN,
+                PlanNodeType.SEQSCAN);
+        node = followAssertedLeftChain(pn, PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.INDEXSCAN);
+        assertEquals("R4", ((IndexScanPlanNode) node).getTargetTableName());
+
+        // Otherwise a sort is needed on top of the hash join.
+        query = "SELECT * FROM R1 JOIN R2 ON R1.A = R2.A ORDER BY R1.C";
+        pn = compileToTopDownTree(query, 5, true,
+                PlanNodeType.SEND,
+                PlanNodeType.ORDERBY,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN,
+                PlanNodeType.SEQSCAN);
+
+        query = "SELECT * FROM R1 JOIN R2 ON R1.A = R2.A";
+        explained = buildExplainPlan(compileToFragments(query));
+        assertTrue(explained.contains("HASH INNER JOIN"));
+        assertTrue(explained.contains("hash on R1.A = R2.A"));
+    }
+
     @Override
     protected void setUp() throws Exception {
         setupSchema(TestJoinOrder.class.getResource("testplans-join-ddl.sql"),
@@ -41,6 +41,7 @@ import org.voltdb.planner.parseinfo.StmtTableScan;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.MergeReceivePlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
@@ -362,7 +363,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         checkSubquerySimplification(sql, equivalentSql);
     }
 
-    private void checkReplicatedOne(String sql) {
+    private void checkReplicatedOne(String sql, PlanNodeType joinNodeType) {
         AbstractPlanNode pn;
         List<AbstractPlanNode> planNodes;
         AbstractPlanNode nlpn;
@@ -374,10 +375,10 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertEquals(joinNodeType, nlpn.getPlanNodeType());
     }
 
-    private void checkReplicatedTwo(String sql, int nljCount, int nlijCount) {
+    private void checkReplicatedTwo(String sql, int nljCount, int hjCount, int nlijCount) {
         AbstractPlanNode pn;
         List<AbstractPlanNode> planNodes;
         planNodes = compileToFragments(sql);
@@ -393,6 +394,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         checkJoinNode(pn, PlanNodeType.NESTLOOP, nljCount);
+        checkJoinNode(pn, PlanNodeType.HASHJOIN, hjCount);
         checkJoinNode(pn, PlanNodeType.NESTLOOPINDEX, nlijCount);
     }
 
@@ -402,19 +404,19 @@ public class TestPlansSubQueries extends PlannerTestCase {
         sql = "select T1.A, P1.C FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.C AND P1.A = 3 ";
         sqlNoSimplification = "select T1.A, P1.C FROM (SELECT A FROM R1  LIMIT 5) T1, P1 WHERE T1.A = P1.C AND P1.A = 3 ";
         equivalentSql = "select T1.A, P1.C FROM R1 T1, P1 WHERE T1.A = P1.C AND P1.A = 3 ";
-        checkReplicatedOne(sqlNoSimplification);
+        checkReplicatedOne(sqlNoSimplification, PlanNodeType.HASHJOIN);
         checkSubquerySimplification(sql, equivalentSql);
 
         sql = "select T1.A FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.A AND P1.A = 3 ";
         sqlNoSimplification = "select T1.A FROM (SELECT A FROM R1 LIMIT 5) T1, P1 WHERE T1.A = P1.A AND P1.A = 3 ";
         equivalentSql = "select T1.A FROM R1 T1, P1 WHERE T1.A = P1.A AND P1.A = 3 ";
-        checkReplicatedOne(sqlNoSimplification);
+        checkReplicatedOne(sqlNoSimplification, PlanNodeType.NESTLOOP);
         checkSubquerySimplification(sql, equivalentSql);
 
         sql = "select T1.A FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.A AND T1.A = 3 ";
         sqlNoSimplification = "select T1.A FROM (SELECT A FROM R1 LIMIT 5) T1, P1 WHERE T1.A = P1.A AND T1.A = 3 ";
         equivalentSql = "select T1.A FROM R1 T1, P1 WHERE T1.A = P1.A AND T1.A = 3 ";
-        checkReplicatedOne(sqlNoSimplification);
+        checkReplicatedOne(sqlNoSimplification, PlanNodeType.NESTLOOP);
         checkSubquerySimplification(sql, equivalentSql);
 
         // Uncomment next test cases when ENG-6371 is fixed
@@ -437,14 +439,14 @@ public class TestPlansSubQueries extends PlannerTestCase {
         sql = "select T1.A, P1.C FROM (SELECT A FROM R1) T1, P1 WHERE T1.A = P1.C ";
         sqlNoSimplification = "select T1.A, P1.C FROM (SELECT A FROM R1 LIMIT 5) T1, P1 WHERE T1.A = P1.C ";
         equivalentSql = "select T1.A, P1.C FROM R1 T1, P1 WHERE T1.A = P1.C ";
-        checkReplicatedTwo(sqlNoSimplification, 1, 0);
+        checkReplicatedTwo(sqlNoSimplification, 0, 1, 0);
         checkSubquerySimplification(sql, equivalentSql);
 
         // Three table joins
         sql = "select T1.A, P1.A FROM (SELECT A FROM R1) T1, P1, P2 WHERE P2.A = P1.A and T1.A = P1.C ";
         sqlNoSimplification = "select T1.A, P1.A FROM (SELECT A FROM R1 LIMIT 10) T1, P1, P2 WHERE P2.A = P1.A and T1.A = P1.C ";
         equivalentSql = "select T1.A, P1.A FROM R1 T1, P1, P2 WHERE P2.A = P1.A and T1.A = P1.C ";
-        checkReplicatedTwo(sqlNoSimplification, 1 ,1);
+        checkReplicatedTwo(sqlNoSimplification, 0, 1, 1);
         checkSubquerySimplification(sql, equivalentSql);
     }
 
@@ -736,7 +738,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(1);
         checkSeqScan(pn, "R1");
         pn = nlpn.getChild(0);
@@ -1371,36 +1373,36 @@ public class TestPlansSubQueries extends PlannerTestCase {
      */
     public void testFineGrainedCases() {
         // LIMIT comes from replicated table which has no receive node
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(1, 2, 0,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, C FROM R2 LIMIT 5) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         // Distinct apply on replicated table only
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(1, 2, 0,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT Distinct A, C FROM R2 where A > 3) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         // table count
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(2, 1, 0,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT COUNT(*) AS A FROM R2 where C > 3) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         // group by
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(1, 2, 0,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, COUNT(*) C FROM R2 where C > 3 GROUP BY A) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
         //
-        checkPushedDownJoins(3, 0,
+        checkPushedDownJoins(1, 2, 0,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, C FROM R2 where C > 3 LIMIT 10) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
                 "where T1.A = P2.A");
-        checkPushedDownJoins(2, 1,
+        checkPushedDownJoins(1, 1, 1,
                 "SELECT * FROM (SELECT P1.A, R1.C FROM R1, P1,  " +
                 "                (SELECT A, C FROM R2 where C > 3 ) T0 where R1.A = T0.A ) T1, " +
                 "              P2 " +
@@ -1414,15 +1416,17 @@ public class TestPlansSubQueries extends PlannerTestCase {
         }
     }
 
-    private void checkPushedDownJoins(int nestLoopCount, int nestLoopIndexCount, String joinQuery) {
+    private void checkPushedDownJoins(int nestLoopCount, int hashJoinCount, int nestLoopIndexCount, String joinQuery) {
         List<AbstractPlanNode> planNodes = compileToFragments(joinQuery);
         assertEquals(2, planNodes.size());
         //* enable to debug */ System.out.println(planNodes.get(0).toExplainPlanString());
         checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOP, 0);
+        checkJoinNode(planNodes.get(0), PlanNodeType.HASHJOIN, 0);
         checkJoinNode(planNodes.get(0), PlanNodeType.NESTLOOPINDEX, 0);
         // Join on distributed node
         //* enable to debug */ System.out.println(planNodes.get(1).toExplainPlanString());
         checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOP, nestLoopCount);
+        checkJoinNode(planNodes.get(1), PlanNodeType.HASHJOIN, hashJoinCount);
         checkJoinNode(planNodes.get(1), PlanNodeType.NESTLOOPINDEX, nestLoopIndexCount);
     }
 
@@ -1675,7 +1679,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1).getChild(0);
         // this join can be pushed down.
         //* enable to debug */ System.out.println(pn.toExplainPlanString());
-        assertTrue(pn.toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(pn.toExplainPlanString().contains("HASH INNER JOIN"));
         pn = pn.getChild(0);
         // This is a trivial subquery result scan.
         assertTrue(pn instanceof SeqScanPlanNode);
@@ -1747,7 +1751,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         // Distinct without GROUP BY
         String sql1, sql2;
@@ -1778,7 +1782,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
 
         assertTrue(planNodes.get(1).toExplainPlanString().contains("AGGREGATION"));
         assertTrue(planNodes.get(1).toExplainPlanString().contains("INDEX INNER JOIN"));
-        assertTrue(planNodes.get(1).toExplainPlanString().contains("LOOP INNER JOIN"));
+        assertTrue(planNodes.get(1).toExplainPlanString().contains("HASH INNER JOIN"));
 
         failToCompile(
                 "SELECT * FROM (SELECT DISTINCT A FROM P1 GROUP BY A, C) T1, P2 " +
@@ -1876,7 +1880,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
             nlpn = nlpn.getChild(0);
         }
 
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1900,7 +1904,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         if (nlpn instanceof ProjectionPlanNode) {
             nlpn = nlpn.getChild(0);
         }
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         assertEquals(2, nlpn.getChildCount());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1",  "A");
@@ -1931,8 +1935,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -1952,8 +1956,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(0).getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2000,8 +2004,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.LEFT, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.LEFT, ((HashJoinPlanNode) nlpn).getJoinType());
 
         pn = nlpn.getChild(0);
         checkPrimaryKeyIndexScan(pn, "P1");
@@ -2076,8 +2080,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "R1", "A", "C");
         pn = nlpn.getChild(1);
@@ -2100,8 +2104,8 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = planNodes.get(1);
         assertTrue(pn instanceof SendPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
-        assertEquals(JoinType.INNER, ((NestLoopPlanNode) nlpn).getJoinType());
+        assertTrue(nlpn instanceof HashJoinPlanNode);
+        assertEquals(JoinType.INNER, ((HashJoinPlanNode) nlpn).getJoinType());
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A");
         pn = pn.getChild(0);
@@ -2123,7 +2127,7 @@ public class TestPlansSubQueries extends PlannerTestCase {
         pn = pn.getChild(0);
         assertTrue(pn instanceof ProjectionPlanNode);
         nlpn = pn.getChild(0);
-        assertTrue(nlpn instanceof NestLoopPlanNode);
+        assertTrue(nlpn instanceof HashJoinPlanNode);
         pn = nlpn.getChild(0);
         checkSeqScan(pn, "T1", "A1");
         pn = nlpn.getChild(1);
@@ -0,0 +1,243 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Table;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DatabaseEstimates.Histogram;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractScanPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
+import org.voltdb.plannodes.IndexScanPlanNode;
+import org.voltdb.plannodes.NestLoopIndexPlanNode;
+import org.voltdb.plannodes.ProjectionPlanNode;
+import org.voltdb.types.PlanNodeType;
+
+/**
+ * Plan quality regression tests for plans costed with the table and column
+ * statistics collected by @AnalyzeTable. The statistics are set directly in
+ * the test catalog, as @AnalyzeTable would store them.
+ */
+public class TestPlansWithStatistics extends PlannerTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        final boolean planForSinglePartitionFalse = false;
+        setupSchema(TestPlansWithStatistics.class.getResource("testplans-statistics-ddl.sql"),
+                    "teststatisticsplans",
+                    planForSinglePartitionFalse);
+    }
+
+    private void setTableStatistics(String tableName, int tupleCount) {
+        getDatabase().getTables().get(tableName).setEstimatedtuplecount(tupleCount);
+    }
+
+    private void setColumnStatistics(String tableName, String columnName,
+                                     int distinctCount, String histogram) {
+        Table table = getDatabase().getTables().get(tableName);
+        Column column = table.getColumns().get(columnName);
+        column.setDistinctcount(distinctCount);
+        column.setHistogram(histogram);
+    }
+
+    /**
+     * A million sales spread over ten stores and a hundred thousand customers.
+     * Nearly all amounts are below 128.
+     */
+    private void analyzeTables() {
+        setTableStatistics("SALES", 1000000);
+        setColumnStatistics("SALES", "ID", 1000000, "");
+        setColumnStatistics("SALES", "STORE_ID", 10, "");
+        setColumnStatistics("SALES", "STATUS", 3, "");
+        setColumnStatistics("SALES", "CUSTOMER_ID", 100000, "");
+        setColumnStatistics("SALES", "AMOUNT", 1000,
+                "0,63,900000,90000,5000,1000,1000,1000,1000,1000,0,0,0,0,0,0,0,0");
+        setTableStatistics("STORES", 10);
+        setColumnStatistics("STORES", "ID", 10, "");
+        setColumnStatistics("STORES", "REGION", 3, "");
+        setTableStatistics("CUSTOMERS", 100000);
+        setColumnStatistics("CUSTOMERS", "ID", 100000, "");
+        setColumnStatistics("CUSTOMERS", "REGION", 50, "");
+    }
+
+    /**
+     * Skip the projection that restores the select list column order
+     * when the join order differs from the FROM clause.
+     */
+    private static AbstractPlanNode getJoinNode(AbstractPlanNode pn) {
+        pn = pn.getChild(0);
+        if (pn instanceof ProjectionPlanNode) {
+            pn = pn.getChild(0);
+        }
+        return pn;
+    }
+
+    private static String getScannedTable(AbstractPlanNode pn) {
+        assertTrue(pn instanceof AbstractScanPlanNode);
+        return ((AbstractScanPlanNode) pn).getTargetTableName();
+    }
+
+    private static String getScannedIndex(AbstractPlanNode pn) {
+        assertTrue(pn instanceof IndexScanPlanNode);
+        return ((IndexScanPlanNode) pn).getTargetIndexName();
+    }
+
+    public void testNoStatisticsKeepsDefaultPlans() {
+        assertFalse(new DatabaseEstimates(getDatabase()).hasStatistics());
+        assertTrue(AbstractCostModel.forEstimates(new DatabaseEstimates(getDatabase()))
+                instanceof TrivialCostModel);
+
+        // Without statistics every table looks the same size,
+        // so the larger table may well be scanned in full.
+        AbstractPlanNode pn = compile(
+                "select * from sales s, customers c " +
+                "where s.customer_id = c.id and c.region = 7;");
+        pn = getJoinNode(pn);
+        assertTrue(pn instanceof NestLoopIndexPlanNode);
+        assertEquals("SALES", getScannedTable(pn.getChild(0)));
+        assertEquals("CUSTOMERS", getScannedTable(pn.getInlinePlanNode(PlanNodeType.INDEXSCAN)));
+
+        analyzeTables();
+        assertTrue(new DatabaseEstimates(getDatabase()).hasStatistics());
+        assertTrue(AbstractCostModel.forEstimates(new DatabaseEstimates(getDatabase()))
+                instanceof StatisticsCostModel);
+    }
+
+    public void testUnanalyzedTablesKeepDefaultPlans() {
+        // Without statistics the hash table may be built over the filtered input.
+        final String selfJoin = "select * from customers a, customers b " +
+                                "where a.region = b.region and a.id = 3;";
+        final String salesJoin = "select * from sales s, customers c " +
+                                 "where s.customer_id = c.id and c.region = 7;";
+        String defaultSelfJoinPlan = compile(selfJoin).toExplainPlanString();
+        String defaultSalesJoinPlan = compile(salesJoin).toExplainPlanString();
+
+        // Statistics for another table don't change the plan of a statement over unanalyzed tables.
+        setTableStatistics("STORES", 10);
+        setColumnStatistics("STORES", "ID", 10, "");
+        setColumnStatistics("STORES", "REGION", 3, "");
+        assertTrue(new DatabaseEstimates(getDatabase()).hasStatistics());
+        assertEquals(defaultSelfJoinPlan, compile(selfJoin).toExplainPlanString());
+        assertEquals(defaultSalesJoinPlan, compile(salesJoin).toExplainPlanString());
+
+        // A statement over an analyzed table is planned with its statistics.
+        analyzeTables();
+        assertFalse(defaultSalesJoinPlan.equals(compile(salesJoin).toExplainPlanString()));
+    }
+
+    public void testJoinOrderFollowsTableSizes() {
+        analyzeTables();
+
+        // Scan the smaller, filtered table and look up the matching sales.
+        AbstractPlanNode pn = compile(
+                "select * from sales s, customers c " +
+                "where s.customer_id = c.id and c.region = 7;");
+        pn = getJoinNode(pn);
+        assertTrue(pn instanceof NestLoopIndexPlanNode);
+        assertEquals("CUSTOMERS", getScannedTable(pn.getChild(0)));
+        assertEquals("SALES_CUSTOMER", getScannedIndex(pn.getInlinePlanNode(PlanNodeType.INDEXSCAN)));
+
+        pn = compile(
+                "select * from sales s, stores t " +
+                "where s.store_id = t.id and t.region = 2;");
+        pn = getJoinNode(pn);
+        assertTrue(pn instanceof NestLoopIndexPlanNode);
+        assertEquals("STORES_REGION", getScannedIndex(pn.getChild(0)));
+        assertEquals("SALES_STORE", getScannedIndex(pn.getInlinePlanNode(PlanNodeType.INDEXSCAN)));
+    }
+
+    public void testHashJoinBuildsOnSmallerInput() {
+        analyzeTables();
+
+        // The hash table is built over the inner child, so that should be the ten stores
+        // whichever way round the query lists the tables.
+        for (String sql : new String[] {
+                "select * from stores t, sales s where s.store_id = t.id and s.status = 2;",
+                "select * from sales s, stores t where s.store_id = t.id and s.status = 2;" }) {
+            AbstractPlanNode pn = compile(sql);
+            pn = getJoinNode(pn);
+            assertTrue(pn instanceof HashJoinPlanNode);
+            assertEquals("SALES", getScannedTable(pn.getChild(0)));
+            assertEquals("STORES", getScannedTable(pn.getChild(1)));
+        }
+    }
+
+    public void testIndexChoiceFollowsDistinctCounts() {
+        analyzeTables();
+
+        final String sql = "select * from sales where status = 1 and customer_id = 5;";
+        AbstractPlanNode pn = compile(sql);
+        pn = pn.getChild(0);
+        assertEquals("SALES_CUSTOMER", getScannedIndex(pn));
+
+        // Swap the distinct counts: now the status is the more selective column.
+        setColumnStatistics("SALES", "STATUS", 100000, "");
+        setColumnStatistics("SALES", "CUSTOMER_ID", 3, "");
+        pn = compile(sql);
+        pn = pn.getChild(0);
+        assertEquals("SALES_STATUS", getScannedIndex(pn));
+    }
+
+    public void testHistogramRangeSelectivity() {
+        // Without statistics an equality filter always looks more selective than a range.
+        AbstractPlanNode pn = compile("select * from sales where amount > 500 and status = 1;");
+        pn = pn.getChild(0);
+        assertEquals("SALES_STATUS", getScannedIndex(pn));
+
+        analyzeTables();
+
+        // Hardly any amounts are above 500.
+        pn = compile("select * from sales where amount > 500 and status = 1;");
+        pn = pn.getChild(0);
+        assertEquals("SALES_AMOUNT", getScannedIndex(pn));
+
+        // Most amounts are below 50.
+        pn = compile("select * from sales where amount < 50 and status = 1;");
+        pn = pn.getChild(0);
+        assertEquals("SALES_STATUS", getScannedIndex(pn));
+
+        // Both bounds together select a narrow range.
+        pn = compile("select * from sales where amount >= 200 and amount < 300 and status = 1;");
+        pn = pn.getChild(0);
+        assertEquals("SALES_AMOUNT", getScannedIndex(pn));
+    }
+
+    public void testHistogram() {
+        Histogram histogram = Histogram.fromString("0,10,5,0,15");
+        assertNotNull(histogram);
+        assertEquals("0,10,5,0,15", histogram.toString());
+        assertEquals(20, histogram.getTotal());
+        assertEquals(0.0, histogram.fractionBelow(0), 1e-9);
+        assertEquals(0.125, histogram.fractionBelow(5), 1e-9);
+        assertEquals(0.25, histogram.fractionBelow(15), 1e-9);
+        assertEquals(0.625, histogram.fractionBelow(25), 1e-9);
+        assertEquals(1.0, histogram.fractionBelow(30), 1e-9);
+        assertEquals(0.375, histogram.fractionBetween(20, 25), 1e-9);
+
+        assertNull(Histogram.fromString(""));
+        assertNull(Histogram.fromString("0,0,5"));
+        assertNull(Histogram.fromString("0,10,x"));
+    }
+}
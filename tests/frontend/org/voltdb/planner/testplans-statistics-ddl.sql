@@ -0,0 +1,32 @@
+-- A large fact table with a small dimension table, for testing plans costed
+-- with the statistics collected by @AnalyzeTable.
+
+CREATE TABLE SALES (
+  ID BIGINT NOT NULL,
+  STORE_ID INTEGER NOT NULL,
+  STATUS TINYINT NOT NULL,
+  CUSTOMER_ID INTEGER NOT NULL,
+  AMOUNT INTEGER,
+  SOLD TIMESTAMP NOT NULL,
+  PRIMARY KEY (ID)
+);
+CREATE INDEX SALES_STORE ON SALES (STORE_ID);
+CREATE INDEX SALES_STATUS ON SALES (STATUS);
+CREATE INDEX SALES_CUSTOMER ON SALES (CUSTOMER_ID);
+CREATE INDEX SALES_AMOUNT ON SALES (AMOUNT);
+CREATE INDEX SALES_SOLD ON SALES (SOLD);
+
+CREATE TABLE STORES (
+  ID INTEGER NOT NULL,
+  NAME VARCHAR(32) NOT NULL,
+  REGION INTEGER NOT NULL,
+  PRIMARY KEY (ID)
+);
+CREATE INDEX STORES_REGION ON STORES (REGION);
+
+CREATE TABLE CUSTOMERS (
+  ID INTEGER NOT NULL,
+  NAME VARCHAR(32) NOT NULL,
+  REGION INTEGER NOT NULL,
+  PRIMARY KEY (ID)
+);
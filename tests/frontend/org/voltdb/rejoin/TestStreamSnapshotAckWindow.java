@@ -0,0 +1,99 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestStreamSnapshotAckWindow {
+
+    @Test
+    public void testAlwaysAllowsOneBlock() throws InterruptedException
+    {
+        StreamSnapshotAckWindow window = new StreamSnapshotAckWindow(100, 1000);
+        assertTrue(window.awaitCapacity(0));
+        // a block bigger than the whole window still goes out when nothing is outstanding
+        window.sent(5000);
+        assertFalse(window.awaitCapacity(10));
+        window.acked(5000, TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(window.awaitCapacity(0));
+        assertEquals(0, window.getOutstandingBytes());
+        assertEquals(5000, window.getAckedBytes());
+    }
+
+    @Test
+    public void testAckReleasesWaitingSender() throws Exception
+    {
+        final StreamSnapshotAckWindow window = new StreamSnapshotAckWindow(100, 1000);
+        window.sent(100);
+        Thread acker = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {}
+                window.acked(100, TimeUnit.MILLISECONDS.toNanos(50));
+            }
+        };
+        acker.start();
+        assertTrue(window.awaitCapacity(TimeUnit.SECONDS.toMillis(10)));
+        acker.join();
+    }
+
+    @Test
+    public void testResetReleasesWaitingSender() throws InterruptedException
+    {
+        StreamSnapshotAckWindow window = new StreamSnapshotAckWindow(100, 1000);
+        window.sent(100);
+        window.reset();
+        assertTrue(window.awaitCapacity(0));
+    }
+
+    @Test
+    public void testWindowTracksBandwidthDelayProduct() throws InterruptedException
+    {
+        final long min = 1024;
+        final long max = 64L * 1024 * 1024;
+        StreamSnapshotAckWindow window = new StreamSnapshotAckWindow(min, max);
+        assertEquals(min, window.getWindowBytes());
+
+        // Ack 1MB blocks with 100ms latency for a while, the window should open up
+        // well past the minimum but stay within the maximum.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        while (System.nanoTime() < deadline) {
+            window.sent(1024 * 1024);
+            window.acked(1024 * 1024, TimeUnit.MILLISECONDS.toNanos(100));
+            Thread.sleep(1);
+        }
+        assertTrue(window.getBytesPerSecond() > 0);
+        assertEquals(100, window.getAckLatencyMs());
+        assertTrue(window.getWindowBytes() > min);
+        assertTrue(window.getWindowBytes() <= max);
+    }
+}
@@ -131,10 +131,24 @@ public class TestStreamSnapshotDataTarget {
         }
     }
 
+    private Callable<DBBPool.BBContainer> makeDirectTuples()
+    {
+        DBBPool.BBContainer container =
+            DBBPool.allocateDirect(StreamSnapshotDataTarget.contentOffset + 1024);
+        return Callables.returning(container);
+    }
+
     private void writeAndVerify(StreamSnapshotDataTarget dut, int tableId, boolean hasSchema)
         throws IOException
     {
-        dut.write(makeTuples(), tableId);
+        writeAndVerify(dut, makeTuples(), tableId, hasSchema);
+    }
+
+    private void writeAndVerify(StreamSnapshotDataTarget dut, Callable<DBBPool.BBContainer> tuples,
+                                int tableId, boolean hasSchema)
+        throws IOException
+    {
+        dut.write(tuples, tableId);
 
         // verify data is sent
         if (hasSchema) {
@@ -251,6 +265,26 @@ public class TestStreamSnapshotDataTarget {
         closeStream(dut2);
     }
 
+    @Test
+    public void testDirectBlocksCompressedInPooledBuffers() throws IOException, InterruptedException, ExecutionException
+    {
+        StreamSnapshotDataTarget dut = makeDataTarget(1000, false, true);
+
+        writeAndVerify(/* dataTarget = */ dut, makeDirectTuples(), /* tableId = */ 0, /* hasSchema = */ true);
+        writeAndVerify(/* dataTarget = */ dut, makeDirectTuples(), /* tableId = */ 0, /* hasSchema = */ false);
+        assertEquals(3, dut.m_outstandingWorkCount.get());
+
+        ack(false, dut.m_targetId, dut.m_blockIndex - 3);
+        ack(false, dut.m_targetId, dut.m_blockIndex - 2);
+        ack(false, dut.m_targetId, dut.m_blockIndex - 1);
+        while (dut.m_outstandingWorkCount.get() != 0) {
+            Thread.yield();
+        }
+        assertEquals(0, dut.m_ackWindow.getOutstandingBytes());
+
+        closeStream(dut);
+    }
+
     @Test
     public void testSendHashinatorConfig() throws IOException, ExecutionException, InterruptedException
     {
@@ -29,6 +29,7 @@ import static org.junit.Assert.assertTrue;
 import static org.voltdb.utils.TestPersistentBinaryDeque.SEGMENT_FILL_COUNT;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
 import org.junit.Before;
@@ -190,6 +191,51 @@ public class TestPBDMultipleReaders {
         assertEquals(1, m_pbd.numberOfSegments());
     }
 
+    @Test
+    public void testConcurrentWriterAndReaders() throws Exception {
+        final int numBuffers = SEGMENT_FILL_COUNT * 3;
+        final int numReaders = 2;
+        BinaryDequeReader[] readers = new BinaryDequeReader[numReaders];
+        for (int i = 0; i < numReaders; i++) {
+            readers[i] = m_pbd.openForRead("reader" + i);
+        }
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < numBuffers; i++) {
+                    m_pbd.offer(DBBPool.wrapBB(TestPersistentBinaryDeque.getFilledBuffer(i)));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+
+        // Readers poll while the writer appends, and see the entries in order
+        int[] numRead = new int[numReaders];
+        long deadline = System.currentTimeMillis() + 60000;
+        while ((numRead[0] < numBuffers || numRead[1] < numBuffers) && System.currentTimeMillis() < deadline) {
+            for (int i = 0; i < numReaders; i++) {
+                BBContainer bbC = readers[i].poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                if (bbC == null) {
+                    continue;
+                }
+                assertEquals(numRead[i], bbC.b().getLong(0));
+                bbC.discard();
+                numRead[i]++;
+                assertTrue(readers[i].getNumObjects() >= 0);
+            }
+        }
+        writer.join();
+        assertNull(failure.get());
+        for (int i = 0; i < numReaders; i++) {
+            assertEquals(numBuffers, numRead[i]);
+            assertTrue(readers[i].isEmpty());
+            assertEquals(0, readers[i].getNumObjects());
+        }
+    }
+
     @Before
     public void setUp() throws Exception {
         TestPersistentBinaryDeque.setupTestDir();
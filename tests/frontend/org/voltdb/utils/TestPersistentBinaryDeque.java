@@ -52,7 +52,10 @@ import org.voltdb.MockVoltDB;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltType;
 import org.voltdb.export.ExportDataSource.StreamTableSchemaSerializer;
+import org.voltdb.utils.BinaryDeque.BinaryDequeRangeScanner;
+import org.voltdb.utils.BinaryDeque.BinaryDequeRangeTruncator;
 import org.voltdb.utils.BinaryDeque.BinaryDequeTruncator;
+import org.voltdb.utils.BinaryDeque.EntryRangeReader;
 import org.voltdb.utils.BinaryDeque.TruncatorResponse;
 
 import com.google_voltpatches.common.collect.Sets;
@@ -482,6 +485,70 @@ public class TestPersistentBinaryDeque {
         assertEquals(blocksFound, 96);
     }
 
+    @Test
+    public void testFooterSkipsSealedSegments() throws Exception {
+        System.out.println("Running testFooterSkipsSealedSegments");
+        EntryRangeReader rangeReader = new EntryRangeReader() {
+            @Override
+            public long getStartId(ByteBuffer entry) {
+                return entry.getLong(entry.position());
+            }
+
+            @Override
+            public long getEndId(ByteBuffer entry) {
+                return entry.getLong(entry.position());
+            }
+        };
+        m_pbd.close();
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, m_ds, TEST_DIR, logger, true, rangeReader);
+        for (int ii = 0; ii < 100; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(ii)));
+        }
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, m_ds, TEST_DIR, logger, true, rangeReader);
+        final List<Pair<Long, Long>> ranges = new LinkedList<>();
+        m_pbd.scanEntries(new BinaryDequeRangeScanner() {
+            @Override
+            public void scanRange(long startId, long endId) {
+                ranges.add(Pair.of(startId, endId));
+            }
+
+            @Override
+            public void scan(BBContainer bb) {
+                fail("Sealed segments should not be read");
+            }
+        });
+        // One range per segment since the ids are consecutive
+        assertEquals(4, ranges.size());
+        long expectedStart = 0;
+        for (Pair<Long, Long> range : ranges) {
+            assertEquals(expectedStart, range.getFirst().longValue());
+            expectedStart = range.getSecond() + 1;
+        }
+        assertEquals(100, expectedStart);
+
+        // Only the segment with the truncation point is parsed
+        final long truncationId = 60;
+        m_pbd.parseAndTruncate(new BinaryDequeRangeTruncator() {
+            private long m_nextId = SEGMENT_FILL_COUNT;
+
+            @Override
+            public boolean isRetained(long startId, long endId) {
+                return endId <= truncationId;
+            }
+
+            @Override
+            public TruncatorResponse parse(BBContainer bbc) {
+                long id = bbc.b().getLong(0);
+                assertEquals(m_nextId++, id);
+                return id > truncationId ? PersistentBinaryDeque.fullTruncateResponse() : null;
+            }
+        });
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        assertEquals(truncationId + 1, reader.getNumObjects());
+    }
+
     @Test
     public void testReaderIsEmpty() throws Exception {
         System.out.println("Running testReaderIsEmpty");
@@ -0,0 +1,201 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TestSampledTrace {
+
+    private static final int SAMPLED_EVENT = SampledTrace.event("testevent", "value");
+
+    private File m_tempDir = null;
+
+    @Before
+    public void setUp() throws Exception {
+        m_tempDir = VoltFile.createTempFile("sampledtracetest", null);
+        assertTrue(m_tempDir.delete());
+        assertTrue(m_tempDir.mkdir());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SampledTrace.setSampleRate(0);
+        VoltFile.recursivelyDelete(m_tempDir);
+        m_tempDir = null;
+    }
+
+    // The events of the current thread for the transaction
+    private static List<VoltTrace.TraceEvent> eventsOf(long txnId) {
+        final List<VoltTrace.TraceEvent> events = new ArrayList<>();
+        for (VoltTrace.TraceEvent event : SampledTrace.collectEvents()) {
+            if (event.getTid() == Thread.currentThread().getId() &&
+                event.getArgs() != null &&
+                Long.toString(txnId).equals(event.getArgs().get("txnId"))) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void testSampleRate() {
+        SampledTrace.setSampleRate(0);
+        assertFalse(SampledTrace.isEnabled());
+        for (long txnId = 0; txnId < 1000; txnId++) {
+            assertFalse(SampledTrace.isSampled(txnId));
+        }
+
+        SampledTrace.setSampleRate(1);
+        assertTrue(SampledTrace.isEnabled());
+        for (long txnId = 0; txnId < 1000; txnId++) {
+            assertTrue(SampledTrace.isSampled(txnId));
+        }
+
+        // Consecutive ids are spread evenly
+        SampledTrace.setSampleRate(0.1);
+        int sampled = 0;
+        for (long txnId = 0; txnId < 100000; txnId++) {
+            if (SampledTrace.isSampled(txnId)) {
+                sampled++;
+            }
+        }
+        assertTrue("sampled " + sampled, sampled > 9000 && sampled < 11000);
+    }
+
+    @Test
+    public void testRecordEvents() {
+        final long txnId = 12345;
+        SampledTrace.setSampleRate(0);
+        SampledTrace.begin(VoltTrace.Category.SPSITE, SAMPLED_EVENT, txnId, 1);
+        SampledTrace.end(VoltTrace.Category.SPSITE, SAMPLED_EVENT, txnId, 1);
+        assertTrue(eventsOf(txnId).isEmpty());
+
+        SampledTrace.setSampleRate(1);
+        SampledTrace.beginAsync(VoltTrace.Category.SPI, SAMPLED_EVENT, txnId, 7);
+        SampledTrace.begin(VoltTrace.Category.SPSITE, SAMPLED_EVENT, txnId, 8);
+        SampledTrace.end(VoltTrace.Category.SPSITE, SAMPLED_EVENT, txnId, 8);
+        SampledTrace.endAsync(VoltTrace.Category.SPI, SAMPLED_EVENT, txnId, 7);
+
+        final List<VoltTrace.TraceEvent> events = eventsOf(txnId);
+        assertEquals(4, events.size());
+        final VoltTrace.TraceEventType[] types = { VoltTrace.TraceEventType.ASYNC_BEGIN,
+                                                   VoltTrace.TraceEventType.DURATION_BEGIN,
+                                                   VoltTrace.TraceEventType.DURATION_END,
+                                                   VoltTrace.TraceEventType.ASYNC_END };
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(types[i], events.get(i).getType());
+            assertTrue(i == 0 || events.get(i - 1).getNanos() <= events.get(i).getNanos());
+        }
+        assertEquals("testevent", events.get(0).getName());
+        assertEquals(Long.toHexString(txnId), events.get(0).getId());
+        assertEquals(VoltTrace.Category.SPI.name(), events.get(0).getCategory());
+        assertEquals("7", events.get(0).getArgs().get("value"));
+        assertEquals(VoltTrace.Category.SPSITE.name(), events.get(1).getCategory());
+    }
+
+    @Test
+    public void testRingOverwrite() {
+        final SampledTrace.Ring ring = new SampledTrace.Ring(Thread.currentThread());
+        final int capacity = ring.m_mask + 1;
+        for (int i = 0; i < capacity + 10; i++) {
+            ring.record(0, i, i);
+        }
+        final List<VoltTrace.TraceEvent> events = new ArrayList<>();
+        ring.collect(events);
+        // The thread name, then the newest events, less the oldest one which
+        // the next event of the thread would overwrite
+        assertEquals(capacity, events.size());
+        assertEquals(VoltTrace.TraceEventType.METADATA, events.get(0).getType());
+        assertEquals("11", events.get(1).getArgs().get("txnId"));
+        assertEquals(Integer.toString(capacity + 9), events.get(capacity - 1).getArgs().get("txnId"));
+    }
+
+    @Test
+    public void testExitedThreadRingDropped() throws Exception {
+        SampledTrace.setSampleRate(1);
+        final Thread thread = new Thread(() -> SampledTrace.instant(VoltTrace.Category.SPSITE, SAMPLED_EVENT, 99, 0));
+        thread.start();
+        thread.join();
+
+        // The last events of the thread are still dumped once
+        assertEquals(2, countEventsOf(thread.getId()));
+        assertEquals(0, countEventsOf(thread.getId()));
+    }
+
+    private static int countEventsOf(long tid) {
+        int count = 0;
+        for (VoltTrace.TraceEvent event : SampledTrace.collectEvents()) {
+            if (event.getTid() == tid) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        SampledTrace.setSampleRate(1);
+        SampledTrace.begin(VoltTrace.Category.SPSITE, SAMPLED_EVENT, 42, 0);
+        SampledTrace.end(VoltTrace.Category.SPSITE, SAMPLED_EVENT, 42, 0);
+
+        // Sampled events are written even though no category is enabled
+        final String path = VoltTrace.dump(new File(m_tempDir, "trace_logs").getAbsolutePath());
+        assertNotNull(path);
+
+        final ObjectMapper mapper = new ObjectMapper();
+        int found = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(new FileInputStream(path))))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("]") || line.equals("[")) {
+                    continue;
+                }
+                if (line.charAt(line.length() - 1) == ',') {
+                    line = line.substring(0, line.length() - 1);
+                }
+                final VoltTrace.TraceEvent event = mapper.readValue(line, VoltTrace.TraceEvent.class);
+                if (event.getArgs() != null && "42".equals(event.getArgs().get("txnId"))) {
+                    found++;
+                }
+            }
+        }
+        assertEquals(2, found);
+    }
+}
@@ -0,0 +1,127 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.voltdb.utils.SystemStatsCollector.ProcFSScraper;
+import org.voltdb.utils.SystemStatsCollector.ProcFSScraper.ProcFSData;
+import org.voltdb.utils.SystemStatsCollector.ThreadType;
+import org.voltdb.utils.SystemStatsCollector.ThreadTypeSample;
+
+import junit.framework.TestCase;
+
+public class TestSystemStatsCollector extends TestCase {
+
+    public void testParseStat() {
+        // The command name may contain spaces and parentheses
+        String line = "4242 (java (x) y) S 1 4242 4242 0 -1 4194560 12345 0 3 0 "
+                + "250 130 0 0 20 0 57 0 1000 5000000000 120000 18446744073709551615 "
+                + "1 1 0 0 0 0 0 2 16800972 0 0 0 17 3 0 0 0 0 0\n";
+        ProcFSData data = new ProcFSData();
+        ProcFSScraper.parseStat(line, data);
+        assertEquals((250 + 130) * 1000L / ProcFSScraper.CLOCK_TICKS, data.cpuTime);
+        assertEquals(57, data.threads);
+    }
+
+    public void testParseStatusAndSmaps() {
+        ProcFSData data = new ProcFSData();
+        ProcFSScraper.parseStatus(Arrays.asList(
+                "Name:\tjava",
+                "VmHWM:\t  204800 kB",
+                "VmRSS:\t  102400 kB",
+                "VmSwap:\t       8 kB",
+                "Threads:\t57"), data);
+        assertEquals(102400L * 1024, data.rss);
+        assertEquals(204800L * 1024, data.rssPeak);
+        assertEquals(8L * 1024, data.swap);
+        assertEquals(-1, data.pss);
+
+        ProcFSScraper.parseSmapsRollup(Arrays.asList(
+                "00400000-ffffffffff601000 ---p 00000000 00:00 0                  [rollup]",
+                "Rss:              102400 kB",
+                "Pss:               90000 kB",
+                "Swap:                 16 kB",
+                "SwapPss:               4 kB"), data);
+        assertEquals(90000L * 1024, data.pss);
+        assertEquals(4L * 1024, data.swap);
+        assertEquals(102400L * 1024, data.rss);
+    }
+
+    public void testThreadTypes() {
+        assertEquals(ThreadType.SITE, ThreadType.of("SP 3 Site - 0:3"));
+        assertEquals(ThreadType.SITE, ThreadType.of("MP Site - 0:16383"));
+        assertEquals(ThreadType.SITE, ThreadType.of("RO MP Site - 0:16383"));
+        assertEquals(ThreadType.NETWORK, ThreadType.of("Volt Client Network - 1"));
+        assertEquals(ThreadType.NETWORK, ThreadType.of("Pico Network - 0"));
+        assertEquals(ThreadType.EXPORT, ThreadType.of("ExportDataSource for table T gen 0"));
+        assertEquals(ThreadType.OTHER, ThreadType.of("Periodic Work"));
+    }
+
+    private static int[] historySizes() {
+        synchronized (SystemStatsCollector.class) {
+            return new int[] { SystemStatsCollector.historyS.size(),
+                               SystemStatsCollector.historyM.size(),
+                               SystemStatsCollector.historyL.size() };
+        }
+    }
+
+    public void testAsyncSamplesNotDropped() throws Exception {
+        if (SystemStatsCollector.sampleSystemNow(false, false) == null) {
+            // no system stats on this platform
+            return;
+        }
+        int[] before = historySizes();
+        // the requests made while the first sample runs are taken in one more sample,
+        // which is added to the medium and large sets they asked for
+        SystemStatsCollector.asyncSampleSystemNow(false, false);
+        SystemStatsCollector.asyncSampleSystemNow(true, false);
+        SystemStatsCollector.asyncSampleSystemNow(true, true);
+        long deadline = System.currentTimeMillis() + 60000;
+        while (historySizes()[2] == before[2] && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        int[] after = historySizes();
+        assertTrue(after[0] > before[0]);
+        assertTrue(after[1] > before[1]);
+        assertEquals(before[2] + 1, after[2]);
+    }
+
+    public void testSampleThreads() {
+        SystemStatsCollector.sampleThreadsNow();
+        Map<ThreadType, ThreadTypeSample> samples = SystemStatsCollector.getRecentThreadSamples();
+        if (samples.isEmpty()) {
+            // no thread CPU times on this JVM
+            return;
+        }
+        assertEquals(ThreadType.values().length, samples.size());
+        // this thread at least
+        assertTrue(samples.get(ThreadType.OTHER).threads > 0);
+        SystemStatsCollector.sampleThreadsNow();
+        double load = SystemStatsCollector.getRecentThreadSamples().get(ThreadType.OTHER).cpuLoad;
+        assertTrue(load >= 0);
+    }
+}
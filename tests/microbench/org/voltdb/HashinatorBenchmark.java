@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ElasticHashinator#getHashedPartitionForParameter} for the
+ * common partition key types. This is on the critical path of every
+ * single-partition invocation, both in the client affinity code and on the
+ * server's client interface.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashinatorBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"8", "64"})
+    public int m_partitionCount;
+
+    private ElasticHashinator m_hashinator;
+    private long[] m_longKeys;
+    private String[] m_stringKeys;
+    private byte[][] m_binaryKeys;
+
+    @Setup
+    public void setup() {
+        m_hashinator = new ElasticHashinator(
+                ElasticHashinator.getConfigureBytes(m_partitionCount, ElasticHashinator.DEFAULT_TOTAL_TOKENS),
+                false);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        m_longKeys = new long[KEYS];
+        m_stringKeys = new String[KEYS];
+        m_binaryKeys = new byte[KEYS][];
+        for (int i = 0; i < KEYS; i++) {
+            m_longKeys[i] = random.nextLong();
+            m_stringKeys[i] = "customer-" + random.nextInt();
+            m_binaryKeys[i] = new byte[16];
+            random.nextBytes(m_binaryKeys[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int hashBigint() {
+        int sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += m_hashinator.getHashedPartitionForParameter(VoltType.BIGINT, m_longKeys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int hashString() {
+        int sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += m_hashinator.getHashedPartitionForParameter(VoltType.STRING, m_stringKeys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int hashVarbinary() {
+        int sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += m_hashinator.getHashedPartitionForParameter(VoltType.VARBINARY, m_binaryKeys[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Integer keys supplied as strings, as loaders do; includes the parse.
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int hashBigintFromString() {
+        int sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += m_hashinator.getHashedPartitionForParameter(VoltType.BIGINT, Long.toString(m_longKeys[i]));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,107 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Measures the cost of flattening and re-inflating the parameters of a
+ * stored procedure invocation, which happens at least once per transaction
+ * on the client interface and again for every replicated or logged call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterSetBenchmark {
+
+    /**
+     * Shape of the parameter list: a handful of scalars as issued by a
+     * typical key/value procedure, or a wider mix including strings,
+     * varbinary and an array.
+     */
+    @Param({"SCALARS", "MIXED"})
+    public String m_shape;
+
+    private ParameterSet m_params;
+    private ByteBuffer m_buffer;
+
+    @Setup
+    public void setup() throws Exception {
+        if ("SCALARS".equals(m_shape)) {
+            m_params = ParameterSet.fromArrayNoCopy(12345L, 7, "key-0000012345");
+        }
+        else {
+            byte[] blob = new byte[256];
+            for (int i = 0; i < blob.length; i++) {
+                blob[i] = (byte) i;
+            }
+            m_params = ParameterSet.fromArrayNoCopy(
+                    12345L, 7, (short) 3, (byte) 1, 3.14159,
+                    "a somewhat longer string value used as a payload column",
+                    blob, new long[] { 1, 2, 3, 4, 5, 6, 7, 8 },
+                    new TimestampType(System.currentTimeMillis() * 1000));
+        }
+        m_buffer = ByteBuffer.allocate(m_params.getSerializedSize());
+        m_params.flattenToBuffer(m_buffer);
+        m_buffer.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer flatten() throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(m_params.getSerializedSize());
+        m_params.flattenToBuffer(buf);
+        return buf;
+    }
+
+    @Benchmark
+    public ParameterSet deserialize() throws Exception {
+        m_buffer.rewind();
+        return ParameterSet.fromByteBuffer(m_buffer);
+    }
+
+    @Benchmark
+    public Object[] roundTrip() throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(m_params.getSerializedSize());
+        m_params.flattenToBuffer(buf);
+        buf.flip();
+        return ParameterSet.fromByteBuffer(buf).toArray();
+    }
+}
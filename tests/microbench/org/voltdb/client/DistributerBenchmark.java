@@ -0,0 +1,233 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltTable;
+
+/**
+ * Measures the client side of a procedure call through {@link Distributer#queue}:
+ * invocation serialization, handle bookkeeping, the network write path and
+ * response dispatch to the callback. The server is a minimal loopback stub
+ * that completes the login handshake and answers every invocation with an
+ * empty success response, so the numbers exclude any server-side work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributerBenchmark {
+
+    /** Maximum number of calls the async benchmark keeps outstanding */
+    @Param({"1", "1000"})
+    public int m_inFlight;
+
+    private StubServer m_server;
+    private Distributer m_dist;
+    private Semaphore m_permits;
+    private long m_handle = 0;
+
+    private final ProcedureCallback m_release = new ProcedureCallback() {
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            m_permits.release();
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        m_server = new StubServer();
+        m_server.start();
+        m_dist = new Distributer();
+        m_dist.createConnection("localhost", "", "", m_server.getPort(), ClientAuthScheme.HASH_SHA256);
+        m_permits = new Semaphore(m_inFlight);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        // let outstanding calls drain before closing the connection
+        m_permits.acquire(m_inFlight);
+        m_dist.shutdown();
+        m_server.shutdown();
+    }
+
+    /**
+     * Issue calls back to back, keeping at most {@code m_inFlight} outstanding.
+     */
+    @Benchmark
+    public boolean queue() throws Exception {
+        m_permits.acquire();
+        return m_dist.queue(new ProcedureInvocation(m_handle++, "Bench", 1L, "key"),
+                m_release, true, System.nanoTime(), TimeUnit.MINUTES.toNanos(2));
+    }
+
+    /**
+     * A single synchronous round trip.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        m_dist.queue(new ProcedureInvocation(m_handle++, "Bench", 1L, "key"),
+                new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        done.countDown();
+                    }
+                }, true, System.nanoTime(), TimeUnit.MINUTES.toNanos(2));
+        done.await();
+    }
+
+    /**
+     * Accepts one connection at a time, performs the login handshake and then
+     * answers every invocation from a dedicated thread with blocking IO.
+     */
+    private static class StubServer extends Thread {
+        private final ServerSocketChannel m_socket;
+        private volatile boolean m_shutdown = false;
+        private volatile SocketChannel m_client;
+
+        StubServer() throws IOException {
+            super("DistributerBenchmark stub server");
+            setDaemon(true);
+            m_socket = ServerSocketChannel.open();
+            m_socket.socket().bind(new InetSocketAddress("localhost", 0));
+        }
+
+        int getPort() {
+            return m_socket.socket().getLocalPort();
+        }
+
+        private static ByteBuffer readFully(SocketChannel c, int length) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            while (buf.hasRemaining()) {
+                if (c.read(buf) < 0) {
+                    throw new IOException("Connection closed");
+                }
+            }
+            buf.flip();
+            return buf;
+        }
+
+        private static void writeFully(SocketChannel c, ByteBuffer buf) throws IOException {
+            while (buf.hasRemaining()) {
+                c.write(buf);
+            }
+        }
+
+        private static void login(SocketChannel c) throws IOException {
+            // The login request is a single length prefixed message; its
+            // contents don't matter to the stub.
+            readFully(c, readFully(c, 4).getInt());
+
+            final ByteBuffer response = ByteBuffer.allocate(34);
+            response.putInt(30);
+            response.put((byte) 0);   // version
+            response.put((byte) 0);   // success response
+            response.putInt(0);       // hostId
+            response.putLong(0);      // connectionId
+            response.putLong(0);      // instanceId
+            response.putInt(0);       // instanceId pt 2
+            response.putInt(0);       // build string length
+            response.flip();
+            writeFully(c, response);
+        }
+
+        private void serve(SocketChannel c) throws IOException {
+            c.socket().setTcpNoDelay(true);
+            login(c);
+            final VoltTable[] noResults = new VoltTable[0];
+            final StoredProcedureInvocation spi = new StoredProcedureInvocation();
+            while (!m_shutdown) {
+                spi.initFromBuffer(readFully(c, readFully(c, 4).getInt()));
+                ClientResponseImpl response = new ClientResponseImpl(ClientResponseImpl.SUCCESS,
+                        noResults, null, spi.getClientHandle());
+                ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+                buf.putInt(buf.capacity() - 4);
+                response.flattenToBuffer(buf);
+                buf.flip();
+                writeFully(c, buf);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!m_shutdown) {
+                    SocketChannel c = m_socket.accept();
+                    m_client = c;
+                    try {
+                        serve(c);
+                    }
+                    catch (IOException e) {
+                        // client went away, wait for the next one
+                    }
+                    finally {
+                        c.close();
+                    }
+                }
+            }
+            catch (IOException e) {
+                if (!m_shutdown) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        void shutdown() throws Exception {
+            m_shutdown = true;
+            m_socket.close();
+            if (m_client != null) {
+                m_client.close();
+            }
+            join();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the primitive and string paths of {@link FastSerializer} and
+ * {@link FastDeserializer}, including buffer growth on the heap and direct
+ * variants used by the messaging layer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastSerializerBenchmark {
+
+    private static final int VALUES = 64;
+    private static final String STRING_VALUE = "the quick brown fox jumps over the lazy dog";
+
+    @Param({"false", "true"})
+    public boolean m_direct;
+
+    private ByteBuffer m_serialized;
+
+    @Setup
+    public void setup() throws Exception {
+        FastSerializer fs = new FastSerializer(true, m_direct);
+        write(fs);
+        ByteBuffer buf = fs.getBuffer();
+        m_serialized = ByteBuffer.allocate(buf.remaining());
+        m_serialized.put(buf);
+        m_serialized.flip();
+        fs.discard();
+    }
+
+    private static void write(FastSerializer fs) throws Exception {
+        for (int i = 0; i < VALUES; i++) {
+            fs.writeLong(i);
+            fs.writeInt(i);
+            fs.writeShort(i);
+            fs.writeByte(i);
+            fs.writeDouble(i);
+            fs.writeString(STRING_VALUE);
+        }
+    }
+
+    @Benchmark
+    public int serialize() throws Exception {
+        // start small so that buffer growth is part of the measurement
+        FastSerializer fs = new FastSerializer(true, m_direct, null, 256);
+        try {
+            write(fs);
+            return fs.size();
+        }
+        finally {
+            fs.discard();
+        }
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole bh) throws Exception {
+        m_serialized.rewind();
+        FastDeserializer fds = new FastDeserializer(m_serialized);
+        for (int i = 0; i < VALUES; i++) {
+            bh.consume(fds.readLong());
+            bh.consume(fds.readInt());
+            bh.consume(fds.readShort());
+            bh.consume(fds.readByte());
+            bh.consume(fds.readDouble());
+            bh.consume(fds.readString());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Measures Snappy compression through {@link CompressionService}, both
+ * inline on direct buffers, as the PBD and snapshot writers do, and fanned
+ * out over the shared compression pool, as rejoin streaming does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionServiceBenchmark {
+
+    /** Number of blocks handed to the pool per invocation of the parallel benchmark */
+    private static final int PARALLEL_BLOCKS = 8;
+
+    @Param({"65536", "2097152"})
+    public int m_blockSize;
+
+    private BBContainer m_input;
+    private BBContainer m_compressed;
+    private BBContainer m_output;
+    private int m_compressedLength;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // Table-like data: runs of small integers mixed with random bytes
+        m_input = DBBPool.allocateDirect(m_blockSize);
+        ByteBuffer b = m_input.b();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (b.remaining() >= 16) {
+            b.putInt(random.nextInt(1000));
+            b.putInt(b.position());
+            b.putLong(random.nextLong());
+        }
+        b.clear();
+
+        final int maxLength = CompressionService.maxCompressedLength(m_blockSize);
+        m_compressed = DBBPool.allocateDirect(maxLength);
+        m_output = DBBPool.allocateDirect(Math.max(maxLength, m_blockSize));
+        m_compressedLength = CompressionService.compressBuffer(m_input.b(), m_compressed.b());
+        m_input.b().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        m_input.discard();
+        m_compressed.discard();
+        m_output.discard();
+    }
+
+    @Benchmark
+    public int compressDirect() throws Exception {
+        m_input.b().clear();
+        m_output.b().clear();
+        return CompressionService.compressBuffer(m_input.b(), m_output.b());
+    }
+
+    @Benchmark
+    public int decompressDirect() throws Exception {
+        ByteBuffer in = m_compressed.b();
+        in.clear();
+        in.limit(m_compressedLength);
+        m_output.b().clear();
+        return CompressionService.decompressBuffer(in, m_output.b());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PARALLEL_BLOCKS)
+    public int compressParallel() throws Exception {
+        List<Future<Integer>> results = new ArrayList<>(PARALLEL_BLOCKS);
+        for (int i = 0; i < PARALLEL_BLOCKS; i++) {
+            final ByteBuffer in = m_input.b().duplicate();
+            results.add(CompressionService.submitCompressionTask(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    BBContainer out = DBBPool.allocateDirectAndPool(CompressionService.maxCompressedLength(in.remaining()));
+                    try {
+                        return CompressionService.compressBuffer(in, out.b());
+                    }
+                    finally {
+                        out.discard();
+                    }
+                }
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        return total;
+    }
+}
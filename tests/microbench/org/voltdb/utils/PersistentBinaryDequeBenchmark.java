@@ -0,0 +1,141 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2019 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
+
+/**
+ * Measures appending to and draining a {@link PersistentBinaryDeque} the way
+ * export and DR buffers use it: one writer offering fixed-size blocks and a
+ * single cursor polling them back out. The deque lives in a scratch directory
+ * that is removed after each trial; point {@code java.io.tmpdir} at the device
+ * under test to measure something other than the default temp file system.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistentBinaryDequeBenchmark {
+
+    private static final VoltLogger LOG = new VoltLogger("EXPORT");
+    private static final String NONCE = "pbd_bench";
+    private static final String CURSOR_ID = "bench";
+    // a couple of 64MB segments worth of entries
+    private static final int BACKLOG_BYTES = 128 * 1024 * 1024;
+
+    @Param({"4096", "2097152"})
+    public int m_blockSize;
+
+    @Param({"false", "true"})
+    public boolean m_compress;
+
+    private File m_dir;
+    private PersistentBinaryDeque m_pbd;
+    private BinaryDequeReader m_reader;
+    private BBContainer m_payload;
+    private int m_backlog;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        m_dir = Files.createTempDirectory(NONCE).toFile();
+        m_pbd = new PersistentBinaryDeque(NONCE, null, m_dir, LOG, m_compress);
+        m_reader = m_pbd.openForRead(CURSOR_ID);
+        m_backlog = 0;
+
+        // Half random, half zero so that compression has something to do
+        // without the payload being trivially compressible.
+        m_payload = DBBPool.allocateDirect(m_blockSize);
+        ByteBuffer b = m_payload.b();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (b.remaining() >= 16) {
+            b.putLong(random.nextLong());
+            b.putLong(0);
+        }
+        b.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        m_pbd.closeAndDelete();
+        m_payload.discard();
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private void offer() throws Exception {
+        // offer() takes ownership of the container, so hand it a wrapper
+        // around a view of the shared payload rather than the payload itself
+        m_pbd.offer(DBBPool.wrapBB(m_payload.b().duplicate()));
+    }
+
+    private void poll(OutputContainerFactory factory) throws Exception {
+        BBContainer cont = m_reader.poll(factory);
+        if (cont != null) {
+            cont.discard();
+        }
+    }
+
+    @Benchmark
+    public void offerThenPoll() throws Exception {
+        offer();
+        poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+    }
+
+    /**
+     * Keeps a backlog of entries between the writer and the cursor so that
+     * polls read back data the page cache has had a chance to drop, and
+     * regularly cross segment boundaries.
+     */
+    @Benchmark
+    public void offerWithBacklog() throws Exception {
+        offer();
+        if (++m_backlog > BACKLOG_BYTES / m_blockSize) {
+            poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            m_backlog--;
+        }
+    }
+}